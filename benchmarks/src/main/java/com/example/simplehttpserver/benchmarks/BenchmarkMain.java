@@ -0,0 +1,27 @@
+package com.example.simplehttpserver.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the JMH command line, with the GC profiler switched on unless another
+ * {@code -prof} option is given, so every run also reports allocation per operation ({@code gc.alloc.rate.norm}).
+ * Listing and help options are passed through unchanged.
+ */
+public final class BenchmarkMain {
+
+    private static final Set<String> NON_RUN_OPTIONS = Set.of("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        if (!arguments.contains("-prof") && arguments.stream().noneMatch(NON_RUN_OPTIONS::contains)) {
+            arguments.add("-prof");
+            arguments.add("gc");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(String[]::new));
+    }
+}
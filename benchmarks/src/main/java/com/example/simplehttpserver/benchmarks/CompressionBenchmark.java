@@ -0,0 +1,93 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.http.ContentCoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of on-the-fly response compression against the bytes it saves, per payload, coding and level.
+ *
+ * <p>Timing comes from JMH; the compressed size of each combination is printed once during setup, so a run
+ * shows both sides of the trade-off. Cached static files pay this cost once per file and coding, while
+ * script output and route responses pay it on every request.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CompressionBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+
+    @Param({"index.html", "styles.css", "json"})
+    private String payload;
+
+    @Param({"GZIP", "DEFLATE"})
+    private ContentCoding coding;
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        content = "json".equals(payload) ? jsonPayload() : resource("public/" + payload);
+        int compressed = coding.encode(content, 0, content.length, level).length;
+        System.out.printf("%n%s %s level %d: %d -> %d bytes (%.1f%% saved)%n", payload, coding, level,
+                content.length, compressed, 100.0 * (content.length - compressed) / content.length);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return coding.encode(content, 0, content.length, level);
+    }
+
+    /**
+     * A typical list endpoint: repetitive keys, varied values.
+     */
+    private static byte[] jsonPayload() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"name\":\"user-").append(Integer.toHexString(i * 7919))
+                    .append("\",\"email\":\"user").append(i).append("@example.test\"")
+                    .append(",\"active\":").append(i % 3 != 0)
+                    .append(",\"score\":").append((i * 37) % 101).append('}');
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream in = CompressionBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark resource: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpResponseWriter;
+import com.example.simplehttpserver.http.HttpStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a small JSON response (its own headers plus keep-alive headers, the shape every route response has)
+ * with a copy of the previous writer and with {@link HttpResponseWriter}. The output stream discards the
+ * bytes, so the numbers are the cost of producing the head; run with {@code -prof gc} to see its allocation.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar HttpResponseWriterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpResponseWriterBenchmark {
+
+    private final LegacyHttpResponseWriter legacy = new LegacyHttpResponseWriter();
+    private final HttpResponseWriter writer = new HttpResponseWriter();
+    private final HttpResponse response = HttpResponse.json(HttpStatus.OK, "{\"userId\":\"7\"}")
+            .withHeader("Cache-Control", "no-store")
+            .withHeader("Connection", "keep-alive")
+            .withHeader("Keep-Alive", "timeout=5, max=99");
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws IOException {
+        legacy.write(new DiscardingOutputStream(blackhole), response);
+    }
+
+    @Benchmark
+    public void preEncoded(Blackhole blackhole) throws IOException {
+        writer.write(new DiscardingOutputStream(blackhole), HttpMethod.GET, response);
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        DiscardingOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            blackhole.consume(bytes);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.util.JsonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonUtil} on the inputs the {@code /echo} and {@code /users/{id}} routes give it: a short path segment
+ * with nothing to escape, a string that needs quotes, backslashes and control characters escaped, and the query
+ * map of a search request with a repeated parameter.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar JsonUtilBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonUtilBenchmark {
+
+    private final String plain = "7f3c9a12-user";
+    private final String needsEscaping = "say \"hi\"\\n\tC:\\temp\\" + (char) 1 + " done";
+    private final Map<String, List<String>> query = new LinkedHashMap<>();
+
+    {
+        query.put("q", List.of("http keep-alive"));
+        query.put("lang", List.of("en"));
+        query.put("tag", List.of("java", "nio", "\"quoted\""));
+        query.put("page", List.of("2"));
+    }
+
+    @Benchmark
+    public String escapePlain() {
+        return JsonUtil.escape(plain);
+    }
+
+    @Benchmark
+    public String escapeSpecial() {
+        return JsonUtil.escape(needsEscaping);
+    }
+
+    @Benchmark
+    public String queryJson() {
+        return JsonUtil.toQueryJson(query);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copy of how {@code HttpResponseWriter} wrote a response with an in-memory body before heads were
+ * pre-encoded: the headers are copied into a new map, {@code Date} is formatted for every response and the
+ * head is built in a {@link StringBuilder}, then encoded, then written separately from the body. Kept only as
+ * the baseline for {@link HttpResponseWriterBenchmark}.
+ */
+final class LegacyHttpResponseWriter {
+
+    private static final DateTimeFormatter RFC_1123 = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    void write(OutputStream outputStream, HttpResponse response) throws IOException {
+        ResponseBody.Bytes body = (ResponseBody.Bytes) response.responseBody();
+
+        Map<String, String> headers = new LinkedHashMap<>(response.headers());
+        headers.putIfAbsent("Date", RFC_1123.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        headers.putIfAbsent("Server", "SimpleHttpServer/2.0");
+        headers.putIfAbsent("Content-Length", Long.toString(body.length()));
+        headers.putIfAbsent("Connection", "close");
+
+        outputStream.write(head(response.status(), headers));
+        outputStream.write(body.array(), body.offset(), body.count());
+        outputStream.flush();
+    }
+
+    private static byte[] head(HttpStatus status, Map<String, String> headers) {
+        StringBuilder statusAndHeaders = new StringBuilder();
+        statusAndHeaders
+                .append("HTTP/1.1 ")
+                .append(status.code())
+                .append(' ')
+                .append(status.reason())
+                .append("\r\n");
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            statusAndHeaders
+                    .append(header.getKey())
+                    .append(": ")
+                    .append(header.getValue())
+                    .append("\r\n");
+        }
+
+        statusAndHeaders.append("\r\n");
+        return statusAndHeaders.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
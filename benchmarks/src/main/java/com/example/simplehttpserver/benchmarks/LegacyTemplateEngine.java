@@ -0,0 +1,28 @@
+package com.example.simplehttpserver.benchmarks;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copy of the original regex-based {@code TemplateEngine}, kept as the baseline for
+ * {@link TemplateEngineBenchmark}.
+ */
+final class LegacyTemplateEngine {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{\\s*([a-zA-Z0-9_.-]+)\\s*}}");
+
+    String render(String template, Map<String, String> model) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+        StringBuffer result = new StringBuffer();
+
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            String replacement = model.getOrDefault(key, "");
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+
+        matcher.appendTail(result);
+        return result.toString();
+    }
+}
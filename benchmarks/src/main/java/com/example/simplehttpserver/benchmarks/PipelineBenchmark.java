@@ -0,0 +1,184 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.app.DefaultRoutes;
+import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.config.ServerConfigLoader;
+import com.example.simplehttpserver.routing.Router;
+import com.example.simplehttpserver.server.SimpleHttpServer;
+import com.example.simplehttpserver.template.TemplateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The whole request pipeline, bytes in to bytes out: {@link SimpleHttpServer#serve(Socket)} reads
+ * {@value #REQUESTS_PER_CONNECTION} pipelined keep-alive requests from an in-memory socket, and parses, routes,
+ * resolves the session, renders and writes each of them with the bundled configuration and default routes.
+ * Scores are per request.
+ *
+ * <p>The requests look like a returning browser's, including a session cookie, so no session is created per
+ * request. They do not accept compressed responses. Nothing touches the network, so this is the CPU and
+ * allocation cost of the server itself; the per-request access log line is switched off, because writing it to
+ * the console would dominate every workload.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar PipelineBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    private static final int REQUESTS_PER_CONNECTION = 10;
+
+    @Param({"hello", "json", "echo", "static", "template", "script"})
+    private String workload;
+
+    // Held so the level set on it is not lost when the logger is garbage collected.
+    private final Logger serverLogger = Logger.getLogger("com.example.simplehttpserver");
+    private SimpleHttpServer server;
+    private byte[] requests;
+
+    @Setup
+    public void setUp() throws IOException {
+        serverLogger.setLevel(Level.WARNING);
+        ServerConfig config = ServerConfigLoader.load(null);
+        Router router = new Router();
+        DefaultRoutes.register(router, new TemplateService(config.templatesRoot()));
+        server = new SimpleHttpServer(config, router);
+
+        String path = switch (workload) {
+            case "hello" -> "/hello";
+            case "json" -> "/users/42";
+            case "echo" -> "/echo?q=http+keep-alive&tag=java&tag=nio";
+            case "static" -> "/styles.css";
+            case "template" -> "/template?name=Ana";
+            case "script" -> "/scripts/basic.smscr";
+            default -> throw new IllegalArgumentException("Unknown workload: " + workload);
+        };
+        String cookie = sessionCookie(path);
+        byte[] request = request(path, "Cookie: theme=dark; " + cookie + "\r\n");
+        requests = new byte[request.length * REQUESTS_PER_CONNECTION];
+        for (int i = 0; i < REQUESTS_PER_CONNECTION; i++) {
+            System.arraycopy(request, 0, requests, i * request.length, request.length);
+        }
+
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        server.serve(new InMemorySocket(requests, responses));
+        String text = responses.toString(StandardCharsets.ISO_8859_1);
+        if (text.split("HTTP/1.1 200 ", -1).length - 1 != REQUESTS_PER_CONNECTION || text.contains("Set-Cookie")) {
+            throw new IllegalStateException("Unexpected responses for " + path + ":\n" + text);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS_PER_CONNECTION)
+    public long keepAliveConnection() {
+        CountingOutputStream responses = new CountingOutputStream();
+        server.serve(new InMemorySocket(requests, responses));
+        return responses.count;
+    }
+
+    /**
+     * Sends one request without a cookie and returns the {@code name=value} of the session cookie it was given.
+     */
+    private String sessionCookie(String path) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        server.serve(new InMemorySocket(request(path, ""), response));
+        String text = response.toString(StandardCharsets.ISO_8859_1);
+        int start = text.indexOf("Set-Cookie: ");
+        if (start < 0) {
+            throw new IllegalStateException("No session cookie for " + path + ":\n" + text);
+        }
+        start += "Set-Cookie: ".length();
+        return text.substring(start, text.indexOf(';', start));
+    }
+
+    private static byte[] request(String path, String extraHeaders) {
+        return ("GET " + path + " HTTP/1.1\r\n"
+                + "Host: localhost:5721\r\n"
+                + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                + "Chrome/124.0.0.0 Safari/537.36\r\n"
+                + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+                + "Accept-Language: en-US,en;q=0.9\r\n"
+                + extraHeaders
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * A connected socket whose peer has already sent {@code input} and then shut down its side.
+     */
+    private static final class InMemorySocket extends Socket {
+
+        private final InputStream input;
+        private final OutputStream output;
+
+        InMemorySocket(byte[] input, OutputStream output) {
+            this.input = new ByteArrayInputStream(input);
+            this.output = output;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return output;
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
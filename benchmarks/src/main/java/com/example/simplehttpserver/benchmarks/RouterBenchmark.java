@@ -0,0 +1,106 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.routing.RouteHandler;
+import com.example.simplehttpserver.routing.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch cost of the segment-trie {@link Router} against a copy of the previous list-based router, as the
+ * number of registered routes grows.
+ *
+ * <p>Routes look like a versioned REST API: for every resource a collection, an item ({@code {id}}) and a
+ * nested item route, for GET and POST. {@code hit} dispatches to a parameterized route registered last, the
+ * worst case for a linear scan; {@code miss} is a path no route matches followed by the {@code Allow} lookup,
+ * which is what every static file and script request pays before it reaches its service.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar RouterBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    private int routeCount;
+
+    private Router router;
+    private LegacyRouter legacyRouter;
+    private HttpRequest hitRequest;
+    private HttpRequest missRequest;
+
+    @Setup
+    public void setUp() {
+        router = new Router();
+        legacyRouter = new LegacyRouter();
+        RouteHandler handler = context -> HttpResponse.text(HttpStatus.OK, "ok");
+
+        String lastItemPath = null;
+        for (int i = 0; i < routeCount; i++) {
+            int resource = i / 6;
+            String base = "/api/v" + (resource % 3 + 1) + "/resource" + resource;
+            String pattern = switch (i % 3) {
+                case 0 -> base;
+                case 1 -> base + "/{id}";
+                default -> base + "/{id}/items/{itemId}";
+            };
+            HttpMethod method = (i / 3) % 2 == 0 ? HttpMethod.GET : HttpMethod.POST;
+            router.addRoute(method, pattern, handler);
+            legacyRouter.addRoute(method, pattern, handler);
+            if (method == HttpMethod.GET && i % 3 == 1) {
+                lastItemPath = base + "/42";
+            }
+        }
+
+        hitRequest = request(lastItemPath);
+        missRequest = request("/css/site/styles.css");
+    }
+
+    @Benchmark
+    public void trieHit(Blackhole blackhole) throws Exception {
+        blackhole.consume(router.dispatch(hitRequest, null));
+    }
+
+    @Benchmark
+    public void legacyHit(Blackhole blackhole) throws Exception {
+        blackhole.consume(legacyRouter.dispatch(hitRequest, null));
+    }
+
+    @Benchmark
+    public void trieMiss(Blackhole blackhole) throws Exception {
+        blackhole.consume(router.dispatch(missRequest, null));
+        blackhole.consume(router.allowedMethods(missRequest.path()));
+    }
+
+    @Benchmark
+    public void legacyMiss(Blackhole blackhole) throws Exception {
+        blackhole.consume(legacyRouter.dispatch(missRequest, null));
+        blackhole.consume(legacyRouter.allowedMethods(missRequest.path()));
+    }
+
+    private static HttpRequest request(String path) {
+        return new HttpRequest(HttpMethod.GET, path, path, "HTTP/1.1", Map.of(), Map.of(), new byte[0]);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
+import com.example.simplehttpserver.script.compiler.ScriptCompiler;
+import com.example.simplehttpserver.script.parser.ScriptParser;
+import com.example.simplehttpserver.script.runtime.ScriptEngine;
+import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptProgram;
+import com.example.simplehttpserver.script.runtime.ScriptResolver;
+import com.example.simplehttpserver.server.Session;
+import com.example.simplehttpserver.server.SessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution cost of a parsed script in a copy of the original tree-walking interpreter, in the slot-resolved
+ * {@link ScriptEngine} and compiled by {@link ScriptCompiler}. Parsing, resolution and compilation are done
+ * once in setup, as with the script cache.
+ *
+ * <p>{@code table} is a loop-heavy page, a 12 by 12 multiplication table with integer and floating point
+ * arithmetic in the inner loop; {@code fibonacci} is the bundled example, dominated by session parameter
+ * functions rather than arithmetic.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar ScriptEngineBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScriptEngineBenchmark {
+
+    private static final String TABLE = """
+            <table>
+            [$ FOR row 1 12 1 $]<tr>[$ FOR column 1 12 1 $]<td>[$= row column * $] ([$= row column * 0.5 * $])</td>[$ END $]</tr>
+            [$ END $]</table>
+            """;
+
+    @Param({"table", "fibonacci"})
+    private String script;
+
+    private SessionManager sessionManager;
+    private Session session;
+    private ScriptDocumentNode document;
+    private ScriptProgram resolved;
+    private ScriptProgram compiled;
+
+    @Setup
+    public void setUp() throws IOException {
+        sessionManager = new SessionManager(60);
+        session = sessionManager.resolve(
+                new HttpRequest(HttpMethod.GET, "/", "/", "HTTP/1.1", Map.of(), Map.of(), new byte[0])).session();
+        String source = "table".equals(script) ? TABLE : resource("/public/scripts/" + script + ".smscr");
+        document = new ScriptParser().parse(source);
+        resolved = new ScriptResolver().resolve(document);
+        compiled = new ScriptCompiler().compile(document);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionManager.close();
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        ScriptExecutionContext context = new ScriptExecutionContext(Map.of(), session);
+        new LegacyScriptEngine().execute(document, context);
+        return context.outputBytes();
+    }
+
+    @Benchmark
+    public byte[] interpreted() {
+        ScriptExecutionContext context = new ScriptExecutionContext(Map.of(), session);
+        resolved.execute(context);
+        return context.outputBytes();
+    }
+
+    @Benchmark
+    public byte[] compiled() {
+        ScriptExecutionContext context = new ScriptExecutionContext(Map.of(), session);
+        compiled.execute(context);
+        return context.outputBytes();
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream input = ScriptEngineBenchmark.class.getResourceAsStream(name)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
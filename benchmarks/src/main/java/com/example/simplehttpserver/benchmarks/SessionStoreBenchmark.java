@@ -0,0 +1,115 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.config.SessionConfig;
+import com.example.simplehttpserver.config.SessionStoreType;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.server.SessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-path cost of each session backend: finding an existing session by its cookie, creating a new one and
+ * setting an attribute, including the {@code Set-Cookie} header that follows from it.
+ *
+ * <p>The file store does its disk writes on a background thread, so these numbers show what a request pays for
+ * queueing changes, not the cost of the writes themselves. With {@code cookie} the server keeps nothing:
+ * resolving verifies and decodes the signed cookie, and a changed session is signed and encoded again.
+ * 10,000 sessions are created up front and the benchmarks cycle through them.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar SessionStoreBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionStoreBenchmark {
+
+    private static final int SESSIONS = 10_000;
+
+    @Param({"memory", "file", "cookie"})
+    private String store;
+
+    private Path directory;
+    private SessionManager manager;
+    private HttpRequest[] requests;
+    private SessionManager.SessionResolution[] sessions;
+    private HttpRequest newVisitor;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sessions");
+        SessionConfig config = new SessionConfig(SessionStoreType.fromProperty(store),
+                directory.resolve("sessions.log").toString(), SessionConfig.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                "benchmark-secret-benchmark-secret");
+        manager = new SessionManager(3600, config);
+        newVisitor = request(Map.of());
+        requests = new HttpRequest[SESSIONS];
+        sessions = new SessionManager.SessionResolution[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions[i] = manager.resolve(newVisitor);
+            sessions[i].session().put("user", "user" + i);
+            String setCookie = manager.setCookieHeader(sessions[i]).orElseThrow();
+            String sid = setCookie.substring(0, setCookie.indexOf(';'));
+            requests[i] = request(Map.of("Cookie", List.of("theme=dark; " + sid)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Optional<String> resolveExisting() {
+        next = (next + 1) % SESSIONS;
+        return manager.setCookieHeader(manager.resolve(requests[next]));
+    }
+
+    @Benchmark
+    public Optional<String> create() {
+        return manager.setCookieHeader(manager.resolve(newVisitor));
+    }
+
+    @Benchmark
+    public Optional<String> put() {
+        next = (next + 1) % SESSIONS;
+        SessionManager.SessionResolution resolution = sessions[next];
+        resolution.session().put("lastPage", "/catalog/" + (next & 7));
+        return manager.setCookieHeader(resolution);
+    }
+
+    private static HttpRequest request(Map<String, List<String>> headers) {
+        return new HttpRequest(HttpMethod.GET, "/", "/", "HTTP/1.1", headers, Map.of(), new byte[0]);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.simplehttpserver.benchmarks;
+
+import com.example.simplehttpserver.template.CompiledTemplate;
+import com.example.simplehttpserver.template.TemplateCompiler;
+import com.example.simplehttpserver.template.TemplateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a template to response bytes with the original regex engine and with a template compiled once by
+ * {@link TemplateCompiler}.
+ *
+ * <p>{@code perRequestLoad} is what the {@code /template} route used to do on every request: read the template
+ * from the classpath, then run the regex over it. {@code regex} keeps the template text in memory and measures
+ * only the replacement. {@code compiled} renders the cached {@link CompiledTemplate} through
+ * {@link TemplateService}.
+ *
+ * <p>{@code demo} is the bundled demo page with three placeholders; {@code catalog}, from the benchmark
+ * resources, is a 100 row table with three placeholders per row.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar TemplateEngineBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateEngineBenchmark {
+
+    @Param({"demo", "catalog"})
+    private String template;
+
+    private final LegacyTemplateEngine legacy = new LegacyTemplateEngine();
+    private final TemplateService service = new TemplateService("templates");
+    private String resourceName;
+    private String source;
+    private Map<String, String> model;
+
+    @Setup
+    public void setUp() throws IOException {
+        resourceName = template + ".html.tpl";
+        source = resource("templates/" + resourceName);
+        model = new LinkedHashMap<>();
+        if ("demo".equals(template)) {
+            model.put("name", "Student");
+            model.put("visits", "3");
+            model.put("timestamp", "2024-05-01T12:00:00.000");
+        } else {
+            for (int i = 0; i < 100; i++) {
+                model.put("item" + i + ".name", "Item number " + i);
+                model.put("item" + i + ".price", (i * 7 % 100) + ".99");
+                model.put("item" + i + ".stock", i % 3 == 0 ? "low" : "ok");
+            }
+        }
+        service.compiled(resourceName);
+    }
+
+    @Benchmark
+    public byte[] perRequestLoad() throws IOException {
+        return legacy.render(resource("templates/" + resourceName), model).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] regex() {
+        return legacy.render(source, model).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] compiled() throws IOException {
+        return service.renderBytes(resourceName, model);
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream input = TemplateEngineBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+<!doctype html>
+<html lang="en">
+<head><meta charset="UTF-8" /><title>Catalog</title></head>
+<body>
+<table>
+<tr><td>{{ item0.name }}</td><td>{{item0.price}}</td><td class="{{item0.stock}}">in stock</td></tr>
+<tr><td>{{ item1.name }}</td><td>{{item1.price}}</td><td class="{{item1.stock}}">in stock</td></tr>
+<tr><td>{{ item2.name }}</td><td>{{item2.price}}</td><td class="{{item2.stock}}">in stock</td></tr>
+<tr><td>{{ item3.name }}</td><td>{{item3.price}}</td><td class="{{item3.stock}}">in stock</td></tr>
+<tr><td>{{ item4.name }}</td><td>{{item4.price}}</td><td class="{{item4.stock}}">in stock</td></tr>
+<tr><td>{{ item5.name }}</td><td>{{item5.price}}</td><td class="{{item5.stock}}">in stock</td></tr>
+<tr><td>{{ item6.name }}</td><td>{{item6.price}}</td><td class="{{item6.stock}}">in stock</td></tr>
+<tr><td>{{ item7.name }}</td><td>{{item7.price}}</td><td class="{{item7.stock}}">in stock</td></tr>
+<tr><td>{{ item8.name }}</td><td>{{item8.price}}</td><td class="{{item8.stock}}">in stock</td></tr>
+<tr><td>{{ item9.name }}</td><td>{{item9.price}}</td><td class="{{item9.stock}}">in stock</td></tr>
+<tr><td>{{ item10.name }}</td><td>{{item10.price}}</td><td class="{{item10.stock}}">in stock</td></tr>
+<tr><td>{{ item11.name }}</td><td>{{item11.price}}</td><td class="{{item11.stock}}">in stock</td></tr>
+<tr><td>{{ item12.name }}</td><td>{{item12.price}}</td><td class="{{item12.stock}}">in stock</td></tr>
+<tr><td>{{ item13.name }}</td><td>{{item13.price}}</td><td class="{{item13.stock}}">in stock</td></tr>
+<tr><td>{{ item14.name }}</td><td>{{item14.price}}</td><td class="{{item14.stock}}">in stock</td></tr>
+<tr><td>{{ item15.name }}</td><td>{{item15.price}}</td><td class="{{item15.stock}}">in stock</td></tr>
+<tr><td>{{ item16.name }}</td><td>{{item16.price}}</td><td class="{{item16.stock}}">in stock</td></tr>
+<tr><td>{{ item17.name }}</td><td>{{item17.price}}</td><td class="{{item17.stock}}">in stock</td></tr>
+<tr><td>{{ item18.name }}</td><td>{{item18.price}}</td><td class="{{item18.stock}}">in stock</td></tr>
+<tr><td>{{ item19.name }}</td><td>{{item19.price}}</td><td class="{{item19.stock}}">in stock</td></tr>
+<tr><td>{{ item20.name }}</td><td>{{item20.price}}</td><td class="{{item20.stock}}">in stock</td></tr>
+<tr><td>{{ item21.name }}</td><td>{{item21.price}}</td><td class="{{item21.stock}}">in stock</td></tr>
+<tr><td>{{ item22.name }}</td><td>{{item22.price}}</td><td class="{{item22.stock}}">in stock</td></tr>
+<tr><td>{{ item23.name }}</td><td>{{item23.price}}</td><td class="{{item23.stock}}">in stock</td></tr>
+<tr><td>{{ item24.name }}</td><td>{{item24.price}}</td><td class="{{item24.stock}}">in stock</td></tr>
+<tr><td>{{ item25.name }}</td><td>{{item25.price}}</td><td class="{{item25.stock}}">in stock</td></tr>
+<tr><td>{{ item26.name }}</td><td>{{item26.price}}</td><td class="{{item26.stock}}">in stock</td></tr>
+<tr><td>{{ item27.name }}</td><td>{{item27.price}}</td><td class="{{item27.stock}}">in stock</td></tr>
+<tr><td>{{ item28.name }}</td><td>{{item28.price}}</td><td class="{{item28.stock}}">in stock</td></tr>
+<tr><td>{{ item29.name }}</td><td>{{item29.price}}</td><td class="{{item29.stock}}">in stock</td></tr>
+<tr><td>{{ item30.name }}</td><td>{{item30.price}}</td><td class="{{item30.stock}}">in stock</td></tr>
+<tr><td>{{ item31.name }}</td><td>{{item31.price}}</td><td class="{{item31.stock}}">in stock</td></tr>
+<tr><td>{{ item32.name }}</td><td>{{item32.price}}</td><td class="{{item32.stock}}">in stock</td></tr>
+<tr><td>{{ item33.name }}</td><td>{{item33.price}}</td><td class="{{item33.stock}}">in stock</td></tr>
+<tr><td>{{ item34.name }}</td><td>{{item34.price}}</td><td class="{{item34.stock}}">in stock</td></tr>
+<tr><td>{{ item35.name }}</td><td>{{item35.price}}</td><td class="{{item35.stock}}">in stock</td></tr>
+<tr><td>{{ item36.name }}</td><td>{{item36.price}}</td><td class="{{item36.stock}}">in stock</td></tr>
+<tr><td>{{ item37.name }}</td><td>{{item37.price}}</td><td class="{{item37.stock}}">in stock</td></tr>
+<tr><td>{{ item38.name }}</td><td>{{item38.price}}</td><td class="{{item38.stock}}">in stock</td></tr>
+<tr><td>{{ item39.name }}</td><td>{{item39.price}}</td><td class="{{item39.stock}}">in stock</td></tr>
+<tr><td>{{ item40.name }}</td><td>{{item40.price}}</td><td class="{{item40.stock}}">in stock</td></tr>
+<tr><td>{{ item41.name }}</td><td>{{item41.price}}</td><td class="{{item41.stock}}">in stock</td></tr>
+<tr><td>{{ item42.name }}</td><td>{{item42.price}}</td><td class="{{item42.stock}}">in stock</td></tr>
+<tr><td>{{ item43.name }}</td><td>{{item43.price}}</td><td class="{{item43.stock}}">in stock</td></tr>
+<tr><td>{{ item44.name }}</td><td>{{item44.price}}</td><td class="{{item44.stock}}">in stock</td></tr>
+<tr><td>{{ item45.name }}</td><td>{{item45.price}}</td><td class="{{item45.stock}}">in stock</td></tr>
+<tr><td>{{ item46.name }}</td><td>{{item46.price}}</td><td class="{{item46.stock}}">in stock</td></tr>
+<tr><td>{{ item47.name }}</td><td>{{item47.price}}</td><td class="{{item47.stock}}">in stock</td></tr>
+<tr><td>{{ item48.name }}</td><td>{{item48.price}}</td><td class="{{item48.stock}}">in stock</td></tr>
+<tr><td>{{ item49.name }}</td><td>{{item49.price}}</td><td class="{{item49.stock}}">in stock</td></tr>
+<tr><td>{{ item50.name }}</td><td>{{item50.price}}</td><td class="{{item50.stock}}">in stock</td></tr>
+<tr><td>{{ item51.name }}</td><td>{{item51.price}}</td><td class="{{item51.stock}}">in stock</td></tr>
+<tr><td>{{ item52.name }}</td><td>{{item52.price}}</td><td class="{{item52.stock}}">in stock</td></tr>
+<tr><td>{{ item53.name }}</td><td>{{item53.price}}</td><td class="{{item53.stock}}">in stock</td></tr>
+<tr><td>{{ item54.name }}</td><td>{{item54.price}}</td><td class="{{item54.stock}}">in stock</td></tr>
+<tr><td>{{ item55.name }}</td><td>{{item55.price}}</td><td class="{{item55.stock}}">in stock</td></tr>
+<tr><td>{{ item56.name }}</td><td>{{item56.price}}</td><td class="{{item56.stock}}">in stock</td></tr>
+<tr><td>{{ item57.name }}</td><td>{{item57.price}}</td><td class="{{item57.stock}}">in stock</td></tr>
+<tr><td>{{ item58.name }}</td><td>{{item58.price}}</td><td class="{{item58.stock}}">in stock</td></tr>
+<tr><td>{{ item59.name }}</td><td>{{item59.price}}</td><td class="{{item59.stock}}">in stock</td></tr>
+<tr><td>{{ item60.name }}</td><td>{{item60.price}}</td><td class="{{item60.stock}}">in stock</td></tr>
+<tr><td>{{ item61.name }}</td><td>{{item61.price}}</td><td class="{{item61.stock}}">in stock</td></tr>
+<tr><td>{{ item62.name }}</td><td>{{item62.price}}</td><td class="{{item62.stock}}">in stock</td></tr>
+<tr><td>{{ item63.name }}</td><td>{{item63.price}}</td><td class="{{item63.stock}}">in stock</td></tr>
+<tr><td>{{ item64.name }}</td><td>{{item64.price}}</td><td class="{{item64.stock}}">in stock</td></tr>
+<tr><td>{{ item65.name }}</td><td>{{item65.price}}</td><td class="{{item65.stock}}">in stock</td></tr>
+<tr><td>{{ item66.name }}</td><td>{{item66.price}}</td><td class="{{item66.stock}}">in stock</td></tr>
+<tr><td>{{ item67.name }}</td><td>{{item67.price}}</td><td class="{{item67.stock}}">in stock</td></tr>
+<tr><td>{{ item68.name }}</td><td>{{item68.price}}</td><td class="{{item68.stock}}">in stock</td></tr>
+<tr><td>{{ item69.name }}</td><td>{{item69.price}}</td><td class="{{item69.stock}}">in stock</td></tr>
+<tr><td>{{ item70.name }}</td><td>{{item70.price}}</td><td class="{{item70.stock}}">in stock</td></tr>
+<tr><td>{{ item71.name }}</td><td>{{item71.price}}</td><td class="{{item71.stock}}">in stock</td></tr>
+<tr><td>{{ item72.name }}</td><td>{{item72.price}}</td><td class="{{item72.stock}}">in stock</td></tr>
+<tr><td>{{ item73.name }}</td><td>{{item73.price}}</td><td class="{{item73.stock}}">in stock</td></tr>
+<tr><td>{{ item74.name }}</td><td>{{item74.price}}</td><td class="{{item74.stock}}">in stock</td></tr>
+<tr><td>{{ item75.name }}</td><td>{{item75.price}}</td><td class="{{item75.stock}}">in stock</td></tr>
+<tr><td>{{ item76.name }}</td><td>{{item76.price}}</td><td class="{{item76.stock}}">in stock</td></tr>
+<tr><td>{{ item77.name }}</td><td>{{item77.price}}</td><td class="{{item77.stock}}">in stock</td></tr>
+<tr><td>{{ item78.name }}</td><td>{{item78.price}}</td><td class="{{item78.stock}}">in stock</td></tr>
+<tr><td>{{ item79.name }}</td><td>{{item79.price}}</td><td class="{{item79.stock}}">in stock</td></tr>
+<tr><td>{{ item80.name }}</td><td>{{item80.price}}</td><td class="{{item80.stock}}">in stock</td></tr>
+<tr><td>{{ item81.name }}</td><td>{{item81.price}}</td><td class="{{item81.stock}}">in stock</td></tr>
+<tr><td>{{ item82.name }}</td><td>{{item82.price}}</td><td class="{{item82.stock}}">in stock</td></tr>
+<tr><td>{{ item83.name }}</td><td>{{item83.price}}</td><td class="{{item83.stock}}">in stock</td></tr>
+<tr><td>{{ item84.name }}</td><td>{{item84.price}}</td><td class="{{item84.stock}}">in stock</td></tr>
+<tr><td>{{ item85.name }}</td><td>{{item85.price}}</td><td class="{{item85.stock}}">in stock</td></tr>
+<tr><td>{{ item86.name }}</td><td>{{item86.price}}</td><td class="{{item86.stock}}">in stock</td></tr>
+<tr><td>{{ item87.name }}</td><td>{{item87.price}}</td><td class="{{item87.stock}}">in stock</td></tr>
+<tr><td>{{ item88.name }}</td><td>{{item88.price}}</td><td class="{{item88.stock}}">in stock</td></tr>
+<tr><td>{{ item89.name }}</td><td>{{item89.price}}</td><td class="{{item89.stock}}">in stock</td></tr>
+<tr><td>{{ item90.name }}</td><td>{{item90.price}}</td><td class="{{item90.stock}}">in stock</td></tr>
+<tr><td>{{ item91.name }}</td><td>{{item91.price}}</td><td class="{{item91.stock}}">in stock</td></tr>
+<tr><td>{{ item92.name }}</td><td>{{item92.price}}</td><td class="{{item92.stock}}">in stock</td></tr>
+<tr><td>{{ item93.name }}</td><td>{{item93.price}}</td><td class="{{item93.stock}}">in stock</td></tr>
+<tr><td>{{ item94.name }}</td><td>{{item94.price}}</td><td class="{{item94.stock}}">in stock</td></tr>
+<tr><td>{{ item95.name }}</td><td>{{item95.price}}</td><td class="{{item95.stock}}">in stock</td></tr>
+<tr><td>{{ item96.name }}</td><td>{{item96.price}}</td><td class="{{item96.stock}}">in stock</td></tr>
+<tr><td>{{ item97.name }}</td><td>{{item97.price}}</td><td class="{{item97.stock}}">in stock</td></tr>
+<tr><td>{{ item98.name }}</td><td>{{item98.price}}</td><td class="{{item98.stock}}">in stock</td></tr>
+<tr><td>{{ item99.name }}</td><td>{{item99.price}}</td><td class="{{item99.stock}}">in stock</td></tr>
+</table>
+</body>
+</html>
@@ -4,11 +4,13 @@ import com.example.simplehttpserver.http.HttpMethod;
 import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.http.HttpStatus;
 import com.example.simplehttpserver.routing.Router;
+import com.example.simplehttpserver.template.CompiledTemplate;
 import com.example.simplehttpserver.template.TemplateService;
 import com.example.simplehttpserver.util.JsonUtil;
 
 import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,6 +18,11 @@ import java.util.Map;
  */
 public final class DefaultRoutes {
 
+    private static final List<Map<String, String>> DEMO_LINKS = List.of(
+            Map.of("href", "/hello", "label", "Plain text route"),
+            Map.of("href", "/echo?course=http", "label", "JSON echo route"),
+            Map.of("href", "/scripts/basic.smscr", "label", "Script example"));
+
     private DefaultRoutes() {
     }
 
@@ -36,13 +43,16 @@ public final class DefaultRoutes {
             context.session().put("templateVisits", Integer.toString(visits));
 
             String name = context.queryParam("name").orElse("Student");
-            Map<String, String> model = new LinkedHashMap<>();
+            Map<String, Object> model = new LinkedHashMap<>();
             model.put("name", name);
-            model.put("visits", Integer.toString(visits));
+            model.put("visits", visits);
+            model.put("firstVisit", visits == 1);
+            model.put("links", DEMO_LINKS);
             model.put("timestamp", LocalDateTime.now().toString());
 
-            String html = templateService.render("demo.html.tpl", model);
-            return HttpResponse.html(HttpStatus.OK, html);
+            CompiledTemplate template = templateService.compiled("demo.html.tpl");
+            return HttpResponse.streaming(HttpStatus.OK, "text/html; charset=UTF-8",
+                    outputStream -> template.renderTo(model, outputStream));
         });
 
         router.addRoute(HttpMethod.GET, "/users/{id}", context -> {
@@ -34,6 +34,10 @@ public final class SimpleHttpServerApplication {
         try (SimpleHttpServer server = new SimpleHttpServer(config, router);
              BufferedReader console = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
 
+            server.metrics().counter("template_cache_hits_total", "Template lookups served from the template cache.",
+                    templateService::cacheHits);
+            server.metrics().counter("template_cache_misses_total", "Template lookups that compiled the template.",
+                    templateService::cacheMisses);
             server.start();
             LOGGER.info(() -> "Server started on http://" + config.host() + ":" + server.getBoundPort());
             LOGGER.info("Type 'stop' and press Enter to stop the server.");
@@ -0,0 +1,63 @@
+package com.example.simplehttpserver.config;
+
+/**
+ * How requests are recorded in the access log.
+ *
+ * @param target              logger, file or off
+ * @param file                path of the log file for {@link AccessLogTarget#FILE}; rotated files get the suffixes
+ *                            {@code .1} (newest) to {@code .maxFiles}
+ * @param bufferRecords       records queued for the writer before {@code whenFull} applies, rounded up to a power
+ *                            of two
+ * @param whenFull            drop records or block requests while the buffer is full
+ * @param maxFileBytes        size at which the file is rotated; 0 never rotates
+ * @param maxFiles            rotated files kept besides the current one
+ * @param flushIntervalMillis how long the writer sleeps when the buffer is empty, and so the longest a record
+ *                            waits before it is written
+ */
+public record AccessLogConfig(
+        AccessLogTarget target,
+        String file,
+        int bufferRecords,
+        AccessLogOverflow whenFull,
+        long maxFileBytes,
+        int maxFiles,
+        long flushIntervalMillis
+) {
+    public static final String DEFAULT_FILE = "access.log";
+    public static final int DEFAULT_BUFFER_RECORDS = 4096;
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    public AccessLogConfig {
+        if (target == null) {
+            target = AccessLogTarget.LOGGER;
+        }
+        if (file == null || file.isBlank()) {
+            file = DEFAULT_FILE;
+        }
+        if (bufferRecords <= 0) {
+            bufferRecords = DEFAULT_BUFFER_RECORDS;
+        }
+        if (whenFull == null) {
+            whenFull = AccessLogOverflow.DROP;
+        }
+        if (maxFileBytes < 0) {
+            maxFileBytes = DEFAULT_MAX_FILE_BYTES;
+        }
+        if (maxFiles < 0) {
+            maxFiles = DEFAULT_MAX_FILES;
+        }
+        if (flushIntervalMillis <= 0) {
+            flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+        }
+    }
+
+    /**
+     * Access log through the logger, dropping records when the writer falls behind.
+     */
+    public static AccessLogConfig defaults() {
+        return new AccessLogConfig(AccessLogTarget.LOGGER, DEFAULT_FILE, DEFAULT_BUFFER_RECORDS,
+                AccessLogOverflow.DROP, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+
+/**
+ * What a request does when the access log buffer is full because the writer has fallen behind.
+ */
+public enum AccessLogOverflow {
+    /**
+     * Skip the record and count it as dropped; requests never wait for the log.
+     */
+    DROP,
+    /**
+     * Wait until the writer has made room; no record is lost, but a slow disk slows down requests.
+     */
+    BLOCK;
+
+    public static AccessLogOverflow fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported accessLog.whenFull: " + value, exception);
+        }
+    }
+}
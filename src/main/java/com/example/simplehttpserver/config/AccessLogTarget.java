@@ -0,0 +1,29 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+
+/**
+ * Where the access log goes. Records are always queued by the request and written by a background thread.
+ */
+public enum AccessLogTarget {
+    /**
+     * The {@code java.util.logging} logger of the access log, at {@code INFO}; the default console output.
+     */
+    LOGGER,
+    /**
+     * A file written in batches and rotated by size.
+     */
+    FILE,
+    /**
+     * Nowhere; requests are not recorded.
+     */
+    OFF;
+
+    public static AccessLogTarget fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported accessLog.target: " + value, exception);
+        }
+    }
+}
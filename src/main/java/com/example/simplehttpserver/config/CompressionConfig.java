@@ -0,0 +1,59 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Response compression settings.
+ *
+ * @param enabled   whether responses are compressed when the client accepts gzip or deflate
+ * @param minBytes  bodies smaller than this are sent uncompressed; streamed bodies are always eligible
+ * @param level     deflate level from {@code 1} (fastest) to {@code 9} (smallest)
+ * @param mimeTypes compressible media types without parameters; {@code type/*} entries match a whole family
+ */
+public record CompressionConfig(
+        boolean enabled,
+        int minBytes,
+        int level,
+        Set<String> mimeTypes
+) {
+    public static final int DEFAULT_MIN_BYTES = 1024;
+    public static final int DEFAULT_LEVEL = 6;
+    public static final Set<String> DEFAULT_MIME_TYPES = Set.of(
+            "text/*",
+            "application/json",
+            "application/javascript",
+            "application/xml",
+            "image/svg+xml"
+    );
+
+    public CompressionConfig {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        mimeTypes = mimeTypes.stream()
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public static CompressionConfig defaults() {
+        return new CompressionConfig(true, DEFAULT_MIN_BYTES, DEFAULT_LEVEL, DEFAULT_MIME_TYPES);
+    }
+
+    /**
+     * Whether a {@code Content-Type} header value names a compressible media type.
+     */
+    public boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters < 0 ? contentType : contentType.substring(0, parameters))
+                .trim().toLowerCase(Locale.ROOT);
+        int slash = mediaType.indexOf('/');
+        return mimeTypes.contains(mediaType)
+                || (slash > 0 && mimeTypes.contains(mediaType.substring(0, slash) + "/*"));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+
+/**
+ * Which threads run connection handlers (blocking I/O) or request handlers (NIO).
+ */
+public enum ExecutionMode {
+    /**
+     * Fixed pool of platform threads with a bounded queue; a full queue is answered with 503.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per task, admitted by a concurrency limit instead of a queue.
+     */
+    VIRTUAL;
+
+    public static ExecutionMode fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported server.executionMode: " + value, exception);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+
+/**
+ * How the server performs socket I/O.
+ */
+public enum IoModel {
+    /**
+     * One worker thread per connection using blocking socket streams.
+     */
+    BLOCKING,
+    /**
+     * Selector-based event loops read and write all connections; workers only run request handlers.
+     */
+    NIO;
+
+    public static IoModel fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported server.ioModel: " + value, exception);
+        }
+    }
+}
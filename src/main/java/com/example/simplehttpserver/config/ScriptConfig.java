@@ -0,0 +1,30 @@
+package com.example.simplehttpserver.config;
+
+/**
+ * How {@code .smscr} scripts are kept between requests and how their output is sent.
+ *
+ * @param cacheEnabled     whether parsed scripts are cached instead of being read and parsed on every request
+ * @param revalidateMillis how long a cached script is used before its size and modification time are checked
+ *                         again ({@code 0} checks on every request, negative never checks)
+ * @param precompile       whether every script below the public root is parsed when the server is created, so
+ *                         the first requests do not pay for parsing and syntax errors show up in the log
+ * @param compile          whether cached scripts are compiled to JVM bytecode instead of being interpreted
+ * @param stream           whether GET responses are sent while the script runs, as chunks, instead of after it
+ *                         has finished with a {@code Content-Length} and {@code ETag}
+ */
+public record ScriptConfig(
+        boolean cacheEnabled,
+        long revalidateMillis,
+        boolean precompile,
+        boolean compile,
+        boolean stream
+) {
+    public static final long DEFAULT_REVALIDATE_MILLIS = 1000;
+
+    /**
+     * Cached and interpreted scripts, checked for changes once a second, parsed on first use, output buffered.
+     */
+    public static ScriptConfig defaults() {
+        return new ScriptConfig(true, DEFAULT_REVALIDATE_MILLIS, false, false, false);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.simplehttpserver.config;
 
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Immutable server settings loaded from a properties file.
@@ -10,15 +11,125 @@ public record ServerConfig(
         int port,
         int workerThreads,
         int queueCapacity,
+        ExecutionMode executionMode,
+        int maxConcurrency,
+        IoModel ioModel,
+        int eventLoopThreads,
         int socketTimeoutMillis,
+        int keepAliveTimeoutMillis,
+        int maxRequestsPerConnection,
         int sessionTimeoutSeconds,
         int maxHeaderBytes,
         int maxBodyBytes,
         String publicResourcesRoot,
         String templatesRoot,
-        Map<String, String> mimeTypes
+        Map<String, String> mimeTypes,
+        StaticFileConfig staticFiles,
+        Map<String, String> cacheControl,
+        CompressionConfig compression,
+        ScriptConfig scripts,
+        SessionConfig sessions,
+        String metricsPath,
+        AccessLogConfig accessLog
 ) {
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 100;
+    public static final int DEFAULT_MAX_CONCURRENCY = 10_000;
+    /** Off: the endpoint has no authentication, so operators choose to expose it. */
+    public static final String DEFAULT_METRICS_PATH = "";
+
     public ServerConfig {
+        if (eventLoopThreads <= 0) {
+            eventLoopThreads = Runtime.getRuntime().availableProcessors();
+        }
         mimeTypes = Map.copyOf(mimeTypes);
+        if (staticFiles == null) {
+            staticFiles = StaticFileConfig.defaults();
+        }
+        cacheControl = cacheControl == null ? Map.of() : Map.copyOf(cacheControl);
+        if (compression == null) {
+            compression = CompressionConfig.defaults();
+        }
+        if (scripts == null) {
+            scripts = ScriptConfig.defaults();
+        }
+        if (sessions == null) {
+            sessions = SessionConfig.defaults();
+        }
+        metricsPath = metricsPath == null ? "" : metricsPath.trim();
+        if (!metricsPath.isEmpty() && !metricsPath.startsWith("/")) {
+            throw new IllegalArgumentException("Metrics path must start with '/': " + metricsPath);
+        }
+        if (accessLog == null) {
+            accessLog = AccessLogConfig.defaults();
+        }
+    }
+
+    /**
+     * Creates a blocking-I/O, platform-thread configuration with default keep-alive settings.
+     */
+    public ServerConfig(
+            String host,
+            int port,
+            int workerThreads,
+            int queueCapacity,
+            int socketTimeoutMillis,
+            int sessionTimeoutSeconds,
+            int maxHeaderBytes,
+            int maxBodyBytes,
+            String publicResourcesRoot,
+            String templatesRoot,
+            Map<String, String> mimeTypes
+    ) {
+        this(
+                host,
+                port,
+                workerThreads,
+                queueCapacity,
+                ExecutionMode.PLATFORM,
+                DEFAULT_MAX_CONCURRENCY,
+                IoModel.BLOCKING,
+                0,
+                socketTimeoutMillis,
+                DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS,
+                DEFAULT_MAX_REQUESTS_PER_CONNECTION,
+                sessionTimeoutSeconds,
+                maxHeaderBytes,
+                maxBodyBytes,
+                publicResourcesRoot,
+                templatesRoot,
+                mimeTypes,
+                StaticFileConfig.defaults(),
+                Map.of(),
+                CompressionConfig.defaults(),
+                ScriptConfig.defaults(),
+                SessionConfig.defaults(),
+                DEFAULT_METRICS_PATH,
+                AccessLogConfig.defaults()
+        );
+    }
+
+    /**
+     * Whether server metrics are served on {@link #metricsPath()}; an empty path turns the endpoint off.
+     */
+    public boolean metricsEnabled() {
+        return !metricsPath.isEmpty();
+    }
+
+    public boolean keepAliveEnabled() {
+        return maxRequestsPerConnection > 1 && keepAliveTimeoutMillis > 0;
+    }
+
+    /**
+     * {@code Cache-Control} value configured for the longest path prefix matching {@code path}.
+     */
+    public Optional<String> cacheControlFor(String path) {
+        String bestPrefix = null;
+        for (String prefix : cacheControl.keySet()) {
+            if (path.startsWith(prefix) && (bestPrefix == null || prefix.length() > bestPrefix.length())) {
+                bestPrefix = prefix;
+            }
+        }
+        return bestPrefix == null ? Optional.empty() : Optional.of(cacheControl.get(bestPrefix));
     }
 }
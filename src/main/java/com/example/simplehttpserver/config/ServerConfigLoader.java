@@ -4,15 +4,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Loads server configuration from classpath defaults and optional external override file.
  */
 public final class ServerConfigLoader {
 
+    private static final String CACHE_CONTROL_PREFIX = "server.cacheControl.";
+
     private ServerConfigLoader() {
     }
 
@@ -36,13 +40,60 @@ public final class ServerConfigLoader {
                 parseInt(properties, "server.port", 8080),
                 parseInt(properties, "server.workerThreads", 8),
                 parseInt(properties, "server.queueCapacity", 64),
+                ExecutionMode.fromProperty(properties.getProperty("server.executionMode", "platform")),
+                parseInt(properties, "server.maxConcurrency", ServerConfig.DEFAULT_MAX_CONCURRENCY),
+                IoModel.fromProperty(properties.getProperty("server.ioModel", "blocking")),
+                parseInt(properties, "server.eventLoopThreads", 0),
                 parseInt(properties, "server.socketTimeoutMillis", 5000),
+                parseInt(properties, "server.keepAliveTimeoutMillis", ServerConfig.DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS),
+                parseInt(properties, "server.maxRequestsPerConnection", ServerConfig.DEFAULT_MAX_REQUESTS_PER_CONNECTION),
                 parseInt(properties, "session.timeoutSeconds", 600),
                 parseInt(properties, "server.maxHeaderBytes", 16384),
                 parseInt(properties, "server.maxBodyBytes", 1048576),
                 properties.getProperty("server.publicResourcesRoot", "public"),
                 properties.getProperty("server.templatesRoot", "templates"),
-                mimeTypes
+                mimeTypes,
+                new StaticFileConfig(
+                        properties.getProperty("server.documentRoot"),
+                        parseLong(properties, "server.staticCacheMaxBytes", StaticFileConfig.DEFAULT_CACHE_MAX_BYTES),
+                        parseLong(properties, "server.staticCacheMaxFileBytes",
+                                StaticFileConfig.DEFAULT_CACHE_MAX_FILE_BYTES),
+                        parseLong(properties, "server.staticCacheRevalidateMillis",
+                                StaticFileConfig.DEFAULT_REVALIDATE_MILLIS)
+                ),
+                loadCacheControl(properties),
+                new CompressionConfig(
+                        Boolean.parseBoolean(properties.getProperty("server.compressionEnabled", "true").trim()),
+                        parseInt(properties, "server.compressionMinBytes", CompressionConfig.DEFAULT_MIN_BYTES),
+                        parseInt(properties, "server.compressionLevel", CompressionConfig.DEFAULT_LEVEL),
+                        parseList(properties, "server.compressibleMimeTypes", CompressionConfig.DEFAULT_MIME_TYPES)
+                ),
+                new ScriptConfig(
+                        Boolean.parseBoolean(properties.getProperty("server.scriptCacheEnabled", "true").trim()),
+                        parseLong(properties, "server.scriptCacheRevalidateMillis",
+                                ScriptConfig.DEFAULT_REVALIDATE_MILLIS),
+                        Boolean.parseBoolean(properties.getProperty("server.precompileScripts", "false").trim()),
+                        Boolean.parseBoolean(properties.getProperty("server.compileScripts", "false").trim()),
+                        Boolean.parseBoolean(properties.getProperty("server.streamScripts", "false").trim())
+                ),
+                new SessionConfig(
+                        SessionStoreType.fromProperty(properties.getProperty("session.store", "memory")),
+                        properties.getProperty("session.storeFile", SessionConfig.DEFAULT_STORE_FILE).trim(),
+                        parseLong(properties, "session.flushIntervalMillis",
+                                SessionConfig.DEFAULT_FLUSH_INTERVAL_MILLIS),
+                        properties.getProperty("session.cookieSecret", "").trim()
+                ),
+                properties.getProperty("server.metricsPath", ServerConfig.DEFAULT_METRICS_PATH),
+                new AccessLogConfig(
+                        AccessLogTarget.fromProperty(properties.getProperty("accessLog.target", "logger")),
+                        properties.getProperty("accessLog.file", AccessLogConfig.DEFAULT_FILE).trim(),
+                        parseInt(properties, "accessLog.bufferRecords", AccessLogConfig.DEFAULT_BUFFER_RECORDS),
+                        AccessLogOverflow.fromProperty(properties.getProperty("accessLog.whenFull", "drop")),
+                        parseLong(properties, "accessLog.maxFileBytes", AccessLogConfig.DEFAULT_MAX_FILE_BYTES),
+                        parseInt(properties, "accessLog.maxFiles", AccessLogConfig.DEFAULT_MAX_FILES),
+                        parseLong(properties, "accessLog.flushIntervalMillis",
+                                AccessLogConfig.DEFAULT_FLUSH_INTERVAL_MILLIS)
+                )
         );
     }
 
@@ -59,6 +110,31 @@ public final class ServerConfigLoader {
         return mimeTypes;
     }
 
+    /**
+     * Collects {@code server.cacheControl.<path prefix>} entries.
+     */
+    private static Map<String, String> loadCacheControl(Properties properties) {
+        Map<String, String> cacheControl = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(CACHE_CONTROL_PREFIX)) {
+                String pathPrefix = key.substring(CACHE_CONTROL_PREFIX.length());
+                if (!pathPrefix.startsWith("/")) {
+                    throw new IllegalArgumentException("Cache-Control path prefix must start with '/': " + key);
+                }
+                cacheControl.put(pathPrefix, properties.getProperty(key).trim());
+            }
+        }
+        return cacheControl;
+    }
+
+    private static Set<String> parseList(Properties properties, String key, Set<String> defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Set.copyOf(Arrays.asList(value.trim().split("\\s*,\\s*")));
+    }
+
     private static int parseInt(Properties properties, String key, int defaultValue) {
         String value = properties.getProperty(key);
         if (value == null || value.isBlank()) {
@@ -67,6 +143,14 @@ public final class ServerConfigLoader {
         return Integer.parseInt(value.trim());
     }
 
+    private static long parseLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
+
     private static InputStream getRequiredResource(String resourceName) {
         InputStream in = ServerConfigLoader.class.getClassLoader().getResourceAsStream(resourceName);
         if (in == null) {
@@ -0,0 +1,43 @@
+package com.example.simplehttpserver.config;
+
+/**
+ * How sessions are stored.
+ *
+ * @param store               in memory only, also in a log file that survives restarts, or in a signed cookie
+ * @param storeFile           path of the log file for {@link SessionStoreType#FILE}
+ * @param flushIntervalMillis how often batched session changes are written to the log file; changes made
+ *                            since the last write are lost if the process dies
+ * @param cookieSecret        key that signs session cookies for {@link SessionStoreType#COOKIE}, shared by all
+ *                            nodes; at least 32 characters
+ */
+public record SessionConfig(
+        SessionStoreType store,
+        String storeFile,
+        long flushIntervalMillis,
+        String cookieSecret
+) {
+    public static final String DEFAULT_STORE_FILE = "sessions.log";
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    public SessionConfig {
+        if (store == null) {
+            store = SessionStoreType.MEMORY;
+        }
+        if (storeFile == null || storeFile.isBlank()) {
+            storeFile = DEFAULT_STORE_FILE;
+        }
+        if (flushIntervalMillis <= 0) {
+            flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+        }
+        if (cookieSecret == null) {
+            cookieSecret = "";
+        }
+    }
+
+    /**
+     * Sessions in memory only.
+     */
+    public static SessionConfig defaults() {
+        return new SessionConfig(SessionStoreType.MEMORY, DEFAULT_STORE_FILE, DEFAULT_FLUSH_INTERVAL_MILLIS, "");
+    }
+}
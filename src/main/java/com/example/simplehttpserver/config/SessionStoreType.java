@@ -0,0 +1,29 @@
+package com.example.simplehttpserver.config;
+
+import java.util.Locale;
+
+/**
+ * Where the server keeps session attributes.
+ */
+public enum SessionStoreType {
+    /**
+     * In memory only; sessions are lost when the server stops.
+     */
+    MEMORY,
+    /**
+     * In memory, with every change also appended to a memory-mapped log that is replayed on startup.
+     */
+    FILE,
+    /**
+     * Nowhere on the server: attributes travel in an HMAC-signed cookie, so any node can serve any request.
+     */
+    COOKIE;
+
+    public static SessionStoreType fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unsupported session.store: " + value, exception);
+        }
+    }
+}
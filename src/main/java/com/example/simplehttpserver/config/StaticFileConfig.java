@@ -0,0 +1,46 @@
+package com.example.simplehttpserver.config;
+
+/**
+ * Where public files come from and how much of them is kept in memory.
+ *
+ * @param documentRoot      filesystem directory served instead of the classpath root, or {@code null}
+ * @param cacheMaxBytes     total size of file contents held by the cache ({@code 0} disables caching)
+ * @param cacheMaxFileBytes largest single file that is cached; bigger files are always sent from disk
+ * @param revalidateMillis  how long a cached file is served before its size and modification time are
+ *                          checked again ({@code 0} checks on every request, negative never checks)
+ */
+public record StaticFileConfig(
+        String documentRoot,
+        long cacheMaxBytes,
+        long cacheMaxFileBytes,
+        long revalidateMillis
+) {
+    public static final long DEFAULT_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_CACHE_MAX_FILE_BYTES = 1024 * 1024;
+    public static final long DEFAULT_REVALIDATE_MILLIS = 1000;
+
+    public StaticFileConfig {
+        if (documentRoot != null && documentRoot.isBlank()) {
+            documentRoot = null;
+        }
+        if (cacheMaxBytes < 0 || cacheMaxFileBytes < 0) {
+            throw new IllegalArgumentException("Static file cache limits must not be negative.");
+        }
+    }
+
+    /**
+     * Classpath-served files with the default cache limits.
+     */
+    public static StaticFileConfig defaults() {
+        return new StaticFileConfig(null, DEFAULT_CACHE_MAX_BYTES, DEFAULT_CACHE_MAX_FILE_BYTES,
+                DEFAULT_REVALIDATE_MILLIS);
+    }
+
+    public boolean hasDocumentRoot() {
+        return documentRoot != null;
+    }
+
+    public boolean cacheEnabled() {
+        return cacheMaxBytes > 0 && cacheMaxFileBytes > 0;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.simplehttpserver.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Validators ({@code ETag}, {@code Last-Modified}) and evaluation of {@code If-None-Match} and
+ * {@code If-Modified-Since} for conditional GET and HEAD requests.
+ */
+public final class ConditionalRequests {
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HTTP_DATE_PARSER =
+            DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    /**
+     * Headers a 304 response repeats from the 200 response it replaces.
+     */
+    private static final Set<String> NOT_MODIFIED_HEADERS =
+            Set.of("ETag", "Last-Modified", "Cache-Control", "Expires", "Vary", "Content-Location");
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Strong entity tag for a file version, derived from its modification time and size.
+     */
+    public static String etag(long lastModifiedMillis, long length) {
+        return "\"" + Long.toHexString(lastModifiedMillis) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    /**
+     * Strong entity tag derived from generated content.
+     */
+    public static String etag(byte[] content) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(content);
+        return "\"" + Long.toHexString(checksum.getValue()) + "-" + Integer.toHexString(content.length) + "\"";
+    }
+
+    public static String httpDate(long epochMillis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * Replaces a successful GET or HEAD response with {@code 304 Not Modified} when the request's preconditions
+     * show that the client already holds the same representation. {@code If-None-Match} takes precedence over
+     * {@code If-Modified-Since}, which is only consulted when the request carries no entity tags.
+     */
+    public static HttpResponse evaluate(HttpRequest request, HttpResponse response) {
+        if (response.status() != HttpStatus.OK
+                || (request.method() != HttpMethod.GET && request.method() != HttpMethod.HEAD)) {
+            return response;
+        }
+
+        String etag = response.headers().get("ETag");
+        String ifNoneMatch = request.firstHeader("If-None-Match").orElse(null);
+        if (ifNoneMatch != null) {
+            return etag != null && matchesAny(ifNoneMatch, etag) ? notModified(response) : response;
+        }
+
+        String lastModified = response.headers().get("Last-Modified");
+        String ifModifiedSince = request.firstHeader("If-Modified-Since").orElse(null);
+        if (lastModified != null && ifModifiedSince != null
+                && !isModifiedSince(lastModified, ifModifiedSince)) {
+            return notModified(response);
+        }
+        return response;
+    }
+
+    /**
+     * {@code If-None-Match} uses weak comparison: {@code W/} prefixes are ignored on both sides.
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || stripWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isModifiedSince(String lastModified, String ifModifiedSince) {
+        try {
+            Instant modified = Instant.from(HTTP_DATE_PARSER.parse(lastModified));
+            Instant since = Instant.from(HTTP_DATE_PARSER.parse(ifModifiedSince.trim()));
+            return modified.getEpochSecond() > since.getEpochSecond();
+        } catch (DateTimeParseException exception) {
+            // An invalid date is ignored, as if the header were absent.
+            return true;
+        }
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static HttpResponse notModified(HttpResponse response) {
+        HttpResponse.Builder builder = HttpResponse.status(HttpStatus.NOT_MODIFIED);
+        response.headers().forEach((name, value) -> {
+            if (NOT_MODIFIED_HEADERS.contains(name)) {
+                builder.header(name, value);
+            }
+        });
+        return builder.build();
+    }
+}
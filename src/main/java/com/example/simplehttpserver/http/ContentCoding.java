@@ -0,0 +1,122 @@
+package com.example.simplehttpserver.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response content codings this server can produce, with {@code Accept-Encoding} negotiation.
+ */
+public enum ContentCoding {
+    GZIP("gzip"),
+    /**
+     * HTTP's {@code deflate} is the zlib format (RFC 1950), not a raw deflate stream.
+     */
+    DEFLATE("deflate"),
+    IDENTITY("identity");
+
+    private static final int COMPRESSOR_BUFFER_BYTES = 8192;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Value of the {@code Content-Encoding} header.
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Picks the coding with the highest quality value the client accepts, preferring gzip over deflate on a
+     * tie. Returns {@link #IDENTITY} when the header is absent or accepts neither.
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            int parameters = element.indexOf(';');
+            String coding = (parameters < 0 ? element : element.substring(0, parameters))
+                    .trim().toLowerCase(Locale.ROOT);
+            double quality = parameters < 0 ? 1 : quality(element.substring(parameters + 1));
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> wildcard = quality;
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : IDENTITY;
+    }
+
+    /**
+     * Opens a compressing stream over {@code out}. With {@code syncFlush}, {@code flush()} emits everything
+     * written so far so a streamed body still reaches the client incrementally. Closing the returned stream
+     * closes {@code out}.
+     */
+    public DeflaterOutputStream newOutputStream(OutputStream out, int level, boolean syncFlush) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPOutputStream(out, COMPRESSOR_BUFFER_BYTES, syncFlush) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            case DEFLATE -> new DeflaterOutputStream(out, syncFlush) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            case IDENTITY -> throw new IllegalStateException("identity is not a compressing coding.");
+        };
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code input} starting at {@code offset}.
+     */
+    public byte[] encode(byte[] input, int offset, int length, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+        try (DeflaterOutputStream compressor = newOutputStream(out, level, false)) {
+            compressor.write(input, offset, length);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return out.toByteArray();
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implemented by connection output streams that can send a file region with {@code FileChannel.transferTo},
+ * letting the kernel copy file pages to the socket. {@link HttpResponseWriter} flushes everything written so
+ * far before handing over a region. The sink owns {@code file} from then on and closes it once the region has
+ * been sent or the connection fails.
+ */
+public interface FileRegionSink {
+
+    void transferFile(FileChannel file, long position, long count) throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Implemented by connection output streams that can send several buffers with one gathering write, so
+ * {@link HttpResponseWriter} hands over the head and an in-memory body together instead of copying them into
+ * one array or writing them one after the other. The buffers follow anything written to the stream before.
+ * The sink may keep them until they have been sent; the writer never modifies them afterwards.
+ */
+public interface GatheringSink {
+
+    void writeGathered(ByteBuffer... buffers) throws IOException;
+}
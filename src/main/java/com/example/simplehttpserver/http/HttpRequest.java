@@ -19,12 +19,15 @@ public record HttpRequest(
         byte[] body
 ) {
     public HttpRequest {
-        headers = copyOfStringListMap(headers);
+        headers = headers instanceof RequestHeaders ? headers : copyOfStringListMap(headers);
         queryParameters = copyOfStringListMap(queryParameters);
         body = body.clone();
     }
 
     public Optional<String> firstHeader(String name) {
+        if (headers instanceof RequestHeaders requestHeaders) {
+            return Optional.ofNullable(requestHeaders.first(name));
+        }
         List<String> values = headers.get(name);
         if (values == null || values.isEmpty()) {
             return Optional.empty();
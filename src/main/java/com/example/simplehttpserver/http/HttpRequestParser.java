@@ -1,163 +1,459 @@
 package com.example.simplehttpserver.http;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Parses raw bytes from a socket into a structured {@link HttpRequest}.
+ *
+ * <p>The header block is scanned once, line by line, directly in a {@link RequestBuffer}: request-line
+ * tokens and header names/values are recorded as offsets, and Strings are only created for the parts the
+ * parser itself needs (method, target, version, framing headers) or that callers later look up.
  */
 public class HttpRequestParser {
 
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HTTP_1_0 = "HTTP/1.0".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_CHUNK_SIZE_LINE_BYTES = 1024;
+    private static final int CHUNK_SIZE = 0;
+    private static final int CHUNK_DATA = 1;
+    private static final int CHUNK_DATA_END = 2;
+    private static final int CHUNK_TRAILER = 3;
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final byte[][] METHOD_TOKENS = Arrays.stream(METHODS)
+            .map(method -> method.name().getBytes(StandardCharsets.US_ASCII))
+            .toArray(byte[][]::new);
+
+    /**
+     * Parses one request from the stream. The stream is read in blocks, so bytes following the request
+     * may be consumed; connections that serve several requests should keep a {@link RequestBuffer} and use
+     * {@link #parse(RequestBuffer, InputStream, int, int)} instead.
+     */
     public HttpRequest parse(InputStream inputStream, int maxHeaderBytes, int maxBodyBytes)
             throws IOException, HttpParseException {
-        byte[] headerBytes = readHeaderBlock(inputStream, maxHeaderBytes);
-        List<String> lines = toLines(headerBytes);
+        return parse(new RequestBuffer(), inputStream, maxHeaderBytes, maxBodyBytes);
+    }
 
-        if (lines.isEmpty()) {
-            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Request header is empty.");
+    /**
+     * Parses the next request from {@code buffer}, reading from the stream until it is complete.
+     */
+    public HttpRequest parse(RequestBuffer buffer, InputStream inputStream, int maxHeaderBytes, int maxBodyBytes)
+            throws IOException, HttpParseException {
+        HttpRequest request;
+        while ((request = tryParse(buffer, maxHeaderBytes, maxBodyBytes)) == null) {
+            if (buffer.fill(inputStream) < 0) {
+                throw new HttpParseException(HttpStatus.BAD_REQUEST, truncatedRequestMessage(buffer.head));
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Parses the next request from the bytes buffered so far.
+     *
+     * @return the request, or {@code null} when more bytes are needed; scanning resumes where it stopped
+     */
+    public HttpRequest tryParse(RequestBuffer buffer, int maxHeaderBytes, int maxBodyBytes)
+            throws HttpParseException {
+        if (buffer.head == null) {
+            if (!scanHead(buffer, maxHeaderBytes)) {
+                return null;
+            }
+            buffer.head = parseHead(buffer, maxBodyBytes);
+            buffer.ensureRequestCapacity(buffer.headEnd + buffer.head.contentLength());
         }
 
-        String requestLine = lines.get(0);
-        String[] requestParts = requestLine.trim().split("\\s+");
-        if (requestParts.length != 3) {
-            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Invalid request line: " + requestLine);
+        RequestHead head = buffer.head;
+        int bodyLength;
+        if (head.chunked()) {
+            if (!decodeChunks(buffer, maxHeaderBytes, maxBodyBytes)) {
+                return null;
+            }
+            bodyLength = buffer.bodyLength;
+        } else {
+            bodyLength = head.contentLength();
+            if (buffer.readable() < buffer.headEnd + bodyLength) {
+                return null;
+            }
         }
 
-        HttpMethod method = HttpMethod.fromToken(requestParts[0]);
-        String rawTarget = requestParts[1];
-        String version = requestParts[2];
+        int bodyStart = buffer.start + buffer.headEnd;
+        byte[] body = bodyLength == 0
+                ? EMPTY_BODY
+                : Arrays.copyOfRange(buffer.data, bodyStart, bodyStart + bodyLength);
+        buffer.consume(buffer.headEnd + bodyLength);
+
+        return new HttpRequest(
+                head.method(),
+                head.rawTarget(),
+                head.path(),
+                head.version(),
+                head.headers(),
+                head.queryParameters(),
+                body
+        );
+    }
 
-        if (!"HTTP/1.0".equals(version) && !"HTTP/1.1".equals(version)) {
-            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Unsupported HTTP version: " + version);
+    /**
+     * Advances the line scan over newly buffered bytes, tokenizing each complete line.
+     *
+     * @return whether the empty line ending the header block has been reached
+     */
+    private boolean scanHead(RequestBuffer buffer, int maxHeaderBytes) throws HttpParseException {
+        byte[] data = buffer.data;
+        int base = buffer.start;
+        int position = base + buffer.scanned;
+
+        while (position < buffer.end) {
+            if (data[position++] != '\n') {
+                continue;
+            }
+
+            int lineStart = base + buffer.lineStart;
+            int lineEnd = position - 1;
+            if (lineEnd > lineStart && data[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            buffer.lineStart = position - base;
+            checkHeaderSize(position - base, maxHeaderBytes);
+
+            if (lineEnd == lineStart) {
+                if (buffer.requestLineSeen) {
+                    buffer.headEnd = position - base;
+                    buffer.scanned = buffer.headEnd;
+                    return true;
+                }
+                continue; // empty lines before the request line are ignored
+            }
+
+            if (buffer.requestLineSeen) {
+                tokenizeHeaderLine(buffer, lineStart, lineEnd);
+            } else {
+                tokenizeRequestLine(buffer, lineStart, lineEnd);
+                buffer.requestLineSeen = true;
+            }
         }
 
-        RequestTarget requestTarget = parseTarget(rawTarget);
-        Map<String, List<String>> headers = parseHeaders(lines.subList(1, lines.size()));
+        buffer.scanned = position - base;
+        checkHeaderSize(buffer.scanned, maxHeaderBytes);
+        return false;
+    }
 
-        if (containsChunkedEncoding(headers)) {
-            throw new HttpParseException(HttpStatus.NOT_IMPLEMENTED,
-                    "Chunked transfer encoding is not implemented in this educational server.");
+    private void checkHeaderSize(int headerBytes, int maxHeaderBytes) throws HttpParseException {
+        if (headerBytes > maxHeaderBytes) {
+            throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request header exceeds configured maximum size.");
+        }
+    }
+
+    private void tokenizeRequestLine(RequestBuffer buffer, int lineStart, int lineEnd) throws HttpParseException {
+        byte[] data = buffer.data;
+        int[] offsets = buffer.offsets;
+        int tokens = 0;
+        int position = lineStart;
+
+        while (true) {
+            while (position < lineEnd && isWhitespace(data[position])) {
+                position++;
+            }
+            if (position == lineEnd) {
+                break;
+            }
+            int tokenStart = position;
+            while (position < lineEnd && !isWhitespace(data[position])) {
+                position++;
+            }
+            if (tokens < 3) {
+                offsets[tokens * 2] = tokenStart - buffer.start;
+                offsets[tokens * 2 + 1] = position - buffer.start;
+            }
+            tokens++;
+        }
+
+        if (tokens != 3) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST,
+                    "Invalid request line: " + decode(data, lineStart, lineEnd));
+        }
+    }
+
+    private void tokenizeHeaderLine(RequestBuffer buffer, int lineStart, int lineEnd) throws HttpParseException {
+        byte[] data = buffer.data;
+        int separator = lineStart;
+        while (separator < lineEnd && data[separator] != ':') {
+            separator++;
         }
+        if (separator == lineStart || separator == lineEnd) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST,
+                    "Invalid header line: " + decode(data, lineStart, lineEnd));
+        }
+
+        int nameStart = lineStart;
+        int nameEnd = separator;
+        while (nameStart < nameEnd && isWhitespace(data[nameStart])) {
+            nameStart++;
+        }
+        while (nameEnd > nameStart && isWhitespace(data[nameEnd - 1])) {
+            nameEnd--;
+        }
+
+        int valueStart = separator + 1;
+        int valueEnd = lineEnd;
+        while (valueStart < valueEnd && isWhitespace(data[valueStart])) {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && isWhitespace(data[valueEnd - 1])) {
+            valueEnd--;
+        }
+
+        int[] offsets = buffer.offsetsFor(buffer.headerCount);
+        int slot = RequestBuffer.headerSlot(buffer.headerCount);
+        offsets[slot] = nameStart - buffer.start;
+        offsets[slot + 1] = nameEnd - buffer.start;
+        offsets[slot + 2] = valueStart - buffer.start;
+        offsets[slot + 3] = valueEnd - buffer.start;
+        buffer.headerCount++;
+    }
+
+    private RequestHead parseHead(RequestBuffer buffer, int maxBodyBytes) throws HttpParseException {
+        byte[] data = buffer.data;
+        int base = buffer.start;
+        int[] offsets = buffer.offsets;
+
+        HttpMethod method = resolveMethod(data, base + offsets[0], base + offsets[1]);
+        String rawTarget = decode(data, base + offsets[2], base + offsets[3]);
+        String version = resolveVersion(data, base + offsets[4], base + offsets[5]);
+
+        RequestTarget requestTarget = parseTarget(rawTarget);
+        Map<String, List<String>> headers = new RequestHeaders(
+                Arrays.copyOfRange(data, base, base + buffer.headEnd),
+                Arrays.copyOfRange(offsets, RequestBuffer.headerSlot(0), RequestBuffer.headerSlot(buffer.headerCount)),
+                buffer.headerCount
+        );
 
-        int contentLength = resolveContentLength(headers);
+        boolean chunked = resolveChunkedEncoding(headers);
+        int contentLength = chunked ? 0 : resolveContentLength(headers);
         if (contentLength > maxBodyBytes) {
             throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
                     "Request body exceeds configured maximum size.");
         }
 
-        byte[] body = readBody(inputStream, contentLength);
-
-        return new HttpRequest(
+        return new RequestHead(
                 method,
                 rawTarget,
                 requestTarget.path(),
                 version,
                 headers,
                 requestTarget.queryParameters(),
-                body
+                contentLength,
+                chunked
         );
     }
 
-    private byte[] readHeaderBlock(InputStream inputStream, int maxHeaderBytes)
-            throws IOException, HttpParseException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        int b;
-        int thirdLast = -1;
-        int secondLast = -1;
-        int last = -1;
-        int headerLength = -1;
-
-        while ((b = inputStream.read()) != -1) {
-            buffer.write(b);
-
-            if (buffer.size() > maxHeaderBytes) {
-                throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
-                        "Request header exceeds configured maximum size.");
+    /**
+     * Decodes as much of a chunked body as is buffered. Chunk data is moved down in place so the decoded
+     * body directly follows the header block; the undecoded remainder is compacted behind it, which keeps
+     * the buffer no larger than the head, the decoded body, and one partial chunk line.
+     *
+     * @return whether the last chunk and trailer section have been received
+     */
+    private boolean decodeChunks(RequestBuffer buffer, int maxHeaderBytes, int maxBodyBytes)
+            throws HttpParseException {
+        byte[] data = buffer.data;
+        int write = buffer.start + buffer.headEnd + buffer.bodyLength;
+        int read = write;
+        int end = buffer.end;
+        boolean complete = false;
+
+        decode:
+        while (true) {
+            switch (buffer.chunkState) {
+                case CHUNK_SIZE -> {
+                    int lineEnd = indexOf(data, read, end, (byte) '\n');
+                    if (lineEnd < 0) {
+                        if (end - read > MAX_CHUNK_SIZE_LINE_BYTES) {
+                            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Chunk size line is too long.");
+                        }
+                        break decode;
+                    }
+                    long size = parseChunkSize(data, read, lineEnd);
+                    read = lineEnd + 1;
+                    if (size == 0) {
+                        buffer.chunkState = CHUNK_TRAILER;
+                    } else if (buffer.bodyLength + size > maxBodyBytes) {
+                        throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Request body exceeds configured maximum size.");
+                    } else {
+                        buffer.chunkRemaining = size;
+                        buffer.chunkState = CHUNK_DATA;
+                    }
+                }
+                case CHUNK_DATA -> {
+                    int count = (int) Math.min(buffer.chunkRemaining, end - read);
+                    System.arraycopy(data, read, data, write, count);
+                    read += count;
+                    write += count;
+                    buffer.bodyLength += count;
+                    buffer.chunkRemaining -= count;
+                    if (buffer.chunkRemaining > 0) {
+                        break decode;
+                    }
+                    buffer.chunkState = CHUNK_DATA_END;
+                }
+                case CHUNK_DATA_END -> {
+                    if (read == end || (data[read] == '\r' && read + 1 == end)) {
+                        break decode;
+                    }
+                    if (data[read] == '\r') {
+                        read++;
+                    }
+                    if (data[read] != '\n') {
+                        throw new HttpParseException(HttpStatus.BAD_REQUEST, "Chunk data is not followed by CRLF.");
+                    }
+                    read++;
+                    buffer.chunkState = CHUNK_SIZE;
+                }
+                default -> {
+                    int lineEnd = indexOf(data, read, end, (byte) '\n');
+                    int trailerBytes = buffer.trailerBytes + (lineEnd < 0 ? end : lineEnd + 1) - read;
+                    if (trailerBytes > maxHeaderBytes) {
+                        throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Request trailer section exceeds configured maximum size.");
+                    }
+                    if (lineEnd < 0) {
+                        break decode;
+                    }
+                    boolean lastLine = lineEnd == read || (lineEnd == read + 1 && data[read] == '\r');
+                    buffer.trailerBytes = trailerBytes;
+                    read = lineEnd + 1;
+                    if (lastLine) {
+                        complete = true;
+                        break decode;
+                    }
+                }
             }
+        }
 
-            if (thirdLast == '\r' && secondLast == '\n' && last == '\r' && b == '\n') {
-                headerLength = buffer.size() - 4;
-                break;
-            }
+        System.arraycopy(data, read, data, write, end - read);
+        buffer.end = write + (end - read);
+        return complete;
+    }
 
-            if (last == '\n' && b == '\n') {
-                headerLength = buffer.size() - 2;
+    private long parseChunkSize(byte[] data, int start, int lineEnd) throws HttpParseException {
+        int end = lineEnd;
+        for (int i = start; i < lineEnd; i++) {
+            if (data[i] == ';') {
+                end = i;
                 break;
             }
-
-            thirdLast = secondLast;
-            secondLast = last;
-            last = b;
         }
-
-        if (headerLength < 0) {
+        while (end > start && isWhitespace(data[end - 1])) {
+            end--;
+        }
+        if (end == start || end - start > 15) {
             throw new HttpParseException(HttpStatus.BAD_REQUEST,
-                    "Request header does not end with an empty line.");
+                    "Invalid chunk size: " + decode(data, start, lineEnd).trim());
         }
 
-        return Arrays.copyOf(buffer.toByteArray(), headerLength);
+        long size = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(data[i], 16);
+            if (digit < 0) {
+                throw new HttpParseException(HttpStatus.BAD_REQUEST,
+                        "Invalid chunk size: " + decode(data, start, lineEnd).trim());
+            }
+            size = size * 16 + digit;
+        }
+        return size;
     }
 
-    private List<String> toLines(byte[] headerBytes) throws IOException {
-        if (headerBytes.length == 0) {
-            return Collections.emptyList();
+    private static int indexOf(byte[] data, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == value) {
+                return i;
+            }
         }
+        return -1;
+    }
 
-        String text = new String(headerBytes, StandardCharsets.ISO_8859_1);
-        List<String> lines = new ArrayList<>();
+    private static String truncatedRequestMessage(RequestHead head) {
+        if (head == null) {
+            return "Request header does not end with an empty line.";
+        }
+        if (head.chunked()) {
+            return "Request body ended before the last chunk was received.";
+        }
+        return "Request body ended before Content-Length bytes were received.";
+    }
 
-        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.isEmpty()) {
-                    lines.add(line);
-                }
+    private HttpMethod resolveMethod(byte[] data, int start, int end) throws HttpParseException {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (matches(data, start, end, METHOD_TOKENS[i])) {
+                return METHODS[i];
             }
         }
-
-        return lines;
+        return HttpMethod.fromToken(decode(data, start, end));
     }
 
-    private Map<String, List<String>> parseHeaders(List<String> headerLines) throws HttpParseException {
-        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-
-        for (String line : headerLines) {
-            int separator = line.indexOf(':');
-            if (separator <= 0) {
-                throw new HttpParseException(HttpStatus.BAD_REQUEST, "Invalid header line: " + line);
-            }
+    private String resolveVersion(byte[] data, int start, int end) throws HttpParseException {
+        if (matches(data, start, end, HTTP_1_1)) {
+            return "HTTP/1.1";
+        }
+        if (matches(data, start, end, HTTP_1_0)) {
+            return "HTTP/1.0";
+        }
+        throw new HttpParseException(HttpStatus.BAD_REQUEST,
+                "Unsupported HTTP version: " + decode(data, start, end));
+    }
 
-            String name = line.substring(0, separator).trim();
-            String value = line.substring(separator + 1).trim();
+    private static boolean matches(byte[] data, int start, int end, byte[] token) {
+        return Arrays.equals(data, start, end, token, 0, token.length);
+    }
 
-            headers.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
-        }
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
 
-        return headers;
+    private static String decode(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
     }
 
-    private boolean containsChunkedEncoding(Map<String, List<String>> headers) {
+    /**
+     * Only {@code chunked} as the sole transfer coding is supported. A request carrying both
+     * {@code Transfer-Encoding} and {@code Content-Length} is rejected, since the two framings could be
+     * interpreted differently by an intermediary (request smuggling).
+     */
+    private boolean resolveChunkedEncoding(Map<String, List<String>> headers) throws HttpParseException {
         List<String> values = headers.get("Transfer-Encoding");
         if (values == null) {
             return false;
         }
 
-        return values.stream()
-                .map(value -> value.toLowerCase(Locale.ROOT))
-                .anyMatch(value -> value.contains("chunked"));
+        List<String> codings = new ArrayList<>();
+        for (String value : values) {
+            for (String coding : value.split(",")) {
+                if (!coding.isBlank()) {
+                    codings.add(coding.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        if (!codings.equals(List.of("chunked"))) {
+            throw new HttpParseException(HttpStatus.NOT_IMPLEMENTED,
+                    "Unsupported transfer coding: " + String.join(", ", codings));
+        }
+        if (headers.containsKey("Content-Length")) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST,
+                    "Content-Length is not allowed together with Transfer-Encoding.");
+        }
+        return true;
     }
 
     private int resolveContentLength(Map<String, List<String>> headers) throws HttpParseException {
@@ -187,20 +483,6 @@ public class HttpRequestParser {
         }
     }
 
-    private byte[] readBody(InputStream inputStream, int contentLength) throws IOException, HttpParseException {
-        if (contentLength == 0) {
-            return new byte[0];
-        }
-
-        byte[] body = inputStream.readNBytes(contentLength);
-        if (body.length != contentLength) {
-            throw new HttpParseException(HttpStatus.BAD_REQUEST,
-                    "Request body ended before Content-Length bytes were received.");
-        }
-
-        return body;
-    }
-
     private RequestTarget parseTarget(String rawTarget) throws HttpParseException {
         if (rawTarget == null || rawTarget.isBlank()) {
             throw new HttpParseException(HttpStatus.BAD_REQUEST, "Request target is empty.");
@@ -225,6 +507,9 @@ public class HttpRequestParser {
     }
 
     private String decodePath(String rawPath) throws HttpParseException {
+        if (rawPath.indexOf('%') < 0) {
+            return rawPath;
+        }
         try {
             return URLDecoder.decode(rawPath.replace("+", "%2B"), StandardCharsets.UTF_8);
         } catch (IllegalArgumentException exception) {
@@ -257,6 +542,9 @@ public class HttpRequestParser {
     }
 
     private String decodeQueryPart(String text) throws HttpParseException {
+        if (text.indexOf('%') < 0 && text.indexOf('+') < 0) {
+            return text;
+        }
         try {
             return URLDecoder.decode(text, StandardCharsets.UTF_8);
         } catch (IllegalArgumentException exception) {
@@ -267,4 +555,19 @@ public class HttpRequestParser {
 
     private record RequestTarget(String path, Map<String, List<String>> queryParameters) {
     }
+
+    /**
+     * Parsed request line and headers, kept in the {@link RequestBuffer} while the body is still arriving.
+     */
+    record RequestHead(
+            HttpMethod method,
+            String rawTarget,
+            String path,
+            String version,
+            Map<String, List<String>> headers,
+            Map<String, List<String>> queryParameters,
+            int contentLength,
+            boolean chunked
+    ) {
+    }
 }
@@ -1,22 +1,23 @@
 package com.example.simplehttpserver.http;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Immutable HTTP response object with helper factory methods for common payload types.
+ * The {@link ResponseBody} is shared, not copied, when headers are added.
  */
 public final class HttpResponse {
 
     private final HttpStatus status;
     private final Map<String, String> headers;
-    private final byte[] body;
+    private final ResponseBody body;
 
-    private HttpResponse(HttpStatus status, Map<String, String> headers, byte[] body) {
+    private HttpResponse(HttpStatus status, Map<String, String> headers, ResponseBody body) {
         this.status = status;
         this.headers = Map.copyOf(headers);
-        this.body = body.clone();
+        this.body = body;
     }
 
     public static Builder status(HttpStatus status) {
@@ -44,12 +45,29 @@ public final class HttpResponse {
                 .build();
     }
 
+    public static HttpResponse streaming(HttpStatus status, String contentType, StreamingBody body) {
+        return status(status)
+                .header("Content-Type", contentType)
+                .body(body)
+                .build();
+    }
+
     public HttpResponse withHeader(String name, String value) {
         Map<String, String> updatedHeaders = new LinkedHashMap<>(headers);
         updatedHeaders.put(name, value);
         return new HttpResponse(status, updatedHeaders, body);
     }
 
+    /**
+     * Returns a copy with a different body. A {@code Content-Length} header is dropped, since it described the
+     * previous body.
+     */
+    public HttpResponse withBody(ResponseBody newBody) {
+        Map<String, String> updatedHeaders = new LinkedHashMap<>(headers);
+        updatedHeaders.remove("Content-Length");
+        return new HttpResponse(status, updatedHeaders, newBody);
+    }
+
     public HttpStatus status() {
         return status;
     }
@@ -58,15 +76,33 @@ public final class HttpResponse {
         return headers;
     }
 
+    public ResponseBody responseBody() {
+        return body;
+    }
+
+    /**
+     * Returns a copy of an in-memory body.
+     *
+     * @throws IllegalStateException if the body is streamed or file-backed
+     */
     public byte[] body() {
-        return body.clone();
+        return switch (body) {
+            case ResponseBody.Bytes bytes ->
+                    Arrays.copyOfRange(bytes.array(), bytes.offset(), bytes.offset() + bytes.count());
+            case ResponseBody.Buffer buffer -> {
+                byte[] copy = new byte[buffer.buffer().remaining()];
+                buffer.buffer().duplicate().get(copy);
+                yield copy;
+            }
+            default -> throw new IllegalStateException("Response body is not held in memory.");
+        };
     }
 
     public static final class Builder {
 
         private final HttpStatus status;
         private final Map<String, String> headers = new LinkedHashMap<>();
-        private byte[] body = new byte[0];
+        private ResponseBody body = ResponseBody.empty();
 
         private Builder(HttpStatus status) {
             this.status = status;
@@ -78,12 +114,26 @@ public final class HttpResponse {
         }
 
         public Builder body(String value) {
-            body = value.getBytes(StandardCharsets.UTF_8);
+            body = ResponseBody.of(value);
             return this;
         }
 
+        /**
+         * Copies {@code value}; use {@link #body(ResponseBody)} with {@link ResponseBody#of(byte[])} to hand
+         * over an array without copying.
+         */
         public Builder body(byte[] value) {
-            body = value.clone();
+            body = ResponseBody.of(value.clone());
+            return this;
+        }
+
+        public Builder body(StreamingBody value) {
+            body = ResponseBody.streaming(value);
+            return this;
+        }
+
+        public Builder body(ResponseBody value) {
+            body = value;
             return this;
         }
 
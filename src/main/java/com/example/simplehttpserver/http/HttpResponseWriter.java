@@ -1,52 +1,189 @@
 package com.example.simplehttpserver.http;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Serializes {@link HttpResponse} objects to bytes on the client socket output stream.
+ * Bodies of unknown length are sent with {@code Transfer-Encoding: chunked} to HTTP/1.1 clients and
+ * delimited by closing the connection for HTTP/1.0 clients. File regions go through
+ * {@link FileRegionSink} when the connection supports it. {@code 304 Not Modified} responses are sent without
+ * a body. The head of a body of unknown length is held back until the body first produces output, which
+ * gives a {@link StreamingBody} the chance to adjust its headers in {@link StreamingBody#beforeHead}.
+ *
+ * <p>Other heads are encoded by {@link ResponseHead} straight from the response's headers, without copying
+ * them into a new map, and an in-memory body goes out with its head in one gathering write when the stream is
+ * a {@link GatheringSink}.
  */
 public class HttpResponseWriter {
 
-    private static final DateTimeFormatter RFC_1123 = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static final int COPY_BUFFER_BYTES = 8192;
 
-    public void write(OutputStream outputStream, HttpMethod requestMethod, HttpResponse response) throws IOException {
-        byte[] body = response.body();
+    public long write(OutputStream outputStream, HttpMethod requestMethod, HttpResponse response) throws IOException {
+        return write(outputStream, requestMethod, "HTTP/1.1", response);
+    }
+
+    /**
+     * Writes the response with its own {@code Connection} header, or {@code Connection: close} without one. A
+     * body delimited by closing the connection is always sent with {@code Connection: close}.
+     *
+     * @return bytes written for the response, head and framing included
+     */
+    public long write(OutputStream outputStream, HttpMethod requestMethod, String requestVersion,
+                      HttpResponse response) throws IOException {
+        return write(outputStream, requestMethod, requestVersion, response, false, null);
+    }
+
+    /**
+     * Writes a response once the server has decided whether the connection stays open. The {@code Connection}
+     * and {@code Keep-Alive} lines are written in place of any the response has, so the response does not have
+     * to be copied to add them.
+     *
+     * @param keepAlive {@code Keep-Alive} value sent with {@code Connection: keep-alive}, or {@code null} to
+     *                  send {@code Connection: close}
+     * @return bytes written for the response, head and framing included
+     */
+    public long write(OutputStream outputStream, HttpMethod requestMethod, String requestVersion,
+                      HttpResponse response, String keepAlive) throws IOException {
+        return write(outputStream, requestMethod, requestVersion, response, keepAlive == null, keepAlive);
+    }
+
+    private long write(OutputStream outputStream, HttpMethod requestMethod, String requestVersion,
+                       HttpResponse response, boolean close, String keepAlive) throws IOException {
+        ResponseBody body = response.responseBody();
+        Map<String, String> headers = response.headers();
 
+        // A 304 stands in for the stored representation: no body and no framing headers of its own.
+        boolean hasBody = response.status() != HttpStatus.NOT_MODIFIED;
+        boolean lengthKnown = body.length() >= 0 || headers.containsKey("Content-Length");
+        boolean chunked = hasBody && !lengthKnown && "HTTP/1.1".equals(requestVersion);
+        boolean closeDelimited = hasBody && !lengthKnown && !chunked;
+        long contentLength = hasBody ? body.length() : -1;
+        boolean sendBody = hasBody && requestMethod != HttpMethod.HEAD;
+
+        long written;
+        if (sendBody && body.length() < 0) {
+            written = writeStreaming(outputStream, response, chunked, closeDelimited || close, keepAlive);
+        } else {
+            byte[] head = ResponseHead.encode(response.status(), headers, contentLength, chunked,
+                    closeDelimited || close, keepAlive);
+            ByteBuffer inMemoryBody = sendBody ? inMemory(body) : null;
+            if (inMemoryBody != null && outputStream instanceof GatheringSink sink) {
+                sink.writeGathered(ByteBuffer.wrap(head), inMemoryBody);
+            } else {
+                outputStream.write(head);
+                if (sendBody) {
+                    writeBody(outputStream, body);
+                }
+            }
+            written = head.length + (sendBody ? body.length() : 0);
+        }
+        outputStream.flush();
+        return written;
+    }
+
+    /**
+     * Holds the head back until the body produces output. The body may change its headers in
+     * {@link StreamingBody#beforeHead}, so they are copied into a map that already has the added headers.
+     */
+    private long writeStreaming(OutputStream outputStream, HttpResponse response, boolean chunked,
+                                boolean forceClose, String keepAlive) throws IOException {
+        ResponseBody body = response.responseBody();
         Map<String, String> headers = new LinkedHashMap<>(response.headers());
-        headers.putIfAbsent("Date", RFC_1123.format(ZonedDateTime.now(ZoneOffset.UTC)));
-        headers.putIfAbsent("Server", "SimpleHttpServer/2.0");
+        headers.putIfAbsent("Date", ResponseHead.date());
+        headers.putIfAbsent("Server", ResponseHead.SERVER);
+        if (chunked) {
+            headers.put("Transfer-Encoding", "chunked");
+        }
+        if (forceClose) {
+            headers.put("Connection", "close");
+        } else if (keepAlive != null) {
+            headers.put("Connection", "keep-alive");
+            headers.put("Keep-Alive", keepAlive);
+        }
         headers.putIfAbsent("Connection", "close");
-        headers.putIfAbsent("Content-Length", Integer.toString(body.length));
 
-        StringBuilder statusAndHeaders = new StringBuilder();
-        statusAndHeaders
-                .append("HTTP/1.1 ")
-                .append(response.status().code())
-                .append(' ')
-                .append(response.status().reason())
-                .append("\r\n");
+        StreamingBodyOutputStream bodyStream = new StreamingBodyOutputStream(outputStream, chunked, () -> {
+            if (body instanceof ResponseBody.Streaming streaming) {
+                streaming.body().beforeHead(headers);
+            }
+            return ResponseHead.encode(response.status(), headers, -1, false, false, null);
+        });
+        writeBody(bodyStream, body);
+        bodyStream.close();
+        return bodyStream.bytesWritten();
+    }
+
+    /**
+     * The body as a buffer of its own if it is already in memory, otherwise {@code null}.
+     */
+    private static ByteBuffer inMemory(ResponseBody body) {
+        return switch (body) {
+            case ResponseBody.Bytes bytes -> ByteBuffer.wrap(bytes.array(), bytes.offset(), bytes.count());
+            case ResponseBody.Buffer buffer -> buffer.buffer().duplicate();
+            default -> null;
+        };
+    }
 
-        for (Map.Entry<String, String> header : headers.entrySet()) {
-            statusAndHeaders
-                    .append(header.getKey())
-                    .append(": ")
-                    .append(header.getValue())
-                    .append("\r\n");
+    private void writeBody(OutputStream outputStream, ResponseBody body) throws IOException {
+        switch (body) {
+            case ResponseBody.Bytes bytes -> outputStream.write(bytes.array(), bytes.offset(), bytes.count());
+            case ResponseBody.Buffer buffer -> writeBuffer(outputStream, buffer.buffer().duplicate());
+            case ResponseBody.Stream stream -> {
+                try (InputStream inputStream = stream.source().open()) {
+                    inputStream.transferTo(outputStream);
+                }
+            }
+            case ResponseBody.FileRegion region -> writeFileRegion(outputStream, region);
+            case ResponseBody.Composite composite -> {
+                for (ResponseBody part : composite.parts()) {
+                    writeBody(outputStream, part);
+                }
+            }
+            case ResponseBody.Streaming streaming -> streaming.body().writeTo(outputStream);
         }
+    }
 
-        statusAndHeaders.append("\r\n");
+    private void writeBuffer(OutputStream outputStream, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(COPY_BUFFER_BYTES, buffer.remaining())];
+        while (buffer.hasRemaining()) {
+            int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            outputStream.write(chunk, 0, count);
+        }
+    }
 
-        outputStream.write(statusAndHeaders.toString().getBytes(StandardCharsets.ISO_8859_1));
-        if (requestMethod != HttpMethod.HEAD) {
-            outputStream.write(body);
+    private void writeFileRegion(OutputStream outputStream, ResponseBody.FileRegion region) throws IOException {
+        FileChannel file = FileChannel.open(region.path(), StandardOpenOption.READ);
+        if (outputStream instanceof FileRegionSink sink) {
+            outputStream.flush();
+            sink.transferFile(file, region.position(), region.count());
+            return;
+        }
+
+        try (file) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = region.position();
+            long end = region.position() + region.count();
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("File ended before the response region was sent: " + region.path());
+                }
+                position += transferred;
+            }
         }
-        outputStream.flush();
     }
 }
@@ -0,0 +1,201 @@
+package com.example.simplehttpserver.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@code Range} / {@code If-Range} handling for responses that advertise {@code Accept-Ranges: bytes}.
+ * Ranges are cut out of the existing body without copying: file regions become narrower file regions and
+ * in-memory bodies are referenced at an offset.
+ */
+public final class RangeRequests {
+
+    /**
+     * Requests asking for more ranges than this are answered with the full body, which is cheaper for both
+     * sides than many tiny parts.
+     */
+    static final int MAX_RANGES = 16;
+
+    private RangeRequests() {
+    }
+
+    /**
+     * One satisfiable byte range, with inclusive bounds as in {@code Content-Range}.
+     */
+    public record ByteRange(long first, long last) {
+
+        public long length() {
+            return last - first + 1;
+        }
+
+        String contentRange(long completeLength) {
+            return "bytes " + first + "-" + last + "/" + completeLength;
+        }
+    }
+
+    /**
+     * Turns a {@code 200} GET response into {@code 206 Partial Content} or {@code 416 Range Not Satisfiable}
+     * when the request carries a usable {@code Range} header. Responses that do not accept ranges, requests
+     * whose {@code If-Range} no longer matches, and malformed headers get the full response.
+     */
+    public static HttpResponse evaluate(HttpRequest request, HttpResponse response) {
+        String rangeHeader = request.firstHeader("Range").orElse(null);
+        if (rangeHeader == null
+                || request.method() != HttpMethod.GET
+                || response.status() != HttpStatus.OK
+                || !"bytes".equals(response.headers().get("Accept-Ranges"))) {
+            return response;
+        }
+        long length = response.responseBody().length();
+        if (length < 0 || !ifRangeMatches(request.firstHeader("If-Range").orElse(null), response)) {
+            return response;
+        }
+
+        List<ByteRange> ranges = parse(rangeHeader, length);
+        if (ranges == null) {
+            return response;
+        }
+        if (ranges.isEmpty()) {
+            return HttpResponse.status(HttpStatus.RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + length)
+                    .header("Content-Type", "text/plain; charset=UTF-8")
+                    .body("Requested range not satisfiable.")
+                    .build();
+        }
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            return withStatus(response, HttpStatus.PARTIAL_CONTENT,
+                    slice(response.responseBody(), range.first(), range.length()))
+                    .withHeader("Content-Range", range.contentRange(length));
+        }
+        return multipart(response, ranges, length);
+    }
+
+    /**
+     * Parses a {@code Range} header against a representation of {@code length} bytes.
+     *
+     * @return the satisfiable ranges, sorted and with overlapping or adjacent ranges merged; an empty list if
+     * none is satisfiable; {@code null} if the header is malformed, uses another unit or asks for too many
+     * ranges, in which case it is ignored
+     */
+    static List<ByteRange> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String firstText = spec.substring(0, dash).trim();
+            String lastText = spec.substring(dash + 1).trim();
+            try {
+                if (firstText.isEmpty()) {
+                    long suffixLength = Long.parseLong(lastText);
+                    if (suffixLength > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffixLength), length - 1));
+                    }
+                    continue;
+                }
+                long first = Long.parseLong(firstText);
+                long last = lastText.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastText);
+                if (first < 0 || last < first) {
+                    return null;
+                }
+                if (first < length) {
+                    ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                }
+            } catch (NumberFormatException exception) {
+                return null;
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::first));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.first() <= current.last() + 1) {
+                current = new ByteRange(current.first(), Math.max(current.last(), next.last()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * {@code If-Range} holds either an entity tag, compared strongly, or the exact {@code Last-Modified}
+     * date of the representation the client already has part of.
+     */
+    private static boolean ifRangeMatches(String ifRange, HttpResponse response) {
+        if (ifRange == null) {
+            return true;
+        }
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            String etag = response.headers().get("ETag");
+            return etag != null && !etag.startsWith("W/") && etag.equals(validator);
+        }
+        return validator.equals(response.headers().get("Last-Modified"));
+    }
+
+    private static HttpResponse multipart(HttpResponse response, List<ByteRange> ranges, long length) {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        String contentType = response.headers().get("Content-Type");
+
+        List<ResponseBody> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (ByteRange range : ranges) {
+            StringBuilder partHead = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                partHead.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            partHead.append("Content-Range: ").append(range.contentRange(length)).append("\r\n\r\n");
+            parts.add(ResponseBody.of(partHead.toString().getBytes(StandardCharsets.ISO_8859_1)));
+            parts.add(slice(response.responseBody(), range.first(), range.length()));
+        }
+        parts.add(ResponseBody.of(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+
+        return withStatus(response, HttpStatus.PARTIAL_CONTENT, ResponseBody.composite(parts))
+                .withHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+    }
+
+    private static ResponseBody slice(ResponseBody body, long offset, long count) {
+        return switch (body) {
+            case ResponseBody.Bytes bytes -> new ResponseBody.Bytes(bytes.array(),
+                    Math.toIntExact(bytes.offset() + offset), Math.toIntExact(count));
+            case ResponseBody.Buffer buffer -> ResponseBody.of(buffer.buffer()
+                    .slice(Math.toIntExact(buffer.buffer().position() + offset), Math.toIntExact(count)));
+            case ResponseBody.FileRegion region ->
+                    ResponseBody.file(region.path(), region.position() + offset, count);
+            default -> throw new IllegalArgumentException("Body does not support ranges: " + body);
+        };
+    }
+
+    private static HttpResponse withStatus(HttpResponse response, HttpStatus status, ResponseBody body) {
+        HttpResponse.Builder builder = HttpResponse.status(status);
+        response.headers().forEach(builder::header);
+        builder.header("Content-Length", Long.toString(body.length()));
+        return builder.body(body).build();
+    }
+}
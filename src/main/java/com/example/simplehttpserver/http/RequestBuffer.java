@@ -0,0 +1,179 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable per-connection input buffer for {@link HttpRequestParser}.
+ *
+ * <p>Bytes are read from the connection in blocks rather than one at a time. Anything received beyond the
+ * current request (a pipelined request, for example) stays buffered for the next parse, and the parser
+ * keeps its progress here so a request arriving in several reads is scanned only once. The backing array
+ * is allocated on first use and can be {@linkplain #release() released} while the connection is idle.
+ */
+public final class RequestBuffer {
+
+    static final int DEFAULT_INITIAL_CAPACITY = 4096;
+    private static final int REQUEST_LINE_SLOTS = 6;
+    private static final int HEADER_SLOTS = 4;
+
+    private final int initialCapacity;
+
+    byte[] data;
+    int start;
+    int end;
+
+    // Parse progress for the request beginning at `start`; all offsets are relative to `start`.
+    int scanned;
+    int lineStart;
+    boolean requestLineSeen;
+    int headEnd = -1;
+    int headerCount;
+    int[] offsets = new int[REQUEST_LINE_SLOTS + 16 * HEADER_SLOTS];
+    HttpRequestParser.RequestHead head;
+
+    // Chunked body progress: decoded bytes are compacted in place right after the header block.
+    int bodyLength;
+    int chunkState;
+    long chunkRemaining;
+    int trailerBytes;
+
+    public RequestBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public RequestBuffer(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive.");
+        }
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Number of buffered bytes not yet consumed by a parsed request.
+     */
+    public int readable() {
+        return end - start;
+    }
+
+    /**
+     * Performs one blocking read from the stream into the free space of the buffer.
+     *
+     * @return the number of bytes read, or {@code -1} at end of stream
+     */
+    public int fill(InputStream inputStream) throws IOException {
+        ensureWritable(1);
+        int read = inputStream.read(data, end, data.length - end);
+        if (read > 0) {
+            end += read;
+        }
+        return read;
+    }
+
+    /**
+     * Appends the remaining bytes of {@code source}, as delivered by a non-blocking channel read.
+     */
+    public void append(ByteBuffer source) {
+        int length = source.remaining();
+        ensureWritable(length);
+        source.get(data, end, length);
+        end += length;
+    }
+
+    public void append(byte[] bytes, int offset, int length) {
+        ensureWritable(length);
+        System.arraycopy(bytes, offset, data, end, length);
+        end += length;
+    }
+
+    /**
+     * Drops the backing array when nothing is buffered, so idle connections hold no memory.
+     */
+    public void release() {
+        if (start == end) {
+            data = null;
+            start = 0;
+            end = 0;
+            resetParseState();
+        }
+    }
+
+    /**
+     * Discards all buffered bytes and parse progress.
+     */
+    public void clear() {
+        end = start;
+        release();
+    }
+
+    /**
+     * Makes room for a request of {@code length} bytes starting at the current read position, so the
+     * remainder of a large body is read straight into place.
+     */
+    void ensureRequestCapacity(int length) {
+        ensureWritable(length - readable());
+    }
+
+    /**
+     * Marks {@code length} bytes as consumed by a parsed request and resets the parse state.
+     */
+    void consume(int length) {
+        start += length;
+        resetParseState();
+        if (start == end) {
+            start = 0;
+            end = 0;
+            if (data != null && data.length > initialCapacity) {
+                data = new byte[initialCapacity];
+            }
+        }
+    }
+
+    int[] offsetsFor(int headerIndex) {
+        int required = REQUEST_LINE_SLOTS + (headerIndex + 1) * HEADER_SLOTS;
+        if (offsets.length < required) {
+            offsets = Arrays.copyOf(offsets, Math.max(required, offsets.length * 2));
+        }
+        return offsets;
+    }
+
+    static int headerSlot(int headerIndex) {
+        return REQUEST_LINE_SLOTS + headerIndex * HEADER_SLOTS;
+    }
+
+    private void ensureWritable(int length) {
+        if (data == null) {
+            data = new byte[Math.max(initialCapacity, length)];
+            return;
+        }
+        if (data.length - end >= length) {
+            return;
+        }
+
+        int readable = end - start;
+        if (start > 0 && data.length - readable >= length) {
+            System.arraycopy(data, start, data, 0, readable);
+        } else {
+            byte[] grown = new byte[Math.max(readable + length, data.length * 2)];
+            System.arraycopy(data, start, grown, 0, readable);
+            data = grown;
+        }
+        start = 0;
+        end = readable;
+    }
+
+    private void resetParseState() {
+        scanned = 0;
+        lineStart = 0;
+        requestLineSeen = false;
+        headEnd = -1;
+        headerCount = 0;
+        head = null;
+        bodyLength = 0;
+        chunkState = 0;
+        chunkRemaining = 0;
+        trailerBytes = 0;
+    }
+}
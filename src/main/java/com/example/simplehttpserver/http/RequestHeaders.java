@@ -0,0 +1,139 @@
+package com.example.simplehttpserver.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, case-insensitive header map backed by the raw header block of a request.
+ *
+ * <p>Names and values stay as byte offsets until they are looked up; {@link #get(Object)} decodes only
+ * the values of the requested header. Iterating the map decodes every header once.
+ */
+final class RequestHeaders extends AbstractMap<String, List<String>> {
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int count;
+    private volatile Map<String, List<String>> materialized;
+
+    /**
+     * @param offsets name start, name end, value start and value end of each header, relative to {@code bytes}
+     */
+    RequestHeaders(byte[] bytes, int[] offsets, int count) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.count = count;
+    }
+
+    /**
+     * Returns the first value of the named header without building a value list.
+     */
+    String first(String name) {
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, name)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+
+        String single = null;
+        List<String> values = null;
+        for (int i = 0; i < count; i++) {
+            if (!nameEquals(i, name)) {
+                continue;
+            }
+            if (single == null) {
+                single = value(i);
+            } else {
+                if (values == null) {
+                    values = new ArrayList<>();
+                    values.add(single);
+                }
+                values.add(value(i));
+            }
+        }
+
+        if (values != null) {
+            return Collections.unmodifiableList(values);
+        }
+        return single == null ? null : List.of(single);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String name)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        Map<String, List<String>> map = materialized;
+        if (map == null) {
+            TreeMap<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < count; i++) {
+                headers.computeIfAbsent(name(i), key -> new ArrayList<>()).add(value(i));
+            }
+            headers.replaceAll((name, values) -> List.copyOf(values));
+            map = Collections.unmodifiableMap(headers);
+            materialized = map;
+        }
+        return map.entrySet();
+    }
+
+    private boolean nameEquals(int index, String name) {
+        int slot = index * 4;
+        int start = offsets[slot];
+        int length = offsets[slot + 1] - start;
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char expected = name.charAt(i);
+            char actual = (char) (bytes[start + i] & 0xFF);
+            if (actual != expected
+                    && Character.toLowerCase(actual) != Character.toLowerCase(expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String name(int index) {
+        int slot = index * 4;
+        return decode(offsets[slot], offsets[slot + 1]);
+    }
+
+    private String value(int index) {
+        int slot = index * 4;
+        return decode(offsets[slot + 2], offsets[slot + 3]);
+    }
+
+    private String decode(int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
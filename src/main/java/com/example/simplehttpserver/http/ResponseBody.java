@@ -0,0 +1,153 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Body of an {@link HttpResponse}. In-memory bodies are referenced rather than copied, so a body must not be
+ * modified after it has been handed to a response. File regions are written with {@code FileChannel.transferTo}
+ * and never enter the heap; stream and streaming bodies are copied through a small fixed buffer.
+ */
+public sealed interface ResponseBody {
+
+    ResponseBody EMPTY = new Bytes(new byte[0], 0, 0);
+
+    /**
+     * Length in bytes, or {@code -1} when it is only known once the body has been written.
+     */
+    long length();
+
+    static ResponseBody empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Wraps {@code bytes} without copying; the caller hands over ownership of the array.
+     */
+    static ResponseBody of(byte[] bytes) {
+        return new Bytes(bytes, 0, bytes.length);
+    }
+
+    static ResponseBody of(String text) {
+        return of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wraps the remaining bytes of {@code buffer}; its position and limit are left untouched when written.
+     */
+    static ResponseBody of(ByteBuffer buffer) {
+        return new Buffer(buffer.slice());
+    }
+
+    /**
+     * Body read from a freshly opened stream each time it is written.
+     *
+     * @param length number of bytes the stream yields, or {@code -1} if unknown
+     */
+    static ResponseBody of(InputStreamSource source, long length) {
+        return new Stream(source, length);
+    }
+
+    static ResponseBody file(Path path, long position, long count) {
+        return new FileRegion(path, position, count);
+    }
+
+    static ResponseBody streaming(StreamingBody body) {
+        return new Streaming(body);
+    }
+
+    /**
+     * Body made of several parts written back to back, such as the sections of a
+     * {@code multipart/byteranges} response. File region parts keep their zero-copy path.
+     */
+    static ResponseBody composite(List<ResponseBody> parts) {
+        return new Composite(parts);
+    }
+
+    /**
+     * Opens the input stream of a {@link Stream} body.
+     */
+    @FunctionalInterface
+    interface InputStreamSource {
+
+        InputStream open() throws IOException;
+    }
+
+    record Bytes(byte[] array, int offset, int count) implements ResponseBody {
+
+        public Bytes {
+            Objects.checkFromIndexSize(offset, count, array.length);
+        }
+
+        @Override
+        public long length() {
+            return count;
+        }
+    }
+
+    record Buffer(ByteBuffer buffer) implements ResponseBody {
+
+        @Override
+        public long length() {
+            return buffer.remaining();
+        }
+    }
+
+    record Stream(InputStreamSource source, long length) implements ResponseBody {
+
+        public Stream {
+            Objects.requireNonNull(source, "source");
+        }
+    }
+
+    record FileRegion(Path path, long position, long count) implements ResponseBody {
+
+        public FileRegion {
+            Objects.requireNonNull(path, "path");
+            if (position < 0 || count < 0) {
+                throw new IllegalArgumentException("File region position and count must not be negative.");
+            }
+        }
+
+        @Override
+        public long length() {
+            return count;
+        }
+    }
+
+    record Composite(List<ResponseBody> parts) implements ResponseBody {
+
+        public Composite {
+            parts = List.copyOf(parts);
+        }
+
+        @Override
+        public long length() {
+            long total = 0;
+            for (ResponseBody part : parts) {
+                if (part.length() < 0) {
+                    return -1;
+                }
+                total += part.length();
+            }
+            return total;
+        }
+    }
+
+    record Streaming(StreamingBody body) implements ResponseBody {
+
+        public Streaming {
+            Objects.requireNonNull(body, "body");
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+    }
+}
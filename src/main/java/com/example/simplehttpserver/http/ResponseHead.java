@@ -0,0 +1,238 @@
+package com.example.simplehttpserver.http;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a status line and headers straight into one byte array.
+ *
+ * <p>Status lines, the names of common headers and the fixed header lines the writer adds are encoded once.
+ * The {@code Date} value only changes once a second, so it is formatted at most once a second and shared by
+ * every response in between. Everything else is copied char by char into an array sized for the whole head,
+ * which is the only allocation a head needs.
+ */
+final class ResponseHead {
+
+    static final String SERVER = "SimpleHttpServer/2.0";
+
+    private static final DateTimeFormatter RFC_1123 = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final byte[][] STATUS_LINES = new byte[HttpStatus.values().length][];
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+    private static final byte[] SERVER_LINE = latin1("Server: " + SERVER + "\r\n");
+    private static final byte[] CHUNKED_LINE = latin1("Transfer-Encoding: chunked\r\n");
+    private static final byte[] CLOSE_LINE = latin1("Connection: close\r\n");
+    private static final byte[] KEEP_ALIVE_CONNECTION_LINE = latin1("Connection: keep-alive\r\n");
+    private static final byte[] KEEP_ALIVE_NAME = latin1("Keep-Alive: ");
+    private static final byte[] CONTENT_LENGTH_NAME = latin1("Content-Length: ");
+    private static final byte[] SEPARATOR = latin1(": ");
+    private static final byte[] CRLF = latin1("\r\n");
+
+    private static volatile CachedDate date = new CachedDate(Long.MIN_VALUE, "", new byte[0]);
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_LINES[status.ordinal()] = latin1("HTTP/1.1 " + status.code() + " " + status.reason() + "\r\n");
+        }
+        for (String name : List.of("Accept-Ranges", "Allow", "Cache-Control", "Connection", "Content-Encoding",
+                "Content-Length", "Content-Range", "Content-Type", "Date", "ETag", "Keep-Alive", "Last-Modified",
+                "Retry-After", "Server", "Set-Cookie", "Transfer-Encoding", "Vary")) {
+            HEADER_NAMES.put(name, latin1(name + ": "));
+        }
+    }
+
+    private ResponseHead() {
+    }
+
+    /**
+     * Current {@code Date} header value, formatted again only when the second changes.
+     */
+    static String date() {
+        return currentDate().value();
+    }
+
+    /**
+     * Encodes the head of a response. Headers missing from {@code headers} are added after them, in this
+     * order: {@code Date}, {@code Server}, {@code Content-Length} (when {@code contentLength} is not negative),
+     * {@code Transfer-Encoding: chunked} (when {@code chunked}), {@code Connection} and {@code Keep-Alive}.
+     * A chunked response always says so, and {@code forceClose} overrides any {@code Connection} header.
+     * Otherwise a non-null {@code keepAlive} overrides them with {@code Connection: keep-alive} and that
+     * {@code Keep-Alive} value; without it a missing {@code Connection} header is added as {@code close}.
+     *
+     * @return the array holding the head; its length is exactly the head's length
+     */
+    static byte[] encode(HttpStatus status, Map<String, String> headers, long contentLength, boolean chunked,
+                         boolean forceClose, String keepAlive) {
+        if (forceClose) {
+            keepAlive = null;
+        }
+        CachedDate currentDate = null;
+        boolean hasDate = false;
+        boolean hasServer = false;
+        boolean hasContentLength = false;
+        boolean hasTransferEncoding = false;
+        boolean hasConnection = false;
+        boolean hasKeepAlive = false;
+
+        byte[] statusLine = STATUS_LINES[status.ordinal()];
+        int length = statusLine.length + CRLF.length;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey();
+            switch (name) {
+                case "Date" -> hasDate = true;
+                case "Server" -> hasServer = true;
+                case "Content-Length" -> hasContentLength = true;
+                case "Transfer-Encoding" -> hasTransferEncoding = true;
+                case "Connection" -> hasConnection = true;
+                case "Keep-Alive" -> hasKeepAlive = true;
+                default -> {
+                }
+            }
+            length += name.length() + SEPARATOR.length + value(header, chunked, forceClose, keepAlive).length()
+                    + CRLF.length;
+        }
+        if (!hasDate) {
+            currentDate = currentDate();
+            length += currentDate.line().length;
+        }
+        if (!hasServer) {
+            length += SERVER_LINE.length;
+        }
+        boolean addContentLength = contentLength >= 0 && !hasContentLength;
+        if (addContentLength) {
+            length += CONTENT_LENGTH_NAME.length + digits(contentLength) + CRLF.length;
+        }
+        boolean addChunked = chunked && !hasTransferEncoding;
+        if (addChunked) {
+            length += CHUNKED_LINE.length;
+        }
+        if (!hasConnection) {
+            length += keepAlive != null ? KEEP_ALIVE_CONNECTION_LINE.length : CLOSE_LINE.length;
+        }
+        boolean addKeepAlive = keepAlive != null && !hasKeepAlive;
+        if (addKeepAlive) {
+            length += KEEP_ALIVE_NAME.length + keepAlive.length() + CRLF.length;
+        }
+
+        byte[] head = new byte[length];
+        int position = put(head, 0, statusLine);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            byte[] name = HEADER_NAMES.get(header.getKey());
+            if (name != null) {
+                position = put(head, position, name);
+            } else {
+                position = putLatin1(head, position, header.getKey());
+                position = put(head, position, SEPARATOR);
+            }
+            position = putLatin1(head, position, value(header, chunked, forceClose, keepAlive));
+            position = put(head, position, CRLF);
+        }
+        if (currentDate != null) {
+            position = put(head, position, currentDate.line());
+        }
+        if (!hasServer) {
+            position = put(head, position, SERVER_LINE);
+        }
+        if (addContentLength) {
+            position = put(head, position, CONTENT_LENGTH_NAME);
+            position = putDigits(head, position, contentLength);
+            position = put(head, position, CRLF);
+        }
+        if (addChunked) {
+            position = put(head, position, CHUNKED_LINE);
+        }
+        if (!hasConnection) {
+            position = put(head, position, keepAlive != null ? KEEP_ALIVE_CONNECTION_LINE : CLOSE_LINE);
+        }
+        if (addKeepAlive) {
+            position = put(head, position, KEEP_ALIVE_NAME);
+            position = putLatin1(head, position, keepAlive);
+            position = put(head, position, CRLF);
+        }
+        put(head, position, CRLF);
+        return head;
+    }
+
+    private static String value(Map.Entry<String, String> header, boolean chunked, boolean forceClose,
+                                String keepAlive) {
+        switch (header.getKey()) {
+            case "Transfer-Encoding" -> {
+                if (chunked) {
+                    return "chunked";
+                }
+            }
+            case "Connection" -> {
+                if (forceClose) {
+                    return "close";
+                }
+                if (keepAlive != null) {
+                    return "keep-alive";
+                }
+            }
+            case "Keep-Alive" -> {
+                if (keepAlive != null) {
+                    return keepAlive;
+                }
+            }
+            default -> {
+            }
+        }
+        return header.getValue();
+    }
+
+    private static CachedDate currentDate() {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+        CachedDate cached = date;
+        if (cached.second() != second) {
+            String value = RFC_1123.format(Instant.ofEpochSecond(second));
+            cached = new CachedDate(second, value, latin1("Date: " + value + "\r\n"));
+            date = cached;
+        }
+        return cached;
+    }
+
+    private static int put(byte[] target, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, target, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * Copies {@code value} as ISO-8859-1, replacing each character outside it with {@code ?}.
+     */
+    private static int putLatin1(byte[] target, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            target[position++] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+        return position;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int putDigits(byte[] target, int position, long value) {
+        int end = position + digits(value);
+        for (int i = end - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static byte[] latin1(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private record CachedDate(long second, String value, byte[] line) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Response body that is generated while it is sent instead of being held in memory.
+ *
+ * <p>The writer hands {@link #writeTo(OutputStream)} a buffered stream that frames the bytes with
+ * {@code Transfer-Encoding: chunked} (or, for HTTP/1.0 clients, ends the body by closing the connection).
+ * Calling {@code flush()} pushes what has been written so far to the client. The status line and headers are
+ * held back until the body first reaches the connection, so nothing is sent before {@code writeTo} produces
+ * output or returns.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+    void writeTo(OutputStream outputStream) throws IOException;
+
+    /**
+     * Called once, from inside {@link #writeTo}, right before the held-back headers are sent. A body whose
+     * headers depend on what it generates, such as a script that sets its own {@code Content-Type}, can
+     * update them here. Framing headers ({@code Content-Length}, {@code Transfer-Encoding},
+     * {@code Connection}) must be left alone.
+     *
+     * @param headers the headers about to be sent, in order and modifiable
+     */
+    default void beforeHead(Map<String, String> headers) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.simplehttpserver.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Buffers a {@link StreamingBody} and writes it to the connection either as {@code chunked} transfer
+ * coding or as-is. The response head is written just before the first body bytes, on the first
+ * {@code flush()} or on {@code close()}, whichever comes first. Closing the stream ends the body but leaves
+ * the connection open.
+ */
+final class StreamingBodyOutputStream extends OutputStream {
+
+    private static final int BUFFER_BYTES = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final OutputStream connection;
+    private final boolean chunked;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private Supplier<byte[]> head;
+    private int count;
+    private long bytesWritten;
+    private boolean finished;
+
+    /**
+     * @param head serialized status line and headers, requested once when the first byte is about to be sent
+     */
+    StreamingBodyOutputStream(OutputStream connection, boolean chunked, Supplier<byte[]> head) {
+        this.connection = connection;
+        this.chunked = chunked;
+        this.head = head;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            writeBuffered();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        ensureOpen();
+        if (length <= buffer.length - count) {
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+            return;
+        }
+        writeBuffered();
+        if (length < buffer.length) {
+            System.arraycopy(bytes, offset, buffer, 0, length);
+            count = length;
+        } else {
+            writeFrame(bytes, offset, length);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeHead();
+        writeBuffered();
+        connection.flush();
+    }
+
+    /**
+     * Writes buffered bytes and the terminating chunk; the underlying connection stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeHead();
+        writeBuffered();
+        finished = true;
+        if (chunked) {
+            connection.write(LAST_CHUNK);
+            bytesWritten += LAST_CHUNK.length;
+        }
+        connection.flush();
+    }
+
+    /**
+     * Bytes passed to the connection so far, including the head and the chunk framing.
+     */
+    long bytesWritten() {
+        return bytesWritten;
+    }
+
+    private void writeBuffered() throws IOException {
+        if (count > 0) {
+            writeFrame(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeHead() throws IOException {
+        if (head != null) {
+            byte[] bytes = head.get();
+            head = null;
+            connection.write(bytes);
+            bytesWritten += bytes.length;
+        }
+    }
+
+    private void writeFrame(byte[] bytes, int offset, int length) throws IOException {
+        writeHead();
+        if (chunked) {
+            byte[] size = Integer.toHexString(length).getBytes(StandardCharsets.ISO_8859_1);
+            connection.write(size);
+            connection.write(CRLF);
+            connection.write(bytes, offset, length);
+            connection.write(CRLF);
+            bytesWritten += size.length + 2 * CRLF.length;
+        } else {
+            connection.write(bytes, offset, length);
+        }
+        bytesWritten += length;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Response body has already been completed.");
+        }
+    }
+}
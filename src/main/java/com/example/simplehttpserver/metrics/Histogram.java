@@ -0,0 +1,57 @@
+package com.example.simplehttpserver.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations into fixed buckets from 10 µs to 10 s, plus one for everything slower, and keeps their sum.
+ * Each bucket is a {@link LongAdder}, so recording takes no lock and concurrent recordings do not contend.
+ * A scrape may see a recording in its bucket but not yet in the sum; Prometheus tolerates that.
+ */
+public final class Histogram {
+
+    /** Upper bounds of the buckets in nanoseconds; a last bucket without bound catches the rest. */
+    static final long[] BOUNDS_NANOS = {
+            10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L,
+            10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && value > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(value);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Number of recordings in bucket {@code index} alone, not including the smaller buckets.
+     */
+    long bucket(int index) {
+        return buckets[index].sum();
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.simplehttpserver.metrics;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named counters, gauges and histograms, written out in the Prometheus text exposition format.
+ *
+ * <p>A metric is registered once, usually at startup, and the returned {@link Counter} or {@link Histogram} is
+ * kept by the code that updates it; updates never touch the registry. A metric may carry one label, such as
+ * the route of a request, in which case every label value is a series of its own, registered on first use.
+ * Registering the same name and label value again returns the existing series. Values kept elsewhere are
+ * registered as a {@link LongSupplier} that is called on every scrape.
+ *
+ * <p>Names, help texts and labels are encoded when they are registered. A scrape walks arrays of series and
+ * writes digits straight into a single byte array, sized from the previous scrape, so it allocates nothing
+ * per series.
+ */
+public final class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final int INITIAL_SCRAPE_BYTES = 4096;
+    private static final byte[] SPACE = {' '};
+    private static final byte[] NEWLINE = {'\n'};
+    private static final byte[] BUCKET_SUFFIX = ascii("_bucket");
+    private static final byte[] SUM_SUFFIX = ascii("_sum");
+    private static final byte[] COUNT_SUFFIX = ascii("_count");
+
+    private static final byte[][] LE_VALUES = new byte[Histogram.BOUNDS_NANOS.length + 1][];
+
+    static {
+        for (int i = 0; i < Histogram.BOUNDS_NANOS.length; i++) {
+            LE_VALUES[i] = ascii(BigDecimal.valueOf(Histogram.BOUNDS_NANOS[i], 9).stripTrailingZeros()
+                    .toPlainString());
+        }
+        LE_VALUES[Histogram.BOUNDS_NANOS.length] = ascii("+Inf");
+    }
+
+    private enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    private volatile Family[] families = new Family[0];
+    private volatile int lastScrapeBytes = INITIAL_SCRAPE_BYTES;
+
+    public Counter counter(String name, String help) {
+        return metric(register(name, help, Type.COUNTER, null, null, Counter::new), Counter.class, name);
+    }
+
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return metric(register(name, help, Type.COUNTER, labelName, labelValue, Counter::new), Counter.class,
+                name);
+    }
+
+    /**
+     * Registers a counter whose value is counted elsewhere, for example by a cache, and read on every scrape.
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        registerSupplier(name, help, Type.COUNTER, value);
+    }
+
+    /**
+     * Registers a value that can go up and down, such as a queue length, read on every scrape.
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        registerSupplier(name, help, Type.GAUGE, value);
+    }
+
+    public Histogram histogram(String name, String help) {
+        return metric(register(name, help, Type.HISTOGRAM, null, null, Histogram::new), Histogram.class, name);
+    }
+
+    public Histogram histogram(String name, String help, String labelName, String labelValue) {
+        return metric(register(name, help, Type.HISTOGRAM, labelName, labelValue, Histogram::new), Histogram.class,
+                name);
+    }
+
+    /**
+     * Writes every metric in the text exposition format. Counters and gauges are read one at a time, so the
+     * scrape is not a consistent snapshot across metrics.
+     *
+     * @return the output, in a buffer wrapping an array that belongs to the caller
+     */
+    public ByteBuffer scrape() {
+        Output output = new Output(lastScrapeBytes);
+        for (Family family : families) {
+            output.write(family.header);
+            for (Series series : family.series) {
+                writeSeries(output, family, series);
+            }
+        }
+        // Some room for series added before the next scrape, so it does not have to grow the array.
+        lastScrapeBytes = output.count + output.count / 8;
+        return ByteBuffer.wrap(output.bytes, 0, output.count);
+    }
+
+    private static void writeSeries(Output output, Family family, Series series) {
+        switch (series.value) {
+            case Counter counter -> output.sample(family.name, series.labels, counter.value());
+            case LongSupplier supplier -> output.sample(family.name, series.labels, supplier.getAsLong());
+            case Histogram histogram -> {
+                long cumulative = 0;
+                for (int i = 0; i < series.bucketLabels.length; i++) {
+                    cumulative += histogram.bucket(i);
+                    output.write(family.name);
+                    output.write(BUCKET_SUFFIX);
+                    output.write(series.bucketLabels[i]);
+                    output.write(SPACE);
+                    output.writeLong(cumulative);
+                    output.write(NEWLINE);
+                }
+                output.write(family.name);
+                output.write(SUM_SUFFIX);
+                output.write(series.labels);
+                output.write(SPACE);
+                output.writeSeconds(histogram.sumNanos());
+                output.write(NEWLINE);
+                output.write(family.name);
+                output.write(COUNT_SUFFIX);
+                output.write(series.labels);
+                output.write(SPACE);
+                output.writeLong(cumulative);
+                output.write(NEWLINE);
+            }
+            default -> throw new IllegalStateException("Unexpected series value: " + series.value);
+        }
+    }
+
+    private static <T> T metric(Series series, Class<T> type, String name) {
+        if (!type.isInstance(series.value)) {
+            throw new IllegalArgumentException("Metric is already registered with a supplier: " + name);
+        }
+        return type.cast(series.value);
+    }
+
+    private void registerSupplier(String name, String help, Type type, LongSupplier value) {
+        Objects.requireNonNull(value, "value");
+        Series series = register(name, help, type, null, null, () -> value);
+        if (series.value != value) {
+            throw new IllegalArgumentException("Metric is already registered: " + name);
+        }
+    }
+
+    private synchronized Series register(String name, String help, Type type, String labelName,
+                                         String labelValue, Supplier<Object> factory) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        if (labelName != null && (!LABEL_NAME.matcher(labelName).matches() || labelName.startsWith("__")
+                || labelName.equals("le"))) {
+            throw new IllegalArgumentException("Invalid label name: " + labelName);
+        }
+        if (labelName != null) {
+            Objects.requireNonNull(labelValue, "labelValue");
+        }
+
+        Family family = null;
+        for (Family existing : families) {
+            if (existing.nameText.equals(name)) {
+                family = existing;
+                break;
+            }
+        }
+        if (family == null) {
+            family = new Family(name, help, type, labelName);
+            Family[] grown = Arrays.copyOf(families, families.length + 1);
+            grown[families.length] = family;
+            families = grown;
+        } else if (family.type != type || !Objects.equals(family.labelName, labelName)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a different kind");
+        }
+
+        for (Series existing : family.series) {
+            if (Objects.equals(existing.labelValue, labelValue)) {
+                return existing;
+            }
+        }
+        Series series = new Series(labelName, labelValue, factory.get());
+        Series[] grown = Arrays.copyOf(family.series, family.series.length + 1);
+        grown[family.series.length] = series;
+        family.series = grown;
+        return series;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * All series of one metric name, with its {@code # HELP} and {@code # TYPE} lines.
+     */
+    private static final class Family {
+        private final String nameText;
+        private final byte[] name;
+        private final byte[] header;
+        private final Type type;
+        private final String labelName;
+        private volatile Series[] series = new Series[0];
+
+        private Family(String name, String help, Type type, String labelName) {
+            this.nameText = name;
+            this.name = ascii(name);
+            this.type = type;
+            this.labelName = labelName;
+            String escapedHelp = help.replace("\\", "\\\\").replace("\n", "\\n");
+            this.header = ascii("# HELP " + name + " " + escapedHelp + "\n# TYPE " + name + " "
+                    + type.name().toLowerCase(Locale.ROOT) + "\n");
+        }
+    }
+
+    /**
+     * One label value of a family; {@code labels} is the encoded label set, empty without a label.
+     */
+    private static final class Series {
+        private final String labelValue;
+        private final byte[] labels;
+        private final byte[][] bucketLabels;
+        private final Object value;
+
+        private Series(String labelName, String labelValue, Object value) {
+            this.labelValue = labelValue;
+            this.value = value;
+            String label = labelName == null ? "" : labelName + "=\"" + escapeLabelValue(labelValue) + "\"";
+            this.labels = ascii(label.isEmpty() ? "" : "{" + label + "}");
+            if (value instanceof Histogram) {
+                bucketLabels = new byte[LE_VALUES.length][];
+                for (int i = 0; i < LE_VALUES.length; i++) {
+                    String le = "le=\"" + new String(LE_VALUES[i], StandardCharsets.US_ASCII) + "\"";
+                    bucketLabels[i] = ascii("{" + (label.isEmpty() ? le : label + "," + le) + "}");
+                }
+            } else {
+                bucketLabels = null;
+            }
+        }
+    }
+
+    /**
+     * Growable output array with ASCII number formatting that does not go through strings.
+     */
+    private static final class Output {
+        private static final int MAX_NUMBER_BYTES = 20;
+        private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+        private byte[] bytes;
+        private int count;
+
+        private Output(int capacity) {
+            bytes = new byte[Math.max(INITIAL_SCRAPE_BYTES, capacity)];
+        }
+
+        private void sample(byte[] name, byte[] labels, long value) {
+            write(name);
+            write(labels);
+            write(SPACE);
+            writeLong(value);
+            write(NEWLINE);
+        }
+
+        private void write(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, count, value.length);
+            count += value.length;
+        }
+
+        private void writeLong(long value) {
+            ensure(MAX_NUMBER_BYTES);
+            if (value == Long.MIN_VALUE) {
+                write(ascii(Long.toString(value)));
+                return;
+            }
+            if (value < 0) {
+                bytes[count++] = '-';
+                value = -value;
+            }
+            int start = count;
+            do {
+                bytes[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int left = start, right = count - 1; left < right; left++, right--) {
+                byte digit = bytes[left];
+                bytes[left] = bytes[right];
+                bytes[right] = digit;
+            }
+        }
+
+        /**
+         * Writes a non-negative number of nanoseconds as seconds, without trailing zeros in the fraction.
+         */
+        private void writeSeconds(long nanos) {
+            writeLong(nanos / NANOS_PER_SECOND);
+            long fraction = nanos % NANOS_PER_SECOND;
+            if (fraction == 0) {
+                return;
+            }
+            ensure(10);
+            bytes[count++] = '.';
+            int digits = 9;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (int i = digits - 1; i >= 0; i--) {
+                bytes[count + i] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            count += digits;
+        }
+
+        private void ensure(int length) {
+            if (count + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + length));
+            }
+        }
+    }
+}
@@ -6,8 +6,10 @@ import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.server.Session;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,111 +17,246 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Simple educational router that supports exact and parameterized paths such as /users/{id}.
+ * Simple educational router that supports exact paths, parameterized paths such as /users/{id} and trailing
+ * wildcards such as /assets/{path*}.
+ *
+ * <p>Patterns are compiled into a segment trie when they are registered. A lookup splits the request path
+ * once and walks one trie level per segment, so its cost depends on the path depth rather than the number of
+ * routes. At each level a literal segment is preferred over a parameter and a parameter over a wildcard; the
+ * walk backtracks when the more specific branch leads nowhere. Each node indexes its handlers by method.
+ *
+ * <p>Routes are expected to be registered before the server starts; lookups do not lock.
  */
 public class Router {
 
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    private final Node root = new Node();
     private final List<Route> routes = new ArrayList<>();
 
+    /**
+     * Registers {@code handler} for {@code method} and {@code pathPattern}. Segments written as {@code {name}}
+     * capture one path segment; a last segment written as {@code {name*}} captures the rest of the path,
+     * including none of it ({@code *} alone does the same under the name {@code "*"}). If the same method and
+     * pattern is registered twice, the first handler is kept.
+     */
     public Router addRoute(HttpMethod method, String pathPattern, RouteHandler handler) {
-        routes.add(new Route(method, parsePattern(pathPattern), handler));
+        List<String> patternSegments = parsePattern(pathPattern);
+        List<String> parameterNames = new ArrayList<>();
+        Node node = root;
+        for (int i = 0; i < patternSegments.size(); i++) {
+            String segment = patternSegments.get(i);
+            if (isWildcard(segment)) {
+                if (i != patternSegments.size() - 1) {
+                    throw new IllegalArgumentException("Wildcard must be the last segment: " + pathPattern);
+                }
+                parameterNames.add("*".equals(segment) ? "*" : segment.substring(1, segment.length() - 2));
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else if (isPathVariable(segment)) {
+                parameterNames.add(segment.substring(1, segment.length() - 1));
+                if (node.parameter == null) {
+                    node.parameter = new Node();
+                }
+                node = node.parameter;
+            } else {
+                node = node.literals.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        Route route = new Route(method, pathPattern, List.copyOf(parameterNames), handler);
+        if (node.routes.putIfAbsent(method, route) == null) {
+            routes.add(route);
+        }
         return this;
     }
 
     public Optional<HttpResponse> dispatch(HttpRequest request, Session session) throws Exception {
-        for (Route route : routes) {
-            if (route.method != request.method()) {
-                continue;
-            }
-
-            Optional<Map<String, String>> match = match(route.patternSegments, request.path());
-            if (match.isEmpty()) {
-                continue;
-            }
+        Optional<Match> match = match(request);
+        if (match.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(match.get().handle(session));
+    }
 
-            RequestContext context = new RequestContext(request, match.get(), session);
-            return Optional.of(route.handler.handle(context));
+    /**
+     * Finds the route for the request's method and path without running its handler, so looking up a route
+     * and handling the request can be told apart, for example when timing them.
+     */
+    public Optional<Match> match(HttpRequest request) {
+        String[] pathSegments = splitPath(request.path());
+        String[] captures = new String[pathSegments.length + 1];
+        Route route = find(root, pathSegments, 0, captures, 0, request.method());
+        if (route == null) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        return Optional.of(new Match(request, route, captures));
     }
 
     public Set<HttpMethod> allowedMethods(String path) {
-        Set<HttpMethod> methods = new LinkedHashSet<>();
-        for (Route route : routes) {
-            if (match(route.patternSegments, path).isPresent()) {
-                methods.add(route.method);
+        Set<HttpMethod> methods = EnumSet.noneOf(HttpMethod.class);
+        collectMethods(root, splitPath(path), 0, methods);
+        return methods;
+    }
+
+    public String describeRoutes() {
+        return routes.stream()
+                .map(route -> route.method + " " + route.pattern)
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Depth-first search for a route accepting {@code method}, trying literal, parameter and wildcard
+     * children in that order. Parameter values are written to {@code captures} in pattern order.
+     */
+    private Route find(Node node, String[] segments, int index, String[] captures, int captured,
+                       HttpMethod method) {
+        if (index == segments.length) {
+            Route route = node.routes.get(method);
+            if (route != null) {
+                return route;
+            }
+        } else {
+            Node literal = node.literals.get(segments[index]);
+            if (literal != null) {
+                Route route = find(literal, segments, index + 1, captures, captured, method);
+                if (route != null) {
+                    return route;
+                }
+            }
+            if (node.parameter != null) {
+                captures[captured] = segments[index];
+                Route route = find(node.parameter, segments, index + 1, captures, captured + 1, method);
+                if (route != null) {
+                    return route;
+                }
             }
         }
-        return methods;
+        if (node.wildcard != null) {
+            Route route = node.wildcard.routes.get(method);
+            if (route != null) {
+                captures[captured] = String.join("/", Arrays.asList(segments).subList(index, segments.length));
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private void collectMethods(Node node, String[] segments, int index, Set<HttpMethod> methods) {
+        if (index == segments.length) {
+            methods.addAll(node.routes.keySet());
+        } else {
+            Node literal = node.literals.get(segments[index]);
+            if (literal != null) {
+                collectMethods(literal, segments, index + 1, methods);
+            }
+            if (node.parameter != null) {
+                collectMethods(node.parameter, segments, index + 1, methods);
+            }
+        }
+        if (node.wildcard != null) {
+            methods.addAll(node.wildcard.routes.keySet());
+        }
     }
 
     private List<String> parsePattern(String pattern) {
         if (pattern == null || pattern.isBlank() || !pattern.startsWith("/")) {
             throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
         }
+        return List.of(splitPath(pattern));
+    }
 
-        if ("/".equals(pattern)) {
-            return List.of();
-        }
+    private boolean isPathVariable(String segment) {
+        return segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2;
+    }
 
-        return splitPath(pattern);
+    private boolean isWildcard(String segment) {
+        return "*".equals(segment) || (segment.startsWith("{") && segment.endsWith("*}") && segment.length() > 3);
     }
 
-    private Optional<Map<String, String>> match(List<String> patternSegments, String path) {
-        List<String> pathSegments = splitPath(path);
-        if (patternSegments.size() != pathSegments.size()) {
-            return Optional.empty();
+    /**
+     * Splits a path into its segments in one pass, ignoring one leading and one trailing slash.
+     */
+    private static String[] splitPath(String path) {
+        if (path == null) {
+            return NO_SEGMENTS;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") && path.length() > start ? path.length() - 1 : path.length();
+        if (start >= end) {
+            return NO_SEGMENTS;
         }
 
-        Map<String, String> pathParameters = new LinkedHashMap<>();
-        for (int i = 0; i < patternSegments.size(); i++) {
-            String patternSegment = patternSegments.get(i);
-            String actualSegment = pathSegments.get(i);
-
-            if (isPathVariable(patternSegment)) {
-                String variableName = patternSegment.substring(1, patternSegment.length() - 1);
-                pathParameters.put(variableName, actualSegment);
-                continue;
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                count++;
             }
-
-            if (!patternSegment.equals(actualSegment)) {
-                return Optional.empty();
+        }
+        String[] segments = new String[count];
+        int segment = 0;
+        int segmentStart = start;
+        for (int i = start; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                segments[segment++] = path.substring(segmentStart, i);
+                segmentStart = i + 1;
             }
         }
-
-        return Optional.of(pathParameters);
+        segments[segment] = path.substring(segmentStart, end);
+        return segments;
     }
 
-    private boolean isPathVariable(String segment) {
-        return segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2;
-    }
+    /**
+     * A route found for a request, with the path parameters it captured.
+     */
+    public static final class Match {
 
-    private List<String> splitPath(String path) {
-        if (path == null || path.isBlank() || "/".equals(path)) {
-            return List.of();
-        }
+        private final HttpRequest request;
+        private final Route route;
+        private final String[] captures;
 
-        String normalized = path;
-        if (normalized.startsWith("/")) {
-            normalized = normalized.substring(1);
-        }
-        if (normalized.endsWith("/")) {
-            normalized = normalized.substring(0, normalized.length() - 1);
+        private Match(HttpRequest request, Route route, String[] captures) {
+            this.request = request;
+            this.route = route;
+            this.captures = captures;
         }
 
-        if (normalized.isBlank()) {
-            return List.of();
+        /**
+         * The pattern the route was registered with, such as {@code /users/{id}}.
+         */
+        public String pattern() {
+            return route.pattern;
         }
 
-        return List.of(normalized.split("/"));
+        public HttpResponse handle(Session session) throws Exception {
+            RequestContext context = new RequestContext(request, route.pathParameters(captures), session);
+            return route.handler.handle(context);
+        }
     }
 
-    public String describeRoutes() {
-        return routes.stream()
-                .map(route -> route.method + " /" + String.join("/", route.patternSegments))
-                .collect(Collectors.joining("\n"));
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<HttpMethod, Route> routes = new EnumMap<>(HttpMethod.class);
+        private Node parameter;
+        private Node wildcard;
     }
 
-    private record Route(HttpMethod method, List<String> patternSegments, RouteHandler handler) {
+    /**
+     * A registered handler; {@code parameterNames} lists the pattern's captures in order.
+     */
+    private record Route(HttpMethod method, String pattern, List<String> parameterNames, RouteHandler handler) {
+
+        Map<String, String> pathParameters(String[] captures) {
+            if (parameterNames.isEmpty()) {
+                return Map.of();
+            }
+            Map<String, String> pathParameters = new HashMap<>();
+            for (int i = 0; i < parameterNames.size(); i++) {
+                pathParameters.put(parameterNames.get(i), captures[i]);
+            }
+            return pathParameters;
+        }
     }
 }
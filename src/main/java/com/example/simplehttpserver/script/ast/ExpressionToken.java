@@ -3,8 +3,28 @@ package com.example.simplehttpserver.script.ast;
 /**
  * Token in expression order (RPN for ECHO tags).
  *
- * @param type expression token type
- * @param text token text or value
+ * @param type  expression token type
+ * @param text  token text or value
+ * @param value decoded literal ({@link Integer}, {@link Double} or {@link String}), or {@code null} for
+ *              variables, functions and operators
  */
-public record ExpressionToken(ExpressionTokenType type, String text) {
+public record ExpressionToken(ExpressionTokenType type, String text, Object value) {
+
+    /**
+     * Creates a token and decodes its literal value once, so it is not parsed again on every execution.
+     *
+     * @throws NumberFormatException if a numeric literal does not fit its type
+     */
+    public ExpressionToken(ExpressionTokenType type, String text) {
+        this(type, text, literalValue(type, text));
+    }
+
+    private static Object literalValue(ExpressionTokenType type, String text) {
+        return switch (type) {
+            case INTEGER -> Integer.valueOf(text);
+            case DOUBLE -> Double.valueOf(text);
+            case STRING -> text;
+            case VARIABLE, FUNCTION, OPERATOR -> null;
+        };
+    }
 }
@@ -0,0 +1,358 @@
+package com.example.simplehttpserver.script.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of the class file format to emit one class with a few fields and methods: a deduplicating
+ * constant pool and a bytecode buffer that tracks the operand stack depth.
+ *
+ * <p>Classes are written as version 49 (Java 5). The JVM still verifies those by type inference, so no
+ * {@code StackMapTable} has to be computed for the generated loops.
+ */
+final class ClassFileWriter {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndexes = new HashMap<>();
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private int poolCount = 1;
+
+    int utf8(String value) {
+        return constant("U" + value, 1, 1, out -> out.writeUTF(value));
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, 7, 1, out -> out.writeShort(name));
+    }
+
+    int string(String value) {
+        int text = utf8(value);
+        return constant("S" + value, 8, 1, out -> out.writeShort(text));
+    }
+
+    int integer(int value) {
+        return constant("I" + value, 3, 1, out -> out.writeInt(value));
+    }
+
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return constant("D" + bits, 6, 2, out -> out.writeLong(bits));
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        int ownerClass = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return constant("F" + owner + "." + name + ":" + descriptor, 9, 1, out -> {
+            out.writeShort(ownerClass);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerClass = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return constant("M" + owner + "." + name + descriptor, 10, 1, out -> {
+            out.writeShort(ownerClass);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return constant("N" + name + ":" + descriptor, 12, 1, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+    }
+
+    void addField(int access, String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        fields.add(write(out -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(0);
+        }));
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeAttribute = utf8("Code");
+        byte[] bytecode = code.toByteArray();
+        methods.add(write(out -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+        }));
+    }
+
+    byte[] toByteArray(String thisClass, String superClass, String... interfaces) {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceIndexes[i] = classRef(interfaces[i]);
+        }
+        if (poolCount > 0xFFFF) {
+            throw new ScriptCompileException("Script needs more than 65535 class file constants.");
+        }
+
+        return write(out -> {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(interfaceIndexes.length);
+            for (int index : interfaceIndexes) {
+                out.writeShort(index);
+            }
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        });
+    }
+
+    private int constant(String key, int tag, int slots, Content content) {
+        Integer existing = poolIndexes.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            pool.writeByte(tag);
+            content.writeTo(pool);
+        } catch (IOException exception) {
+            throw new ScriptCompileException("Constant does not fit in a class file: " + key, exception);
+        }
+        int index = poolCount;
+        poolCount += slots;
+        poolIndexes.put(key, index);
+        return index;
+    }
+
+    private static byte[] write(Content content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            content.writeTo(new DataOutputStream(bytes));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Bytecode of one method. Every emitting method adjusts the tracked stack depth, in slots, by the
+     * instruction's effect so {@code max_stack} comes out right without a separate analysis.
+     */
+    static final class Code {
+
+        static final int ICONST_0 = 0x03;
+        static final int BIPUSH = 0x10;
+        static final int SIPUSH = 0x11;
+        static final int LDC = 0x12;
+        static final int LDC_W = 0x13;
+        static final int LDC2_W = 0x14;
+        static final int ILOAD = 0x15;
+        static final int DLOAD = 0x18;
+        static final int ALOAD = 0x19;
+        static final int ISTORE = 0x36;
+        static final int DSTORE = 0x39;
+        static final int ASTORE = 0x3A;
+        static final int DUP = 0x59;
+        static final int DUP2 = 0x5C;
+        static final int IADD = 0x60;
+        static final int DADD = 0x63;
+        static final int ISUB = 0x64;
+        static final int DSUB = 0x67;
+        static final int IMUL = 0x68;
+        static final int DMUL = 0x6B;
+        static final int I2D = 0x87;
+        static final int IFGT = 0x9D;
+        static final int IF_ICMPGT = 0xA3;
+        static final int GOTO = 0xA7;
+        static final int RETURN = 0xB1;
+        static final int GETSTATIC = 0xB2;
+        static final int PUTSTATIC = 0xB3;
+        static final int INVOKEVIRTUAL = 0xB6;
+        static final int INVOKESPECIAL = 0xB7;
+        static final int INVOKESTATIC = 0xB8;
+
+        private static final int MAX_BRANCH_OFFSET = Short.MAX_VALUE;
+
+        private byte[] code = new byte[256];
+        private int length;
+        private int stack;
+        private int maxStack;
+        private int maxLocals;
+
+        Code(int parameterSlots) {
+            maxLocals = parameterSlots;
+        }
+
+        /**
+         * Emits a single-byte instruction that changes the stack depth by {@code stackDelta} slots.
+         */
+        void op(int opcode, int stackDelta) {
+            u1(opcode);
+            adjustStack(stackDelta);
+        }
+
+        void local(int opcode, int slot, int stackDelta, int slotSize) {
+            if (slot > 0xFF) {
+                throw new ScriptCompileException("Script needs more than 255 local variable slots.");
+            }
+            u1(opcode);
+            u1(slot);
+            adjustStack(stackDelta);
+            maxLocals = Math.max(maxLocals, slot + slotSize);
+        }
+
+        void pushInt(ClassFileWriter classFile, int value) {
+            if (value >= -1 && value <= 5) {
+                u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                u1(SIPUSH);
+                u2(value);
+            } else {
+                loadConstant(classFile.integer(value));
+                return;
+            }
+            adjustStack(1);
+        }
+
+        void pushDouble(ClassFileWriter classFile, double value) {
+            u1(LDC2_W);
+            u2(classFile.doubleConstant(value));
+            adjustStack(2);
+        }
+
+        void pushString(ClassFileWriter classFile, String value) {
+            loadConstant(classFile.string(value));
+        }
+
+        void field(int opcode, int fieldRef, int stackDelta) {
+            u1(opcode);
+            u2(fieldRef);
+            adjustStack(stackDelta);
+        }
+
+        void invoke(int opcode, int methodRef, int stackDelta) {
+            u1(opcode);
+            u2(methodRef);
+            adjustStack(stackDelta);
+        }
+
+        int position() {
+            return length;
+        }
+
+        /**
+         * Emits a branch with a placeholder offset and returns its position for {@link #patch}.
+         */
+        int branch(int opcode, int stackDelta) {
+            int position = length;
+            u1(opcode);
+            u2(0);
+            adjustStack(stackDelta);
+            return position;
+        }
+
+        void branchTo(int opcode, int target, int stackDelta) {
+            patch(branch(opcode, stackDelta), target);
+        }
+
+        void patch(int branchPosition, int target) {
+            int offset = target - branchPosition;
+            if (Math.abs(offset) > MAX_BRANCH_OFFSET) {
+                throw new ScriptCompileException("Loop body is too large to compile.");
+            }
+            code[branchPosition + 1] = (byte) (offset >> 8);
+            code[branchPosition + 2] = (byte) offset;
+        }
+
+        byte[] toByteArray() {
+            if (length > 0xFFFF) {
+                throw new ScriptCompileException("Script is too large to compile into one method.");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(code, 0, result, 0, length);
+            return result;
+        }
+
+        private void loadConstant(int index) {
+            if (index <= 0xFF) {
+                u1(LDC);
+                u1(index);
+            } else {
+                u1(LDC_W);
+                u2(index);
+            }
+            adjustStack(1);
+        }
+
+        private void adjustStack(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void u1(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+    }
+}
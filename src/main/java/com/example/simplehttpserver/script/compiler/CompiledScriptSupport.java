@@ -0,0 +1,98 @@
+package com.example.simplehttpserver.script.compiler;
+
+import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
+import com.example.simplehttpserver.script.runtime.ValueWrapper;
+
+import java.text.DecimalFormat;
+
+/**
+ * Static helpers called from generated script classes for everything that is not plain int or double
+ * arithmetic. Each one mirrors the corresponding case of {@code ScriptEngine}, so compiled and interpreted
+ * scripts produce the same output and the same errors.
+ */
+final class CompiledScriptSupport {
+
+    static final String INTERNAL_NAME = "com/example/simplehttpserver/script/compiler/CompiledScriptSupport";
+
+    private CompiledScriptSupport() {
+    }
+
+    static Object add(Object left, Object right) {
+        ValueWrapper result = new ValueWrapper(left);
+        result.increment(right);
+        return result.getValue();
+    }
+
+    static Object subtract(Object left, Object right) {
+        ValueWrapper result = new ValueWrapper(left);
+        result.decrement(right);
+        return result.getValue();
+    }
+
+    static Object multiply(Object left, Object right) {
+        ValueWrapper result = new ValueWrapper(left);
+        result.multiply(right);
+        return result.getValue();
+    }
+
+    static Object divide(Object left, Object right) {
+        ValueWrapper result = new ValueWrapper(left);
+        result.divide(right);
+        return result.getValue();
+    }
+
+    static double divide(double left, double right) {
+        if (right == 0.0) {
+            throw new ScriptRuntimeException("Division by zero.");
+        }
+        return left / right;
+    }
+
+    static int compare(Object value, Object end) {
+        return new ValueWrapper(value).numCompare(end);
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        return Double.parseDouble(String.valueOf(value));
+    }
+
+    static String decfmt(Object value, Object pattern) {
+        return new DecimalFormat(String.valueOf(pattern)).format(toDouble(value));
+    }
+
+    static void setMimeType(ScriptExecutionContext context, Object value) {
+        context.setMimeType(String.valueOf(value));
+    }
+
+    static String paramGet(ScriptExecutionContext context, Object name, Object defaultValue) {
+        return context.queryParamOrDefault(String.valueOf(name), String.valueOf(defaultValue));
+    }
+
+    static String pparamGet(ScriptExecutionContext context, Object name, Object defaultValue) {
+        return context.persistentParamOrDefault(String.valueOf(name), String.valueOf(defaultValue));
+    }
+
+    static void pparamSet(ScriptExecutionContext context, Object value, Object name) {
+        context.setPersistentParam(String.valueOf(name), String.valueOf(value));
+    }
+
+    static void pparamDel(ScriptExecutionContext context, Object name) {
+        context.deletePersistentParam(String.valueOf(name));
+    }
+
+    static String tparamGet(ScriptExecutionContext context, Object name, Object defaultValue) {
+        return context.temporaryParamOrDefault(String.valueOf(name), String.valueOf(defaultValue));
+    }
+
+    static void tparamSet(ScriptExecutionContext context, Object value, Object name) {
+        context.setTemporaryParam(String.valueOf(name), String.valueOf(value));
+    }
+
+    static void tparamDel(ScriptExecutionContext context, Object name) {
+        context.deleteTemporaryParam(String.valueOf(name));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.simplehttpserver.script.compiler;
+
+/**
+ * Exception thrown when a parsed script cannot be compiled and has to be interpreted instead.
+ */
+public class ScriptCompileException extends RuntimeException {
+
+    public ScriptCompileException(String message) {
+        super(message);
+    }
+
+    public ScriptCompileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,517 @@
+package com.example.simplehttpserver.script.compiler;
+
+import com.example.simplehttpserver.script.ast.ExpressionToken;
+import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
+import com.example.simplehttpserver.script.ast.ScriptEchoNode;
+import com.example.simplehttpserver.script.ast.ScriptForLoopNode;
+import com.example.simplehttpserver.script.ast.ScriptNode;
+import com.example.simplehttpserver.script.ast.ScriptTextBlockNode;
+import com.example.simplehttpserver.script.runtime.ScriptProgram;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.example.simplehttpserver.script.compiler.ClassFileWriter.Code.*;
+
+/**
+ * Compiles a parsed script into a hidden class implementing {@link ScriptProgram}.
+ *
+ * <p>The generated {@code execute} method writes text blocks from static byte arrays, encoded to UTF-8 once
+ * when the class is initialised, and evaluates each echo expression on the JVM operand stack, which maps one
+ * to one onto the RPN stack of the interpreter. Literals are embedded as constants and FOR variables live in
+ * JVM local variable slots. Values whose type is known statically stay unboxed {@code int} or {@code double};
+ * everything else goes through {@link CompiledScriptSupport}, which reuses the interpreter's semantics.
+ *
+ * <p>Scripts whose errors the interpreter only reports at run time — an undefined variable, a function or
+ * operator missing operands, an unknown function — are not compiled, so they keep failing exactly as before.
+ * Hidden classes are not strongly reachable from their class loader and are unloaded once the returned
+ * program is no longer used.
+ */
+public final class ScriptCompiler {
+
+    private static final String CLASS_NAME = "com/example/simplehttpserver/script/compiler/CompiledScript";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String PROGRAM = "com/example/simplehttpserver/script/runtime/ScriptProgram";
+    private static final String CONTEXT = "com/example/simplehttpserver/script/runtime/ScriptExecutionContext";
+    private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+    private static final String STRING_DESCRIPTOR = "Ljava/lang/String;";
+    private static final String BYTES_DESCRIPTOR = "[B";
+    private static final String CHARSET_DESCRIPTOR = "Ljava/nio/charset/Charset;";
+    private static final String CONTEXT_DESCRIPTOR = "L" + CONTEXT + ";";
+    private static final String SUPPORT = CompiledScriptSupport.INTERNAL_NAME;
+
+    private static final int THIS_SLOT = 0;
+    private static final int CONTEXT_SLOT = 1;
+
+    /**
+     * Longest text encoded from one string constant; three bytes per character keeps it below the 64 KB
+     * constant pool limit.
+     */
+    private static final int TEXT_CHUNK_CHARS = 16_384;
+
+    /**
+     * @throws ScriptCompileException if the script has to be interpreted instead
+     */
+    public ScriptProgram compile(ScriptDocumentNode document) {
+        ClassFileWriter classFile = new ClassFileWriter();
+
+        ClassFileWriter.Code constructor = new ClassFileWriter.Code(1);
+        constructor.local(ALOAD, THIS_SLOT, 1, 1);
+        constructor.invoke(INVOKESPECIAL, classFile.methodRef(OBJECT, "<init>", "()V"), -1);
+        constructor.op(RETURN, 0);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", constructor);
+
+        MethodCompiler method = new MethodCompiler(classFile);
+        method.compileChildren(document);
+        method.code.op(RETURN, 0);
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "execute", "(" + CONTEXT_DESCRIPTOR + ")V", method.code);
+        if (!method.texts.isEmpty()) {
+            classFile.addMethod(ClassFileWriter.ACC_STATIC, "<clinit>", "()V", encodeTexts(classFile, method.texts));
+        }
+
+        byte[] bytes = classFile.toByteArray(CLASS_NAME, OBJECT, PROGRAM);
+        try {
+            Class<?> programClass = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            return (ScriptProgram) programClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            throw new ScriptCompileException("Generated script class was rejected: " + exception, exception);
+        }
+    }
+
+    /**
+     * Emits the static initialiser that stores each text constant's UTF-8 bytes in its field.
+     */
+    private static ClassFileWriter.Code encodeTexts(ClassFileWriter classFile, Map<String, Integer> texts) {
+        ClassFileWriter.Code initializer = new ClassFileWriter.Code(0);
+        int utf8 = classFile.fieldRef("java/nio/charset/StandardCharsets", "UTF_8", CHARSET_DESCRIPTOR);
+        int getBytes = classFile.methodRef("java/lang/String", "getBytes",
+                "(" + CHARSET_DESCRIPTOR + ")" + BYTES_DESCRIPTOR);
+        for (Map.Entry<String, Integer> text : texts.entrySet()) {
+            initializer.pushString(classFile, text.getKey());
+            initializer.field(GETSTATIC, utf8, 1);
+            initializer.invoke(INVOKEVIRTUAL, getBytes, -1);
+            initializer.field(PUTSTATIC, text.getValue(), -1);
+        }
+        initializer.op(RETURN, 0);
+        return initializer;
+    }
+
+    /**
+     * JVM representation of a value on the operand stack or in a local slot.
+     */
+    private enum Kind {
+        INT(1, ILOAD, ISTORE),
+        DOUBLE(2, DLOAD, DSTORE),
+        REFERENCE(1, ALOAD, ASTORE);
+
+        private final int size;
+        private final int loadOpcode;
+        private final int storeOpcode;
+
+        Kind(int size, int loadOpcode, int storeOpcode) {
+            this.size = size;
+            this.loadOpcode = loadOpcode;
+            this.storeOpcode = storeOpcode;
+        }
+
+        boolean numeric() {
+            return this != REFERENCE;
+        }
+    }
+
+    private record Local(int slot, Kind kind) {
+    }
+
+    /**
+     * Emits the body of {@code execute}. Local slots above the context are handed out as a stack: FOR
+     * variables for the extent of their loop, temporaries for the extent of one echo tag.
+     */
+    private static final class MethodCompiler {
+
+        private final ClassFileWriter classFile;
+        private final ClassFileWriter.Code code = new ClassFileWriter.Code(2);
+        private final Map<String, Deque<Local>> variables = new HashMap<>();
+        private final List<Kind> stack = new ArrayList<>();
+        /** Text constants by content, with the reference to the static field holding their bytes. */
+        private final Map<String, Integer> texts = new LinkedHashMap<>();
+        private int nextSlot = CONTEXT_SLOT + 1;
+
+        MethodCompiler(ClassFileWriter classFile) {
+            this.classFile = classFile;
+        }
+
+        void compileChildren(ScriptNode parent) {
+            for (ScriptNode child : parent.children()) {
+                switch (child) {
+                    case ScriptTextBlockNode text -> compileText(text.text());
+                    case ScriptEchoNode echo -> compileEcho(echo);
+                    case ScriptForLoopNode loop -> compileFor(loop);
+                    default -> throw new ScriptCompileException(
+                            "Unknown script node type: " + child.getClass().getSimpleName());
+                }
+            }
+        }
+
+        /**
+         * Writes text as pre-encoded bytes. A surrogate at either end of the block is written as a string
+         * instead, since it may pair up with echo output, and chunks are never split inside a surrogate pair.
+         */
+        private void compileText(String text) {
+            int start = 0;
+            int end = text.length();
+            if (end > 0 && Character.isLowSurrogate(text.charAt(0))) {
+                writeString(text.substring(0, 1));
+                start = 1;
+            }
+            if (end > start && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end--;
+            }
+            while (start < end) {
+                int chunkEnd = Math.min(end, start + TEXT_CHUNK_CHARS);
+                if (chunkEnd < end && Character.isHighSurrogate(text.charAt(chunkEnd - 1))) {
+                    chunkEnd--;
+                }
+                code.local(ALOAD, CONTEXT_SLOT, 1, 1);
+                code.field(GETSTATIC, textField(text.substring(start, chunkEnd)), 1);
+                code.invoke(INVOKEVIRTUAL, classFile.methodRef(CONTEXT, "write", "(" + BYTES_DESCRIPTOR + ")V"), -2);
+                start = chunkEnd;
+            }
+            if (end < text.length()) {
+                writeString(text.substring(end));
+            }
+        }
+
+        private int textField(String text) {
+            Integer field = texts.get(text);
+            if (field == null) {
+                String name = "TEXT_" + texts.size();
+                classFile.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_STATIC | ClassFileWriter.ACC_FINAL,
+                        name, BYTES_DESCRIPTOR);
+                field = classFile.fieldRef(CLASS_NAME, name, BYTES_DESCRIPTOR);
+                texts.put(text, field);
+            }
+            return field;
+        }
+
+        private void writeString(String text) {
+            code.local(ALOAD, CONTEXT_SLOT, 1, 1);
+            code.pushString(classFile, text);
+            invokeWrite();
+        }
+
+        private void compileFor(ScriptForLoopNode loop) {
+            // The value keeps its first type only if every increment preserves it; an Integer start with a
+            // Double step, for example, prints as "1" first and "1.5" later, so it has to stay boxed.
+            int firstSlot = nextSlot;
+            Kind startKind = peekKind(loop.startExpression());
+            Kind stepKind = peekKind(loop.stepExpression());
+            Kind variableKind = startKind == Kind.INT && stepKind == Kind.INT ? Kind.INT
+                    : startKind == Kind.DOUBLE && stepKind.numeric() ? Kind.DOUBLE
+                    : Kind.REFERENCE;
+
+            stack.clear();
+            push(loop.startExpression());
+            box(variableKind == Kind.REFERENCE ? startKind : Kind.REFERENCE);
+            Local variable = store(variableKind);
+            Local end = store(push(loop.endExpression()));
+            Local step = store(push(loop.stepExpression()));
+            stack.clear();
+
+            variables.computeIfAbsent(loop.variableName(), name -> new ArrayDeque<>()).push(variable);
+
+            int condition = code.position();
+            int exit;
+            if (variableKind == Kind.INT && end.kind() == Kind.INT) {
+                load(variable);
+                load(end);
+                exit = code.branch(IF_ICMPGT, -2);
+            } else if (variableKind.numeric() && end.kind().numeric()) {
+                load(variable);
+                toDouble(variableKind);
+                load(end);
+                toDouble(end.kind());
+                code.invoke(INVOKESTATIC, classFile.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                exit = code.branch(IFGT, -1);
+            } else {
+                load(variable);
+                box(variableKind);
+                load(end);
+                box(end.kind());
+                code.invoke(INVOKESTATIC, supportMethod("compare", "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")I"),
+                        -1);
+                exit = code.branch(IFGT, -1);
+            }
+
+            compileChildren(loop);
+
+            load(variable);
+            load(step);
+            switch (variableKind) {
+                case INT -> code.op(IADD, -1);
+                case DOUBLE -> {
+                    toDouble(step.kind());
+                    code.op(DADD, -2);
+                }
+                case REFERENCE -> {
+                    box(step.kind());
+                    code.invoke(INVOKESTATIC, supportMethod("add",
+                            "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR), -1);
+                }
+            }
+            storeTo(variable);
+            code.branchTo(GOTO, condition, 0);
+            code.patch(exit, code.position());
+
+            variables.get(loop.variableName()).pop();
+            nextSlot = firstSlot;
+        }
+
+        private void compileEcho(ScriptEchoNode echo) {
+            int firstSlot = nextSlot;
+            stack.clear();
+            for (ExpressionToken token : echo.tokens()) {
+                switch (token.type()) {
+                    case INTEGER, DOUBLE, STRING, VARIABLE -> push(token);
+                    case OPERATOR -> compileOperator(token.text());
+                    case FUNCTION -> compileFunction(token.text());
+                }
+            }
+
+            List<Local> values = spill(stack.size());
+            for (Local value : values) {
+                code.local(ALOAD, CONTEXT_SLOT, 1, 1);
+                load(value);
+                String descriptor = switch (value.kind()) {
+                    case INT -> "I";
+                    case DOUBLE -> "D";
+                    case REFERENCE -> OBJECT_DESCRIPTOR;
+                };
+                code.invoke(INVOKESTATIC, classFile.methodRef("java/lang/String", "valueOf",
+                        "(" + descriptor + ")" + STRING_DESCRIPTOR), 1 - value.kind().size);
+                invokeWrite();
+            }
+            nextSlot = firstSlot;
+        }
+
+        private void compileOperator(String operator) {
+            requireOperands(2, "Operator '" + operator + "'");
+            Kind right = stack.remove(stack.size() - 1);
+            Kind left = stack.remove(stack.size() - 1);
+
+            if (left.numeric() && right.numeric()) {
+                if (left == Kind.INT && right == Kind.INT && !"/".equals(operator)) {
+                    code.op(switch (operator) {
+                        case "+" -> IADD;
+                        case "-" -> ISUB;
+                        case "*" -> IMUL;
+                        default -> throw unsupportedOperator(operator);
+                    }, -1);
+                    stack.add(Kind.INT);
+                    return;
+                }
+
+                if (left == Kind.INT) {
+                    stack.add(right);
+                    Local rightValue = spill(1).get(0);
+                    code.op(I2D, 1);
+                    load(rightValue);
+                }
+                toDouble(right);
+                switch (operator) {
+                    case "+" -> code.op(DADD, -2);
+                    case "-" -> code.op(DSUB, -2);
+                    case "*" -> code.op(DMUL, -2);
+                    case "/" -> code.invoke(INVOKESTATIC, supportMethod("divide", "(DD)D"), -2);
+                    default -> throw unsupportedOperator(operator);
+                }
+                stack.add(Kind.DOUBLE);
+                return;
+            }
+
+            if (left != Kind.REFERENCE) {
+                stack.add(right);
+                Local rightValue = spill(1).get(0);
+                box(left);
+                load(rightValue);
+            }
+            box(right);
+            String name = switch (operator) {
+                case "+" -> "add";
+                case "-" -> "subtract";
+                case "*" -> "multiply";
+                case "/" -> "divide";
+                default -> throw unsupportedOperator(operator);
+            };
+            code.invoke(INVOKESTATIC, supportMethod(name,
+                    "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR), -1);
+            stack.add(Kind.REFERENCE);
+        }
+
+        private void compileFunction(String functionToken) {
+            String functionName = (functionToken.startsWith("@") ? functionToken.substring(1) : functionToken)
+                    .toLowerCase(Locale.ROOT);
+            switch (functionName) {
+                case "sin" -> {
+                    requireOperands(1, "@sin");
+                    toDouble(stack.remove(stack.size() - 1));
+                    code.invoke(INVOKESTATIC, classFile.methodRef("java/lang/Math", "toRadians", "(D)D"), 0);
+                    code.invoke(INVOKESTATIC, classFile.methodRef("java/lang/Math", "sin", "(D)D"), 0);
+                    stack.add(Kind.DOUBLE);
+                }
+                case "decfmt" -> {
+                    requireOperands(2, "@decfmt");
+                    for (Local argument : spill(2)) {
+                        load(argument);
+                        box(argument.kind());
+                    }
+                    code.invoke(INVOKESTATIC, supportMethod("decfmt",
+                            "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR + ")" + STRING_DESCRIPTOR), -1);
+                    stack.add(Kind.REFERENCE);
+                }
+                case "dup" -> {
+                    requireOperands(1, "@dup");
+                    Kind top = stack.get(stack.size() - 1);
+                    code.op(top == Kind.DOUBLE ? DUP2 : DUP, top.size);
+                    stack.add(top);
+                }
+                case "setmimetype" -> callWithContext("setMimeType", 1, false);
+                case "paramget" -> callWithContext("paramGet", 2, true);
+                case "pparamget" -> callWithContext("pparamGet", 2, true);
+                case "pparamset" -> callWithContext("pparamSet", 2, false);
+                case "pparamdel" -> callWithContext("pparamDel", 1, false);
+                case "tparamget" -> callWithContext("tparamGet", 2, true);
+                case "tparamset" -> callWithContext("tparamSet", 2, false);
+                case "tparamdel" -> callWithContext("tparamDel", 1, false);
+                default -> throw new ScriptCompileException("Unsupported function: @" + functionName);
+            }
+        }
+
+        /**
+         * Calls a {@link CompiledScriptSupport} method taking the context followed by {@code arguments}
+         * boxed stack values, bottom-most first, and returning a string or nothing.
+         */
+        private void callWithContext(String name, int arguments, boolean returnsValue) {
+            requireOperands(arguments, "@" + name);
+            List<Local> values = spill(arguments);
+            code.local(ALOAD, CONTEXT_SLOT, 1, 1);
+            for (Local value : values) {
+                load(value);
+                box(value.kind());
+            }
+            String descriptor = "(" + CONTEXT_DESCRIPTOR + OBJECT_DESCRIPTOR.repeat(arguments) + ")"
+                    + (returnsValue ? STRING_DESCRIPTOR : "V");
+            code.invoke(INVOKESTATIC, supportMethod(name, descriptor), (returnsValue ? 1 : 0) - 1 - arguments);
+            if (returnsValue) {
+                stack.add(Kind.REFERENCE);
+            }
+        }
+
+        /**
+         * Pushes a literal, already decoded by the parser, or a variable.
+         */
+        private Kind push(ExpressionToken token) {
+            Kind kind = peekKind(token);
+            switch (token.type()) {
+                case INTEGER -> code.pushInt(classFile, (Integer) token.value());
+                case DOUBLE -> code.pushDouble(classFile, (Double) token.value());
+                case STRING -> code.pushString(classFile, token.text());
+                case VARIABLE -> load(variable(token.text()));
+                default -> throw new ScriptCompileException("Expected a literal or variable: " + token.text());
+            }
+            stack.add(kind);
+            return kind;
+        }
+
+        private Kind peekKind(ExpressionToken token) {
+            return switch (token.type()) {
+                case INTEGER -> Kind.INT;
+                case DOUBLE -> Kind.DOUBLE;
+                case STRING -> Kind.REFERENCE;
+                case VARIABLE -> variable(token.text()).kind();
+                case FUNCTION, OPERATOR -> throw new ScriptCompileException(
+                        "Expected a literal or variable: " + token.text());
+            };
+        }
+
+        private Local variable(String name) {
+            Deque<Local> bindings = variables.get(name);
+            if (bindings == null || bindings.isEmpty()) {
+                throw new ScriptCompileException("No value on stack for variable: " + name);
+            }
+            return bindings.peek();
+        }
+
+        /**
+         * Moves the top {@code count} operand stack values into fresh local slots and returns them bottom-most
+         * first, so values below the top can be converted or preceded by another argument.
+         */
+        private List<Local> spill(int count) {
+            Local[] locals = new Local[count];
+            for (int i = count - 1; i >= 0; i--) {
+                locals[i] = store(stack.remove(stack.size() - 1));
+            }
+            return List.of(locals);
+        }
+
+        private Local store(Kind kind) {
+            Local local = new Local(nextSlot, kind);
+            nextSlot += kind.size;
+            storeTo(local);
+            return local;
+        }
+
+        private void storeTo(Local local) {
+            code.local(local.kind().storeOpcode, local.slot(), -local.kind().size, local.kind().size);
+        }
+
+        private void load(Local local) {
+            code.local(local.kind().loadOpcode, local.slot(), local.kind().size, local.kind().size);
+        }
+
+        private void box(Kind kind) {
+            switch (kind) {
+                case INT -> code.invoke(INVOKESTATIC,
+                        classFile.methodRef("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;"), 0);
+                case DOUBLE -> code.invoke(INVOKESTATIC,
+                        classFile.methodRef("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;"), -1);
+                case REFERENCE -> {
+                }
+            }
+        }
+
+        private void toDouble(Kind kind) {
+            switch (kind) {
+                case INT -> code.op(I2D, 1);
+                case DOUBLE -> {
+                }
+                case REFERENCE -> code.invoke(INVOKESTATIC,
+                        supportMethod("toDouble", "(" + OBJECT_DESCRIPTOR + ")D"), 1);
+            }
+        }
+
+        private void invokeWrite() {
+            code.invoke(INVOKEVIRTUAL, classFile.methodRef(CONTEXT, "write", "(" + STRING_DESCRIPTOR + ")V"), -2);
+        }
+
+        private int supportMethod(String name, String descriptor) {
+            return classFile.methodRef(SUPPORT, name, descriptor);
+        }
+
+        private void requireOperands(int count, String description) {
+            if (stack.size() < count) {
+                throw new ScriptCompileException(description + " is missing operands.");
+            }
+        }
+
+        private static ScriptCompileException unsupportedOperator(String operator) {
+            return new ScriptCompileException("Unsupported operator: " + operator);
+        }
+    }
+}
@@ -136,8 +136,8 @@ public class ScriptParser {
     private ExpressionToken toExpressionToken(TagToken token) {
         return switch (token.type()) {
             case IDENTIFIER -> new ExpressionToken(ExpressionTokenType.VARIABLE, token.lexeme());
-            case INTEGER -> new ExpressionToken(ExpressionTokenType.INTEGER, token.lexeme());
-            case DOUBLE -> new ExpressionToken(ExpressionTokenType.DOUBLE, token.lexeme());
+            case INTEGER -> numericToken(ExpressionTokenType.INTEGER, token.lexeme());
+            case DOUBLE -> numericToken(ExpressionTokenType.DOUBLE, token.lexeme());
             case STRING -> new ExpressionToken(ExpressionTokenType.STRING, token.lexeme());
             case FUNCTION -> new ExpressionToken(ExpressionTokenType.FUNCTION, token.lexeme());
             case OPERATOR -> new ExpressionToken(ExpressionTokenType.OPERATOR, token.lexeme());
@@ -145,6 +145,14 @@ public class ScriptParser {
         };
     }
 
+    private ExpressionToken numericToken(ExpressionTokenType type, String lexeme) {
+        try {
+            return new ExpressionToken(type, lexeme);
+        } catch (NumberFormatException exception) {
+            throw new ScriptParseException("Numeric literal out of range: " + lexeme, exception);
+        }
+    }
+
     private record ParsedTag(ScriptNode node, boolean endTag) {
 
         static ParsedTag node(ScriptNode node) {
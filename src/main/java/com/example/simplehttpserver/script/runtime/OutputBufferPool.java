@@ -0,0 +1,33 @@
+package com.example.simplehttpserver.script.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size byte arrays reused by {@link ScriptExecutionContext} for encoded output. The pool is bounded;
+ * when it is empty a new array is allocated, and arrays returned to a full pool are left to the collector.
+ */
+final class OutputBufferPool {
+
+    static final int BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_POOLED = 64;
+
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private OutputBufferPool() {
+    }
+
+    static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_BYTES];
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire()}; arrays of any other size are ignored.
+     */
+    static void release(byte[] buffer) {
+        if (buffer.length == BUFFER_BYTES) {
+            POOL.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.simplehttpserver.script.runtime;
+
+import java.util.List;
+
+/**
+ * A script after {@link ScriptResolver} has bound every variable reference to a slot, decoded every literal and
+ * looked up every function, ready for {@link ScriptEngine}.
+ *
+ * <p>The structure is immutable, so one instance can be cached and executed by many requests at once; every
+ * execution gets its own engine and value arrays.
+ */
+public final class ResolvedScript implements ScriptProgram {
+
+    private final List<Step> steps;
+    private final int slotCount;
+    private final int stackCapacity;
+
+    ResolvedScript(List<Step> steps, int slotCount, int stackCapacity) {
+        this.steps = List.copyOf(steps);
+        this.slotCount = slotCount;
+        this.stackCapacity = stackCapacity;
+    }
+
+    @Override
+    public void execute(ScriptExecutionContext context) {
+        new ScriptEngine().execute(this, context);
+    }
+
+    List<Step> steps() {
+        return steps;
+    }
+
+    /**
+     * Number of value slots used by FOR loops; the deepest nesting level needs three (variable, end, step).
+     */
+    int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Largest number of values any echo tag can have on its stack at once.
+     */
+    int stackCapacity() {
+        return stackCapacity;
+    }
+
+    sealed interface Step permits Text, Echo, Loop {
+    }
+
+    record Text(String text) implements Step {
+    }
+
+    record Echo(List<Operation> operations) implements Step {
+    }
+
+    /**
+     * FOR loop whose variable, end and step values live in {@code slot}, {@code slot + 1} and {@code slot + 2}.
+     */
+    record Loop(int slot, Operation start, Operation end, Operation step, List<Step> body) implements Step {
+    }
+
+    enum Opcode {
+        PUSH_INT,
+        PUSH_DOUBLE,
+        PUSH_STRING,
+        LOAD,
+        UNDEFINED_VARIABLE,
+        OPERATOR,
+        CALL,
+        UNSUPPORTED_FUNCTION
+    }
+
+    /**
+     * One echo token or FOR expression. Only the fields its opcode needs are set: {@code intValue} holds an
+     * integer literal or a slot index, {@code operator} one of {@code + - * /} (or {@code 0} if unsupported).
+     */
+    record Operation(
+            Opcode opcode,
+            String text,
+            int intValue,
+            double doubleValue,
+            char operator,
+            ScriptFunction function
+    ) {
+
+        static Operation pushInt(String text, int value) {
+            return new Operation(Opcode.PUSH_INT, text, value, 0, (char) 0, null);
+        }
+
+        static Operation pushDouble(String text, double value) {
+            return new Operation(Opcode.PUSH_DOUBLE, text, 0, value, (char) 0, null);
+        }
+
+        static Operation pushString(String text) {
+            return new Operation(Opcode.PUSH_STRING, text, 0, 0, (char) 0, null);
+        }
+
+        static Operation load(String name, int slot) {
+            return new Operation(Opcode.LOAD, name, slot, 0, (char) 0, null);
+        }
+
+        static Operation undefinedVariable(String name) {
+            return new Operation(Opcode.UNDEFINED_VARIABLE, name, 0, 0, (char) 0, null);
+        }
+
+        static Operation operator(String symbol) {
+            char operator = symbol.length() == 1 && "+-*/".indexOf(symbol.charAt(0)) >= 0 ? symbol.charAt(0) : 0;
+            return new Operation(Opcode.OPERATOR, symbol, 0, 0, operator, null);
+        }
+
+        static Operation call(String functionToken) {
+            ScriptFunction function = ScriptFunction.lookup(functionToken);
+            String name = ScriptFunction.normalizedName(functionToken);
+            return function == null
+                    ? new Operation(Opcode.UNSUPPORTED_FUNCTION, name, 0, 0, (char) 0, null)
+                    : new Operation(Opcode.CALL, name, 0, 0, (char) 0, function);
+        }
+    }
+}
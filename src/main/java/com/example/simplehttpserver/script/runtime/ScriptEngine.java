@@ -1,196 +1,280 @@
 package com.example.simplehttpserver.script.runtime;
 
-import com.example.simplehttpserver.script.ast.ExpressionToken;
-import com.example.simplehttpserver.script.ast.ExpressionTokenType;
 import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
-import com.example.simplehttpserver.script.ast.ScriptEchoNode;
-import com.example.simplehttpserver.script.ast.ScriptForLoopNode;
-import com.example.simplehttpserver.script.ast.ScriptNode;
-import com.example.simplehttpserver.script.ast.ScriptTextBlockNode;
 
 import java.text.DecimalFormat;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Executes a parsed script AST.
+ *
+ * <p>Scripts are first run through {@link ScriptResolver}. Values then live in parallel arrays indexed like a
+ * JVM frame: FOR loop slots first, the echo stack above them. Each cell has a kind tag and an {@code int},
+ * {@code double} or reference payload, so numbers are never boxed and arithmetic needs no intermediate
+ * objects. Results match {@link ValueWrapper}: integer arithmetic unless an operand is floating point or the
+ * operator is {@code /}.
+ *
+ * <p>An engine holds the state of one execution and is not thread-safe.
  */
 public class ScriptEngine {
 
-    private final ObjectMultistack multistack = new ObjectMultistack();
+    private static final byte INT = 0;
+    private static final byte DOUBLE = 1;
+    private static final byte REFERENCE = 2;
+
+    private byte[] kinds;
+    private int[] ints;
+    private double[] doubles;
+    private Object[] references;
+    private int stackBase;
+    private int top;
 
     public void execute(ScriptDocumentNode document, ScriptExecutionContext context) {
-        for (ScriptNode child : document.children()) {
-            executeNode(child, context);
-        }
+        execute(new ScriptResolver().resolve(document), context);
     }
 
-    private void executeNode(ScriptNode node, ScriptExecutionContext context) {
-        if (node instanceof ScriptTextBlockNode textNode) {
-            context.write(textNode.text());
-            return;
-        }
-
-        if (node instanceof ScriptEchoNode echoNode) {
-            executeEcho(echoNode, context);
-            return;
-        }
+    public void execute(ResolvedScript script, ScriptExecutionContext context) {
+        int size = script.slotCount() + script.stackCapacity();
+        kinds = new byte[size];
+        ints = new int[size];
+        doubles = new double[size];
+        references = new Object[size];
+        stackBase = script.slotCount();
+        executeSteps(script.steps(), context);
+    }
 
-        if (node instanceof ScriptForLoopNode forNode) {
-            executeFor(forNode, context);
-            return;
+    private void executeSteps(List<ResolvedScript.Step> steps, ScriptExecutionContext context) {
+        for (int i = 0; i < steps.size(); i++) {
+            switch (steps.get(i)) {
+                case ResolvedScript.Text text -> context.write(text.text());
+                case ResolvedScript.Echo echo -> executeEcho(echo.operations(), context);
+                case ResolvedScript.Loop loop -> executeFor(loop, context);
+            }
         }
-
-        throw new ScriptRuntimeException("Unknown script node type: " + node.getClass().getSimpleName());
     }
 
-    private void executeFor(ScriptForLoopNode forNode, ScriptExecutionContext context) {
-        Object start = resolveTokenValue(forNode.startExpression());
-        Object end = resolveTokenValue(forNode.endExpression());
-        Object step = resolveTokenValue(forNode.stepExpression());
-
-        String variableName = forNode.variableName();
-        multistack.push(variableName, new ValueWrapper(start));
+    private void executeFor(ResolvedScript.Loop loop, ScriptExecutionContext context) {
+        int variable = loop.slot();
+        int end = variable + 1;
+        int step = variable + 2;
+        load(loop.start(), variable);
+        load(loop.end(), end);
+        load(loop.step(), step);
 
-        while (multistack.peek(variableName).numCompare(end) <= 0) {
-            for (ScriptNode child : forNode.children()) {
-                executeNode(child, context);
-            }
-            multistack.peek(variableName).increment(step);
+        while (Double.compare(doubleValue(variable), doubleValue(end)) <= 0) {
+            executeSteps(loop.body(), context);
+            arithmetic('+', variable, step, variable);
         }
-
-        multistack.pop(variableName);
     }
 
-    private void executeEcho(ScriptEchoNode echoNode, ScriptExecutionContext context) {
-        Deque<Object> stack = new ArrayDeque<>();
+    private void executeEcho(List<ResolvedScript.Operation> operations, ScriptExecutionContext context) {
+        top = stackBase;
 
-        for (ExpressionToken token : echoNode.tokens()) {
-            switch (token.type()) {
-                case INTEGER -> stack.push(Integer.parseInt(token.text()));
-                case DOUBLE -> stack.push(Double.parseDouble(token.text()));
-                case STRING -> stack.push(token.text());
-                case VARIABLE -> stack.push(multistack.peek(token.text()).getValue());
-                case OPERATOR -> applyOperator(stack, token.text());
-                case FUNCTION -> applyFunction(stack, token.text(), context);
+        for (int i = 0; i < operations.size(); i++) {
+            ResolvedScript.Operation operation = operations.get(i);
+            switch (operation.opcode()) {
+                case PUSH_INT, PUSH_DOUBLE, PUSH_STRING, LOAD, UNDEFINED_VARIABLE -> load(operation, top++);
+                case OPERATOR -> applyOperator(operation);
+                case CALL -> applyFunction(operation.function(), context);
+                case UNSUPPORTED_FUNCTION -> throw new ScriptRuntimeException(
+                        "Unsupported function: @" + operation.text());
             }
         }
 
-        List<Object> values = new ArrayList<>(stack);
-        Collections.reverse(values);
-        for (Object value : values) {
-            context.write(String.valueOf(value));
+        for (int index = stackBase; index < top; index++) {
+            context.write(stringValue(index));
         }
     }
 
-    private void applyOperator(Deque<Object> stack, String operatorSymbol) {
-        if (stack.size() < 2) {
-            throw new ScriptRuntimeException("Operator '" + operatorSymbol + "' requires two operands.");
+    private void applyOperator(ResolvedScript.Operation operation) {
+        if (top - stackBase < 2) {
+            throw new ScriptRuntimeException("Operator '" + operation.text() + "' requires two operands.");
         }
-
-        Object right = stack.pop();
-        Object left = stack.pop();
-
-        ValueWrapper result = new ValueWrapper(left);
-        switch (operatorSymbol) {
-            case "+" -> result.increment(right);
-            case "-" -> result.decrement(right);
-            case "*" -> result.multiply(right);
-            case "/" -> result.divide(right);
-            default -> throw new ScriptRuntimeException("Unsupported operator: " + operatorSymbol);
+        if (operation.operator() == 0) {
+            throw new ScriptRuntimeException("Unsupported operator: " + operation.text());
         }
 
-        stack.push(result.getValue());
+        top--;
+        arithmetic(operation.operator(), top - 1, top, top - 1);
     }
 
-    private void applyFunction(Deque<Object> stack, String functionToken, ScriptExecutionContext context) {
-        String functionName = functionToken.startsWith("@")
-                ? functionToken.substring(1).toLowerCase(Locale.ROOT)
-                : functionToken.toLowerCase(Locale.ROOT);
-
-        switch (functionName) {
-            case "sin" -> {
-                double degrees = toDouble(pop(stack, "@sin argument"));
-                stack.push(Math.sin(Math.toRadians(degrees)));
+    private void applyFunction(ScriptFunction function, ScriptExecutionContext context) {
+        switch (function) {
+            case SIN -> {
+                double degrees = toDouble(pop("@sin argument"));
+                pushDouble(Math.sin(Math.toRadians(degrees)));
             }
-            case "decfmt" -> {
-                String pattern = String.valueOf(pop(stack, "@decfmt pattern"));
-                Object value = pop(stack, "@decfmt value");
-                DecimalFormat decimalFormat = new DecimalFormat(pattern);
-                stack.push(decimalFormat.format(toDouble(value)));
+            case DECFMT -> {
+                String pattern = stringValue(pop("@decfmt pattern"));
+                double value = toDouble(pop("@decfmt value"));
+                pushReference(new DecimalFormat(pattern).format(value));
             }
-            case "dup" -> {
-                Object value = pop(stack, "@dup value");
-                stack.push(value);
-                stack.push(value);
+            case DUP -> {
+                int value = pop("@dup value");
+                copy(value, value + 1);
+                top = value + 2;
             }
-            case "setmimetype" -> {
-                Object value = pop(stack, "@setMimeType value");
-                context.setMimeType(String.valueOf(value));
+            case SET_MIME_TYPE -> context.setMimeType(stringValue(pop("@setMimeType value")));
+            case PARAM_GET -> {
+                String defaultValue = stringValue(pop("@paramGet default value"));
+                String name = stringValue(pop("@paramGet parameter name"));
+                pushReference(context.queryParamOrDefault(name, defaultValue));
             }
-            case "paramget" -> {
-                String defaultValue = String.valueOf(pop(stack, "@paramGet default value"));
-                String name = String.valueOf(pop(stack, "@paramGet parameter name"));
-                stack.push(context.queryParamOrDefault(name, defaultValue));
+            case PPARAM_GET -> {
+                String defaultValue = stringValue(pop("@pparamGet default value"));
+                String name = stringValue(pop("@pparamGet parameter name"));
+                pushReference(context.persistentParamOrDefault(name, defaultValue));
             }
-            case "pparamget" -> {
-                String defaultValue = String.valueOf(pop(stack, "@pparamGet default value"));
-                String name = String.valueOf(pop(stack, "@pparamGet parameter name"));
-                stack.push(context.persistentParamOrDefault(name, defaultValue));
-            }
-            case "pparamset" -> {
-                String name = String.valueOf(pop(stack, "@pparamSet name"));
-                String value = String.valueOf(pop(stack, "@pparamSet value"));
+            case PPARAM_SET -> {
+                String name = stringValue(pop("@pparamSet name"));
+                String value = stringValue(pop("@pparamSet value"));
                 context.setPersistentParam(name, value);
             }
-            case "pparamdel" -> {
-                String name = String.valueOf(pop(stack, "@pparamDel name"));
-                context.deletePersistentParam(name);
-            }
-            case "tparamget" -> {
-                String defaultValue = String.valueOf(pop(stack, "@tparamGet default value"));
-                String name = String.valueOf(pop(stack, "@tparamGet parameter name"));
-                stack.push(context.temporaryParamOrDefault(name, defaultValue));
+            case PPARAM_DEL -> context.deletePersistentParam(stringValue(pop("@pparamDel name")));
+            case TPARAM_GET -> {
+                String defaultValue = stringValue(pop("@tparamGet default value"));
+                String name = stringValue(pop("@tparamGet parameter name"));
+                pushReference(context.temporaryParamOrDefault(name, defaultValue));
             }
-            case "tparamset" -> {
-                String name = String.valueOf(pop(stack, "@tparamSet name"));
-                String value = String.valueOf(pop(stack, "@tparamSet value"));
+            case TPARAM_SET -> {
+                String name = stringValue(pop("@tparamSet name"));
+                String value = stringValue(pop("@tparamSet value"));
                 context.setTemporaryParam(name, value);
             }
-            case "tparamdel" -> {
-                String name = String.valueOf(pop(stack, "@tparamDel name"));
-                context.deleteTemporaryParam(name);
-            }
-            default -> throw new ScriptRuntimeException("Unsupported function: @" + functionName);
+            case TPARAM_DEL -> context.deleteTemporaryParam(stringValue(pop("@tparamDel name")));
+        }
+    }
+
+    /**
+     * Applies {@code + - * /} to the cells {@code left} and {@code right} and stores the result in
+     * {@code result}, which may be one of the operands.
+     */
+    private void arithmetic(char operator, int left, int right, int result) {
+        byte leftKind = kinds[left];
+        int leftInt = ints[left];
+        double leftDouble = doubles[left];
+        if (leftKind == REFERENCE) {
+            Number number = ValueWrapper.toNumber(references[left]);
+            leftKind = number instanceof Integer ? INT : DOUBLE;
+            leftInt = number.intValue();
+            leftDouble = number.doubleValue();
+        }
+
+        byte rightKind = kinds[right];
+        int rightInt = ints[right];
+        double rightDouble = doubles[right];
+        if (rightKind == REFERENCE) {
+            Number number = ValueWrapper.toNumber(references[right]);
+            rightKind = number instanceof Integer ? INT : DOUBLE;
+            rightInt = number.intValue();
+            rightDouble = number.doubleValue();
+        }
+
+        if (leftKind == INT && rightKind == INT && operator != '/') {
+            setInt(result, switch (operator) {
+                case '+' -> leftInt + rightInt;
+                case '-' -> leftInt - rightInt;
+                default -> leftInt * rightInt;
+            });
+            return;
         }
+
+        double leftValue = leftKind == INT ? leftInt : leftDouble;
+        double rightValue = rightKind == INT ? rightInt : rightDouble;
+        setDouble(result, switch (operator) {
+            case '+' -> leftValue + rightValue;
+            case '-' -> leftValue - rightValue;
+            case '*' -> leftValue * rightValue;
+            default -> {
+                if (rightValue == 0.0) {
+                    throw new ScriptRuntimeException("Division by zero.");
+                }
+                yield leftValue / rightValue;
+            }
+        });
     }
 
-    private Object resolveTokenValue(ExpressionToken token) {
-        return switch (token.type()) {
-            case INTEGER -> Integer.parseInt(token.text());
-            case DOUBLE -> Double.parseDouble(token.text());
-            case STRING -> token.text();
-            case VARIABLE -> multistack.peek(token.text()).getValue();
-            case FUNCTION, OPERATOR -> throw new ScriptRuntimeException(
+    private void load(ResolvedScript.Operation operation, int index) {
+        switch (operation.opcode()) {
+            case PUSH_INT -> setInt(index, operation.intValue());
+            case PUSH_DOUBLE -> setDouble(index, operation.doubleValue());
+            case PUSH_STRING -> setReference(index, operation.text());
+            case LOAD -> copy(operation.intValue(), index);
+            case UNDEFINED_VARIABLE -> throw new ScriptRuntimeException(
+                    "No value on stack for variable: " + operation.text());
+            default -> throw new ScriptRuntimeException(
                     "FOR expressions cannot contain operators or functions.");
-        };
+        }
     }
 
-    private Object pop(Deque<Object> stack, String description) {
-        if (stack.isEmpty()) {
+    private int pop(String description) {
+        if (top == stackBase) {
             throw new ScriptRuntimeException("Missing value on stack for " + description + ".");
         }
-        return stack.pop();
+        return --top;
     }
 
-    private double toDouble(Object value) {
-        if (value instanceof Number number) {
-            return number.doubleValue();
-        }
-        return Double.parseDouble(String.valueOf(value));
+    private void pushDouble(double value) {
+        setDouble(top++, value);
+    }
+
+    private void pushReference(Object value) {
+        setReference(top++, value);
+    }
+
+    private void setInt(int index, int value) {
+        kinds[index] = INT;
+        ints[index] = value;
+        references[index] = null;
+    }
+
+    private void setDouble(int index, double value) {
+        kinds[index] = DOUBLE;
+        doubles[index] = value;
+        references[index] = null;
+    }
+
+    private void setReference(int index, Object value) {
+        kinds[index] = REFERENCE;
+        references[index] = value;
+    }
+
+    private void copy(int from, int to) {
+        kinds[to] = kinds[from];
+        ints[to] = ints[from];
+        doubles[to] = doubles[from];
+        references[to] = references[from];
+    }
+
+    /**
+     * Numeric value as used for FOR comparisons, following {@link ValueWrapper#numCompare(Object)}.
+     */
+    private double doubleValue(int index) {
+        return switch (kinds[index]) {
+            case INT -> ints[index];
+            case DOUBLE -> doubles[index];
+            default -> ValueWrapper.toNumber(references[index]).doubleValue();
+        };
+    }
+
+    /**
+     * Numeric argument of a function; unlike arithmetic, blank strings are not treated as zero.
+     */
+    private double toDouble(int index) {
+        return switch (kinds[index]) {
+            case INT -> ints[index];
+            case DOUBLE -> doubles[index];
+            default -> references[index] instanceof Number number
+                    ? number.doubleValue()
+                    : Double.parseDouble(String.valueOf(references[index]));
+        };
+    }
+
+    private String stringValue(int index) {
+        return switch (kinds[index]) {
+            case INT -> Integer.toString(ints[index]);
+            case DOUBLE -> Double.toString(doubles[index]);
+            default -> String.valueOf(references[index]);
+        };
     }
 }
@@ -2,7 +2,11 @@ package com.example.simplehttpserver.script.runtime;
 
 import com.example.simplehttpserver.server.Session;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,31 +14,135 @@ import java.util.Optional;
 
 /**
  * Context object exposed to script engine functions.
+ *
+ * <p>Output is encoded to UTF-8 as it is written, into a buffer taken from a small pool. A buffered context
+ * grows the buffer and hands the bytes over at the end; a streaming context writes the buffer to its stream and
+ * flushes it whenever it fills, so memory per request stays at one buffer however long the page is. The MIME
+ * type is locked by the first flush, since the client has received the headers by then. Closing a context
+ * returns its buffer to the pool.
  */
-public class ScriptExecutionContext {
+public class ScriptExecutionContext implements AutoCloseable {
+
+    public static final String DEFAULT_MIME_TYPE = "text/html; charset=UTF-8";
 
     private final Map<String, List<String>> queryParameters;
     private final Map<String, String> temporaryParameters = new HashMap<>();
     private final Session session;
-    private final StringBuilder output = new StringBuilder();
+    private final OutputStream stream;
 
-    private String mimeType = "text/html; charset=UTF-8";
+    private byte[] buffer = OutputBufferPool.acquire();
+    private int count;
+    private char pendingHighSurrogate;
+    private boolean flushed;
+    private String mimeType = DEFAULT_MIME_TYPE;
 
+    /**
+     * Creates a context that keeps the whole output in memory.
+     */
     public ScriptExecutionContext(Map<String, List<String>> queryParameters, Session session) {
+        this(queryParameters, session, null);
+    }
+
+    /**
+     * Creates a context that streams its output to {@code stream}. Write failures surface as
+     * {@link UncheckedIOException} from the script.
+     */
+    public ScriptExecutionContext(Map<String, List<String>> queryParameters, Session session, OutputStream stream) {
         this.queryParameters = queryParameters;
         this.session = session;
+        this.stream = stream;
     }
 
+    /**
+     * Encodes {@code text} as UTF-8. A surrogate pair split across two writes is still encoded as one code
+     * point; unpaired surrogates become {@code ?}, as with {@link String#getBytes}.
+     */
     public void write(String text) {
-        output.append(text);
+        int length = text.length();
+        int index = 0;
+        while (index < length) {
+            if (buffer.length - count < 4) {
+                makeRoom();
+            }
+            char c = text.charAt(index);
+            if (c < 0x80 && pendingHighSurrogate == 0) {
+                int limit = Math.min(length, index + buffer.length - count);
+                do {
+                    buffer[count++] = (byte) c;
+                    index++;
+                } while (index < limit && (c = text.charAt(index)) < 0x80);
+                continue;
+            }
+            index++;
+            encode(c);
+        }
     }
 
+    /**
+     * Writes text that is already encoded as UTF-8, such as a compiled script's text blocks, copying it into the
+     * buffer a piece at a time. A high surrogate left over from an earlier {@link #write(String)} becomes
+     * {@code ?} first.
+     */
+    public void write(byte[] bytes) {
+        completeSurrogate();
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (count == buffer.length) {
+                makeRoom();
+            }
+            int length = Math.min(bytes.length - offset, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+            offset += length;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException for a streaming context
+     */
     public String outputText() {
-        return output.toString();
+        requireBuffered();
+        completeSurrogate();
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
     }
 
+    /**
+     * @throws IllegalStateException for a streaming context
+     */
     public byte[] outputBytes() {
-        return output.toString().getBytes(StandardCharsets.UTF_8);
+        requireBuffered();
+        completeSurrogate();
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Writes output that is still buffered to the stream, without flushing it.
+     *
+     * @throws IllegalStateException for a buffered context
+     */
+    public void finish() throws IOException {
+        if (stream == null) {
+            throw new IllegalStateException("Output is buffered, not streamed.");
+        }
+        completeSurrogate();
+        stream.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * Whether output has already been sent to the client, which locks the MIME type.
+     */
+    public boolean flushed() {
+        return flushed;
+    }
+
+    @Override
+    public void close() {
+        if (buffer.length > 0) {
+            OutputBufferPool.release(buffer);
+            buffer = new byte[0];
+            count = 0;
+        }
     }
 
     public String mimeType() {
@@ -45,6 +153,9 @@ public class ScriptExecutionContext {
         if (mimeType == null || mimeType.isBlank()) {
             throw new ScriptRuntimeException("MIME type must not be blank.");
         }
+        if (flushed) {
+            throw new ScriptRuntimeException("MIME type cannot be changed after output has been sent.");
+        }
         this.mimeType = mimeType;
     }
 
@@ -79,4 +190,77 @@ public class ScriptExecutionContext {
     public void deleteTemporaryParam(String name) {
         temporaryParameters.remove(name);
     }
+
+    /**
+     * Encodes one non-ASCII character, or an ASCII one following a high surrogate; at least four bytes are
+     * free in the buffer.
+     */
+    private void encode(char c) {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[count++] = '?';
+        }
+
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void completeSurrogate() {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            if (count == buffer.length) {
+                makeRoom();
+            }
+            buffer[count++] = '?';
+        }
+    }
+
+    /**
+     * Frees space in a full buffer: a buffered context moves to an array twice the size, a streaming context
+     * sends what it has.
+     */
+    private void makeRoom() {
+        if (stream == null) {
+            byte[] larger = Arrays.copyOf(buffer, Math.max(OutputBufferPool.BUFFER_BYTES, buffer.length * 2));
+            OutputBufferPool.release(buffer);
+            buffer = larger;
+            return;
+        }
+
+        flushed = true;
+        try {
+            stream.write(buffer, 0, count);
+            stream.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        count = 0;
+    }
+
+    private void requireBuffered() {
+        if (stream != null) {
+            throw new IllegalStateException("Output has been streamed.");
+        }
+    }
 }
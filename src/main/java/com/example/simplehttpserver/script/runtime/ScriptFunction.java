@@ -0,0 +1,46 @@
+package com.example.simplehttpserver.script.runtime;
+
+import java.util.Locale;
+
+/**
+ * Built-in functions callable with {@code @name} in echo tags. Names are case-insensitive.
+ */
+enum ScriptFunction {
+    SIN("sin"),
+    DECFMT("decfmt"),
+    DUP("dup"),
+    SET_MIME_TYPE("setmimetype"),
+    PARAM_GET("paramget"),
+    PPARAM_GET("pparamget"),
+    PPARAM_SET("pparamset"),
+    PPARAM_DEL("pparamdel"),
+    TPARAM_GET("tparamget"),
+    TPARAM_SET("tparamset"),
+    TPARAM_DEL("tparamdel");
+
+    private final String name;
+
+    ScriptFunction(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Lower-cased function name without the {@code @} prefix, as used in error messages.
+     */
+    static String normalizedName(String functionToken) {
+        return (functionToken.startsWith("@") ? functionToken.substring(1) : functionToken).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the function, or {@code null} if there is none with this name
+     */
+    static ScriptFunction lookup(String functionToken) {
+        String normalized = normalizedName(functionToken);
+        for (ScriptFunction function : values()) {
+            if (function.name.equals(normalized)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
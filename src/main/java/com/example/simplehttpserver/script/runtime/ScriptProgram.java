@@ -0,0 +1,10 @@
+package com.example.simplehttpserver.script.runtime;
+
+/**
+ * A script ready to run: either an AST walked by {@link ScriptEngine} or a class generated by the script
+ * compiler. Implementations hold no per-request state and may be executed by many threads at once.
+ */
+@FunctionalInterface
+public interface ScriptProgram {
+    void execute(ScriptExecutionContext context);
+}
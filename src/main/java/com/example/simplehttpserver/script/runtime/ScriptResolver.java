@@ -0,0 +1,112 @@
+package com.example.simplehttpserver.script.runtime;
+
+import com.example.simplehttpserver.script.ast.ExpressionToken;
+import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
+import com.example.simplehttpserver.script.ast.ScriptEchoNode;
+import com.example.simplehttpserver.script.ast.ScriptForLoopNode;
+import com.example.simplehttpserver.script.ast.ScriptNode;
+import com.example.simplehttpserver.script.ast.ScriptTextBlockNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution pass between {@code ScriptParser} and {@link ScriptEngine}.
+ *
+ * <p>FOR loops nest lexically, so the loop a variable reference belongs to is known before the script runs.
+ * Each nesting level gets fixed value slots and every reference is replaced by the slot of the innermost
+ * enclosing loop with that name; the FOR header is resolved before its own variable is bound, exactly as the
+ * engine evaluates it. References without an enclosing loop, unknown functions and unsupported operators are
+ * kept as operations that fail when reached, so errors surface at the same point as before.
+ */
+public final class ScriptResolver {
+
+    private static final int SLOTS_PER_LOOP = 3;
+
+    private final Map<String, Deque<Integer>> bindings = new HashMap<>();
+    private int depth;
+    private int slotCount;
+    private int stackCapacity;
+
+    public ResolvedScript resolve(ScriptDocumentNode document) {
+        bindings.clear();
+        depth = 0;
+        slotCount = 0;
+        stackCapacity = 0;
+        List<ResolvedScript.Step> steps = resolveChildren(document);
+        return new ResolvedScript(steps, slotCount, stackCapacity);
+    }
+
+    private List<ResolvedScript.Step> resolveChildren(ScriptNode parent) {
+        List<ResolvedScript.Step> steps = new ArrayList<>();
+        for (ScriptNode child : parent.children()) {
+            switch (child) {
+                case ScriptTextBlockNode text -> steps.add(new ResolvedScript.Text(text.text()));
+                case ScriptEchoNode echo -> steps.add(resolveEcho(echo));
+                case ScriptForLoopNode loop -> steps.add(resolveFor(loop));
+                default -> throw new ScriptRuntimeException(
+                        "Unknown script node type: " + child.getClass().getSimpleName());
+            }
+        }
+        return steps;
+    }
+
+    private ResolvedScript.Loop resolveFor(ScriptForLoopNode loop) {
+        ResolvedScript.Operation start = resolveValue(loop.startExpression());
+        ResolvedScript.Operation end = resolveValue(loop.endExpression());
+        ResolvedScript.Operation step = resolveValue(loop.stepExpression());
+
+        int slot = depth * SLOTS_PER_LOOP;
+        depth++;
+        slotCount = Math.max(slotCount, depth * SLOTS_PER_LOOP);
+        Deque<Integer> variable = bindings.computeIfAbsent(loop.variableName(), name -> new ArrayDeque<>());
+        variable.push(slot);
+
+        List<ResolvedScript.Step> body = resolveChildren(loop);
+
+        variable.pop();
+        depth--;
+        return new ResolvedScript.Loop(slot, start, end, step, body);
+    }
+
+    private ResolvedScript.Echo resolveEcho(ScriptEchoNode echo) {
+        List<ResolvedScript.Operation> operations = new ArrayList<>(echo.tokens().size());
+        int maxDepth = 0;
+        for (ExpressionToken token : echo.tokens()) {
+            ResolvedScript.Operation operation = switch (token.type()) {
+                case INTEGER, DOUBLE, STRING, VARIABLE -> resolveValue(token);
+                case OPERATOR -> ResolvedScript.Operation.operator(token.text());
+                case FUNCTION -> ResolvedScript.Operation.call(token.text());
+            };
+            // Only literals, variables and @dup grow the stack, so their count bounds its depth.
+            maxDepth += switch (operation.opcode()) {
+                case OPERATOR, UNSUPPORTED_FUNCTION -> 0;
+                case CALL -> operation.function() == ScriptFunction.DUP ? 1 : 0;
+                default -> 1;
+            };
+            operations.add(operation);
+        }
+        stackCapacity = Math.max(stackCapacity, maxDepth);
+        return new ResolvedScript.Echo(operations);
+    }
+
+    private ResolvedScript.Operation resolveValue(ExpressionToken token) {
+        return switch (token.type()) {
+            case INTEGER -> ResolvedScript.Operation.pushInt(token.text(), (Integer) token.value());
+            case DOUBLE -> ResolvedScript.Operation.pushDouble(token.text(), (Double) token.value());
+            case STRING -> ResolvedScript.Operation.pushString(token.text());
+            case VARIABLE -> {
+                Deque<Integer> slots = bindings.get(token.text());
+                yield slots == null || slots.isEmpty()
+                        ? ResolvedScript.Operation.undefinedVariable(token.text())
+                        : ResolvedScript.Operation.load(token.text(), slots.peek());
+            }
+            case FUNCTION, OPERATOR -> throw new ScriptRuntimeException(
+                    "FOR expressions cannot contain operators or functions.");
+        };
+    }
+}
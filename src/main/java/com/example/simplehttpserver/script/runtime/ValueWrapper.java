@@ -76,7 +76,11 @@ public class ValueWrapper {
         };
     }
 
-    private Number toNumber(Object input) {
+    /**
+     * Numeric value of an operand: {@code null} and blank strings are {@code 0}, strings containing
+     * {@code .}, {@code e} or {@code E} are doubles, other strings are integers.
+     */
+    static Number toNumber(Object input) {
         if (input == null) {
             return 0;
         }
@@ -96,7 +100,7 @@ public class ValueWrapper {
         throw new ScriptRuntimeException("Value is not numeric: " + input);
     }
 
-    private Number parseNumericString(String value) {
+    private static Number parseNumericString(String value) {
         String trimmed = value.trim();
         if (trimmed.isEmpty()) {
             return 0;
@@ -112,7 +116,7 @@ public class ValueWrapper {
         }
     }
 
-    private boolean isFloating(Object input) {
+    private static boolean isFloating(Object input) {
         if (input instanceof Double || input instanceof Float) {
             return true;
         }
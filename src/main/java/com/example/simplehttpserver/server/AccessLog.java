@@ -0,0 +1,466 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.AccessLogConfig;
+import com.example.simplehttpserver.config.AccessLogOverflow;
+import com.example.simplehttpserver.config.AccessLogTarget;
+import com.example.simplehttpserver.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One line per request, written by a background thread so requests never wait on a lock or on I/O.
+ *
+ * <p>Records have a fixed layout and live in a ring of pre-allocated slots: parallel arrays for the numbers and
+ * fixed-size byte ranges for the path and the client address. A request claims the next slot with one
+ * compare-and-set, copies its fields in without allocating, and publishes the slot by storing its sequence
+ * number. The writer thread formats published slots in order and frees them. When the ring is full, a request
+ * either drops its record, counted in {@link #dropped()}, or waits for the writer, as configured.
+ *
+ * <p>The file target collects the lines of a drain in one buffer and appends it with a single write. The file is
+ * rotated by size: {@code access.log} becomes {@code access.log.1}, the previous {@code .1} becomes {@code .2},
+ * and so on up to the configured number of files. The logger target hands each line to this class's logger.
+ *
+ * <p>Each line is the time in UTC, client address, method, path, status, response bytes and the time from the
+ * first byte of the request to the response being written, in microseconds:
+ * {@code 2026-10-18T09:15:02.123Z 127.0.0.1 GET /users/7 200 281 523}. Paths longer than
+ * {@value #MAX_PATH_BYTES} bytes are cut off; spaces, control characters and {@code %} in them are
+ * percent-encoded so every record stays on one line with a fixed number of fields.
+ */
+final class AccessLog implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(AccessLog.class.getName());
+    static final int MAX_PATH_BYTES = 256;
+    static final int MAX_ADDRESS_BYTES = 48;
+    private static final int MAX_LINE_BYTES = 32 + MAX_ADDRESS_BYTES + 8 + MAX_PATH_BYTES + 3 * 21;
+    private static final int BATCH_BYTES = 64 * 1024;
+    private static final long BLOCKED_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final byte[] UNKNOWN_ADDRESS = {'-'};
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final byte[][] METHOD_NAMES = new byte[METHODS.length][];
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.", Locale.ROOT);
+
+    static {
+        for (HttpMethod method : METHODS) {
+            METHOD_NAMES[method.ordinal()] = method.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final AccessLogConfig config;
+    private final boolean enabled;
+    private final int capacity;
+    private final int mask;
+
+    private final long[] times;
+    private final long[] latencies;
+    private final long[] sizes;
+    private final int[] statuses;
+    private final byte[] methods;
+    private final int[] pathLengths;
+    private final byte[] paths;
+    private final int[] addressLengths;
+    private final byte[] addresses;
+    /** Sequence number plus one of the record in each slot, stored once its fields are written. */
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long consumed;
+    private volatile boolean closed;
+
+    // Used by the writer thread only.
+    private final Thread writer;
+    private final byte[] line = new byte[MAX_LINE_BYTES];
+    private final ByteBuffer batch;
+    private final Path file;
+    private FileChannel channel;
+    private long fileBytes;
+    private long formattedSecond = -1;
+    private byte[] secondPrefix;
+    private long reportedDropped;
+
+    AccessLog(AccessLogConfig config) {
+        this.config = config;
+        this.enabled = config.target() != AccessLogTarget.OFF;
+        this.capacity = enabled ? Integer.highestOneBit(Math.max(2, config.bufferRecords()) * 2 - 1) : 0;
+        this.mask = capacity - 1;
+        this.times = new long[capacity];
+        this.latencies = new long[capacity];
+        this.sizes = new long[capacity];
+        this.statuses = new int[capacity];
+        this.methods = new byte[capacity];
+        this.pathLengths = new int[capacity];
+        this.paths = new byte[capacity * MAX_PATH_BYTES];
+        this.addressLengths = new int[capacity];
+        this.addresses = new byte[capacity * MAX_ADDRESS_BYTES];
+        this.published = new AtomicLongArray(capacity);
+
+        if (config.target() == AccessLogTarget.FILE) {
+            this.file = Path.of(config.file()).toAbsolutePath();
+            this.batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+            try {
+                openFile();
+            } catch (IOException exception) {
+                throw new UncheckedIOException("Unable to open access log " + config.file(), exception);
+            }
+        } else {
+            this.file = null;
+            this.batch = null;
+        }
+
+        if (enabled) {
+            this.writer = new Thread(this::writeLoop, "access-log");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * The client address of a connection in the form written to the log, computed once per connection.
+     */
+    static byte[] address(InetAddress address) {
+        if (address == null) {
+            return UNKNOWN_ADDRESS;
+        }
+        byte[] text = address.getHostAddress().getBytes(StandardCharsets.US_ASCII);
+        return text.length <= MAX_ADDRESS_BYTES ? text : Arrays.copyOf(text, MAX_ADDRESS_BYTES);
+    }
+
+    /**
+     * Queues a record for the writer. Allocates nothing; with {@link AccessLogOverflow#BLOCK} it waits while the
+     * buffer is full.
+     *
+     * @param latencyNanos time from the first byte of the request to its response being written
+     * @param clientAddress from {@link #address(InetAddress)}
+     */
+    void record(HttpMethod method, String path, int status, long bytes, long latencyNanos, byte[] clientAddress) {
+        if (!enabled || (config.target() == AccessLogTarget.LOGGER && !LOGGER.isLoggable(Level.INFO))) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+
+        int slot = (int) (sequence & mask);
+        times[slot] = System.currentTimeMillis();
+        latencies[slot] = latencyNanos;
+        sizes[slot] = bytes;
+        statuses[slot] = status;
+        methods[slot] = (byte) method.ordinal();
+        pathLengths[slot] = encodePath(path, slot * MAX_PATH_BYTES);
+        int addressLength = Math.min(clientAddress.length, MAX_ADDRESS_BYTES);
+        System.arraycopy(clientAddress, 0, addresses, slot * MAX_ADDRESS_BYTES, addressLength);
+        addressLengths[slot] = addressLength;
+        published.setRelease(slot, sequence + 1);
+    }
+
+    /**
+     * Records skipped because the buffer was full.
+     */
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes what is queued, closes the file and stops the writer. Records queued after this are dropped.
+     */
+    @Override
+    public void close() {
+        if (!enabled || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claims the next sequence number, or returns -1 if the buffer is full and records are dropped.
+     */
+    private long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            long queued = sequence - consumed;
+            if (queued >= capacity) {
+                if (config.whenFull() == AccessLogOverflow.DROP || closed) {
+                    return -1;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(BLOCKED_WAIT_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                if (queued == capacity / 2) {
+                    // Wake the writer early rather than letting the buffer fill up until its next round.
+                    LockSupport.unpark(writer);
+                }
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Copies the path into the slot as UTF-8, percent-encoding bytes that would break the line into fields.
+     *
+     * @return bytes written, at most {@link #MAX_PATH_BYTES}
+     */
+    private int encodePath(String path, int offset) {
+        int position = offset;
+        int end = offset + MAX_PATH_BYTES;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c <= ' ' || c == '%' || c == 0x7f) {
+                if (position + 3 > end) {
+                    break;
+                }
+                paths[position++] = '%';
+                paths[position++] = HEX[(c >> 4) & 0xf];
+                paths[position++] = HEX[c & 0xf];
+            } else if (c < 0x80) {
+                if (position + 1 > end) {
+                    break;
+                }
+                paths[position++] = (byte) c;
+            } else if (c < 0x800) {
+                if (position + 2 > end) {
+                    break;
+                }
+                paths[position++] = (byte) (0xc0 | (c >> 6));
+                paths[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < path.length()
+                    && Character.isLowSurrogate(path.charAt(i + 1))) {
+                if (position + 4 > end) {
+                    break;
+                }
+                int codePoint = Character.toCodePoint(c, path.charAt(++i));
+                paths[position++] = (byte) (0xf0 | (codePoint >> 18));
+                paths[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                paths[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                paths[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                if (position + 3 > end) {
+                    break;
+                }
+                char encoded = Character.isSurrogate(c) ? '\uFFFD' : c;
+                paths[position++] = (byte) (0xe0 | (encoded >> 12));
+                paths[position++] = (byte) (0x80 | ((encoded >> 6) & 0x3f));
+                paths[position++] = (byte) (0x80 | (encoded & 0x3f));
+            }
+        }
+        return position - offset;
+    }
+
+    private void writeLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.flushIntervalMillis());
+        while (true) {
+            boolean closing = closed;
+            int drained = drain();
+            reportDropped();
+            if (closing && drained == 0) {
+                break;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * Formats every published record in order, frees their slots and writes the batch.
+     */
+    private int drain() {
+        int drained = 0;
+        long next = consumed;
+        while (published.getAcquire((int) (next & mask)) == next + 1) {
+            int slot = (int) (next & mask);
+            if (config.target() == AccessLogTarget.FILE) {
+                int length = format(slot, true);
+                if (batch.remaining() < length) {
+                    writeBatch();
+                }
+                batch.put(line, 0, length);
+            } else {
+                LOGGER.info(new String(line, 0, format(slot, false), StandardCharsets.UTF_8));
+            }
+            next++;
+            consumed = next;
+            drained++;
+        }
+        if (drained > 0 && batch != null) {
+            writeBatch();
+        }
+        return drained;
+    }
+
+    private int format(int slot, boolean withTime) {
+        int position = 0;
+        if (withTime) {
+            long millis = times[slot];
+            long second = Math.floorDiv(millis, 1000);
+            if (second != formattedSecond) {
+                formattedSecond = second;
+                secondPrefix = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).format(SECOND_FORMAT)
+                        .getBytes(StandardCharsets.US_ASCII);
+            }
+            position = put(secondPrefix, 0, secondPrefix.length, position);
+            int fraction = Math.floorMod(millis, 1000);
+            line[position++] = (byte) ('0' + fraction / 100);
+            line[position++] = (byte) ('0' + fraction / 10 % 10);
+            line[position++] = (byte) ('0' + fraction % 10);
+            line[position++] = 'Z';
+            line[position++] = ' ';
+        }
+        position = put(addresses, slot * MAX_ADDRESS_BYTES, addressLengths[slot], position);
+        line[position++] = ' ';
+        byte[] method = METHOD_NAMES[methods[slot]];
+        position = put(method, 0, method.length, position);
+        line[position++] = ' ';
+        position = put(paths, slot * MAX_PATH_BYTES, pathLengths[slot], position);
+        line[position++] = ' ';
+        position = putLong(statuses[slot], position);
+        line[position++] = ' ';
+        position = putLong(sizes[slot], position);
+        line[position++] = ' ';
+        position = putLong(TimeUnit.NANOSECONDS.toMicros(latencies[slot]), position);
+        if (withTime) {
+            line[position++] = '\n';
+        }
+        return position;
+    }
+
+    private int put(byte[] source, int offset, int length, int position) {
+        System.arraycopy(source, offset, line, position, length);
+        return position + length;
+    }
+
+    private int putLong(long value, int position) {
+        if (value < 0) {
+            line[position++] = '-';
+            value = -Math.max(value, -Long.MAX_VALUE);
+        }
+        int start = position;
+        do {
+            line[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int left = start, right = position - 1; left < right; left++, right--) {
+            byte digit = line[left];
+            line[left] = line[right];
+            line[right] = digit;
+        }
+        return position;
+    }
+
+    private void writeBatch() {
+        batch.flip();
+        try {
+            if (!channel.isOpen()) {
+                // An earlier reopen failed; try again rather than giving up on the log.
+                openFile();
+            }
+            if (config.maxFileBytes() > 0 && fileBytes > 0 && fileBytes + batch.remaining() > config.maxFileBytes()) {
+                rotate();
+            }
+            while (batch.hasRemaining()) {
+                fileBytes += channel.write(batch);
+            }
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Unable to write access log " + file, exception);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Shifts {@code file.1} to {@code file.2} and so on, dropping the oldest, and starts a new file.
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        boolean rotated = false;
+        try {
+            int maxFiles = config.maxFiles();
+            if (maxFiles == 0) {
+                Files.delete(file);
+            } else {
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    Path older = rotated(i);
+                    if (Files.exists(older)) {
+                        Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            rotated = true;
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Unable to rotate access log " + file + ", appending to it instead", exception);
+        } finally {
+            // Reopen whatever is at the path: a fresh file after a rotation, the old one after a failure. Resetting
+            // the count after a failure retries once another maxFileBytes is written instead of on every batch.
+            openFile();
+            if (!rotated) {
+                fileBytes = 0;
+            }
+        }
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Unable to close access log " + file, exception);
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total != reportedDropped) {
+            long newlyDropped = total - reportedDropped;
+            reportedDropped = total;
+            LOGGER.warning(() -> "Access log buffer full, dropped " + newlyDropped + " records");
+        }
+    }
+}
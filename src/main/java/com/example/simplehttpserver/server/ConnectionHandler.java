@@ -8,21 +8,19 @@ import com.example.simplehttpserver.http.HttpRequestParser;
 import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.http.HttpResponseWriter;
 import com.example.simplehttpserver.http.HttpStatus;
-import com.example.simplehttpserver.routing.Router;
+import com.example.simplehttpserver.http.RequestBuffer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
-import java.util.Optional;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
- * Handles a single client socket: parse request, route it, build response, and write bytes.
+ * Handles a client socket: parse requests, route them, build responses, and write bytes.
+ * The socket is reused for further requests while HTTP keep-alive semantics allow it.
  */
 public final class ConnectionHandler implements Runnable {
 
@@ -32,108 +30,182 @@ public final class ConnectionHandler implements Runnable {
     private final ServerConfig config;
     private final HttpRequestParser requestParser;
     private final HttpResponseWriter responseWriter;
-    private final Router router;
-    private final SessionManager sessionManager;
-    private final StaticFileService staticFileService;
-    private final ScriptService scriptService;
+    private final RequestProcessor requestProcessor;
+    private final ConnectionRegistry connectionRegistry;
+    private final RequestBuffer requestBuffer = new RequestBuffer();
+    private final ServerMetrics.Exchange exchange = new ServerMetrics.Exchange();
+    private final byte[] clientAddress;
 
-    public ConnectionHandler(
+    private volatile boolean idle;
+
+    ConnectionHandler(
             Socket socket,
             ServerConfig config,
             HttpRequestParser requestParser,
             HttpResponseWriter responseWriter,
-            Router router,
-            SessionManager sessionManager,
-            StaticFileService staticFileService,
-            ScriptService scriptService
+            RequestProcessor requestProcessor,
+            ConnectionRegistry connectionRegistry
     ) {
         this.socket = socket;
         this.config = config;
         this.requestParser = requestParser;
         this.responseWriter = responseWriter;
-        this.router = router;
-        this.sessionManager = sessionManager;
-        this.staticFileService = staticFileService;
-        this.scriptService = scriptService;
+        this.requestProcessor = requestProcessor;
+        this.connectionRegistry = connectionRegistry;
+        this.clientAddress = AccessLog.address(socket.getInetAddress());
     }
 
     @Override
     public void run() {
-        HttpMethod requestMethod = HttpMethod.GET;
-        String requestPath = "-";
-        HttpStatus responseStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+        connectionRegistry.register(this);
 
         try (socket;
              InputStream inputStream = socket.getInputStream();
-             OutputStream outputStream = socket.getOutputStream()) {
+             OutputStream outputStream = openOutput()) {
 
-            socket.setSoTimeout(config.socketTimeoutMillis());
+            int requestsServed = 0;
+            boolean keepAlive = true;
 
-            try {
-                HttpRequest request = requestParser.parse(
-                        inputStream,
-                        config.maxHeaderBytes(),
-                        config.maxBodyBytes()
-                );
-
-                requestMethod = request.method();
-                requestPath = request.path();
-
-                SessionManager.SessionResolution sessionResolution = sessionManager.resolve(request);
-                HttpResponse response = dispatchRequest(request, sessionResolution.session());
-
-                if (sessionResolution.setCookieHeader().isPresent()) {
-                    response = response.withHeader("Set-Cookie", sessionResolution.setCookieHeader().get());
+            while (keepAlive) {
+                if (!awaitRequestStart(inputStream, outputStream, requestsServed == 0)) {
+                    break;
                 }
-
-                responseStatus = response.status();
-                responseWriter.write(outputStream, request.method(), response);
-            } catch (HttpParseException parseException) {
-                responseStatus = parseException.status();
-                writeErrorResponse(outputStream, parseException.status(), parseException.getMessage());
-            } catch (SocketTimeoutException timeoutException) {
-                responseStatus = HttpStatus.REQUEST_TIMEOUT;
-                writeErrorResponse(outputStream, HttpStatus.REQUEST_TIMEOUT,
-                        "Connection timed out while reading request.");
-            } catch (Exception exception) {
-                LOGGER.log(Level.SEVERE, "Unexpected request handling error", exception);
-                responseStatus = HttpStatus.INTERNAL_SERVER_ERROR;
-                writeErrorResponse(outputStream, HttpStatus.INTERNAL_SERVER_ERROR,
-                        "Unexpected server error.");
+                requestsServed++;
+                keepAlive = serveRequest(inputStream, outputStream, requestsServed);
             }
         } catch (IOException ioException) {
             LOGGER.log(Level.FINE, "Client connection closed before response was sent.", ioException);
         } finally {
-            LOGGER.info(String.format("%s %s -> %d", requestMethod, requestPath, responseStatus.code()));
+            connectionRegistry.unregister(this);
+        }
+    }
+
+    private OutputStream openOutput() throws IOException {
+        OutputStream socketOutput = socket.getOutputStream();
+        if (socket.getChannel() == null) {
+            return socketOutput;
+        }
+        return new SocketChannelOutputStream(socket.getChannel(), socketOutput);
+    }
+
+    /**
+     * Closes the socket if the handler is currently waiting for the next request on a kept-alive connection.
+     */
+    void closeIfIdle() {
+        if (!idle) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Unable to close idle connection", exception);
         }
     }
 
-    private HttpResponse dispatchRequest(HttpRequest request, Session session) throws Exception {
-        Optional<HttpResponse> routedResponse = router.dispatch(request, session);
-        if (routedResponse.isPresent()) {
-            return routedResponse.get();
+    /**
+     * Waits for the first byte of the next request, unless it is already buffered (pipelining). The first
+     * request on a connection is bounded by the socket timeout and answered with 408 when it never arrives;
+     * later requests are bounded by the keep-alive idle timeout and the connection is closed silently.
+     */
+    private boolean awaitRequestStart(InputStream inputStream, OutputStream outputStream,
+                                      boolean firstRequest) throws IOException {
+        if (requestBuffer.readable() > 0) {
+            return true;
+        }
+
+        idle = !firstRequest;
+        if (idle && !connectionRegistry.isAccepting()) {
+            idle = false;
+            return false;
         }
 
-        Set<HttpMethod> allowedMethods = router.allowedMethods(request.path());
-        if (!allowedMethods.isEmpty()) {
-            String allowHeader = allowedMethods.stream().map(Enum::name).collect(Collectors.joining(", "));
-            return HttpResponse.text(HttpStatus.METHOD_NOT_ALLOWED,
-                    "Method " + request.method() + " is not allowed for " + request.path())
-                    .withHeader("Allow", allowHeader);
+        long waitStart = System.nanoTime();
+        try {
+            socket.setSoTimeout(firstRequest ? config.socketTimeoutMillis() : config.keepAliveTimeoutMillis());
+            if (requestBuffer.fill(inputStream) < 0) {
+                return false;
+            }
+        } catch (SocketTimeoutException timeoutException) {
+            if (firstRequest) {
+                long bytes = writeErrorResponse(outputStream, HttpStatus.REQUEST_TIMEOUT,
+                        "Connection timed out while reading request.");
+                requestProcessor.logExchange(HttpMethod.GET, "-", HttpStatus.REQUEST_TIMEOUT, bytes, waitStart,
+                        clientAddress);
+            }
+            return false;
+        } finally {
+            idle = false;
         }
 
-        Optional<HttpResponse> scriptResponse = scriptService.tryExecute(request.path(), request, session);
-        if (scriptResponse.isPresent()) {
-            return scriptResponse.get();
+        socket.setSoTimeout(config.socketTimeoutMillis());
+        return true;
+    }
+
+    private boolean serveRequest(InputStream inputStream, OutputStream outputStream, int requestNumber)
+            throws IOException {
+        HttpMethod requestMethod = HttpMethod.GET;
+        String requestPath = "-";
+        HttpStatus responseStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+        long responseBytes = 0;
+        boolean keepAlive = false;
+        boolean responseStarted = false;
+        // Starts once the first bytes are in, so only a request arriving in pieces adds network time.
+        long requestStart = System.nanoTime();
+
+        try {
+            HttpRequest request = requestParser.parse(
+                    requestBuffer,
+                    inputStream,
+                    config.maxHeaderBytes(),
+                    config.maxBodyBytes()
+            );
+            requestProcessor.metrics().requestParsed(System.nanoTime() - requestStart);
+
+            requestMethod = request.method();
+            requestPath = request.path();
+
+            HttpResponse response = requestProcessor.process(request, exchange);
+            keepAlive = requestProcessor.shouldKeepAlive(request, response, requestNumber,
+                    connectionRegistry.isAccepting());
+            String keepAliveHeader = requestProcessor.keepAliveHeader(keepAlive, requestNumber);
+
+            responseStatus = response.status();
+            responseStarted = true;
+            responseBytes = responseWriter.write(outputStream, request.method(), request.version(), response,
+                    keepAliveHeader);
+            exchange.responseWritten(responseBytes);
+        } catch (HttpParseException parseException) {
+            responseStatus = parseException.status();
+            responseBytes = writeErrorResponse(outputStream, parseException.status(), parseException.getMessage());
+        } catch (SocketTimeoutException timeoutException) {
+            if (responseStarted) {
+                throw timeoutException;
+            }
+            responseStatus = HttpStatus.REQUEST_TIMEOUT;
+            responseBytes = writeErrorResponse(outputStream, HttpStatus.REQUEST_TIMEOUT,
+                    "Connection timed out while reading request.");
+        } catch (Exception exception) {
+            if (responseStarted) {
+                // Part of the response may already be on the wire; the only safe signal left is to close.
+                LOGGER.log(exception instanceof IOException ? Level.FINE : Level.WARNING,
+                        "Response aborted after it was started", exception);
+                return false;
+            }
+            LOGGER.log(Level.SEVERE, "Unexpected request handling error", exception);
+            responseStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+            keepAlive = false;
+            responseBytes = writeErrorResponse(outputStream, HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Unexpected server error.");
+        } finally {
+            requestProcessor.logExchange(requestMethod, requestPath, responseStatus, responseBytes, requestStart,
+                    clientAddress);
         }
 
-        return staticFileService.tryServe(request.path())
-                .orElseGet(() -> HttpResponse.text(HttpStatus.NOT_FOUND,
-                        "No route or static file found for " + request.path()));
+        return keepAlive;
     }
 
-    private void writeErrorResponse(OutputStream outputStream, HttpStatus status, String message) throws IOException {
+    private long writeErrorResponse(OutputStream outputStream, HttpStatus status, String message) throws IOException {
         HttpResponse errorResponse = HttpResponse.text(status, message);
-        responseWriter.write(outputStream, HttpMethod.GET, errorResponse);
+        return responseWriter.write(outputStream, HttpMethod.GET, errorResponse);
     }
 }
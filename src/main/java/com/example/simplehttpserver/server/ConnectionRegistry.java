@@ -0,0 +1,40 @@
+package com.example.simplehttpserver.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks open client connections so idle keep-alive sockets can be closed on shutdown.
+ */
+final class ConnectionRegistry {
+
+    private final Set<ConnectionHandler> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean accepting = true;
+
+    void register(ConnectionHandler handler) {
+        connections.add(handler);
+    }
+
+    void unregister(ConnectionHandler handler) {
+        connections.remove(handler);
+    }
+
+    boolean isAccepting() {
+        return accepting;
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    /**
+     * Stops keep-alive reuse and closes every connection that is waiting for its next request.
+     * Connections that are in the middle of a request finish it and then close.
+     */
+    void shutdown() {
+        accepting = false;
+        for (ConnectionHandler handler : connections) {
+            handler.closeIfIdle();
+        }
+    }
+}
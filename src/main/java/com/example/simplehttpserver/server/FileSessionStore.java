@@ -0,0 +1,329 @@
+package com.example.simplehttpserver.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps sessions in an {@link InMemorySessionStore} and also records every change in an append-only log file,
+ * so sessions survive a restart.
+ *
+ * <p>Requests only queue their changes. A background thread writes the queue to a memory-mapped log every
+ * flush interval and forces it to disk, so a crash loses at most that interval. Refreshing a session is
+ * logged only when it extends the expiry by a sixteenth of the timeout or more, so a restored session may
+ * expire that much earlier than it would have.
+ *
+ * <p>Each record is its length, a CRC-32 and the payload; the log ends at the first zero length or damaged
+ * record. On startup the log is replayed, sessions that expired meanwhile are dropped, and the live ones are
+ * written to a fresh log that replaces the old one. The same compaction runs whenever the log fills up, so its
+ * size follows the live sessions rather than the traffic.
+ */
+final class FileSessionStore implements SessionStore {
+
+    private static final Logger LOGGER = Logger.getLogger(FileSessionStore.class.getName());
+    private static final int MAGIC = 0x53455353;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final byte CREATE = 1;
+    private static final byte TOUCH = 2;
+    private static final byte PUT = 3;
+    private static final byte REMOVE = 4;
+
+    private final InMemorySessionStore sessions;
+    private final Path file;
+    private final long touchThresholdMillis;
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher;
+    private MappedByteBuffer log;
+
+    FileSessionStore(Path file, long timeoutMillis, int shardCount, long flushIntervalMillis, long nowMillis)
+            throws IOException {
+        this.sessions = new InMemorySessionStore(timeoutMillis, shardCount, nowMillis);
+        this.file = file.toAbsolutePath();
+        this.touchThresholdMillis = Math.max(1, timeoutMillis / 16);
+        Files.createDirectories(this.file.getParent());
+        int restored = recover(nowMillis);
+        compact(List.of());
+        if (restored > 0) {
+            LOGGER.info("Restored " + restored + " sessions from " + this.file);
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Session touch(String id, long nowMillis, long newExpiryMillis) {
+        Session session = sessions.touch(id, nowMillis, newExpiryMillis);
+        if (session != null && newExpiryMillis - session.storedExpiresAtMillis() >= touchThresholdMillis) {
+            session.markStored(newExpiryMillis);
+            pending.add(new Change(TOUCH, id, newExpiryMillis, null, null));
+        }
+        return session;
+    }
+
+    @Override
+    public void add(Session session) {
+        sessions.add(session);
+        pending.add(new Change(CREATE, session.id(), session.expiresAtMillis(), null, null));
+    }
+
+    @Override
+    public void attributeChanged(Session session, String key, String value) {
+        pending.add(new Change(value == null ? REMOVE : PUT, session.id(), 0, key, value));
+    }
+
+    @Override
+    public void expire(long nowMillis) {
+        sessions.expire(nowMillis);
+    }
+
+    @Override
+    public long expiryIntervalMillis() {
+        return sessions.expiryIntervalMillis();
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public long createdCount() {
+        return sessions.createdCount();
+    }
+
+    @Override
+    public long expiredCount() {
+        return sessions.expiredCount();
+    }
+
+    /**
+     * Writes all queued changes and forces them to disk. Runs on the flusher thread, or once more on close.
+     */
+    void flush() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (Change change = pending.poll(); change != null; change = pending.poll()) {
+            records.add(encode(change));
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            byte[] payload = records.get(i);
+            if (log.remaining() < RECORD_HEADER_BYTES + payload.length) {
+                compact(records.subList(i, records.size()));
+                return;
+            }
+            writeRecord(log, payload);
+        }
+        log.force();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Unable to write session log " + file, exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flush();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Unable to write session log " + file, exception);
+        }
+        sessions.close();
+    }
+
+    /**
+     * Replays the log into memory and returns the number of live sessions restored.
+     */
+    private int recover(long nowMillis) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        Map<String, StoredSession> stored = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a session log: " + file);
+            }
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warning("Session log " + file + " is damaged after byte " + (buffer.position() - 8));
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                apply(payload, stored);
+            }
+        }
+
+        int restored = 0;
+        for (Map.Entry<String, StoredSession> entry : stored.entrySet()) {
+            StoredSession storedSession = entry.getValue();
+            if (storedSession.expiresAtMillis >= nowMillis) {
+                Session session = new Session(entry.getKey(), storedSession.expiresAtMillis, this);
+                session.restore(storedSession.attributes);
+                sessions.restore(session);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private static void apply(ByteBuffer payload, Map<String, StoredSession> stored) {
+        byte type = payload.get();
+        String id = readString(payload);
+        switch (type) {
+            case CREATE -> stored.computeIfAbsent(id, ignored -> new StoredSession()).expiresAtMillis =
+                    payload.getLong();
+            case TOUCH -> {
+                StoredSession session = stored.get(id);
+                if (session != null) {
+                    session.expiresAtMillis = payload.getLong();
+                }
+            }
+            case PUT -> {
+                StoredSession session = stored.get(id);
+                String key = readString(payload);
+                String value = readString(payload);
+                if (session != null) {
+                    session.attributes.put(key, value);
+                }
+            }
+            case REMOVE -> {
+                StoredSession session = stored.get(id);
+                if (session != null) {
+                    session.attributes.remove(readString(payload));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown session log record type: " + type);
+        }
+    }
+
+    /**
+     * Writes the live sessions followed by {@code tail} to a new log and moves it over the current one.
+     */
+    private void compact(List<byte[]> tail) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        sessions.forEach(session -> {
+            long expiresAtMillis = session.expiresAtMillis();
+            session.markStored(expiresAtMillis);
+            records.add(encode(new Change(CREATE, session.id(), expiresAtMillis, null, null)));
+            session.snapshot().forEach((key, value) ->
+                    records.add(encode(new Change(PUT, session.id(), 0, key, value))));
+        });
+        records.addAll(tail);
+
+        long bytes = HEADER_BYTES;
+        for (byte[] record : records) {
+            bytes += RECORD_HEADER_BYTES + record.length;
+        }
+        // Leave at least as much room for new changes as the live sessions take.
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(bytes) << 2);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Session log would exceed 2 GB: " + file);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        MappedByteBuffer compacted;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            compacted = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        compacted.putInt(MAGIC).putInt(VERSION);
+        for (byte[] record : records) {
+            writeRecord(compacted, record);
+        }
+        compacted.force();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = compacted;
+    }
+
+    private static void writeRecord(ByteBuffer target, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        target.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+    }
+
+    private static byte[] encode(Change change) {
+        byte[] id = change.id().getBytes(StandardCharsets.UTF_8);
+        byte[] key = change.key() == null ? null : change.key().getBytes(StandardCharsets.UTF_8);
+        byte[] value = change.value() == null ? null : change.value().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + id.length + switch (change.type()) {
+            case CREATE, TOUCH -> 8;
+            case PUT -> 8 + key.length + value.length;
+            default -> 4 + key.length;
+        };
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(change.type()).putInt(id.length).put(id);
+        switch (change.type()) {
+            case CREATE, TOUCH -> buffer.putLong(change.expiresAtMillis());
+            case PUT -> buffer.putInt(key.length).put(key).putInt(value.length).put(value);
+            default -> buffer.putInt(key.length).put(key);
+        }
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Change(byte type, String id, long expiresAtMillis, String key, String value) {
+    }
+
+    private static final class StoredSession {
+        private long expiresAtMillis;
+        private final Map<String, String> attributes = new HashMap<>();
+    }
+}
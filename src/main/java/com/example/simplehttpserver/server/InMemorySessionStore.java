@@ -0,0 +1,223 @@
+package com.example.simplehttpserver.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sessions kept in memory, split over shards that each have their own lock, map and timing wheel.
+ *
+ * <p>A session is filed in the wheel slot of the tick in which it expires. {@link #expire(long)} visits only the
+ * slots whose tick has passed: sessions found there that were touched in the meantime are filed again under
+ * their new expiry, the others are removed. A touch itself does not move anything. Every expiry lies at most
+ * one timeout ahead, so a single wheel spanning the timeout is enough and no hierarchy of wheels is needed; an
+ * expiry pass costs the number of sessions that expired plus, at most once per timeout, each active one.
+ */
+final class InMemorySessionStore implements SessionStore {
+
+    private static final int MAX_WHEEL_SLOTS = 1024;
+    private static final long MIN_TICK_MILLIS = 1000;
+
+    private final Shard[] shards;
+    private final long tickMillis;
+    private final int wheelMask;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    InMemorySessionStore(long timeoutMillis, int shardCount, long nowMillis) {
+        this.tickMillis = Math.max(MIN_TICK_MILLIS, Math.ceilDiv(timeoutMillis, MAX_WHEEL_SLOTS - 2));
+        // Two spare slots: one for rounding an expiry up to its tick, one for the tick currently being passed.
+        int slots = powerOfTwoAtLeast((int) Math.ceilDiv(timeoutMillis, tickMillis) + 2);
+        this.wheelMask = slots - 1;
+        this.shards = new Shard[powerOfTwoAtLeast(shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(slots, Math.floorDiv(nowMillis, tickMillis));
+        }
+    }
+
+    /**
+     * {@inheritDoc} An expired session found here is removed right away.
+     */
+    @Override
+    public Session touch(String id, long nowMillis, long newExpiryMillis) {
+        Shard shard = shard(id);
+        shard.lock.lock();
+        try {
+            Session session = shard.sessions.get(id);
+            if (session == null) {
+                return null;
+            }
+            if (session.isExpired(nowMillis)) {
+                shard.sessions.remove(id);
+                expired.increment();
+                return null;
+            }
+            session.touch(newExpiryMillis);
+            return session;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(Session session) {
+        restore(session);
+        created.increment();
+    }
+
+    /**
+     * Adds a session read back from persistent storage, without counting it as created.
+     */
+    void restore(Session session) {
+        Shard shard = shard(session.id());
+        shard.lock.lock();
+        try {
+            shard.sessions.put(session.id(), session);
+            shard.schedule(session);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Calls {@code action} for every session, one shard at a time with that shard locked.
+     */
+    void forEach(Consumer<Session> action) {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.sessions.values().forEach(action);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes every session that expired before {@code nowMillis} and whose wheel slot is due.
+     */
+    @Override
+    public void expire(long nowMillis) {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                expired.add(shard.advance(nowMillis));
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.sessions.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long createdCount() {
+        return created.sum();
+    }
+
+    @Override
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * One wheel tick: a second, or coarser for long timeouts so the wheel stays small.
+     */
+    @Override
+    public long expiryIntervalMillis() {
+        return tickMillis;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.sessions.clear();
+                Arrays.fill(shard.wheel, null);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private Shard shard(String id) {
+        int hash = id.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private final class Shard {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Session> sessions = new HashMap<>();
+        private final List<Session>[] wheel;
+        private long currentTick;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Shard(int slots, long currentTick) {
+            this.wheel = new List[slots];
+            this.currentTick = currentTick;
+        }
+
+        void schedule(Session session) {
+            long tick = Math.max(Math.ceilDiv(session.expiresAtMillis(), tickMillis), currentTick + 1);
+            int slot = (int) (tick & wheelMask);
+            if (wheel[slot] == null) {
+                wheel[slot] = new ArrayList<>();
+            }
+            wheel[slot].add(session);
+        }
+
+        /**
+         * Passes every tick up to {@code nowMillis} and returns the number of sessions removed.
+         */
+        int advance(long nowMillis) {
+            long target = Math.floorDiv(nowMillis, tickMillis);
+            // After a long pause, one turn of the wheel still visits every slot.
+            currentTick = Math.max(currentTick, target - wheel.length);
+            int removed = 0;
+            while (currentTick < target) {
+                currentTick++;
+                int slot = (int) (currentTick & wheelMask);
+                List<Session> due = wheel[slot];
+                if (due == null) {
+                    continue;
+                }
+                wheel[slot] = null;
+                for (Session session : due) {
+                    if (sessions.get(session.id()) != session) {
+                        continue;
+                    }
+                    if (session.isExpired(nowMillis)) {
+                        sessions.remove(session.id());
+                        removed++;
+                    } else {
+                        schedule(session);
+                    }
+                }
+            }
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,579 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.http.FileRegionSink;
+import com.example.simplehttpserver.http.GatheringSink;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpParseException;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.RequestBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * State of one non-blocking client connection owned by a {@link NioEventLoop}.
+ *
+ * <p>Inbound bytes are buffered and scanned incrementally until they form a complete request; only then is
+ * the request handed to a worker thread. While the worker runs, reading is paused so pipelined requests stay buffered in order.
+ * The worker writes its response through a stream that queues buffers for the loop thread, blocking only
+ * when the client falls too far behind (on a lock rather than a monitor, so virtual threads stay unpinned).
+ * File regions are queued as such and sent by the loop with {@code FileChannel.transferTo}; consecutive
+ * buffers, such as a response head and its body, go out together in one gathering write.
+ * Idle connections hold no buffers.
+ */
+final class NioConnection {
+
+    private static final Logger LOGGER = Logger.getLogger(NioConnection.class.getName());
+    private static final int OUTPUT_CHUNK_BYTES = 8192;
+    private static final int MAX_OUTPUT_SLICE_BYTES = 64 * 1024;
+    private static final int MAX_GATHERED_BUFFERS = 16;
+    private static final long OUTPUT_HIGH_WATERMARK = 256 * 1024;
+    private static final long OUTPUT_LOW_WATERMARK = 64 * 1024;
+
+    private enum State {
+        READING,
+        PROCESSING,
+        CLOSED
+    }
+
+    private final NioEventLoop loop;
+    private final ServerConfig config;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    private final RequestBuffer inbound = new RequestBuffer();
+    private State state = State.READING;
+    private int requestsServed;
+    private long lastActivityMillis = System.currentTimeMillis();
+    private boolean responseComplete;
+    private boolean keepAliveAfterResponse;
+    private long parseNanos;
+    private long requestStartNanos;
+    private final ServerMetrics.Exchange exchange = new ServerMetrics.Exchange();
+    private final byte[] clientAddress;
+
+    private final Queue<PendingWrite> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Condition drained = drainLock.newCondition();
+    private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    private volatile boolean closed;
+
+    NioConnection(NioEventLoop loop, SocketChannel channel, SelectionKey key) {
+        this.loop = loop;
+        this.config = loop.config();
+        this.channel = channel;
+        this.key = key;
+        // A first request that never arrives is logged with the time since the connection was accepted.
+        this.requestStartNanos = System.nanoTime();
+        this.clientAddress = AccessLog.address(channel.socket().getInetAddress());
+    }
+
+    void onReadable() {
+        ByteBuffer buffer = loop.readBuffer();
+        buffer.clear();
+
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException exception) {
+            close();
+            return;
+        }
+
+        if (read < 0) {
+            close();
+            return;
+        }
+        if (read == 0) {
+            return;
+        }
+
+        buffer.flip();
+        inbound.append(buffer);
+        lastActivityMillis = System.currentTimeMillis();
+
+        tryDispatch();
+    }
+
+    void onWritable() {
+        flushOutbound();
+    }
+
+    void checkTimeout(long now) {
+        if (state == State.READING) {
+            boolean awaitingRequestBytes = inbound.readable() > 0 || requestsServed == 0;
+            long limit = awaitingRequestBytes ? config.socketTimeoutMillis() : config.keepAliveTimeoutMillis();
+            if (now - lastActivityMillis <= limit) {
+                return;
+            }
+            if (awaitingRequestBytes) {
+                respondAndClose(HttpStatus.REQUEST_TIMEOUT, "Connection timed out while reading request.");
+            } else {
+                close();
+            }
+            return;
+        }
+
+        if (state == State.PROCESSING && !outbound.isEmpty()
+                && now - lastActivityMillis > config.socketTimeoutMillis()) {
+            close();
+        }
+    }
+
+    void closeIfIdle() {
+        if (state == State.READING && inbound.readable() == 0) {
+            close();
+        }
+    }
+
+    void close() {
+        if (state == State.CLOSED) {
+            return;
+        }
+
+        state = State.CLOSED;
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Unable to close client channel", exception);
+        }
+
+        discardOutbound();
+        inbound.clear();
+        signalDrained();
+        loop.unregister(this);
+    }
+
+    private void tryDispatch() {
+        if (state != State.READING || inbound.readable() == 0) {
+            return;
+        }
+
+        // A request may take several attempts to arrive; only the time spent parsing is counted, not the waits.
+        HttpRequest request;
+        long parseStart = System.nanoTime();
+        if (parseNanos == 0) {
+            requestStartNanos = parseStart;
+        }
+        try {
+            request = loop.requestParser().tryParse(inbound, config.maxHeaderBytes(), config.maxBodyBytes());
+        } catch (HttpParseException parseException) {
+            parseNanos = 0;
+            respondAndClose(parseException.status(), parseException.getMessage());
+            return;
+        }
+        parseNanos += System.nanoTime() - parseStart;
+        if (request == null) {
+            return;
+        }
+        loop.requestProcessor().metrics().requestParsed(parseNanos);
+        parseNanos = 0;
+
+        inbound.release();
+        requestsServed++;
+        state = State.PROCESSING;
+        key.interestOps(0);
+
+        int requestNumber = requestsServed;
+        long requestStart = requestStartNanos;
+        try {
+            loop.workerPool().execute(() -> process(request, requestNumber, requestStart));
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            loop.requestProcessor().metrics().workerRejected();
+            respondAndClose(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy. Try again shortly.");
+        }
+    }
+
+    /**
+     * Runs on a worker thread: executes the request pipeline and streams the response to the loop.
+     */
+    private void process(HttpRequest request, int requestNumber, long requestStart) {
+        RequestProcessor processor = loop.requestProcessor();
+        HttpResponse response;
+        boolean keepAlive;
+        long responseBytes = 0;
+
+        try {
+            response = processor.process(request, exchange);
+            keepAlive = processor.shouldKeepAlive(request, response, requestNumber, loop.isAccepting());
+        } catch (Exception exception) {
+            LOGGER.log(Level.SEVERE, "Unexpected request handling error", exception);
+            response = HttpResponse.text(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected server error.");
+            keepAlive = false;
+        }
+        String keepAliveHeader = processor.keepAliveHeader(keepAlive, requestNumber);
+
+        try {
+            ResponseOutputStream outputStream = new ResponseOutputStream();
+            responseBytes = loop.responseWriter().write(outputStream, request.method(), request.version(), response,
+                    keepAliveHeader);
+            exchange.responseWritten(responseBytes);
+            outputStream.flush();
+        } catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Client connection closed before response was sent.", exception);
+            keepAlive = false;
+        } catch (RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Response aborted while streaming", exception);
+            keepAlive = false;
+        } finally {
+            processor.logExchange(request.method(), request.path(), response.status(), responseBytes, requestStart,
+                    clientAddress);
+        }
+
+        boolean keepConnection = keepAlive;
+        loop.execute(() -> completeResponse(keepConnection));
+    }
+
+    private void respondAndClose(HttpStatus status, String message) {
+        state = State.PROCESSING;
+        key.interestOps(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            loop.responseWriter().write(bytes, HttpMethod.GET, HttpResponse.text(status, message));
+        } catch (IOException exception) {
+            throw new IllegalStateException("In-memory write failed", exception);
+        }
+
+        outbound.add(new BufferWrite(ByteBuffer.wrap(bytes.toByteArray())));
+        pendingBytes.addAndGet(bytes.size());
+        loop.requestProcessor().logExchange(HttpMethod.GET, "-", status, bytes.size(), requestStartNanos,
+                clientAddress);
+        completeResponse(false);
+    }
+
+    private void completeResponse(boolean keepAlive) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        responseComplete = true;
+        keepAliveAfterResponse = keepAlive;
+        flushOutbound();
+    }
+
+    private void flushOutbound() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        lastActivityMillis = System.currentTimeMillis();
+
+        try {
+            PendingWrite write;
+            while ((write = outbound.peek()) != null) {
+                if (write instanceof BufferWrite) {
+                    if (!writeGathered()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    continue;
+                }
+                // Only buffers count toward the watermarks; a file region holds no memory while it waits.
+                write.writeTo(channel);
+                if (!write.isDone()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbound.poll();
+                write.discard();
+            }
+        } catch (IOException exception) {
+            close();
+            return;
+        }
+
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (responseComplete) {
+            finishResponse();
+        }
+    }
+
+    /**
+     * Writes the buffers at the head of the queue with one gathering write, up to {@link #MAX_GATHERED_BUFFERS}
+     * of them and, past the first, {@link #MAX_OUTPUT_SLICE_BYTES} in total so the channel's temporary direct
+     * buffers stay small. Removes the buffers that were sent completely.
+     *
+     * @return whether everything gathered was sent
+     */
+    private boolean writeGathered() throws IOException {
+        int count = 0;
+        long bytes = 0;
+        for (PendingWrite pending : outbound) {
+            if (!(pending instanceof BufferWrite(ByteBuffer buffer)) || count == gathered.length
+                    || (count > 0 && bytes + buffer.remaining() > MAX_OUTPUT_SLICE_BYTES)) {
+                break;
+            }
+            gathered[count++] = buffer;
+            bytes += buffer.remaining();
+        }
+
+        try {
+            long written = count == 1 ? channel.write(gathered[0]) : channel.write(gathered, 0, count);
+            if (written > 0) {
+                releasePending(written);
+            }
+            for (int i = 0; i < count; i++) {
+                if (gathered[i].hasRemaining()) {
+                    return false;
+                }
+                outbound.poll();
+            }
+            return true;
+        } finally {
+            Arrays.fill(gathered, 0, count, null);
+        }
+    }
+
+    private void finishResponse() {
+        responseComplete = false;
+        if (!keepAliveAfterResponse) {
+            close();
+            return;
+        }
+
+        state = State.READING;
+        lastActivityMillis = System.currentTimeMillis();
+        key.interestOps(SelectionKey.OP_READ);
+        tryDispatch();
+    }
+
+    private void releasePending(long written) {
+        long remaining = pendingBytes.addAndGet(-written);
+        if (remaining <= OUTPUT_LOW_WATERMARK && remaining + written > OUTPUT_LOW_WATERMARK) {
+            signalDrained();
+        }
+    }
+
+    private void discardOutbound() {
+        PendingWrite write;
+        while ((write = outbound.poll()) != null) {
+            write.discard();
+        }
+    }
+
+    private void signalDrained() {
+        drainLock.lock();
+        try {
+            drained.signalAll();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Worker-side response stream. Bytes are gathered into chunks and queued for the event loop;
+     * the writing thread blocks while more than the high watermark is waiting to be sent. Buffers handed to
+     * {@link #writeGathered} are queued as they are, without copying.
+     */
+    private final class ResponseOutputStream extends OutputStream implements FileRegionSink, GatheringSink {
+
+        private byte[] chunk;
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (chunk == null) {
+                chunk = new byte[OUTPUT_CHUNK_BYTES];
+            } else if (count == chunk.length) {
+                flush();
+                chunk = new byte[OUTPUT_CHUNK_BYTES];
+            }
+            chunk[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            if (chunk != null && length <= chunk.length - count) {
+                System.arraycopy(bytes, offset, chunk, count, length);
+                count += length;
+                return;
+            }
+            if (length < OUTPUT_CHUNK_BYTES) {
+                flush();
+                chunk = new byte[OUTPUT_CHUNK_BYTES];
+                System.arraycopy(bytes, offset, chunk, 0, length);
+                count = length;
+                return;
+            }
+
+            flush();
+            int end = offset + length;
+            for (int sliceStart = offset; sliceStart < end; sliceStart += MAX_OUTPUT_SLICE_BYTES) {
+                int sliceEnd = Math.min(end, sliceStart + MAX_OUTPUT_SLICE_BYTES);
+                enqueue(ByteBuffer.wrap(Arrays.copyOfRange(bytes, sliceStart, sliceEnd)));
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+            chunk = null;
+            count = 0;
+            enqueue(buffer);
+        }
+
+        @Override
+        public void writeGathered(ByteBuffer... buffers) throws IOException {
+            flush();
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.remaining() > MAX_OUTPUT_SLICE_BYTES) {
+                    enqueue(buffer.slice(buffer.position(), MAX_OUTPUT_SLICE_BYTES));
+                    buffer.position(buffer.position() + MAX_OUTPUT_SLICE_BYTES);
+                }
+                if (buffer.hasRemaining()) {
+                    enqueue(buffer);
+                }
+            }
+        }
+
+        @Override
+        public void transferFile(FileChannel file, long position, long count) throws IOException {
+            flush();
+            FileWrite write = new FileWrite(file, position, position + count);
+            if (closed) {
+                write.discard();
+                throw new IOException("Connection closed by peer or server.");
+            }
+            outbound.add(write);
+            if (closed) {
+                discardOutbound();
+                throw new IOException("Connection closed by peer or server.");
+            }
+            scheduleFlush();
+        }
+
+        private void enqueue(ByteBuffer buffer) throws IOException {
+            if (closed) {
+                throw new IOException("Connection closed by peer or server.");
+            }
+
+            outbound.add(new BufferWrite(buffer));
+            long pending = pendingBytes.addAndGet(buffer.remaining());
+            scheduleFlush();
+
+            if (pending > OUTPUT_HIGH_WATERMARK) {
+                awaitDrain();
+            }
+        }
+
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    flushScheduled.set(false);
+                    flushOutbound();
+                });
+            }
+        }
+
+        private void awaitDrain() throws IOException {
+            drainLock.lock();
+            try {
+                while (pendingBytes.get() > OUTPUT_LOW_WATERMARK && !closed) {
+                    drained.await(1, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for client to read response.");
+            } finally {
+                drainLock.unlock();
+            }
+            if (closed) {
+                throw new IOException("Connection closed by peer or server.");
+            }
+        }
+    }
+
+    /**
+     * Output waiting to be written by the loop thread.
+     */
+    private interface PendingWrite {
+
+        long writeTo(SocketChannel channel) throws IOException;
+
+        boolean isDone();
+
+        void discard();
+    }
+
+    private record BufferWrite(ByteBuffer buffer) implements PendingWrite {
+
+        @Override
+        public long writeTo(SocketChannel channel) throws IOException {
+            return channel.write(buffer);
+        }
+
+        @Override
+        public boolean isDone() {
+            return !buffer.hasRemaining();
+        }
+
+        @Override
+        public void discard() {
+        }
+    }
+
+    private static final class FileWrite implements PendingWrite {
+
+        private final FileChannel file;
+        private final long end;
+        private long position;
+
+        FileWrite(FileChannel file, long position, long end) {
+            this.file = file;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public long writeTo(SocketChannel channel) throws IOException {
+            long transferred = file.transferTo(position, end - position, channel);
+            if (transferred == 0 && position >= file.size()) {
+                throw new IOException("File ended before the response region was sent.");
+            }
+            position += transferred;
+            return transferred;
+        }
+
+        @Override
+        public boolean isDone() {
+            return position >= end;
+        }
+
+        @Override
+        public void discard() {
+            try {
+                file.close();
+            } catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Unable to close file channel", exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.http.HttpRequestParser;
+import com.example.simplehttpserver.http.HttpResponseWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selector thread that owns a subset of non-blocking client connections. It reads and frames requests
+ * incrementally, hands complete requests to the worker pool, and writes queued response bytes back.
+ * All channel and selection-key operations happen on the loop thread; other threads talk to the loop
+ * through {@link #execute(Runnable)}.
+ */
+final class NioEventLoop implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(NioEventLoop.class.getName());
+    private static final long TIMEOUT_CHECK_INTERVAL_MILLIS = 250;
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+
+    private final String name;
+    private final ServerConfig config;
+    private final HttpRequestParser requestParser;
+    private final HttpResponseWriter responseWriter;
+    private final RequestProcessor requestProcessor;
+    private final ExecutorService workerPool;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+
+    private volatile boolean running = true;
+    private volatile boolean accepting = true;
+    private Thread thread;
+    private long lastTimeoutCheckMillis;
+
+    NioEventLoop(
+            String name,
+            ServerConfig config,
+            HttpRequestParser requestParser,
+            HttpResponseWriter responseWriter,
+            RequestProcessor requestProcessor,
+            ExecutorService workerPool
+    ) throws IOException {
+        this.name = name;
+        this.config = config;
+        this.requestParser = requestParser;
+        this.responseWriter = responseWriter;
+        this.requestProcessor = requestProcessor;
+        this.workerPool = workerPool;
+        this.selector = Selector.open();
+    }
+
+    void start() {
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    /**
+     * Hands a freshly accepted channel to this loop.
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, channel, key);
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Unable to register accepted connection", exception);
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    boolean isAccepting() {
+        return accepting;
+    }
+
+    /**
+     * Stops keep-alive reuse and closes connections that are waiting for their next request.
+     */
+    void shutdown() {
+        accepting = false;
+        execute(() -> {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.closeIfIdle();
+            }
+        });
+    }
+
+    /**
+     * Terminates the loop and closes every remaining connection.
+     */
+    void close() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(2000);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        lastTimeoutCheckMillis = System.currentTimeMillis();
+        try {
+            while (running) {
+                selector.select(TIMEOUT_CHECK_INTERVAL_MILLIS);
+                runTasks();
+                processSelectedKeys();
+                checkTimeouts();
+            }
+        } catch (IOException exception) {
+            LOGGER.log(Level.SEVERE, "Event loop " + name + " failed", exception);
+        } finally {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Unable to close selector", exception);
+            }
+        }
+    }
+
+    ServerConfig config() {
+        return config;
+    }
+
+    HttpRequestParser requestParser() {
+        return requestParser;
+    }
+
+    HttpResponseWriter responseWriter() {
+        return responseWriter;
+    }
+
+    RequestProcessor requestProcessor() {
+        return requestProcessor;
+    }
+
+    ExecutorService workerPool() {
+        return workerPool;
+    }
+
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    void unregister(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException exception) {
+                LOGGER.log(Level.WARNING, "Event loop task failed", exception);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.onReadable();
+                }
+            } catch (CancelledKeyException exception) {
+                connection.close();
+            }
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        if (now - lastTimeoutCheckMillis < TIMEOUT_CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        lastTimeoutCheckMillis = now;
+
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            connection.checkTimeout(now);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Unable to close channel", exception);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.StaticFileConfig;
+import com.example.simplehttpserver.http.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Locates files below the public root, which is either a filesystem document root or a classpath resource
+ * root. Scripts and static files are looked up here, so both see the same tree and share one traversal check.
+ */
+final class PublicResources {
+
+    private final Path documentRoot;
+    private final String classpathRoot;
+
+    private PublicResources(Path documentRoot, String classpathRoot) {
+        this.documentRoot = documentRoot;
+        this.classpathRoot = classpathRoot;
+    }
+
+    static PublicResources classpath(String classpathRoot) {
+        return new PublicResources(null, classpathRoot);
+    }
+
+    static PublicResources directory(Path documentRoot) {
+        return new PublicResources(documentRoot.toAbsolutePath().normalize(), null);
+    }
+
+    static PublicResources from(String classpathRoot, StaticFileConfig config) {
+        return config.hasDocumentRoot()
+                ? directory(Path.of(config.documentRoot()))
+                : classpath(classpathRoot);
+    }
+
+    /**
+     * Turns a request path into a root-relative resource name such as {@code css/site.css}.
+     *
+     * @return the normalized name, or {@code null} if the path points outside the root
+     */
+    static String normalize(String requestPath) {
+        String relative = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
+        Path normalized = Path.of(relative).normalize();
+        if (normalized.isAbsolute() || normalized.startsWith("..")) {
+            return null;
+        }
+        return normalized.toString().replace('\\', '/');
+    }
+
+    /**
+     * Looks up a name returned by {@link #normalize(String)}. Only regular files are found.
+     */
+    Optional<Resource> find(String name) throws IOException {
+        if (documentRoot != null) {
+            return findFile(documentRoot.resolve(name));
+        }
+
+        URL url = getClass().getClassLoader().getResource(classpathRoot + "/" + name);
+        if (url == null) {
+            return Optional.empty();
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return findFile(Path.of(url.toURI()));
+            } catch (URISyntaxException exception) {
+                throw new IOException("Invalid resource URL: " + url, exception);
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        return Optional.of(new Resource(null, url, connection.getContentLengthLong(), connection.getLastModified()));
+    }
+
+    /**
+     * Names of all files below the root whose name ends with {@code suffix}, in the form accepted by
+     * {@link #find(String)}. Works for a document root, an exploded classpath root and a root packaged in a
+     * JAR; other class loader URLs yield no names.
+     */
+    List<String> list(String suffix) throws IOException {
+        if (documentRoot != null) {
+            return listDirectory(documentRoot, suffix);
+        }
+
+        URL url = getClass().getClassLoader().getResource(classpathRoot);
+        if (url == null) {
+            return List.of();
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return listDirectory(Path.of(url.toURI()), suffix);
+            } catch (URISyntaxException exception) {
+                throw new IOException("Invalid resource URL: " + url, exception);
+            }
+        }
+        if (!(url.openConnection() instanceof JarURLConnection connection)) {
+            return List.of();
+        }
+
+        connection.setUseCaches(false);
+        String prefix = connection.getEntryName() + "/";
+        try (JarFile jar = connection.getJarFile()) {
+            return jar.stream()
+                    .filter(entry -> !entry.isDirectory())
+                    .map(JarEntry::getName)
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> name.substring(prefix.length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static List<String> listDirectory(Path root, String suffix) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix) && Files.isRegularFile(file))
+                    .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Optional<Resource> findFile(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Resource(file, null, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException exception) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A public file as seen at lookup time. Exactly one of {@code file} and {@code url} is set; the latter is
+     * used for resources packaged in a JAR.
+     *
+     * @param length       size in bytes, or {@code -1} if the JAR entry does not say
+     * @param lastModified modification time in epoch milliseconds, {@code 0} if unknown
+     */
+    record Resource(Path file, URL url, long length, long lastModified) {
+
+        InputStream open() throws IOException {
+            return file != null ? Files.newInputStream(file) : url.openStream();
+        }
+
+        byte[] readAllBytes() throws IOException {
+            try (InputStream in = open()) {
+                return in.readAllBytes();
+            }
+        }
+
+        /**
+         * Files become regions sent with {@code transferTo}; JAR entries are streamed through a small buffer.
+         */
+        ResponseBody body() {
+            return file != null ? ResponseBody.file(file, 0, length) : ResponseBody.of(url::openStream, length);
+        }
+
+        boolean sameVersionAs(Resource other) {
+            return length == other.length && lastModified == other.lastModified;
+        }
+    }
+}
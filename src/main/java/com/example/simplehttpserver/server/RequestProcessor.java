@@ -0,0 +1,253 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.http.ConditionalRequests;
+import com.example.simplehttpserver.http.ContentCoding;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.RangeRequests;
+import com.example.simplehttpserver.http.ResponseBody;
+import com.example.simplehttpserver.http.StreamingBody;
+import com.example.simplehttpserver.metrics.MetricsRegistry;
+import com.example.simplehttpserver.routing.Router;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a parsed request into a response (session, routing, scripts, static files) and applies the
+ * connection-management rules shared by the blocking and NIO connection models. Requests for the configured
+ * metrics path are answered with a scrape of {@link ServerMetrics}, without a session.
+ */
+final class RequestProcessor {
+
+    private final ServerConfig config;
+    private final Router router;
+    private final SessionManager sessionManager;
+    private final StaticFileService staticFileService;
+    private final ScriptService scriptService;
+    private final ResponseCompressor compressor;
+    private final ServerMetrics metrics;
+    private final AccessLog accessLog;
+
+    RequestProcessor(
+            ServerConfig config,
+            Router router,
+            SessionManager sessionManager,
+            StaticFileService staticFileService,
+            ScriptService scriptService,
+            ResponseCompressor compressor,
+            ServerMetrics metrics,
+            AccessLog accessLog
+    ) {
+        this.config = config;
+        this.router = router;
+        this.sessionManager = sessionManager;
+        this.staticFileService = staticFileService;
+        this.scriptService = scriptService;
+        this.compressor = compressor;
+        this.metrics = metrics;
+        this.accessLog = accessLog;
+    }
+
+    ServerMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * The content coding is chosen before conditional evaluation so a {@code 304} is decided on the variant's
+     * {@code ETag}; the body is only compressed when it is actually sent. Ranges apply to representations
+     * that are sent as they are, never to a body about to be compressed on the fly.
+     *
+     * @param exchange receives the route the request was served by, for counting the bytes of its response
+     */
+    HttpResponse process(HttpRequest request, ServerMetrics.Exchange exchange) throws Exception {
+        if (isMetricsRequest(request)) {
+            exchange.route(metrics.metricsRoute());
+            return HttpResponse.status(HttpStatus.OK)
+                    .header("Content-Type", MetricsRegistry.CONTENT_TYPE)
+                    .header("Cache-Control", "no-store")
+                    .body(ResponseBody.of(metrics.registry().scrape()))
+                    .build();
+        }
+
+        SessionManager.SessionResolution sessionResolution = sessionManager.resolve(request);
+        ContentCoding accepted = ContentCoding.negotiate(request.firstHeader("Accept-Encoding").orElse(null));
+        HttpResponse response = dispatchRequest(request, sessionResolution.session(), accepted, exchange);
+
+        ContentCoding coding = compressor.select(response, accepted);
+        response = applyCaching(request, compressor.describe(response, coding));
+        if (coding == ContentCoding.IDENTITY) {
+            response = RangeRequests.evaluate(request, response);
+        } else if (response.status() == HttpStatus.OK) {
+            response = compressor.encode(response, coding);
+        }
+
+        return withSessionCookie(response, sessionResolution);
+    }
+
+    /**
+     * Signed cookie sessions are encoded after the handler ran, so the cookie carries its changes. A streamed
+     * body may still change the session while it is generated; its cookie is encoded again right before the
+     * held-back headers are sent, and changes made after that are not in the cookie.
+     */
+    private HttpResponse withSessionCookie(HttpResponse response, SessionManager.SessionResolution resolution) {
+        Optional<String> setCookieHeader = sessionManager.setCookieHeader(resolution);
+        if (setCookieHeader.isPresent()) {
+            response = response.withHeader("Set-Cookie", setCookieHeader.get());
+        }
+        if (sessionManager.signedCookies() && response.responseBody() instanceof ResponseBody.Streaming streaming) {
+            StreamingBody body = streaming.body();
+            response = response.withBody(ResponseBody.streaming(new StreamingBody() {
+                @Override
+                public void writeTo(OutputStream outputStream) throws IOException {
+                    body.writeTo(outputStream);
+                }
+
+                @Override
+                public void beforeHead(Map<String, String> headers) {
+                    body.beforeHead(headers);
+                    sessionManager.setCookieHeader(resolution).ifPresent(value -> headers.put("Set-Cookie", value));
+                }
+            }));
+        }
+        return response;
+    }
+
+    /**
+     * HTTP/1.1 connections persist unless either side sends {@code Connection: close};
+     * HTTP/1.0 connections persist only when the client explicitly asks for {@code keep-alive}
+     * and the response length is known up front (HTTP/1.0 has no chunked coding).
+     */
+    boolean shouldKeepAlive(HttpRequest request, HttpResponse response, int requestNumber, boolean accepting) {
+        if (!config.keepAliveEnabled()
+                || requestNumber >= config.maxRequestsPerConnection()
+                || !accepting) {
+            return false;
+        }
+
+        String responseConnection = response.headers().get("Connection");
+        if (responseConnection != null && containsToken(responseConnection, "close")) {
+            return false;
+        }
+
+        String requestConnection = request.firstHeader("Connection").orElse("");
+        if ("HTTP/1.0".equals(request.version())) {
+            boolean closeDelimited = response.responseBody().length() < 0
+                    && !response.headers().containsKey("Content-Length");
+            return !closeDelimited && containsToken(requestConnection, "keep-alive");
+        }
+        return !containsToken(requestConnection, "close");
+    }
+
+    /**
+     * Adds the configured {@code Cache-Control} policy to successful GET/HEAD responses that do not set one,
+     * then answers {@code 304 Not Modified} if the client's validators still match.
+     */
+    private HttpResponse applyCaching(HttpRequest request, HttpResponse response) {
+        if (response.status() != HttpStatus.OK
+                || (request.method() != HttpMethod.GET && request.method() != HttpMethod.HEAD)) {
+            return response;
+        }
+
+        if (!response.headers().containsKey("Cache-Control")) {
+            Optional<String> cacheControl = config.cacheControlFor(request.path());
+            if (cacheControl.isPresent()) {
+                response = response.withHeader("Cache-Control", cacheControl.get());
+            }
+        }
+        return ConditionalRequests.evaluate(request, response);
+    }
+
+    /**
+     * The {@code Keep-Alive} value for the response to a connection's {@code requestNumber}th request, or
+     * {@code null} when the connection closes after it. The response writer adds it, with the matching
+     * {@code Connection} line, while encoding the head.
+     */
+    String keepAliveHeader(boolean keepAlive, int requestNumber) {
+        if (!keepAlive) {
+            return null;
+        }
+
+        int keepAliveSeconds = Math.max(1, config.keepAliveTimeoutMillis() / 1000);
+        int remainingRequests = config.maxRequestsPerConnection() - requestNumber;
+        return "timeout=" + keepAliveSeconds + ", max=" + remainingRequests;
+    }
+
+    /**
+     * Queues the access log record of a request; requests that never got far enough to be parsed are logged as
+     * {@code GET -}.
+     *
+     * @param startNanos {@link System#nanoTime()} when the first bytes of the request were read, or when the
+     *                   connection started waiting for a request that timed out before it arrived
+     */
+    void logExchange(HttpMethod method, String path, HttpStatus status, long bytes, long startNanos,
+                     byte[] clientAddress) {
+        accessLog.record(method, path, status.code(), bytes, System.nanoTime() - startNanos, clientAddress);
+    }
+
+    private boolean containsToken(String headerValue, String token) {
+        for (String part : headerValue.split(",")) {
+            if (part.trim().toLowerCase(Locale.ROOT).equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isMetricsRequest(HttpRequest request) {
+        return config.metricsEnabled()
+                && (request.method() == HttpMethod.GET || request.method() == HttpMethod.HEAD)
+                && request.path().equals(config.metricsPath());
+    }
+
+    /**
+     * Times the route lookup, then everything up to the response being built as the handling of whichever
+     * route, script or static file answered. A streamed body runs later, while it is written.
+     */
+    private HttpResponse dispatchRequest(HttpRequest request, Session session, ContentCoding accepted,
+                                         ServerMetrics.Exchange exchange) throws Exception {
+        long routingStart = System.nanoTime();
+        Optional<Router.Match> match = router.match(request);
+        long handlerStart = System.nanoTime();
+        metrics.requestRouted(handlerStart - routingStart);
+
+        ServerMetrics.Route route = match.isPresent() ? metrics.route(match.get().pattern()) : metrics.unmatchedRoute();
+        try {
+            if (match.isPresent()) {
+                return match.get().handle(session);
+            }
+
+            Set<HttpMethod> allowedMethods = router.allowedMethods(request.path());
+            if (!allowedMethods.isEmpty()) {
+                String allowHeader = allowedMethods.stream().map(Enum::name).collect(Collectors.joining(", "));
+                return HttpResponse.text(HttpStatus.METHOD_NOT_ALLOWED,
+                        "Method " + request.method() + " is not allowed for " + request.path())
+                        .withHeader("Allow", allowHeader);
+            }
+
+            Optional<HttpResponse> scriptResponse = scriptService.tryExecute(request.path(), request, session);
+            if (scriptResponse.isPresent()) {
+                route = metrics.scriptRoute();
+                return scriptResponse.get();
+            }
+
+            Optional<HttpResponse> staticResponse = staticFileService.tryServe(request.path(), accepted);
+            if (staticResponse.isPresent()) {
+                route = metrics.staticRoute();
+                return staticResponse.get();
+            }
+            return HttpResponse.text(HttpStatus.NOT_FOUND, "No route or static file found for " + request.path());
+        } finally {
+            route.handled(System.nanoTime() - handlerStart);
+            exchange.route(route);
+        }
+    }
+}
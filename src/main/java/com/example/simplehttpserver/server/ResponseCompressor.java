@@ -0,0 +1,170 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.CompressionConfig;
+import com.example.simplehttpserver.http.ContentCoding;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
+import com.example.simplehttpserver.http.StreamingBody;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses successful responses of compressible media types for clients that accept gzip or deflate.
+ *
+ * <p>In-memory bodies at or above the size threshold are compressed into a new array; streamed bodies are
+ * compressed as they are written. File and stream bodies are left alone so large files keep their zero-copy
+ * path; {@link StaticFileService} serves {@code .gz} siblings for those instead.
+ *
+ * <p>Choosing a coding, describing it in headers and encoding the body are separate steps, so a conditional
+ * request can be answered with {@code 304} from the variant's {@code ETag} without compressing anything.
+ */
+final class ResponseCompressor {
+
+    private final CompressionConfig config;
+
+    ResponseCompressor(CompressionConfig config) {
+        this.config = config;
+    }
+
+    boolean compressible(String contentType) {
+        return config.enabled() && config.compressible(contentType);
+    }
+
+    /**
+     * Coding to send {@code response} with: the client's preferred coding if the response is eligible for
+     * compression, otherwise {@link ContentCoding#IDENTITY}.
+     */
+    ContentCoding select(HttpResponse response, ContentCoding accepted) {
+        return eligible(response) ? accepted : ContentCoding.IDENTITY;
+    }
+
+    /**
+     * Adds {@code Vary: Accept-Encoding} to every eligible response and, for a compressing coding, the
+     * {@code Content-Encoding} header and a coding-specific {@code ETag}. The body is not touched.
+     */
+    HttpResponse describe(HttpResponse response, ContentCoding coding) {
+        if (!eligible(response)) {
+            return response;
+        }
+        HttpResponse described = withVary(response);
+        if (coding == ContentCoding.IDENTITY) {
+            return described;
+        }
+
+        described = described.withHeader("Content-Encoding", coding.token());
+        String etag = described.headers().get("ETag");
+        return etag == null ? described : described.withHeader("ETag", variantTag(etag, coding));
+    }
+
+    /**
+     * Compresses the body of a response previously passed through {@link #describe}.
+     */
+    HttpResponse encode(HttpResponse response, ContentCoding coding) {
+        if (coding == ContentCoding.IDENTITY) {
+            return response;
+        }
+        return switch (response.responseBody()) {
+            case ResponseBody.Bytes bytes -> response.withBody(ResponseBody.of(
+                    coding.encode(bytes.array(), bytes.offset(), bytes.count(), config.level())));
+            case ResponseBody.Buffer buffer -> {
+                byte[] content = new byte[buffer.buffer().remaining()];
+                buffer.buffer().duplicate().get(content);
+                yield response.withBody(ResponseBody.of(coding.encode(content, 0, content.length, config.level())));
+            }
+            case ResponseBody.Streaming streaming ->
+                    response.withBody(ResponseBody.streaming(compressing(streaming.body(), coding)));
+            default -> throw new IllegalStateException(
+                    "Response body cannot be compressed: " + response.responseBody());
+        };
+    }
+
+    /**
+     * Convenience for {@link #describe} followed by {@link #encode}.
+     */
+    HttpResponse compress(HttpResponse response, ContentCoding coding) {
+        return encode(describe(response, coding), eligible(response) ? coding : ContentCoding.IDENTITY);
+    }
+
+    static HttpResponse withVary(HttpResponse response) {
+        String vary = response.headers().get("Vary");
+        if (vary == null) {
+            return response.withHeader("Vary", "Accept-Encoding");
+        }
+        if (vary.toLowerCase(Locale.ROOT).contains("accept-encoding") || "*".equals(vary.trim())) {
+            return response;
+        }
+        return response.withHeader("Vary", vary + ", Accept-Encoding");
+    }
+
+    /**
+     * Each representation needs its own strong entity tag, so the coding is appended inside the quotes.
+     */
+    static String variantTag(String etag, ContentCoding coding) {
+        int closingQuote = etag.lastIndexOf('"');
+        if (closingQuote <= 0) {
+            return etag;
+        }
+        return etag.substring(0, closingQuote) + "-" + coding.token() + etag.substring(closingQuote);
+    }
+
+    private boolean eligible(HttpResponse response) {
+        if (response.status() != HttpStatus.OK
+                || response.headers().containsKey("Content-Encoding")
+                || !compressible(response.headers().get("Content-Type"))) {
+            return false;
+        }
+        return switch (response.responseBody()) {
+            case ResponseBody.Bytes bytes -> bytes.count() >= config.minBytes();
+            case ResponseBody.Buffer buffer -> buffer.length() >= config.minBytes();
+            case ResponseBody.Streaming streaming -> true;
+            case ResponseBody.Stream stream -> false;
+            case ResponseBody.FileRegion region -> false;
+            case ResponseBody.Composite composite -> false;
+        };
+    }
+
+    /**
+     * Wraps a streaming body so its output is compressed. A sync flush keeps {@code flush()} calls meaningful,
+     * and the writer's stream is shielded from {@code close()} so the compressor can be closed (releasing its
+     * native memory) without ending the response.
+     */
+    private StreamingBody compressing(StreamingBody body, ContentCoding coding) {
+        return new StreamingBody() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (DeflaterOutputStream compressed = coding.newOutputStream(new NonClosingOutputStream(out),
+                        config.level(), true)) {
+                    body.writeTo(compressed);
+                }
+            }
+
+            @Override
+            public void beforeHead(Map<String, String> headers) {
+                body.beforeHead(headers);
+            }
+        };
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,64 +1,109 @@
 package com.example.simplehttpserver.server;
 
+import com.example.simplehttpserver.config.ScriptConfig;
+import com.example.simplehttpserver.http.ConditionalRequests;
+import com.example.simplehttpserver.http.HttpMethod;
 import com.example.simplehttpserver.http.HttpRequest;
 import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
+import com.example.simplehttpserver.http.StreamingBody;
 import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
+import com.example.simplehttpserver.script.compiler.ScriptCompileException;
+import com.example.simplehttpserver.script.compiler.ScriptCompiler;
 import com.example.simplehttpserver.script.parser.ScriptParseException;
 import com.example.simplehttpserver.script.parser.ScriptParser;
-import com.example.simplehttpserver.script.runtime.ScriptEngine;
 import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptProgram;
+import com.example.simplehttpserver.script.runtime.ScriptResolver;
 import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * Loads and executes .smscr scripts from classpath resources.
+ * Loads and executes .smscr scripts from the public root.
+ *
+ * <p>Parsed scripts are cached by resource name. A cached script is reused without touching the file system
+ * until the revalidation interval has passed; then its size and modification time are compared with the file
+ * and it is parsed again only if either changed. Scripts that fail to parse are cached as well, so a broken
+ * page is not parsed again on every request. With compilation enabled, cached scripts are turned into
+ * generated classes; a script the compiler rejects is interpreted.
+ *
+ * <p>Output is buffered by default, so a page gets a {@code Content-Length}, an {@code ETag} and a proper
+ * error status when the script fails. With streaming enabled, the script runs while the response is written
+ * and its output goes out in chunks as it is produced; the MIME type is whatever the script has set when the
+ * first chunk is sent. A runtime error then can only abort the connection. HEAD requests are always buffered,
+ * since their headers depend on the script and they have no body to stream.
  */
 public class ScriptService {
 
-    private final String resourcesRoot;
+    private static final Logger LOGGER = Logger.getLogger(ScriptService.class.getName());
+    private static final String SCRIPT_SUFFIX = ".smscr";
+
+    private final PublicResources resources;
+    private final ScriptConfig config;
+    private final long revalidateNanos;
+    private final ConcurrentMap<String, CachedScript> cache = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
     private final ScriptParser parser = new ScriptParser();
+    private final ScriptCompiler compiler = new ScriptCompiler();
 
     public ScriptService(String resourcesRoot) {
-        this.resourcesRoot = resourcesRoot;
+        this(PublicResources.classpath(resourcesRoot), ScriptConfig.defaults());
+    }
+
+    ScriptService(PublicResources resources, ScriptConfig config) {
+        this.resources = resources;
+        this.config = config;
+        this.revalidateNanos = config.revalidateMillis() < 0 ? -1 : config.revalidateMillis() * 1_000_000L;
     }
 
     public Optional<HttpResponse> tryExecute(String requestPath, HttpRequest request, Session session) {
-        if (requestPath == null || !requestPath.endsWith(".smscr")) {
+        if (requestPath == null || !requestPath.endsWith(SCRIPT_SUFFIX)) {
             return Optional.empty();
         }
 
-        Path normalizedPath = normalizeRelativePath(requestPath);
-        if (normalizedPath == null) {
+        String name = PublicResources.normalize(requestPath);
+        if (name == null) {
             return Optional.of(HttpResponse.text(HttpStatus.FORBIDDEN,
                     "Path traversal attempt was blocked."));
         }
 
-        String resourcePath = normalizedPath.toString().replace('\\', '/');
-        String fullResourceName = resourcesRoot + "/" + resourcePath;
-
-        try (InputStream in = getClass().getClassLoader().getResourceAsStream(fullResourceName)) {
-            if (in == null) {
+        try {
+            Optional<ScriptProgram> script = program(name);
+            if (script.isEmpty()) {
                 return Optional.empty();
             }
 
-            String scriptSource = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-            ScriptDocumentNode document = parser.parse(scriptSource);
+            if (config.stream() && request.method() != HttpMethod.HEAD) {
+                return Optional.of(HttpResponse.streaming(HttpStatus.OK, ScriptExecutionContext.DEFAULT_MIME_TYPE,
+                        new StreamedScript(script.get(), request.queryParameters(), session)));
+            }
 
-            ScriptExecutionContext context = new ScriptExecutionContext(request.queryParameters(), session);
-            new ScriptEngine().execute(document, context);
+            try (ScriptExecutionContext context = new ScriptExecutionContext(request.queryParameters(), session)) {
+                script.get().execute(context);
 
-            HttpResponse response = HttpResponse.status(HttpStatus.OK)
-                    .header("Content-Type", context.mimeType())
-                    .body(context.outputBytes())
-                    .build();
+                byte[] output = context.outputBytes();
+                HttpResponse response = HttpResponse.status(HttpStatus.OK)
+                        .header("Content-Type", context.mimeType())
+                        .header("ETag", ConditionalRequests.etag(output))
+                        .body(ResponseBody.of(output))
+                        .build();
 
-            return Optional.of(response);
+                return Optional.of(response);
+            }
         } catch (ScriptParseException parseException) {
             return Optional.of(HttpResponse.text(HttpStatus.BAD_REQUEST,
                     "Script parse error: " + parseException.getMessage()));
@@ -71,12 +116,162 @@ public class ScriptService {
         }
     }
 
-    private Path normalizeRelativePath(String requestPath) {
-        String relative = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
-        Path normalized = Path.of(relative).normalize();
-        if (normalized.isAbsolute() || normalized.startsWith("..")) {
-            return null;
+    /**
+     * Parses every script below the public root into the cache. Scripts with syntax errors are logged and
+     * cached as failures.
+     *
+     * @return the number of scripts that parsed successfully
+     */
+    public int precompile() throws IOException {
+        if (!config.cacheEnabled()) {
+            return 0;
+        }
+
+        int compiled = 0;
+        for (String name : resources.list(SCRIPT_SUFFIX)) {
+            Optional<PublicResources.Resource> resource = resources.find(name);
+            if (resource.isEmpty()) {
+                continue;
+            }
+            CachedScript script = load(resource.get());
+            cache.put(name, script);
+            if (script.parseError() == null) {
+                compiled++;
+            } else {
+                LOGGER.log(Level.WARNING, "Script " + name + " does not parse: " + script.parseError().getMessage());
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Script requests answered with a cached script, including ones that found the file unchanged.
+     */
+    long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Script requests that had to parse the script, because it was not cached, had changed or caching is off.
+     */
+    long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private Optional<ScriptProgram> program(String name) throws IOException {
+        if (!config.cacheEnabled()) {
+            Optional<PublicResources.Resource> resource = resources.find(name);
+            if (resource.isEmpty()) {
+                return Optional.empty();
+            }
+            cacheMisses.increment();
+            return Optional.of(interpreted(parse(resource.get())));
+        }
+
+        long now = System.nanoTime();
+        CachedScript cached = cache.get(name);
+        if (cached != null && (revalidateNanos < 0 || now - cached.validatedAt() < revalidateNanos)) {
+            cacheHits.increment();
+            return Optional.of(cached.program());
+        }
+
+        Optional<PublicResources.Resource> resource = resources.find(name);
+        if (resource.isEmpty()) {
+            cache.remove(name);
+            return Optional.empty();
+        }
+
+        boolean unchanged = cached != null && cached.resource().sameVersionAs(resource.get());
+        (unchanged ? cacheHits : cacheMisses).increment();
+        CachedScript script = unchanged ? cached.validated(now) : load(resource.get());
+        cache.put(name, script);
+        return Optional.of(script.program());
+    }
+
+    private CachedScript load(PublicResources.Resource resource) throws IOException {
+        ScriptDocumentNode document;
+        try {
+            document = parse(resource);
+        } catch (ScriptParseException exception) {
+            return new CachedScript(resource, null, exception, System.nanoTime());
+        }
+        return new CachedScript(resource, config.compile() ? compile(document) : interpreted(document), null,
+                System.nanoTime());
+    }
+
+    private ScriptProgram compile(ScriptDocumentNode document) {
+        try {
+            return compiler.compile(document);
+        } catch (ScriptCompileException exception) {
+            LOGGER.log(Level.FINE, "Interpreting script that cannot be compiled: " + exception.getMessage());
+            return interpreted(document);
+        }
+    }
+
+    private static ScriptProgram interpreted(ScriptDocumentNode document) {
+        return new ScriptResolver().resolve(document);
+    }
+
+    private ScriptDocumentNode parse(PublicResources.Resource resource) throws IOException {
+        return parser.parse(new String(resource.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs a script into the response stream. The writer holds the headers back until the first chunk, so the
+     * {@code Content-Type} can still follow {@code @setMimeType} calls made before it.
+     */
+    private static final class StreamedScript implements StreamingBody {
+
+        private final ScriptProgram program;
+        private final Map<String, List<String>> queryParameters;
+        private final Session session;
+        private ScriptExecutionContext context;
+
+        StreamedScript(ScriptProgram program, Map<String, List<String>> queryParameters, Session session) {
+            this.program = program;
+            this.queryParameters = queryParameters;
+            this.session = session;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            try (ScriptExecutionContext streamed = new ScriptExecutionContext(queryParameters, session, outputStream)) {
+                context = streamed;
+                program.execute(streamed);
+                streamed.finish();
+            } catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+        }
+
+        @Override
+        public void beforeHead(Map<String, String> headers) {
+            if (context != null) {
+                headers.put("Content-Type", context.mimeType());
+            }
+        }
+    }
+
+    /**
+     * A runnable script, or the error it failed to parse with, for one version of its resource. Parsed trees
+     * and generated classes are never modified, so concurrent requests execute the same instance.
+     */
+    private record CachedScript(
+            PublicResources.Resource resource,
+            ScriptProgram loaded,
+            ScriptParseException parseError,
+            long validatedAt
+    ) {
+
+        ScriptProgram program() {
+            if (parseError != null) {
+                throw parseError;
+            }
+            return loaded;
+        }
+
+        CachedScript validated(long now) {
+            return new CachedScript(resource, loaded, parseError, now);
         }
-        return normalized;
     }
 }
@@ -0,0 +1,133 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.metrics.Counter;
+import com.example.simplehttpserver.metrics.Histogram;
+import com.example.simplehttpserver.metrics.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The request pipeline's own metrics in a {@link MetricsRegistry}: accepted connections, rejected work, and how
+ * long parsing, routing and handling take. Handling time and bytes written are kept per route, labelled with
+ * the route's pattern rather than the request path so the number of series stays bounded; requests served
+ * without a route are labelled {@code script}, {@code static}, {@code metrics} or {@code unmatched}.
+ */
+final class ServerMetrics {
+
+    private final MetricsRegistry registry;
+    private final Counter connectionsAccepted;
+    private final Counter workerRejections;
+    private final Histogram parseDuration;
+    private final Histogram routingDuration;
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final Route scriptRoute;
+    private final Route staticRoute;
+    private final Route metricsRoute;
+    private final Route unmatchedRoute;
+
+    ServerMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.connectionsAccepted = registry.counter("http_connections_accepted_total",
+                "Client connections accepted.");
+        this.workerRejections = registry.counter("http_worker_rejections_total",
+                "Connections or requests turned away with 503 because no worker was available.");
+        this.parseDuration = registry.histogram("http_request_parse_seconds",
+                "Time spent parsing request heads and bodies.");
+        this.routingDuration = registry.histogram("http_request_routing_seconds",
+                "Time spent finding the route for a request.");
+        this.scriptRoute = route("script");
+        this.staticRoute = route("static");
+        this.metricsRoute = route("metrics");
+        this.unmatchedRoute = route("unmatched");
+    }
+
+    MetricsRegistry registry() {
+        return registry;
+    }
+
+    void connectionAccepted() {
+        connectionsAccepted.increment();
+    }
+
+    void workerRejected() {
+        workerRejections.increment();
+    }
+
+    void requestParsed(long nanos) {
+        parseDuration.record(nanos);
+    }
+
+    void requestRouted(long nanos) {
+        routingDuration.record(nanos);
+    }
+
+    /**
+     * Metrics of the route registered with {@code pattern}; its series are registered on first use.
+     */
+    Route route(String pattern) {
+        Route route = routes.get(pattern);
+        if (route != null) {
+            return route;
+        }
+        return routes.computeIfAbsent(pattern, label -> new Route(
+                registry.histogram("http_request_handler_seconds",
+                        "Time from a request being routed to its handler returning a response.", "route", label),
+                registry.counter("http_response_bytes_total",
+                        "Response bytes written, head and framing included.", "route", label)));
+    }
+
+    Route scriptRoute() {
+        return scriptRoute;
+    }
+
+    Route staticRoute() {
+        return staticRoute;
+    }
+
+    Route metricsRoute() {
+        return metricsRoute;
+    }
+
+    Route unmatchedRoute() {
+        return unmatchedRoute;
+    }
+
+    static final class Route {
+
+        private final Histogram handlerDuration;
+        private final Counter responseBytes;
+
+        private Route(Histogram handlerDuration, Counter responseBytes) {
+            this.handlerDuration = handlerDuration;
+            this.responseBytes = responseBytes;
+        }
+
+        void handled(long nanos) {
+            handlerDuration.record(nanos);
+        }
+    }
+
+    /**
+     * Carries the route of the request a connection is serving from {@link RequestProcessor} to where its
+     * response is written. Each connection keeps one and reuses it for every request.
+     */
+    static final class Exchange {
+
+        private Route route;
+
+        void route(Route route) {
+            this.route = route;
+        }
+
+        /**
+         * Counts the bytes of the response against the request's route, if it had one, and forgets the route.
+         */
+        void responseWritten(long bytes) {
+            if (route != null) {
+                route.responseBytes.add(bytes);
+                route = null;
+            }
+        }
+    }
+}
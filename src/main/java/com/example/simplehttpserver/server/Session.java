@@ -6,17 +6,31 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * In-memory HTTP session bound to a SID cookie.
+ * HTTP session bound to a SID cookie. Attributes live in memory; a {@link SessionStore} that persists them is
+ * told about every change, and the session remembers that it changed so a signed session cookie is only sent
+ * again when needed.
  */
 public final class Session {
 
     private final String id;
     private final ConcurrentHashMap<String, String> attributes = new ConcurrentHashMap<>();
-    private volatile Instant expiresAt;
+    private final SessionStore store;
+    private volatile long expiresAtMillis;
+    private volatile long storedExpiresAtMillis;
+    private volatile boolean changed;
 
     Session(String id, Instant expiresAt) {
+        this(id, expiresAt.toEpochMilli(), null);
+    }
+
+    /**
+     * @param store notified of attribute changes, or {@code null}
+     */
+    Session(String id, long expiresAtMillis, SessionStore store) {
         this.id = id;
-        this.expiresAt = expiresAt;
+        this.expiresAtMillis = expiresAtMillis;
+        this.storedExpiresAtMillis = expiresAtMillis;
+        this.store = store;
     }
 
     public String id() {
@@ -24,15 +38,30 @@ public final class Session {
     }
 
     public Instant expiresAt() {
-        return expiresAt;
+        return Instant.ofEpochMilli(expiresAtMillis);
+    }
+
+    long expiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    void touch(long newExpiryMillis) {
+        expiresAtMillis = newExpiryMillis;
+    }
+
+    boolean isExpired(long nowMillis) {
+        return expiresAtMillis < nowMillis;
     }
 
-    void touch(Instant newExpiry) {
-        expiresAt = newExpiry;
+    /**
+     * Expiry last written by a persistent store, used to skip writing small extensions.
+     */
+    long storedExpiresAtMillis() {
+        return storedExpiresAtMillis;
     }
 
-    boolean isExpired(Instant now) {
-        return expiresAt.isBefore(now);
+    void markStored(long expiresAtMillis) {
+        storedExpiresAtMillis = expiresAtMillis;
     }
 
     public Optional<String> get(String key) {
@@ -40,11 +69,41 @@ public final class Session {
     }
 
     public void put(String key, String value) {
-        attributes.put(key, value);
+        if (!value.equals(attributes.put(key, value))) {
+            changed(key, value);
+        }
     }
 
     public void remove(String key) {
-        attributes.remove(key);
+        if (attributes.remove(key) != null) {
+            changed(key, null);
+        }
+    }
+
+    /**
+     * Whether an attribute was added, replaced with a different value or removed since the session was
+     * created or read back, or {@link #markChanged()} was called.
+     */
+    boolean isChanged() {
+        return changed;
+    }
+
+    void markChanged() {
+        changed = true;
+    }
+
+    private void changed(String key, String value) {
+        changed = true;
+        if (store != null) {
+            store.attributeChanged(this, key, value);
+        }
+    }
+
+    /**
+     * Sets attributes read back by a store without reporting them as changes.
+     */
+    void restore(Map<String, String> storedAttributes) {
+        attributes.putAll(storedAttributes);
     }
 
     public Map<String, String> snapshot() {
@@ -0,0 +1,196 @@
+package com.example.simplehttpserver.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Writes a whole session (id, expiry and attributes) into a cookie value and reads it back, for sessions that
+ * are kept by the client instead of the server.
+ *
+ * <p>The value is {@code payload.signature}, both base64url. The payload starts with a format byte and is
+ * deflated when that makes a larger session shorter; the signature is an HMAC-SHA256 of the payload, so a
+ * client can read its session but not change it. Values with a wrong signature are treated as no session.
+ */
+final class SessionCookieCodec {
+
+    static final int MIN_SECRET_LENGTH = 32;
+
+    private static final Logger LOGGER = Logger.getLogger(SessionCookieCodec.class.getName());
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte PLAIN = 1;
+    private static final byte DEFLATED = 2;
+    private static final int COMPRESS_ABOVE_BYTES = 128;
+    // Browsers keep cookies of up to about 4 KB; anything much larger is not one of ours.
+    private static final int MAX_COOKIE_CHARS = 4096;
+    private static final int MAX_PAYLOAD_BYTES = 16 * 1024;
+
+    private final Mac prototype;
+
+    /**
+     * @throws IllegalArgumentException if the secret is shorter than {@value #MIN_SECRET_LENGTH} characters
+     */
+    SessionCookieCodec(String secret) {
+        if (secret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("session.cookieSecret must be at least " + MIN_SECRET_LENGTH
+                    + " characters for session.store=cookie");
+        }
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(ALGORITHM + " is not available", exception);
+        }
+    }
+
+    String encode(Session session) {
+        byte[] body = serialize(session);
+        byte[] payload = body.length > COMPRESS_ABOVE_BYTES ? deflate(body) : null;
+        if (payload == null) {
+            payload = new byte[body.length + 1];
+            payload[0] = PLAIN;
+            System.arraycopy(body, 0, payload, 1, body.length);
+        }
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String value = encoder.encodeToString(payload) + '.' + encoder.encodeToString(mac().doFinal(payload));
+        if (value.length() > MAX_COOKIE_CHARS) {
+            LOGGER.warning("Session " + session.id() + " needs a " + value.length()
+                    + " character cookie, which browsers may drop");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the session in {@code value}, or {@code null} if it is malformed or not signed with this secret.
+     * The session has no store and is not checked for expiry.
+     */
+    Session decode(String value) {
+        int separator = value.lastIndexOf('.');
+        if (separator <= 0 || value.length() > MAX_COOKIE_CHARS) {
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(value.substring(0, separator));
+            signature = decoder.decode(value.substring(separator + 1));
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+        if (payload.length < 1 || !MessageDigest.isEqual(signature, mac().doFinal(payload))) {
+            return null;
+        }
+
+        byte[] body = switch (payload[0]) {
+            case PLAIN -> Arrays.copyOfRange(payload, 1, payload.length);
+            case DEFLATED -> inflate(payload);
+            default -> null;
+        };
+        return body == null ? null : deserialize(body);
+    }
+
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException exception) {
+            throw new IllegalStateException(ALGORITHM + " cannot be cloned", exception);
+        }
+    }
+
+    private static byte[] serialize(Session session) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(session.id());
+            out.writeLong(session.expiresAtMillis());
+            Map<String, String> attributes = session.snapshot();
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                out.writeUTF(attribute.getKey());
+                out.writeUTF(attribute.getValue());
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Session " + session.id() + " is too large for a cookie", exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Session deserialize(byte[] body) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            String id = in.readUTF();
+            long expiresAtMillis = in.readLong();
+            int count = in.readInt();
+            Map<String, String> attributes = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                attributes.put(in.readUTF(), in.readUTF());
+            }
+            Session session = new Session(id, expiresAtMillis, null);
+            session.restore(attributes);
+            return session;
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the deflated body behind a {@link #DEFLATED} format byte, or {@code null} if that is not shorter.
+     */
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] payload = new byte[body.length];
+            payload[0] = DEFLATED;
+            int length = 1;
+            while (!deflater.finished() && length < payload.length) {
+                length += deflater.deflate(payload, length, payload.length - length);
+            }
+            return deflater.finished() ? Arrays.copyOf(payload, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(payload, 1, payload.length - 1);
+            ByteArrayOutputStream body = new ByteArrayOutputStream(payload.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null;
+                }
+                body.write(buffer, 0, count);
+                if (body.size() > MAX_PAYLOAD_BYTES) {
+                    return null;
+                }
+            }
+            return body.toByteArray();
+        } catch (DataFormatException exception) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+}
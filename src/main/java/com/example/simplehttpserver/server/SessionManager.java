@@ -1,63 +1,220 @@
 package com.example.simplehttpserver.server;
 
+import com.example.simplehttpserver.config.SessionConfig;
 import com.example.simplehttpserver.http.HttpRequest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.security.SecureRandom;
-import java.time.Instant;
 import java.util.Base64;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 /**
- * Manages in-memory sessions and session cookie generation.
+ * Manages sessions and session cookie generation.
+ *
+ * <p>Sessions live in a {@link SessionStore}: an {@link InMemorySessionStore}, sharded by id, or a
+ * {@link FileSessionStore} that also logs them to disk, chosen by {@code session.store}. Expiry times are plain
+ * epoch milliseconds. A background task passes the store's timing wheel once per tick, so expiring sessions
+ * costs time in proportion to the sessions that expire, not to all sessions. A request for an expired session
+ * that the wheel has not reached yet still gets a new session.
+ *
+ * <p>With {@code session.store=cookie} there is no store and no background task: the {@code SID} cookie holds
+ * the whole session, signed by {@link SessionCookieCodec}, and {@link #setCookieHeader(SessionResolution)}
+ * sends it back only when the session is new, changed, or due for a later expiry.
  */
 public final class SessionManager implements AutoCloseable {
 
+    private static final int SHARDS = 64;
+    private static final String COOKIE_NAME = "SID";
+
     private final SecureRandom secureRandom = new SecureRandom();
-    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
-    private final int timeoutSeconds;
+    private final ScheduledExecutorService cleanupExecutor;
+    private final SessionStore store;
+    private final SessionCookieCodec cookieCodec;
+    private final LongAdder cookieSessionsCreated = new LongAdder();
+    private final LongSupplier clock;
+    private final long timeoutMillis;
 
     public SessionManager(int timeoutSeconds) {
-        this.timeoutSeconds = timeoutSeconds;
-        cleanupExecutor.scheduleAtFixedRate(this::removeExpiredSessions, timeoutSeconds, timeoutSeconds, TimeUnit.SECONDS);
+        this(timeoutSeconds, SessionConfig.defaults());
+    }
+
+    /**
+     * @throws UncheckedIOException if the file store cannot read or create its log
+     * @throws IllegalArgumentException if signed cookies are configured with a secret that is too short
+     */
+    public SessionManager(int timeoutSeconds, SessionConfig config) {
+        this(timeoutSeconds, config, System::currentTimeMillis, true);
+    }
+
+    SessionManager(int timeoutSeconds, LongSupplier clock, boolean scheduleCleanup) {
+        this(timeoutSeconds, SessionConfig.defaults(), clock, scheduleCleanup);
+    }
+
+    /**
+     * @param clock current time in epoch milliseconds
+     * @param scheduleCleanup whether expired sessions are removed in the background; otherwise only
+     *                        {@link #expireSessions()} removes them
+     */
+    SessionManager(int timeoutSeconds, SessionConfig config, LongSupplier clock, boolean scheduleCleanup) {
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.clock = clock;
+        this.store = openStore(timeoutMillis, config, clock.getAsLong());
+        this.cookieCodec = store == null ? new SessionCookieCodec(config.cookieSecret()) : null;
+        if (scheduleCleanup && store != null) {
+            cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
+            cleanupExecutor.scheduleAtFixedRate(this::expireSessions, store.expiryIntervalMillis(),
+                    store.expiryIntervalMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            cleanupExecutor = null;
+        }
     }
 
     public SessionResolution resolve(HttpRequest request) {
-        Instant now = Instant.now();
-        String sessionId = findSessionId(request).orElse(null);
+        long now = clock.getAsLong();
+        String sessionId = findSessionCookie(request);
+        if (cookieCodec != null) {
+            return resolveSignedCookie(sessionId, now);
+        }
 
         if (sessionId != null) {
-            Session existingSession = sessions.get(sessionId);
-            if (existingSession != null && !existingSession.isExpired(now)) {
-                existingSession.touch(now.plusSeconds(timeoutSeconds));
+            Session existingSession = store.touch(sessionId, now, now + timeoutMillis);
+            if (existingSession != null) {
                 return new SessionResolution(existingSession, Optional.empty());
             }
-            sessions.remove(sessionId);
         }
 
-        Session newSession = new Session(generateSessionId(), now.plusSeconds(timeoutSeconds));
-        sessions.put(newSession.id(), newSession);
-        String setCookieHeader = "SID=" + newSession.id() + "; Path=/; HttpOnly";
-        return new SessionResolution(newSession, Optional.of(setCookieHeader));
+        Session newSession = new Session(generateSessionId(), now + timeoutMillis, store);
+        store.add(newSession);
+        return new SessionResolution(newSession, Optional.of(cookieHeader(newSession.id())));
+    }
+
+    /**
+     * The {@code Set-Cookie} header to send once the request has been handled. With signed cookies it carries
+     * the session as it is at that moment and is only sent for a session that is new, changed or due for a
+     * later expiry; otherwise it is the header decided by {@link #resolve(HttpRequest)}.
+     */
+    public Optional<String> setCookieHeader(SessionResolution resolution) {
+        Session session = resolution.session();
+        if (cookieCodec == null || !session.isChanged()) {
+            return resolution.setCookieHeader();
+        }
+        return Optional.of(cookieHeader(cookieCodec.encode(session)));
     }
 
-    private Optional<String> findSessionId(HttpRequest request) {
-        return request.firstHeader("Cookie")
-                .flatMap(cookieHeader -> {
-                    String[] cookieParts = cookieHeader.split(";");
-                    for (String part : cookieParts) {
-                        String trimmed = part.trim();
-                        if (trimmed.startsWith("SID=")) {
-                            return Optional.of(trimmed.substring("SID=".length()));
-                        }
-                    }
-                    return Optional.empty();
-                });
+    /**
+     * Whether sessions travel in signed cookies, so the session cookie is only known after the response body
+     * has been generated.
+     */
+    public boolean signedCookies() {
+        return cookieCodec != null;
+    }
+
+    /**
+     * A session read from a valid cookie is used as it is. It is sent again only if it changes, or once less
+     * than half the timeout is left, so sliding expiry costs one cookie per half timeout instead of one per
+     * response.
+     */
+    private SessionResolution resolveSignedCookie(String value, long now) {
+        Session session = value == null ? null : cookieCodec.decode(value);
+        if (session == null || session.isExpired(now)) {
+            session = new Session(generateSessionId(), now + timeoutMillis, null);
+            session.markChanged();
+            cookieSessionsCreated.increment();
+        } else if (session.expiresAtMillis() - now < timeoutMillis / 2) {
+            session.touch(now + timeoutMillis);
+            session.markChanged();
+        }
+        return new SessionResolution(session, Optional.empty());
+    }
+
+    /**
+     * Opens the configured store, or returns {@code null} for signed cookie sessions.
+     */
+    private static SessionStore openStore(long timeoutMillis, SessionConfig config, long now) {
+        return switch (config.store()) {
+            case MEMORY -> new InMemorySessionStore(timeoutMillis, SHARDS, now);
+            case FILE -> {
+                try {
+                    yield new FileSessionStore(Path.of(config.storeFile()), timeoutMillis, SHARDS,
+                            config.flushIntervalMillis(), now);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException("Unable to open session store " + config.storeFile(), exception);
+                }
+            }
+            case COOKIE -> null;
+        };
+    }
+
+    /**
+     * Current number of sessions and how many were created and expired since start. Expired sessions count
+     * once they are removed, which may be up to one wheel tick after they expire. With signed cookies the
+     * server holds no sessions and only counts the ones it created.
+     */
+    public SessionStats stats() {
+        return new SessionStats(activeSessions(), sessionsCreated(), sessionsExpired());
+    }
+
+    /**
+     * {@link SessionStats#active()} without building the record, for reading on every metrics scrape.
+     */
+    public int activeSessions() {
+        return store == null ? 0 : store.size();
+    }
+
+    public long sessionsCreated() {
+        return store == null ? cookieSessionsCreated.sum() : store.createdCount();
+    }
+
+    public long sessionsExpired() {
+        return store == null ? 0 : store.expiredCount();
+    }
+
+    /**
+     * Removes sessions whose expiry has passed; called by the background task once per wheel tick.
+     */
+    void expireSessions() {
+        if (store != null) {
+            store.expire(clock.getAsLong());
+        }
+    }
+
+    /**
+     * Finds the {@code SID} cookie value without splitting the header or allocating anything but the result.
+     */
+    private String findSessionCookie(HttpRequest request) {
+        String cookieHeader = request.firstHeader("Cookie").orElse(null);
+        if (cookieHeader == null) {
+            return null;
+        }
+
+        int length = cookieHeader.length();
+        int position = 0;
+        while (position < length) {
+            while (position < length && (cookieHeader.charAt(position) == ' '
+                    || cookieHeader.charAt(position) == '\t')) {
+                position++;
+            }
+            int end = cookieHeader.indexOf(';', position);
+            if (end < 0) {
+                end = length;
+            }
+            if (cookieHeader.startsWith(COOKIE_NAME + "=", position)) {
+                return cookieHeader.substring(position + COOKIE_NAME.length() + 1, end).trim();
+            }
+            position = end + 1;
+        }
+        return null;
+    }
+
+    private static String cookieHeader(String value) {
+        return COOKIE_NAME + "=" + value + "; Path=/; HttpOnly";
     }
 
     private String generateSessionId() {
@@ -66,17 +223,24 @@ public final class SessionManager implements AutoCloseable {
         return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
     }
 
-    private void removeExpiredSessions() {
-        Instant now = Instant.now();
-        sessions.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
-    }
-
     @Override
     public void close() {
-        cleanupExecutor.shutdownNow();
-        sessions.clear();
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+        }
+        if (store != null) {
+            store.close();
+        }
     }
 
     public record SessionResolution(Session session, Optional<String> setCookieHeader) {
     }
+
+    /**
+     * @param active sessions currently held
+     * @param created sessions created since start
+     * @param expired sessions removed because they expired
+     */
+    public record SessionStats(int active, long created, long expired) {
+    }
 }
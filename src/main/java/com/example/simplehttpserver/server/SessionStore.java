@@ -0,0 +1,47 @@
+package com.example.simplehttpserver.server;
+
+/**
+ * Where {@link SessionManager} keeps sessions.
+ *
+ * <p>The manager reads the clock, creates sessions and decides their expiry; a store holds them, finds them by
+ * id and removes expired ones. Implementations live in this package because sessions are created here:
+ * {@link InMemorySessionStore} is the default, {@link FileSessionStore} also persists sessions across restarts.
+ * All methods may be called concurrently.
+ */
+interface SessionStore extends AutoCloseable {
+
+    /**
+     * Returns the live session with this id, extending it to {@code newExpiryMillis}, or {@code null} if there
+     * is none or it expired before {@code nowMillis}.
+     */
+    Session touch(String id, long nowMillis, long newExpiryMillis);
+
+    /**
+     * Adds a session created by the manager. The session reports attribute changes through
+     * {@link #attributeChanged}.
+     */
+    void add(Session session);
+
+    /**
+     * Removes sessions that expired before {@code nowMillis}. Called every {@link #expiryIntervalMillis()}.
+     */
+    void expire(long nowMillis);
+
+    long expiryIntervalMillis();
+
+    /**
+     * Called after {@link Session#put} or {@link Session#remove} ({@code value} is {@code null}) changed a
+     * session held by this store.
+     */
+    default void attributeChanged(Session session, String key, String value) {
+    }
+
+    int size();
+
+    long createdCount();
+
+    long expiredCount();
+
+    @Override
+    void close();
+}
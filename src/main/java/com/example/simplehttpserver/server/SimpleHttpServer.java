@@ -1,11 +1,14 @@
 package com.example.simplehttpserver.server;
 
+import com.example.simplehttpserver.config.ExecutionMode;
+import com.example.simplehttpserver.config.IoModel;
 import com.example.simplehttpserver.config.ServerConfig;
 import com.example.simplehttpserver.http.HttpMethod;
 import com.example.simplehttpserver.http.HttpRequestParser;
 import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.http.HttpResponseWriter;
 import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.metrics.MetricsRegistry;
 import com.example.simplehttpserver.routing.Router;
 
 import java.io.IOException;
@@ -13,8 +16,14 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -23,38 +32,59 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Core server class: owns the accept loop and delegates each client socket to a worker pool.
+ * Core server class: owns the accept loop and delegates client sockets either to workers
+ * (blocking I/O) or to selector event loops that dispatch complete requests to workers (NIO).
+ * Workers are a bounded platform thread pool or virtual threads behind a concurrency limit.
+ * The server's metrics are kept in {@link #metrics()}, where applications can register their own.
  */
 public final class SimpleHttpServer implements AutoCloseable {
 
     private static final Logger LOGGER = Logger.getLogger(SimpleHttpServer.class.getName());
+    private static final int ACCEPT_BACKLOG = 1024;
 
     private final ServerConfig config;
-    private final Router router;
     private final HttpRequestParser requestParser = new HttpRequestParser();
     private final HttpResponseWriter responseWriter = new HttpResponseWriter();
     private final SessionManager sessionManager;
-    private final StaticFileService staticFileService;
-    private final ScriptService scriptService;
-    private final ThreadPoolExecutor workerPool;
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private final ServerMetrics metrics = new ServerMetrics(metricsRegistry);
+    private final AccessLog accessLog;
+    private final RequestProcessor requestProcessor;
+    private final ExecutorService workerPool;
+    private final ConnectionRegistry connectionRegistry = new ConnectionRegistry();
+    private final List<NioEventLoop> eventLoops = new ArrayList<>();
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
     private Thread acceptThread;
 
     public SimpleHttpServer(ServerConfig config, Router router) {
+        if (config.metricsEnabled() && !router.allowedMethods(config.metricsPath()).isEmpty()) {
+            throw new IllegalArgumentException("Metrics path " + config.metricsPath() + " is already used by a route");
+        }
         this.config = config;
-        this.router = router;
-        this.sessionManager = new SessionManager(config.sessionTimeoutSeconds());
-        this.staticFileService = new StaticFileService(config.publicResourcesRoot(), config.mimeTypes());
-        this.scriptService = new ScriptService(config.publicResourcesRoot());
-        this.workerPool = new ThreadPoolExecutor(
-                config.workerThreads(),
-                config.workerThreads(),
-                0L,
-                TimeUnit.MILLISECONDS,
-                new ArrayBlockingQueue<>(config.queueCapacity())
-        );
+        this.sessionManager = new SessionManager(config.sessionTimeoutSeconds(), config.sessions());
+        PublicResources publicResources = PublicResources.from(config.publicResourcesRoot(), config.staticFiles());
+        ResponseCompressor compressor = new ResponseCompressor(config.compression());
+        StaticFileService staticFileService =
+                new StaticFileService(publicResources, config.staticFiles(), compressor, config.mimeTypes());
+        ScriptService scriptService = new ScriptService(publicResources, config.scripts());
+        if (config.scripts().precompile()) {
+            precompile(scriptService);
+        }
+        this.accessLog = new AccessLog(config.accessLog());
+        this.requestProcessor = new RequestProcessor(
+                config, router, sessionManager, staticFileService, scriptService, compressor, metrics, accessLog);
+        this.workerPool = createWorkerPool(config);
+        registerMetrics(scriptService);
+    }
+
+    /**
+     * Metrics of this server, served in the Prometheus text format on the configured metrics path.
+     */
+    public MetricsRegistry metrics() {
+        return metricsRegistry;
     }
 
     public synchronized void start() throws IOException {
@@ -62,14 +92,25 @@ public final class SimpleHttpServer implements AutoCloseable {
             return;
         }
 
-        serverSocket = new ServerSocket();
-        serverSocket.bind(new InetSocketAddress(config.host(), config.port()));
+        InetSocketAddress address = new InetSocketAddress(config.host(), config.port());
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, ACCEPT_BACKLOG);
+        serverSocket = serverChannel.socket();
+        Runnable acceptLoop;
+        if (config.ioModel() == IoModel.NIO) {
+            startEventLoops();
+            acceptLoop = this::nioAcceptLoop;
+        } else {
+            acceptLoop = this::acceptLoop;
+        }
         running.set(true);
 
-        acceptThread = new Thread(this::acceptLoop, "simple-http-server-accept");
+        acceptThread = new Thread(acceptLoop, "simple-http-server-accept");
         acceptThread.start();
 
-        LOGGER.info(() -> "Server listening on " + config.host() + ":" + getBoundPort());
+        LOGGER.info(() -> "Server listening on " + config.host() + ":" + getBoundPort()
+                + " (" + config.ioModel().name().toLowerCase(Locale.ROOT) + " I/O, "
+                + config.executionMode().name().toLowerCase(Locale.ROOT) + " threads)");
     }
 
     public synchronized void stop() {
@@ -95,6 +136,8 @@ public final class SimpleHttpServer implements AutoCloseable {
             }
         }
 
+        connectionRegistry.shutdown();
+        eventLoops.forEach(NioEventLoop::shutdown);
         workerPool.shutdown();
         try {
             if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -104,8 +147,10 @@ public final class SimpleHttpServer implements AutoCloseable {
             Thread.currentThread().interrupt();
             workerPool.shutdownNow();
         }
+        eventLoops.forEach(NioEventLoop::close);
 
         sessionManager.close();
+        accessLog.close();
         LOGGER.info("Server stopped.");
     }
 
@@ -116,28 +161,112 @@ public final class SimpleHttpServer implements AutoCloseable {
         return serverSocket.getLocalPort();
     }
 
+    /**
+     * Serves every request on an already connected socket on the calling thread, as a worker would with the
+     * blocking I/O model, and closes the socket afterwards. The server does not have to be started, so the
+     * whole request pipeline can be driven over in-memory sockets.
+     */
+    public void serve(Socket socket) {
+        new ConnectionHandler(socket, config, requestParser, responseWriter, requestProcessor, connectionRegistry)
+                .run();
+    }
+
+    private static ExecutorService createWorkerPool(ServerConfig config) {
+        if (config.executionMode() == ExecutionMode.VIRTUAL) {
+            return new VirtualThreadExecutor("simple-http-server-virtual-", config.maxConcurrency());
+        }
+        return new ThreadPoolExecutor(
+                config.workerThreads(),
+                config.workerThreads(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity())
+        );
+    }
+
+    private void registerMetrics(ScriptService scriptService) {
+        if (workerPool instanceof ThreadPoolExecutor pool) {
+            metricsRegistry.gauge("http_worker_queue_depth",
+                    "Connections (blocking I/O) or requests (NIO) waiting for a worker thread.",
+                    () -> pool.getQueue().size());
+        } else if (workerPool instanceof VirtualThreadExecutor executor) {
+            metricsRegistry.gauge("http_worker_tasks_active", "Tasks running on virtual threads.",
+                    executor::activeCount);
+        }
+        metricsRegistry.gauge("http_sessions_active", "Sessions currently held by the server.",
+                sessionManager::activeSessions);
+        metricsRegistry.counter("http_sessions_created_total", "Sessions created.", sessionManager::sessionsCreated);
+        metricsRegistry.counter("http_sessions_expired_total", "Sessions removed because they expired.",
+                sessionManager::sessionsExpired);
+        metricsRegistry.counter("script_cache_hits_total", "Script requests served from the script cache.",
+                scriptService::cacheHits);
+        metricsRegistry.counter("script_cache_misses_total", "Script requests that parsed the script.",
+                scriptService::cacheMisses);
+        metricsRegistry.counter("http_access_log_dropped_total",
+                "Access log records dropped because the writer fell behind.", accessLog::dropped);
+    }
+
+    private static void precompile(ScriptService scriptService) {
+        try {
+            int compiled = scriptService.precompile();
+            LOGGER.info(() -> "Precompiled " + compiled + " scripts.");
+        } catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Unable to list scripts for precompilation", exception);
+        }
+    }
+
+    private void startEventLoops() throws IOException {
+        for (int i = 0; i < config.eventLoopThreads(); i++) {
+            NioEventLoop eventLoop = new NioEventLoop(
+                    "simple-http-server-event-loop-" + i,
+                    config,
+                    requestParser,
+                    responseWriter,
+                    requestProcessor,
+                    workerPool
+            );
+            eventLoops.add(eventLoop);
+            eventLoop.start();
+        }
+    }
+
     private void acceptLoop() {
         while (running.get()) {
             try {
-                Socket socket = serverSocket.accept();
+                // Accepting through the channel keeps a SocketChannel behind the socket for zero-copy file writes.
+                Socket socket = serverChannel.accept().socket();
+                metrics.connectionAccepted();
+                socket.setTcpNoDelay(true);
                 try {
                     workerPool.execute(new ConnectionHandler(
                             socket,
                             config,
                             requestParser,
                             responseWriter,
-                            router,
-                            sessionManager,
-                            staticFileService,
-                            scriptService
+                            requestProcessor,
+                            connectionRegistry
                     ));
                 } catch (RejectedExecutionException rejectedExecutionException) {
+                    metrics.workerRejected();
                     writeBusyResponseAndClose(socket);
                 }
-            } catch (SocketException socketException) {
+            } catch (IOException ioException) {
                 if (running.get()) {
-                    LOGGER.log(Level.WARNING, "Socket exception in accept loop", socketException);
+                    LOGGER.log(Level.WARNING, "I/O exception in accept loop", ioException);
                 }
+            }
+        }
+    }
+
+    private void nioAcceptLoop() {
+        int nextLoop = 0;
+        while (running.get()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                metrics.connectionAccepted();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                eventLoops.get(nextLoop).register(channel);
+                nextLoop = (nextLoop + 1) % eventLoops.size();
             } catch (IOException ioException) {
                 if (running.get()) {
                     LOGGER.log(Level.WARNING, "I/O exception in accept loop", ioException);
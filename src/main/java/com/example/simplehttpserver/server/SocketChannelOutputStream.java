@@ -0,0 +1,57 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.http.FileRegionSink;
+import com.example.simplehttpserver.http.GatheringSink;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Output of a blocking connection. Ordinary bytes go through the socket stream, while file regions are sent
+ * with {@link FileChannel#transferTo} straight to the socket channel, so the file content never enters the heap.
+ * A response head and its in-memory body leave in one gathering write on the channel.
+ */
+final class SocketChannelOutputStream extends FilterOutputStream implements FileRegionSink, GatheringSink {
+
+    private final SocketChannel channel;
+
+    SocketChannelOutputStream(SocketChannel channel, OutputStream socketOutput) {
+        super(socketOutput);
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void writeGathered(ByteBuffer... buffers) throws IOException {
+        out.flush();
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    @Override
+    public void transferFile(FileChannel file, long position, long count) throws IOException {
+        try (file) {
+            long end = position + count;
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, channel);
+                if (transferred <= 0 && position >= file.size()) {
+                    throw new IOException("File ended before the response region was sent.");
+                }
+                position += transferred;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.http.ContentCoding;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of complete static file responses, bounded by the total size of the cached bodies and evicting the least
+ * recently used files first. Entries hold the response ready to send, plus its compressed variants once they have
+ * been requested, so a hit costs a map lookup and no file system access until the entry is due for revalidation.
+ *
+ * <p>A hit takes no lock: it reads a {@link ConcurrentHashMap} and stamps the entry with the time of use. Adding
+ * and removing entries, which keeps the size total, and eviction by those stamps happen under a separate lock.
+ */
+final class StaticFileCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long revalidateNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long totalBytes;
+
+    StaticFileCache(long maxBytes, long maxEntryBytes, long revalidateMillis) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.revalidateNanos = revalidateMillis < 0 ? -1 : revalidateMillis * 1_000_000L;
+    }
+
+    boolean admits(long length) {
+        return length >= 0 && length <= maxEntryBytes && length <= Integer.MAX_VALUE;
+    }
+
+    Entry get(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            entry.accessedAt = System.nanoTime();
+        }
+        return entry;
+    }
+
+    void put(String name, Entry entry) {
+        if (!admits(entry.weight)) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.put(name, entry);
+            long total = totalBytes + entry.weight;
+            totalBytes = previous == null ? total : total - previous.weight;
+            evictOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Attaches an encoded variant to {@code entry}. Only the first variant per coding is kept, and in-memory
+     * variant bodies count towards the size limit.
+     */
+    void putVariant(String name, Entry entry, ContentCoding coding, HttpResponse variant) {
+        lock.lock();
+        try {
+            if (!entry.variants.compareAndSet(coding.ordinal(), null, variant) || entries.get(name) != entry) {
+                return;
+            }
+            if (variant.responseBody() instanceof ResponseBody.Bytes bytes
+                    && variant.responseBody() != entry.response.responseBody()) {
+                entry.weight += bytes.count();
+                totalBytes += bytes.count();
+                evictOverflow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(String name, Entry entry) {
+        lock.lock();
+        try {
+            if (entries.remove(name, entry)) {
+                totalBytes -= entry.weight;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    Entry newEntry(HttpResponse response, PublicResources.Resource resource) {
+        return new Entry(response, resource, System.nanoTime());
+    }
+
+    /**
+     * Removes the entries used longest ago until the cache fits. Called with the lock held, so no entry is added
+     * or removed meanwhile; hits may still restamp entries, which at worst evicts one that was just used.
+     */
+    private void evictOverflow() {
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        // The stamps are copied first: hits keep changing them, and sorting needs values that hold still.
+        List<Candidate> byAccess = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            byAccess.add(new Candidate(cached.getKey(), cached.getValue(), cached.getValue().accessedAt));
+        }
+        byAccess.sort(Comparator.comparingLong(Candidate::accessedAt));
+        for (int i = 0; i < byAccess.size() && totalBytes > maxBytes; i++) {
+            Candidate eldest = byAccess.get(i);
+            if (entries.remove(eldest.name(), eldest.entry())) {
+                totalBytes -= eldest.entry().weight;
+            }
+        }
+    }
+
+    private record Candidate(String name, Entry entry, long accessedAt) {
+    }
+
+    /**
+     * A cached response together with the file version it was built from.
+     */
+    final class Entry {
+
+        private final HttpResponse response;
+        private final PublicResources.Resource resource;
+        private final AtomicReferenceArray<HttpResponse> variants =
+                new AtomicReferenceArray<>(ContentCoding.values().length);
+        private volatile long validatedAt;
+        private volatile long accessedAt;
+        /** Guarded by the cache's lock. */
+        private long weight;
+
+        private Entry(HttpResponse response, PublicResources.Resource resource, long validatedAt) {
+            this.response = response;
+            this.resource = resource;
+            this.validatedAt = validatedAt;
+            this.accessedAt = validatedAt;
+            this.weight = resource.length();
+        }
+
+        HttpResponse response() {
+            return response;
+        }
+
+        /**
+         * The response encoded with {@code coding}, or {@code null} if it has not been produced yet.
+         */
+        HttpResponse variant(ContentCoding coding) {
+            return variants.get(coding.ordinal());
+        }
+
+        PublicResources.Resource resource() {
+            return resource;
+        }
+
+        boolean needsRevalidation(long now) {
+            return revalidateNanos >= 0 && now - validatedAt >= revalidateNanos;
+        }
+
+        void markValidated(long now) {
+            validatedAt = now;
+        }
+    }
+}
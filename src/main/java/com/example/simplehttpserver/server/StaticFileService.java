@@ -1,61 +1,212 @@
 package com.example.simplehttpserver.server;
 
+import com.example.simplehttpserver.config.CompressionConfig;
+import com.example.simplehttpserver.config.StaticFileConfig;
+import com.example.simplehttpserver.http.ConditionalRequests;
+import com.example.simplehttpserver.http.ContentCoding;
 import com.example.simplehttpserver.http.HttpResponse;
 import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Path;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
 /**
- * Serves static files from a classpath resource root, with path traversal protection.
+ * Serves static files from the public root (a classpath root or a filesystem document root), with path
+ * traversal protection. Responses carry {@code ETag} and {@code Last-Modified} validators, and small files are
+ * kept in a {@link StaticFileCache} as ready-built responses together with their compressed variants.
  */
 public class StaticFileService {
 
-    private final String resourcesRoot;
+    private final PublicResources resources;
     private final Map<String, String> mimeTypes;
+    private final ResponseCompressor compressor;
+    private final StaticFileCache cache;
 
     public StaticFileService(String resourcesRoot, Map<String, String> mimeTypes) {
-        this.resourcesRoot = resourcesRoot;
+        this(PublicResources.classpath(resourcesRoot), StaticFileConfig.defaults(),
+                new ResponseCompressor(CompressionConfig.defaults()), mimeTypes);
+    }
+
+    StaticFileService(
+            PublicResources resources,
+            StaticFileConfig config,
+            ResponseCompressor compressor,
+            Map<String, String> mimeTypes
+    ) {
+        this.resources = resources;
         this.mimeTypes = mimeTypes;
+        this.compressor = compressor;
+        this.cache = config.cacheEnabled()
+                ? new StaticFileCache(config.cacheMaxBytes(), config.cacheMaxFileBytes(), config.revalidateMillis())
+                : null;
     }
 
     public Optional<HttpResponse> tryServe(String requestPath) {
+        return tryServe(requestPath, ContentCoding.IDENTITY);
+    }
+
+    /**
+     * @param coding content coding negotiated from the request's {@code Accept-Encoding} header
+     */
+    public Optional<HttpResponse> tryServe(String requestPath, ContentCoding coding) {
         String path = requestPath;
         if (path == null || path.isBlank() || "/".equals(path)) {
             path = "/index.html";
         }
 
-        String relativePath = path.startsWith("/") ? path.substring(1) : path;
-        Path normalizedPath = Path.of(relativePath).normalize();
-
-        if (normalizedPath.isAbsolute() || normalizedPath.startsWith("..")) {
+        String name = PublicResources.normalize(path);
+        if (name == null) {
             return Optional.of(HttpResponse.text(HttpStatus.FORBIDDEN,
                     "Path traversal attempt was blocked."));
         }
 
-        String normalizedResource = normalizedPath.toString().replace('\\', '/');
-        String fullResourceName = resourcesRoot + "/" + normalizedResource;
+        try {
+            if (cache == null) {
+                Optional<PublicResources.Resource> found = resources.find(name);
+                if (found.isEmpty()) {
+                    return Optional.empty();
+                }
+                return Optional.of(serveFromDisk(name, found.get(), coding));
+            }
+            return serveCached(name, coding);
+        } catch (IOException exception) {
+            return Optional.of(HttpResponse.text(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Unable to read static resource."));
+        }
+    }
 
-        try (InputStream in = getClass().getClassLoader().getResourceAsStream(fullResourceName)) {
-            if (in == null) {
-                return Optional.empty();
+    /**
+     * A fresh cache hit is answered without touching the file system. Once the revalidation interval has
+     * passed, the file's size and modification time are compared with the cached version and the content is
+     * reloaded only if either changed.
+     */
+    private Optional<HttpResponse> serveCached(String name, ContentCoding coding) throws IOException {
+        StaticFileCache.Entry entry = cache.get(name);
+        long now = System.nanoTime();
+        if (entry != null && !entry.needsRevalidation(now)) {
+            return Optional.of(encoded(name, entry, coding));
+        }
+
+        Optional<PublicResources.Resource> found = resources.find(name);
+        if (found.isEmpty()) {
+            if (entry != null) {
+                cache.remove(name, entry);
+            }
+            return Optional.empty();
+        }
+
+        PublicResources.Resource resource = found.get();
+        if (entry != null) {
+            if (entry.resource().sameVersionAs(resource)) {
+                entry.markValidated(now);
+                return Optional.of(encoded(name, entry, coding));
             }
+            cache.remove(name, entry);
+        }
 
-            byte[] content = in.readAllBytes();
-            String contentType = contentTypeFromPath(normalizedResource);
+        if (!cache.admits(resource.length())) {
+            return Optional.of(serveFromDisk(name, resource, coding));
+        }
 
+        byte[] content = resource.readAllBytes();
+        if (content.length != resource.length()) {
+            // The file changed while it was read; serve what was read without validators or caching.
             return Optional.of(HttpResponse.status(HttpStatus.OK)
-                    .header("Content-Type", contentType)
-                    .body(content)
+                    .header("Content-Type", contentTypeFromPath(name))
+                    .body(ResponseBody.of(content))
                     .build());
-        } catch (IOException exception) {
-            return Optional.of(HttpResponse.text(HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Unable to read static resource."));
         }
+
+        HttpResponse response = response(name, resource, ResponseBody.of(content))
+                .withHeader("Content-Length", Integer.toString(content.length));
+        entry = cache.newEntry(response, resource);
+        cache.put(name, entry);
+        return Optional.of(encoded(name, entry, coding));
+    }
+
+    /**
+     * Returns the cached variant for {@code coding}, producing it on first use: a {@code .gz} sibling for gzip
+     * if one exists, otherwise the cached content compressed once. Variants too small to compress are
+     * remembered as the plain response.
+     */
+    private HttpResponse encoded(String name, StaticFileCache.Entry entry, ContentCoding coding) throws IOException {
+        HttpResponse response = entry.response();
+        if (coding == ContentCoding.IDENTITY || !compressor.compressible(response.headers().get("Content-Type"))) {
+            return response;
+        }
+
+        HttpResponse variant = entry.variant(coding);
+        if (variant == null) {
+            variant = precompressed(name, response, coding, true);
+            if (variant == null) {
+                variant = compressor.compress(response, coding);
+            }
+            cache.putVariant(name, entry, coding, variant);
+        }
+        return variant;
+    }
+
+    /**
+     * Files that are not cached keep their zero-copy path; only a precompressed sibling replaces them.
+     */
+    private HttpResponse serveFromDisk(String name, PublicResources.Resource resource, ContentCoding coding)
+            throws IOException {
+        HttpResponse response = response(name, resource, resource.body());
+        HttpResponse variant = precompressed(name, response, coding, false);
+        return variant != null ? variant : response;
+    }
+
+    /**
+     * Looks for {@code <name>.gz} next to a compressible file when the client accepts gzip.
+     *
+     * @param inMemory whether a sibling small enough for the cache is read into memory
+     * @return the sibling as a gzip-encoded variant of {@code response}, or {@code null}
+     */
+    private HttpResponse precompressed(String name, HttpResponse response, ContentCoding coding, boolean inMemory)
+            throws IOException {
+        if (coding != ContentCoding.GZIP || !compressor.compressible(response.headers().get("Content-Type"))) {
+            return null;
+        }
+        Optional<PublicResources.Resource> found = resources.find(name + ".gz");
+        if (found.isEmpty()) {
+            return null;
+        }
+
+        PublicResources.Resource sibling = found.get();
+        ResponseBody body = inMemory && cache.admits(sibling.length())
+                ? ResponseBody.of(sibling.readAllBytes())
+                : sibling.body();
+        HttpResponse variant = response.withBody(body).withHeader("Content-Encoding", coding.token());
+        if (sibling.lastModified() > 0 && sibling.length() >= 0) {
+            variant = variant.withHeader("ETag", ResponseCompressor.variantTag(
+                    ConditionalRequests.etag(sibling.lastModified(), sibling.length()), coding));
+        }
+        return variant;
+    }
+
+    /**
+     * Validators are derived from the file's modification time and size, so they cost no extra I/O and are
+     * stored with the cached response. Byte ranges are offered for every body that can be sliced without
+     * copying; JAR entries are streamed and always sent whole.
+     */
+    private HttpResponse response(String name, PublicResources.Resource resource, ResponseBody body) {
+        String contentType = contentTypeFromPath(name);
+        HttpResponse.Builder builder = HttpResponse.status(HttpStatus.OK)
+                .header("Content-Type", contentType);
+        if (resource.lastModified() > 0 && resource.length() >= 0) {
+            builder.header("ETag", ConditionalRequests.etag(resource.lastModified(), resource.length()))
+                    .header("Last-Modified", ConditionalRequests.httpDate(resource.lastModified()));
+        }
+        if (compressor.compressible(contentType)) {
+            builder.header("Vary", "Accept-Encoding");
+        }
+        if (!(body instanceof ResponseBody.Stream)) {
+            builder.header("Accept-Ranges", "bytes");
+        }
+        return builder.body(body).build();
     }
 
     private String contentTypeFromPath(String path) {
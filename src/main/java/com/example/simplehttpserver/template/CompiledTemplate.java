@@ -0,0 +1,319 @@
+package com.example.simplehttpserver.template;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template compiled by {@link TemplateCompiler}: UTF-8 encoded literal segments, placeholders and sections,
+ * with partials already inlined.
+ *
+ * <p>The model is a map whose values may be strings, numbers, booleans, lists, arrays, nested maps or records.
+ * A name is looked up in the innermost section element first and then outwards to the model. A dotted name is
+ * first tried as a key of its own, as flat models use keys like {@code user.id}; otherwise its first part is
+ * looked up and the rest read as map keys or record components.
+ *
+ * <p>Instances are immutable and can be rendered by many threads at once.
+ */
+public final class CompiledTemplate {
+
+    private static final int STREAM_BUFFER_BYTES = 4096;
+    private static final Object MISSING = new Object();
+    private static final ClassValue<Map<String, Method>> RECORD_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            Map<String, Method> accessors = new HashMap<>();
+            for (RecordComponent component : type.getRecordComponents()) {
+                Method accessor = component.getAccessor();
+                accessor.trySetAccessible();
+                accessors.put(component.getName(), accessor);
+            }
+            return accessors;
+        }
+    };
+
+    private final Node[] nodes;
+    private final int literalBytes;
+    private final int placeholderCount;
+
+    CompiledTemplate(List<Node> nodes) {
+        this.nodes = nodes.toArray(Node[]::new);
+        this.literalBytes = literalBytes(this.nodes);
+        this.placeholderCount = placeholderCount(this.nodes);
+    }
+
+    /**
+     * Renders the template as UTF-8. Missing names and {@code null} values render as empty text.
+     */
+    public byte[] render(Map<String, ?> model) {
+        Output output = new Output(new byte[literalBytes + 16 * placeholderCount], null);
+        try {
+            new Renderer(model, output).render(nodes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Renders the template as UTF-8 straight to {@code outputStream} through a small buffer, without holding
+     * the page in memory. The stream is not flushed or closed.
+     */
+    public void renderTo(Map<String, ?> model, OutputStream outputStream) throws IOException {
+        Output output = new Output(new byte[STREAM_BUFFER_BYTES], outputStream);
+        new Renderer(model, output).render(nodes);
+        output.drain();
+    }
+
+    /**
+     * Number of placeholders, counting repeated names once per occurrence and placeholders inside sections
+     * and inlined partials once.
+     */
+    public int placeholderCount() {
+        return placeholderCount;
+    }
+
+    private static int literalBytes(Node[] nodes) {
+        int total = 0;
+        for (Node node : nodes) {
+            if (node instanceof Literal literal) {
+                total += literal.bytes().length;
+            }
+        }
+        return total;
+    }
+
+    private static int placeholderCount(Node[] nodes) {
+        int count = 0;
+        for (Node node : nodes) {
+            switch (node) {
+                case Literal literal -> {
+                }
+                case Value value -> count++;
+                case Section section -> count += placeholderCount(section.body());
+            }
+        }
+        return count;
+    }
+
+    sealed interface Node permits Literal, Value, Section {
+    }
+
+    record Literal(byte[] bytes) implements Node {
+    }
+
+    /**
+     * {@code {{name}}}; {@code path} is the name split at dots.
+     */
+    record Value(String name, String[] path) implements Node {
+    }
+
+    /**
+     * {@code {{#name}}...{{/name}}}, or {@code {{^name}}...{{/name}}} when {@code inverted}.
+     */
+    record Section(String name, String[] path, boolean inverted, Node[] body) implements Node {
+    }
+
+    /**
+     * Walks the nodes for one rendering, keeping the model and the enclosing section elements on a stack.
+     */
+    private static final class Renderer {
+
+        private final Output output;
+        private Object[] contexts = new Object[8];
+        private int depth;
+
+        Renderer(Map<String, ?> model, Output output) {
+            this.output = output;
+            contexts[depth++] = model;
+        }
+
+        void render(Node[] nodes) throws IOException {
+            for (Node node : nodes) {
+                switch (node) {
+                    case Literal literal -> output.write(literal.bytes());
+                    case Value value -> {
+                        Object resolved = lookup(value.name(), value.path());
+                        if (resolved != null) {
+                            output.write(resolved instanceof String text ? text : String.valueOf(resolved));
+                        }
+                    }
+                    case Section section -> renderSection(section);
+                }
+            }
+        }
+
+        private void renderSection(Section section) throws IOException {
+            Object resolved = lookup(section.name(), section.path());
+            if (section.inverted()) {
+                if (!truthy(resolved)) {
+                    render(section.body());
+                }
+                return;
+            }
+            if (!truthy(resolved)) {
+                return;
+            }
+
+            if (resolved instanceof Iterable<?> elements) {
+                for (Object element : elements) {
+                    renderWith(element, section.body());
+                }
+            } else if (resolved instanceof Object[] elements) {
+                for (Object element : elements) {
+                    renderWith(element, section.body());
+                }
+            } else {
+                renderWith(resolved, section.body());
+            }
+        }
+
+        private void renderWith(Object context, Node[] body) throws IOException {
+            if (depth == contexts.length) {
+                contexts = Arrays.copyOf(contexts, depth * 2);
+            }
+            contexts[depth++] = context;
+            try {
+                render(body);
+            } finally {
+                contexts[--depth] = null;
+            }
+        }
+
+        private Object lookup(String name, String[] path) {
+            if (".".equals(name)) {
+                return contexts[depth - 1];
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                Object value = property(contexts[i], name);
+                if (value != MISSING) {
+                    return value;
+                }
+            }
+            if (path.length == 1) {
+                return null;
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                Object value = property(contexts[i], path[0]);
+                if (value != MISSING) {
+                    for (int part = 1; part < path.length && value != null; part++) {
+                        value = property(value, path[part]);
+                        if (value == MISSING) {
+                            return null;
+                        }
+                    }
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        private static Object property(Object context, String name) {
+            if (context instanceof Map<?, ?> map) {
+                Object value = map.get(name);
+                return value != null || map.containsKey(name) ? value : MISSING;
+            }
+            if (context != null && context.getClass().isRecord()) {
+                Method accessor = RECORD_ACCESSORS.get(context.getClass()).get(name);
+                if (accessor == null) {
+                    return MISSING;
+                }
+                try {
+                    return accessor.invoke(context);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new TemplateException("Cannot read " + name + " of " + context.getClass().getName(), e);
+                }
+            }
+            return MISSING;
+        }
+
+        /**
+         * {@code null}, {@code false}, empty strings, collections and arrays skip a section and show an inverted
+         * one; every other value is true.
+         */
+        private static boolean truthy(Object value) {
+            return switch (value) {
+                case null -> false;
+                case Boolean flag -> flag;
+                case String text -> !text.isEmpty();
+                case Collection<?> collection -> !collection.isEmpty();
+                case Iterable<?> iterable -> iterable.iterator().hasNext();
+                case Object[] array -> array.length > 0;
+                default -> true;
+            };
+        }
+    }
+
+    /**
+     * Byte buffer that grows when rendering to an array and is drained to {@code sink} when streaming.
+     */
+    private static final class Output {
+
+        private final OutputStream sink;
+        private byte[] buffer;
+        private int count;
+
+        Output(byte[] buffer, OutputStream sink) {
+            this.buffer = buffer;
+            this.sink = sink;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (buffer.length - count < bytes.length) {
+                if (sink != null) {
+                    drain();
+                    if (bytes.length > buffer.length) {
+                        sink.write(bytes);
+                        return;
+                    }
+                } else {
+                    grow(bytes.length);
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void write(String value) throws IOException {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // Rare in model values; let the JDK encoder handle the rest, surrogates included.
+                    write(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                if (count == buffer.length) {
+                    if (sink != null) {
+                        drain();
+                    } else {
+                        grow(length - i);
+                    }
+                }
+                buffer[count++] = (byte) c;
+            }
+        }
+
+        void drain() throws IOException {
+            sink.write(buffer, 0, count);
+            count = 0;
+        }
+
+        byte[] toByteArray() {
+            return count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+        }
+
+        private void grow(int additional) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + additional));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.simplehttpserver.template;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compiles template text into a {@link CompiledTemplate}.
+ *
+ * <p>Tags are written in double braces, with optional whitespace inside:
+ * <ul>
+ *     <li>{@code {{name}}} inserts a value</li>
+ *     <li>{@code {{#name}}...{{/name}}} renders its body once per element of a list or array, once with a map
+ *     or record as the innermost context, once for any other true value, and not at all for a false one</li>
+ *     <li>{@code {{^name}}...{{/name}}} renders its body only for a false value</li>
+ *     <li>{@code {{> partial.tpl}}} includes another template, inlined here at compile time</li>
+ * </ul>
+ *
+ * <p>Names are made of letters, digits, {@code _ . -}; {@code .} alone is the current element. Partial names
+ * may also contain {@code /}. Any other pair of opening braces is literal text and scanning resumes one
+ * character later, so {@code {{{name}}}} renders a brace, the value and a brace. Without sigils these are
+ * exactly the matches of the pattern {@code \{\{\s*([a-zA-Z0-9_.-]+)\s*}}} the engine used before.
+ */
+public final class TemplateCompiler {
+
+    private static final int MAX_PARTIAL_DEPTH = 16;
+    private static final PartialLoader NO_PARTIALS = name -> {
+        throw new TemplateException("Partials are not available here: " + name);
+    };
+
+    /**
+     * Supplies the source of a partial by name.
+     */
+    @FunctionalInterface
+    public interface PartialLoader {
+        String load(String name) throws IOException;
+    }
+
+    /**
+     * Compiles a template that does not include partials.
+     */
+    public CompiledTemplate compile(String template) {
+        try {
+            return compile(template, NO_PARTIALS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws IOException if a partial cannot be loaded
+     * @throws TemplateException if sections are not closed in order or partials include themselves
+     */
+    public CompiledTemplate compile(String template, PartialLoader partials) throws IOException {
+        return new CompiledTemplate(parse(template, partials, new ArrayDeque<>()));
+    }
+
+    private List<CompiledTemplate.Node> parse(String template, PartialLoader partials, Deque<String> including)
+            throws IOException {
+        Deque<OpenSection> open = new ArrayDeque<>();
+        List<CompiledTemplate.Node> nodes = new ArrayList<>();
+        int literalStart = 0;
+        int index = template.indexOf("{{");
+
+        while (index >= 0) {
+            Tag tag = tagAt(template, index);
+            if (tag == null) {
+                index = template.indexOf("{{", index + 1);
+                continue;
+            }
+
+            addLiteral(nodes, encode(template, literalStart, index));
+            switch (tag.sigil()) {
+                case '#', '^' -> {
+                    open.push(new OpenSection(tag.name(), tag.sigil() == '^', nodes));
+                    nodes = new ArrayList<>();
+                }
+                case '/' -> {
+                    if (open.isEmpty() || !open.peek().name().equals(tag.name())) {
+                        throw new TemplateException(open.isEmpty()
+                                ? "Unexpected {{/" + tag.name() + "}} without an open section."
+                                : "Expected {{/" + open.peek().name() + "}} but found {{/" + tag.name() + "}}.");
+                    }
+                    OpenSection section = open.pop();
+                    section.parent().add(new CompiledTemplate.Section(section.name(), path(section.name()),
+                            section.inverted(), nodes.toArray(CompiledTemplate.Node[]::new)));
+                    nodes = section.parent();
+                }
+                case '>' -> {
+                    for (CompiledTemplate.Node node : include(tag.name(), partials, including)) {
+                        if (node instanceof CompiledTemplate.Literal literal) {
+                            addLiteral(nodes, literal.bytes());
+                        } else {
+                            nodes.add(node);
+                        }
+                    }
+                }
+                default -> nodes.add(new CompiledTemplate.Value(tag.name(), path(tag.name())));
+            }
+
+            literalStart = tag.end();
+            index = template.indexOf("{{", literalStart);
+        }
+
+        addLiteral(nodes, encode(template, literalStart, template.length()));
+        if (!open.isEmpty()) {
+            throw new TemplateException("Missing {{/" + open.peek().name() + "}}.");
+        }
+        return nodes;
+    }
+
+    private List<CompiledTemplate.Node> include(String name, PartialLoader partials, Deque<String> including)
+            throws IOException {
+        if (including.contains(name) || including.size() == MAX_PARTIAL_DEPTH) {
+            throw new TemplateException("Partial includes itself or nests too deeply: " + name);
+        }
+        including.push(name);
+        List<CompiledTemplate.Node> nodes = parse(partials.load(name), partials, including);
+        including.pop();
+        return nodes;
+    }
+
+    /**
+     * Merges adjacent literals, which appear around inlined partials, so rendering copies one segment.
+     */
+    private static void addLiteral(List<CompiledTemplate.Node> nodes, byte[] bytes) {
+        if (bytes.length == 0) {
+            return;
+        }
+        int last = nodes.size() - 1;
+        if (last >= 0 && nodes.get(last) instanceof CompiledTemplate.Literal previous) {
+            byte[] merged = new byte[previous.bytes().length + bytes.length];
+            System.arraycopy(previous.bytes(), 0, merged, 0, previous.bytes().length);
+            System.arraycopy(bytes, 0, merged, previous.bytes().length, bytes.length);
+            nodes.set(last, new CompiledTemplate.Literal(merged));
+        } else {
+            nodes.add(new CompiledTemplate.Literal(bytes));
+        }
+    }
+
+    /**
+     * Reads the tag starting at {@code index}, or returns {@code null} if the braces there do not open one.
+     */
+    private static Tag tagAt(String template, int index) {
+        int position = skipWhitespace(template, index + 2);
+        char sigil = 0;
+        if (position < template.length() && "#^/>".indexOf(template.charAt(position)) >= 0) {
+            sigil = template.charAt(position);
+            position = skipWhitespace(template, position + 1);
+        }
+
+        int nameStart = position;
+        while (position < template.length() && (isNameChar(template.charAt(position))
+                || (sigil == '>' && template.charAt(position) == '/'))) {
+            position++;
+        }
+        int close = skipWhitespace(template, position);
+        if (position == nameStart || !template.startsWith("}}", close)) {
+            return null;
+        }
+        return new Tag(sigil, template.substring(nameStart, position), close + 2);
+    }
+
+    private static String[] path(String name) {
+        return ".".equals(name) ? new String[] {name} : name.split("\\.", -1);
+    }
+
+    private static int skipWhitespace(String template, int index) {
+        while (index < template.length() && isWhitespace(template.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * The regex {@code \s} class: space, tab, line feed, vertical tab, form feed and carriage return.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c == '-';
+    }
+
+    private static byte[] encode(String template, int start, int end) {
+        return template.substring(start, end).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Tag(char sigil, String name, int end) {
+    }
+
+    private record OpenSection(String name, boolean inverted, List<CompiledTemplate.Node> parent) {
+    }
+}
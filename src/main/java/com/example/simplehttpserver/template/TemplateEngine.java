@@ -1,27 +1,20 @@
 package com.example.simplehttpserver.template;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Minimal template engine replacing {{key}} placeholders with values from a model map.
+ * Minimal template engine rendering {{key}} placeholders and sections with values from a model map; see
+ * {@link TemplateCompiler} for the syntax. Partials are not available without a {@link TemplateService}.
+ *
+ * <p>The template is compiled on every call; use {@link TemplateCompiler} directly, or {@link TemplateService},
+ * to compile a template once and render it many times.
  */
 public class TemplateEngine {
 
-    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{\\s*([a-zA-Z0-9_.-]+)\\s*}}");
+    private final TemplateCompiler compiler = new TemplateCompiler();
 
-    public String render(String template, Map<String, String> model) {
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
-        StringBuffer result = new StringBuffer();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String replacement = model.getOrDefault(key, "");
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
-        }
-
-        matcher.appendTail(result);
-        return result.toString();
+    public String render(String template, Map<String, ?> model) {
+        return new String(compiler.compile(template).render(model), StandardCharsets.UTF_8);
     }
 }
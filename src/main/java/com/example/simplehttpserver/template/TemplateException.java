@@ -0,0 +1,15 @@
+package com.example.simplehttpserver.template;
+
+/**
+ * Exception thrown when a template cannot be compiled or a model value cannot be read.
+ */
+public class TemplateException extends RuntimeException {
+
+    public TemplateException(String message) {
+        super(message);
+    }
+
+    public TemplateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
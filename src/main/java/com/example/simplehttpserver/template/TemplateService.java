@@ -2,36 +2,108 @@ package com.example.simplehttpserver.template;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Loads template files from classpath and renders them with {@link TemplateEngine}.
+ * Loads template files from classpath and renders them with {@link TemplateCompiler}.
+ *
+ * <p>Each template is read and compiled once, on first use, and kept for the lifetime of the service. Partials
+ * ({@code {{> name}}}) are loaded from the same root and inlined while compiling, so they are cached as part of
+ * every template that includes them. Classpath resources are not expected to change while the server runs; a
+ * missing template is not cached.
  */
 public class TemplateService {
 
     private final String templatesRoot;
-    private final TemplateEngine templateEngine = new TemplateEngine();
+    private final TemplateCompiler compiler = new TemplateCompiler();
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
 
     public TemplateService(String templatesRoot) {
         this.templatesRoot = templatesRoot;
     }
 
-    public String render(String templateName, Map<String, String> model) throws IOException {
-        String sanitizedTemplateName = sanitizeTemplateName(templateName);
-        String resourceName = templatesRoot + "/" + sanitizedTemplateName;
+    public String render(String templateName, Map<String, ?> model) throws IOException {
+        return new String(renderBytes(templateName, model), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders a template as UTF-8 bytes, ready to be used as a response body.
+     */
+    public byte[] renderBytes(String templateName, Map<String, ?> model) throws IOException {
+        return compiled(templateName).render(model);
+    }
+
+    /**
+     * Renders a template as UTF-8 straight to {@code outputStream}, for example from a
+     * {@code StreamingBody}.
+     */
+    public void renderTo(String templateName, Map<String, ?> model, OutputStream outputStream) throws IOException {
+        compiled(templateName).renderTo(model, outputStream);
+    }
+
+    /**
+     * Returns the cached compiled template, loading it and its partials on first use.
+     *
+     * @throws TemplateException if the template or one of its partials is malformed
+     */
+    public CompiledTemplate compiled(String templateName) throws IOException {
+        String resourceName = resourceName(templateName);
+        CompiledTemplate cached = templates.get(resourceName);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+
+        cacheMisses.increment();
+        try {
+            return templates.computeIfAbsent(resourceName, name -> {
+                try {
+                    return compiler.compile(source(name), partial -> source(resourceName(partial)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Lookups answered with an already compiled template.
+     */
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
 
+    /**
+     * Lookups of templates that were not compiled yet, including missing and malformed ones.
+     */
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private String source(String resourceName) throws IOException {
         try (InputStream in = getClass().getClassLoader().getResourceAsStream(resourceName)) {
             if (in == null) {
                 throw new IOException("Template not found: " + resourceName);
             }
 
-            String template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-            return templateEngine.render(template, model);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
         }
     }
 
+    private String resourceName(String templateName) {
+        return templatesRoot + "/" + sanitizeTemplateName(templateName);
+    }
+
     private String sanitizeTemplateName(String templateName) {
         if (templateName == null || templateName.isBlank()) {
             throw new IllegalArgumentException("Template name must not be blank.");
@@ -8,8 +8,11 @@
 <body>
   <h1>Template Route Demo</h1>
   <p>Hello, <strong>{{name}}</strong>.</p>
-  <p>You visited this template route <strong>{{visits}}</strong> time(s) in this session.</p>
-  <p>Rendered at: <code>{{timestamp}}</code></p>
-  <p><a href="/">Back to index</a></p>
+  {{#firstVisit}}<p>This is your first visit to this page in this session.</p>{{/firstVisit}}
+  {{^firstVisit}}<p>You visited this template route <strong>{{visits}}</strong> time(s) in this session.</p>{{/firstVisit}}
+  <ul>
+{{#links}}    <li><a href="{{href}}">{{label}}</a></li>
+{{/links}}  </ul>
+{{> partials/footer.html.tpl}}
 </body>
 </html>
@@ -0,0 +1,4 @@
+  <footer>
+    <p>Rendered at: <code>{{timestamp}}</code></p>
+    <p><a href="/">Back to index</a></p>
+  </footer>
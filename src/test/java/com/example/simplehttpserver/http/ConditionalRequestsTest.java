@@ -0,0 +1,83 @@
+package com.example.simplehttpserver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ConditionalRequestsTest {
+
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    private final HttpResponse fileResponse = HttpResponse.status(HttpStatus.OK)
+            .header("Content-Type", "text/css; charset=UTF-8")
+            .header("ETag", ConditionalRequests.etag(LAST_MODIFIED, 42))
+            .header("Last-Modified", ConditionalRequests.httpDate(LAST_MODIFIED))
+            .header("Cache-Control", "no-cache")
+            .body("body{}")
+            .build();
+
+    @Test
+    void answersNotModifiedWhenEntityTagMatches() throws Exception {
+        String etag = fileResponse.headers().get("ETag");
+
+        HttpResponse response = ConditionalRequests.evaluate(
+                request("GET", "If-None-Match: \"other\", W/" + etag), fileResponse);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.status());
+        assertEquals(etag, response.headers().get("ETag"));
+        assertEquals("no-cache", response.headers().get("Cache-Control"));
+        assertFalse(response.headers().containsKey("Content-Type"));
+        assertEquals(0, response.responseBody().length());
+    }
+
+    @Test
+    void entityTagsTakePrecedenceOverModificationDate() throws Exception {
+        String sameDate = ConditionalRequests.httpDate(LAST_MODIFIED);
+
+        HttpResponse response = ConditionalRequests.evaluate(
+                request("GET", "If-None-Match: \"stale\"\r\nIf-Modified-Since: " + sameDate), fileResponse);
+
+        assertSame(fileResponse, response);
+    }
+
+    @Test
+    void comparesModificationDatesAtSecondPrecision() throws Exception {
+        String later = ConditionalRequests.httpDate(LAST_MODIFIED + 500);
+        String earlier = ConditionalRequests.httpDate(LAST_MODIFIED - 1000);
+
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                ConditionalRequests.evaluate(request("HEAD", "If-Modified-Since: " + later), fileResponse).status());
+        assertSame(fileResponse,
+                ConditionalRequests.evaluate(request("GET", "If-Modified-Since: " + earlier), fileResponse));
+        assertSame(fileResponse,
+                ConditionalRequests.evaluate(request("GET", "If-Modified-Since: yesterday"), fileResponse));
+        assertSame(fileResponse,
+                ConditionalRequests.evaluate(request("POST", "If-None-Match: *"), fileResponse));
+    }
+
+    @Test
+    void contentTagsChangeWithContent() {
+        byte[] first = "Iteration 1".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "Iteration 2".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(ConditionalRequests.etag(first), ConditionalRequests.etag(first.clone()));
+        assertNotEquals(ConditionalRequests.etag(first), ConditionalRequests.etag(second));
+        assertEquals("Tue, 14 Nov 2023 22:13:20 GMT", ConditionalRequests.httpDate(LAST_MODIFIED));
+    }
+
+    private static HttpRequest request(String method, String headers) throws Exception {
+        String raw = method + " /styles.css HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + headers + "\r\n"
+                + (method.equals("POST") ? "Content-Length: 0\r\n" : "")
+                + "\r\n";
+        return new HttpRequestParser().parse(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)), 4096, 4096);
+    }
+}
@@ -4,8 +4,11 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class HttpRequestParserTest {
@@ -65,4 +68,126 @@ class HttpRequestParserTest {
 
         assertEquals(HttpStatus.BAD_REQUEST, exception.status());
     }
+
+    @Test
+    void resumesParsingAsBytesArriveOneAtATime() throws Exception {
+        byte[] raw = ("POST /submit HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Length: 5\r\n"
+                + "\r\n"
+                + "hello").getBytes(StandardCharsets.ISO_8859_1);
+        RequestBuffer buffer = new RequestBuffer(16);
+
+        HttpRequest request = null;
+        for (int i = 0; i < raw.length; i++) {
+            assertNull(request, "request completed before its last byte");
+            buffer.append(raw, i, 1);
+            request = parser.tryParse(buffer, 4096, 4096);
+        }
+
+        assertNotNull(request);
+        assertEquals("hello", request.bodyAsString());
+        assertEquals(0, buffer.readable());
+    }
+
+    @Test
+    void keepsPipelinedRequestsBufferedInOrder() throws Exception {
+        String raw = "GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "GET /second HTTP/1.1\nHost: localhost\n\n";
+        RequestBuffer buffer = new RequestBuffer();
+        ByteArrayInputStream input = new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals("/first", parser.parse(buffer, input, 4096, 4096).path());
+        assertEquals("/second", parser.parse(buffer, input, 4096, 4096).path());
+        assertEquals(0, buffer.readable());
+    }
+
+    @Test
+    void looksUpHeadersCaseInsensitively() throws Exception {
+        String raw = "GET / HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Accept:  text/html \r\n"
+                + "accept: application/json\r\n"
+                + "\r\n";
+
+        HttpRequest request = parser.parse(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)),
+                4096,
+                4096
+        );
+
+        assertEquals("localhost", request.firstHeader("HOST").orElseThrow());
+        assertEquals(List.of("text/html", "application/json"), request.headers().get("Accept"));
+        assertEquals(2, request.headers().size());
+    }
+
+    @Test
+    void rejectsOversizedHeaderBlock() {
+        String raw = "GET / HTTP/1.1\r\nX-Padding: " + "a".repeat(200) + "\r\n\r\n";
+
+        HttpParseException exception = assertThrows(HttpParseException.class, () -> parser.parse(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)),
+                128,
+                4096
+        ));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.status());
+    }
+
+    @Test
+    void decodesChunkedBodyAndKeepsFollowingRequestBuffered() throws Exception {
+        String raw = "POST /upload HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "\r\n"
+                + "5;name=value\r\nhello\r\n"
+                + "7\r\n, world\r\n"
+                + "0\r\n"
+                + "X-Checksum: 42\r\n"
+                + "\r\n"
+                + "GET /next HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        RequestBuffer buffer = new RequestBuffer(16);
+        ByteArrayInputStream input = new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1));
+
+        HttpRequest upload = parser.parse(buffer, input, 4096, 4096);
+        assertEquals("hello, world", upload.bodyAsString());
+        assertEquals("/next", parser.parse(buffer, input, 4096, 4096).path());
+    }
+
+    @Test
+    void enforcesBodyLimitOnChunkedBodies() {
+        String raw = "POST /upload HTTP/1.1\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "\r\n"
+                + "8\r\n12345678\r\n"
+                + "8\r\n12345678\r\n"
+                + "0\r\n\r\n";
+
+        HttpParseException exception = assertThrows(HttpParseException.class, () -> parser.parse(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)),
+                4096,
+                10
+        ));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.status());
+    }
+
+    @Test
+    void rejectsAmbiguousOrUnsupportedTransferEncoding() {
+        String both = "POST /upload HTTP/1.1\r\n"
+                + "Transfer-Encoding: chunked\r\n"
+                + "Content-Length: 5\r\n"
+                + "\r\n";
+        String gzip = "POST /upload HTTP/1.1\r\n"
+                + "Transfer-Encoding: gzip, chunked\r\n"
+                + "\r\n";
+
+        HttpParseException ambiguous = assertThrows(HttpParseException.class, () -> parser.parse(
+                new ByteArrayInputStream(both.getBytes(StandardCharsets.ISO_8859_1)), 4096, 4096));
+        HttpParseException unsupported = assertThrows(HttpParseException.class, () -> parser.parse(
+                new ByteArrayInputStream(gzip.getBytes(StandardCharsets.ISO_8859_1)), 4096, 4096));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ambiguous.status());
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, unsupported.status());
+    }
 }
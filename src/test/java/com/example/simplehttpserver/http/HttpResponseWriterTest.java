@@ -1,14 +1,27 @@
 package com.example.simplehttpserver.http;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HttpResponseWriterTest {
 
+    @TempDir
+    Path tempDir;
+
     @Test
     void serializesResponseWithStatusHeadersAndBody() throws Exception {
         HttpResponse response = HttpResponse.text(HttpStatus.OK, "Hello");
@@ -36,4 +49,205 @@ class HttpResponseWriterTest {
         String serialized = output.toString(StandardCharsets.ISO_8859_1);
         assertTrue(serialized.endsWith("\r\n\r\n"));
     }
+
+    @Test
+    void sendsNotModifiedWithoutBodyOrFraming() throws Exception {
+        HttpResponse response = HttpResponse.status(HttpStatus.NOT_MODIFIED)
+                .header("ETag", "\"abc\"")
+                .build();
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output, HttpMethod.GET, response);
+
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+        assertTrue(serialized.contains("ETag: \"abc\"\r\n"));
+        assertFalse(serialized.contains("Content-Length"));
+        assertFalse(serialized.contains("Transfer-Encoding"));
+        assertTrue(serialized.endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    void writesStreamingBodyAsChunksForHttp11() throws Exception {
+        HttpResponse response = HttpResponse.streaming(HttpStatus.OK, "text/plain; charset=UTF-8", out -> {
+            out.write("Hello".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            out.write(" World".getBytes(StandardCharsets.UTF_8));
+        });
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output, HttpMethod.GET, "HTTP/1.1", response);
+
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(serialized.contains("Content-Length"));
+        assertTrue(serialized.endsWith("\r\n\r\n5\r\nHello\r\n6\r\n World\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    void holdsStreamingHeadBackUntilBodyFirstFlushes() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String[] contentType = {"text/html; charset=UTF-8"};
+        HttpResponse response = HttpResponse.streaming(HttpStatus.OK, contentType[0], new StreamingBody() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write("{".getBytes(StandardCharsets.UTF_8));
+                assertEquals(0, output.size());
+                contentType[0] = "application/json";
+                out.flush();
+                contentType[0] = "text/plain";
+                out.write("}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void beforeHead(Map<String, String> headers) {
+                headers.put("Content-Type", contentType[0]);
+            }
+        });
+
+        new HttpResponseWriter().write(output, HttpMethod.GET, "HTTP/1.1", response);
+
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.contains("Content-Type: application/json\r\n"));
+        assertTrue(serialized.endsWith("\r\n\r\n1\r\n{\r\n1\r\n}\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    void closesConnectionToDelimitStreamingBodyForHttp10() throws Exception {
+        HttpResponse response = HttpResponse.streaming(HttpStatus.OK, "text/plain; charset=UTF-8",
+                out -> out.write("Hello".getBytes(StandardCharsets.UTF_8)))
+                .withHeader("Connection", "keep-alive");
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output, HttpMethod.GET, "HTTP/1.0", response);
+
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.contains("Connection: close\r\n"));
+        assertFalse(serialized.contains("Transfer-Encoding"));
+        assertTrue(serialized.endsWith("\r\n\r\nHello"));
+    }
+
+    @Test
+    void writesFileRegionWithContentLength() throws Exception {
+        Path file = tempDir.resolve("region.txt");
+        Files.writeString(file, "0123456789", StandardCharsets.US_ASCII);
+        HttpResponse response = HttpResponse.status(HttpStatus.OK)
+                .body(ResponseBody.file(file, 2, 5))
+                .build();
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output, HttpMethod.GET, response);
+
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.contains("Content-Length: 5\r\n"));
+        assertTrue(serialized.endsWith("\r\n\r\n23456"));
+    }
+
+    @Test
+    void writesBufferAndStreamBodies() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(5).put("Hello".getBytes(StandardCharsets.US_ASCII)).flip();
+        HttpResponse bufferResponse = HttpResponse.status(HttpStatus.OK).body(ResponseBody.of(buffer)).build();
+        HttpResponse streamResponse = HttpResponse.status(HttpStatus.OK)
+                .body(ResponseBody.of(() -> new ByteArrayInputStream("World".getBytes(StandardCharsets.US_ASCII)), -1))
+                .build();
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream bufferOutput = new ByteArrayOutputStream();
+        writer.write(bufferOutput, HttpMethod.GET, bufferResponse);
+        ByteArrayOutputStream streamOutput = new ByteArrayOutputStream();
+        writer.write(streamOutput, HttpMethod.GET, streamResponse);
+
+        String bufferSerialized = bufferOutput.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(bufferSerialized.contains("Content-Length: 5\r\n"));
+        assertTrue(bufferSerialized.endsWith("\r\n\r\nHello"));
+        assertTrue(streamOutput.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n5\r\nWorld\r\n0\r\n\r\n"));
+        assertEquals(5, buffer.remaining(), "writing must not consume the caller's buffer");
+    }
+
+    @Test
+    void encodesHeadInOrderWithAddedHeadersLast() throws Exception {
+        HttpResponse response = HttpResponse.status(HttpStatus.NOT_FOUND)
+                .header("X-Custom", "caf\u00e9 \u2713")
+                .header("Connection", "keep-alive")
+                .header("Content-Type", "text/plain")
+                .body(new byte[12_345])
+                .build();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new HttpResponseWriter().write(output, HttpMethod.HEAD, response);
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+
+        String date = serialized.substring(serialized.indexOf("Date: ") + 6, serialized.indexOf("\r\nServer"));
+        java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME.parse(date);
+        String ownHeaders = serialized.substring(0, serialized.indexOf("Date: "));
+        assertTrue(ownHeaders.startsWith("HTTP/1.1 404 Not Found\r\n"));
+        assertTrue(ownHeaders.contains("X-Custom: caf\u00e9 ?\r\n"));
+        assertTrue(ownHeaders.contains("Connection: keep-alive\r\n"));
+        assertTrue(ownHeaders.contains("Content-Type: text/plain\r\n"));
+        assertTrue(serialized.endsWith("\r\nDate: " + date + "\r\n"
+                + "Server: SimpleHttpServer/2.0\r\n"
+                + "Content-Length: 12345\r\n"
+                + "\r\n"));
+        assertFalse(serialized.contains("Connection: close"));
+    }
+
+    @Test
+    void writesConnectionLinesFromTheKeepAliveDecision() throws Exception {
+        HttpResponse response = HttpResponse.status(HttpStatus.OK)
+                .header("Keep-Alive", "timeout=1")
+                .body("Hello")
+                .build();
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        writer.write(kept, HttpMethod.GET, "HTTP/1.1", response, "timeout=5, max=99");
+        String keptSerialized = kept.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(keptSerialized.startsWith("HTTP/1.1 200 OK\r\nKeep-Alive: timeout=5, max=99\r\n"));
+        assertTrue(keptSerialized.endsWith("Content-Length: 5\r\nConnection: keep-alive\r\n\r\nHello"));
+
+        ByteArrayOutputStream closed = new ByteArrayOutputStream();
+        writer.write(closed, HttpMethod.GET, "HTTP/1.1", response.withHeader("Connection", "keep-alive"), null);
+        assertTrue(closed.toString(StandardCharsets.ISO_8859_1).contains("Connection: close\r\n"));
+
+        HttpResponse streamed = HttpResponse.streaming(HttpStatus.OK, "text/plain; charset=UTF-8",
+                out -> out.write("Hello".getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream streamedOutput = new ByteArrayOutputStream();
+        writer.write(streamedOutput, HttpMethod.GET, "HTTP/1.1", streamed, "timeout=5, max=98");
+        String streamedSerialized = streamedOutput.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(streamedSerialized.contains("Connection: keep-alive\r\nKeep-Alive: timeout=5, max=98\r\n"));
+        assertFalse(streamedSerialized.contains("Connection: close"));
+    }
+
+    @Test
+    void sendsHeadAndInMemoryBodyInOneGatheringWrite() throws Exception {
+        class RecordingSink extends ByteArrayOutputStream implements GatheringSink {
+            private int gatheredWrites;
+
+            @Override
+            public void writeGathered(ByteBuffer... buffers) {
+                gatheredWrites++;
+                for (ByteBuffer buffer : buffers) {
+                    while (buffer.hasRemaining()) {
+                        write(buffer.get());
+                    }
+                }
+            }
+        }
+        byte[] body = "Hello".getBytes(StandardCharsets.US_ASCII);
+        HttpResponse response = HttpResponse.status(HttpStatus.OK).body(ResponseBody.of(body)).build();
+
+        RecordingSink sink = new RecordingSink();
+        new HttpResponseWriter().write(sink, HttpMethod.GET, response);
+        new HttpResponseWriter().write(sink, HttpMethod.HEAD, response);
+
+        assertEquals(1, sink.gatheredWrites);
+        String serialized = sink.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(serialized.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(serialized.contains("\r\n\r\nHelloHTTP/1.1 200 OK\r\n"));
+        assertTrue(serialized.endsWith("Content-Length: 5\r\nConnection: close\r\n\r\n"));
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.simplehttpserver.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangeRequestsTest {
+
+    private static final String DIGITS = "0123456789abcdefghij";
+
+    @TempDir
+    Path tempDir;
+
+    private final HttpResponse bytesResponse = HttpResponse.status(HttpStatus.OK)
+            .header("Content-Type", "text/plain")
+            .header("ETag", "\"v1\"")
+            .header("Last-Modified", "Tue, 14 Nov 2023 22:13:20 GMT")
+            .header("Accept-Ranges", "bytes")
+            .body(DIGITS)
+            .build();
+
+    @Test
+    void parsesRangeSpecifiers() {
+        assertEquals(List.of(new RangeRequests.ByteRange(0, 4)), RangeRequests.parse("bytes=0-4", 20));
+        assertEquals(List.of(new RangeRequests.ByteRange(15, 19)), RangeRequests.parse("bytes=15-", 20));
+        assertEquals(List.of(new RangeRequests.ByteRange(12, 19)), RangeRequests.parse("bytes=-8", 20));
+        assertEquals(List.of(new RangeRequests.ByteRange(0, 19)), RangeRequests.parse("bytes=-50", 20));
+        assertEquals(List.of(new RangeRequests.ByteRange(10, 19)), RangeRequests.parse("bytes=10-1000", 20));
+        assertEquals(List.of(new RangeRequests.ByteRange(0, 9), new RangeRequests.ByteRange(15, 16)),
+                RangeRequests.parse("bytes=15-16, 5-9, 0-5", 20));
+        assertTrue(RangeRequests.parse("bytes=20-, -0", 20).isEmpty());
+        assertNull(RangeRequests.parse("bytes=5-1", 20));
+        assertNull(RangeRequests.parse("items=0-1", 20));
+        assertNull(RangeRequests.parse("bytes=a-b", 20));
+        assertNull(RangeRequests.parse("bytes=" + "0-0,".repeat(RangeRequests.MAX_RANGES + 1), 20));
+    }
+
+    @Test
+    void servesSingleRangeWithoutCopying() throws Exception {
+        HttpResponse response = RangeRequests.evaluate(request("Range: bytes=5-9"), bytesResponse);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.status());
+        assertEquals("bytes 5-9/20", response.headers().get("Content-Range"));
+        assertEquals("5", response.headers().get("Content-Length"));
+        assertEquals("56789", new String(response.body(), StandardCharsets.US_ASCII));
+        ResponseBody.Bytes original = (ResponseBody.Bytes) bytesResponse.responseBody();
+        assertSame(original.array(), ((ResponseBody.Bytes) response.responseBody()).array());
+    }
+
+    @Test
+    void servesMultipleRangesOfFileAsMultipart() throws Exception {
+        Path file = tempDir.resolve("digits.txt");
+        Files.writeString(file, DIGITS, StandardCharsets.US_ASCII);
+        HttpResponse fileResponse = HttpResponse.status(HttpStatus.OK)
+                .header("Content-Type", "text/plain")
+                .header("Accept-Ranges", "bytes")
+                .body(ResponseBody.file(file, 0, DIGITS.length()))
+                .build();
+
+        HttpResponse response = RangeRequests.evaluate(request("Range: bytes=0-1,-2"), fileResponse);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.status());
+        String contentType = response.headers().get("Content-Type");
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        ResponseBody.Composite body = assertInstanceOf(ResponseBody.Composite.class, response.responseBody());
+        assertInstanceOf(ResponseBody.FileRegion.class, body.parts().get(1));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new HttpResponseWriter().write(output, HttpMethod.GET, response);
+        String serialized = output.toString(StandardCharsets.ISO_8859_1);
+        String expectedBody = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+                + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 18-19/20\r\n\r\nij"
+                + "\r\n--" + boundary + "--\r\n";
+        assertTrue(serialized.endsWith("\r\n\r\n" + expectedBody));
+        assertEquals(Integer.toString(expectedBody.length()), response.headers().get("Content-Length"));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeNoLongerMatches() throws Exception {
+        assertSame(bytesResponse, RangeRequests.evaluate(
+                request("Range: bytes=0-1\r\nIf-Range: \"v0\""), bytesResponse));
+        assertSame(bytesResponse, RangeRequests.evaluate(
+                request("Range: bytes=0-1\r\nIf-Range: Mon, 13 Nov 2023 22:13:20 GMT"), bytesResponse));
+        assertEquals(HttpStatus.PARTIAL_CONTENT, RangeRequests.evaluate(
+                request("Range: bytes=0-1\r\nIf-Range: \"v1\""), bytesResponse).status());
+        assertEquals(HttpStatus.PARTIAL_CONTENT, RangeRequests.evaluate(
+                request("Range: bytes=0-1\r\nIf-Range: Tue, 14 Nov 2023 22:13:20 GMT"), bytesResponse).status());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() throws Exception {
+        HttpResponse response = RangeRequests.evaluate(request("Range: bytes=20-30"), bytesResponse);
+
+        assertEquals(HttpStatus.RANGE_NOT_SATISFIABLE, response.status());
+        assertEquals("bytes */20", response.headers().get("Content-Range"));
+    }
+
+    private static HttpRequest request(String headers) throws Exception {
+        String raw = "GET /digits.txt HTTP/1.1\r\nHost: localhost\r\n" + headers + "\r\n\r\n";
+        return new HttpRequestParser().parse(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)), 4096, 4096);
+    }
+}
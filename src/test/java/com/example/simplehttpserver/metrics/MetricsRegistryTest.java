@@ -0,0 +1,105 @@
+package com.example.simplehttpserver.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    @Test
+    void writesCountersAndGaugesInTextFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter requests = registry.counter("requests_total", "Requests served.", "route", "/users/{id}");
+        registry.counter("requests_total", "Requests served.", "route", "static").add(3);
+        AtomicLong queue = new AtomicLong(-2);
+        registry.gauge("queue_depth", "Waiting tasks.", queue::get);
+
+        requests.increment();
+        requests.increment();
+        queue.set(12_345_678_901L);
+
+        assertEquals("""
+                # HELP requests_total Requests served.
+                # TYPE requests_total counter
+                requests_total{route="/users/{id}"} 2
+                requests_total{route="static"} 3
+                # HELP queue_depth Waiting tasks.
+                # TYPE queue_depth gauge
+                queue_depth 12345678901
+                """, scrape(registry));
+    }
+
+    @Test
+    void writesCumulativeHistogramBucketsAndSumInSeconds() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("parse_seconds", "Parse time.");
+        histogram.record(5_000);
+        histogram.record(1_500_000);
+        histogram.record(20_000_000_000L);
+
+        String output = scrape(registry);
+
+        assertContains(output, "# TYPE parse_seconds histogram\n");
+        assertContains(output, "parse_seconds_bucket{le=\"0.00001\"} 1\n");
+        assertContains(output, "parse_seconds_bucket{le=\"0.001\"} 1\n");
+        assertContains(output, "parse_seconds_bucket{le=\"0.0025\"} 2\n");
+        assertContains(output, "parse_seconds_bucket{le=\"10\"} 2\n");
+        assertContains(output, "parse_seconds_bucket{le=\"+Inf\"} 3\n");
+        assertContains(output, "parse_seconds_sum 20.001505\n");
+        assertContains(output, "parse_seconds_count 3\n");
+        assertEquals(3, histogram.count());
+    }
+
+    @Test
+    void escapesLabelValuesAndReturnsExistingSeries() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram first = registry.histogram("handler_seconds", "Handler time.", "route", "a\"b\\c");
+        Histogram again = registry.histogram("handler_seconds", "Handler time.", "route", "a\"b\\c");
+
+        assertSame(first, again);
+        assertContains(scrape(registry), "handler_seconds_count{route=\"a\\\"b\\\\c\"} 0\n");
+    }
+
+    @Test
+    void rejectsInvalidNamesAndConflictingRegistrations() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("hits_total", "Hits.");
+        registry.gauge("sessions", "Sessions.", () -> 1);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("1st", "Bad."));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("hits_total", "Hits."));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("hits_total", "Hits.", "route", "x"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("h", "H.", "le", "x"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("sessions", "Sessions.", () -> 2));
+    }
+
+    @Test
+    void sizesTheNextScrapeFromThePreviousOne() {
+        MetricsRegistry registry = new MetricsRegistry();
+        for (int i = 0; i < 100; i++) {
+            registry.histogram("histogram_seconds", "Many series.", "route", "/route/" + i).record(i);
+        }
+
+        ByteBuffer first = registry.scrape();
+        ByteBuffer second = registry.scrape();
+
+        assertEquals(first, second);
+        assertEquals(first.remaining() + first.remaining() / 8, second.array().length);
+    }
+
+    private static String scrape(MetricsRegistry registry) {
+        ByteBuffer output = registry.scrape();
+        return new String(output.array(), output.position(), output.remaining(), StandardCharsets.UTF_8);
+    }
+
+    private static void assertContains(String text, String part) {
+        assertTrue(text.contains(part), () -> "Missing " + part + " in:\n" + text);
+    }
+}
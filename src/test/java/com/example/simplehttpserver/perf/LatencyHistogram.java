@@ -0,0 +1,127 @@
+package com.example.simplehttpserver.perf;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Records latencies in nanoseconds with a fixed relative precision, in the style of HdrHistogram.
+ *
+ * <p>Values below {@value #SUB_BUCKET_COUNT} ns are counted exactly. Above that, each power of two is split into
+ * {@value #HALF_SUB_BUCKET_COUNT} equal sub-buckets, so every recorded value is off by less than 0.2% whatever
+ * its size. Values above about 18 minutes are counted in the last bucket. The counts take 128 KB, independent of
+ * how many values are recorded. Not thread-safe: give each thread its own histogram and {@link #add} them.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 10;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int HIGHEST_BIT = 40;
+    private static final long HIGHEST_TRACKABLE = (1L << HIGHEST_BIT) - 1;
+    private static final double[] REPORTED_PERCENTILES =
+            {0, 50, 75, 90, 95, 99, 99.5, 99.9, 99.95, 99.99, 99.999, 100};
+
+    private final long[] counts = new long[index(HIGHEST_TRACKABLE) + 1];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(Math.min(value, HIGHEST_TRACKABLE))]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the smallest value that at least {@code percentile} percent of the recorded values are equal to or
+     * below, rounded up to the end of its sub-bucket; 0 when nothing was recorded.
+     */
+    long valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (percentile >= 100) {
+            return max;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, highestEquivalentValue(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Prints the value at each reported percentile, in milliseconds, with the number of values up to it.
+     */
+    void printPercentiles(PrintStream out) {
+        out.printf(Locale.ROOT, "  %10s %12s %10s%n", "percentile", "latency ms", "count");
+        for (double percentile : REPORTED_PERCENTILES) {
+            long value = valueAtPercentile(percentile);
+            out.printf(Locale.ROOT, "  %10s %12.3f %10d%n", formatPercentile(percentile), value / 1e6,
+                    countAtOrBelow(value));
+        }
+    }
+
+    private long countAtOrBelow(long value) {
+        long seen = 0;
+        int last = index(Math.min(value, HIGHEST_TRACKABLE));
+        for (int i = 0; i <= last; i++) {
+            seen += counts[i];
+        }
+        return seen;
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? Long.toString((long) percentile)
+                : Double.toString(percentile);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> bucket) - HALF_SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (bucket - 1) * HALF_SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int bucket = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
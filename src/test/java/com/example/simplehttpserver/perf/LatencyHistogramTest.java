@@ -0,0 +1,66 @@
+package com.example.simplehttpserver.perf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void reportsPercentilesWithinItsPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(5_000_500, histogram.mean(), 0.001);
+        assertClose(5_000_000, histogram.valueAtPercentile(50));
+        assertClose(9_900_000, histogram.valueAtPercentile(99));
+        assertClose(9_990_000, histogram.valueAtPercentile(99.9));
+        assertEquals(1_000, histogram.valueAtPercentile(0));
+        assertEquals(10_000_000, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    void countsSmallValuesExactlyAndClampsHugeOnes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.valueAtPercentile(10));
+        assertEquals(7, histogram.valueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.max());
+        assertTrue(histogram.valueAtPercentile(99) >= 1L << 39);
+    }
+
+    @Test
+    void addsHistogramsAndPrintsTheDistribution() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            first.record(1_000_000);
+        }
+        second.record(250_000_000);
+        first.add(second);
+
+        assertEquals(100, first.count());
+        assertClose(1_000_000, first.valueAtPercentile(99));
+        assertEquals(250_000_000, first.valueAtPercentile(99.9));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        first.printPercentiles(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        String printed = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("99.9      250.000        100"), printed);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 500, "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.simplehttpserver.perf;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends GET requests to a server from a fixed number of connections and records how long each one took.
+ *
+ * <p>Each connection sends its next request when the previous response has been read (a closed loop). With
+ * no target rate the connections send as fast as the server answers, which measures peak throughput. With a
+ * target rate each connection follows its share of a fixed schedule, and a request's latency is measured from
+ * the time the schedule said it should be sent, not from when the connection got around to sending it. A
+ * server that stalls for a second then shows a second of latency for every request that was due during the
+ * stall, instead of one slow request followed by fast ones (coordinated omission). The time from actual send
+ * to response is reported separately as service time.
+ *
+ * <p>Connections send a returning browser's session cookie once the server has set one, so the run does not
+ * create a session per request.
+ */
+final class LoadGenerator {
+
+    private static final int SOCKET_TIMEOUT_MILLIS = 30_000;
+
+    enum ConnectionMode {
+        /** One connection per client, reused for every request. */
+        KEEP_ALIVE,
+        /** A new connection for every request, closed by the server after the response. */
+        PER_REQUEST;
+
+        static ConnectionMode fromProperty(String value) {
+            try {
+                return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Unsupported mode: " + value, exception);
+            }
+        }
+
+        String property() {
+            return name().replace('_', '-').toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * @param paths        request targets, sent round-robin by every connection
+     * @param concurrency  number of clients sending at the same time
+     * @param ratePerSecond total target rate over all clients, or 0 to send as fast as responses arrive
+     * @param warmup       time before recording starts
+     * @param duration     time recorded after the warmup
+     */
+    record Options(
+            String host,
+            int port,
+            List<String> paths,
+            ConnectionMode mode,
+            int concurrency,
+            int ratePerSecond,
+            Duration warmup,
+            Duration duration
+    ) {
+        Options {
+            paths = List.copyOf(paths);
+            if (paths.isEmpty()) {
+                throw new IllegalArgumentException("At least one path is required");
+            }
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive");
+            }
+            if (ratePerSecond < 0) {
+                throw new IllegalArgumentException("rate must not be negative");
+            }
+        }
+    }
+
+    /**
+     * @param latency     time from the intended send time to the end of the response
+     * @param serviceTime time from the actual send to the end of the response; equal to {@code latency} without
+     *                    a target rate
+     */
+    record Report(
+            Options options,
+            Duration elapsed,
+            long errors,
+            long unsuccessful,
+            LatencyHistogram latency,
+            LatencyHistogram serviceTime
+    ) {
+        double throughput() {
+            return latency.count() / (elapsed.toNanos() / 1e9);
+        }
+    }
+
+    private LoadGenerator() {
+    }
+
+    static Report run(Options options) throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + options.warmup().toNanos();
+        long end = recordFrom + options.duration().toNanos();
+        // Each client's share of the schedule, offset so the clients do not all send at the same instant.
+        long intervalNanos = options.ratePerSecond() == 0
+                ? 0
+                : Math.max(1, 1_000_000_000L * options.concurrency() / options.ratePerSecond());
+
+        List<Client> clients = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.concurrency(); i++) {
+            long firstSend = start + intervalNanos * i / options.concurrency();
+            Client client = new Client(options, i, firstSend, intervalNanos, recordFrom, end);
+            clients.add(client);
+            threads.add(Thread.ofPlatform().name("load-generator-" + i).start(client));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        long errors = 0;
+        long unsuccessful = 0;
+        for (Client client : clients) {
+            latency.add(client.latency);
+            serviceTime.add(client.serviceTime);
+            errors += client.errors;
+            unsuccessful += client.unsuccessful;
+        }
+        return new Report(options, Duration.ofNanos(end - recordFrom), errors, unsuccessful, latency, serviceTime);
+    }
+
+    /**
+     * One simulated client with its own connection and histograms.
+     */
+    private static final class Client implements Runnable {
+
+        private final Options options;
+        private final int offset;
+        private final long firstSend;
+        private final long intervalNanos;
+        private final long recordFrom;
+        private final long end;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final byte[] buffer = new byte[8192];
+        private long errors;
+        private long unsuccessful;
+        private String cookie;
+        private boolean reusable;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Client(Options options, int offset, long firstSend, long intervalNanos, long recordFrom, long end) {
+            this.options = options;
+            this.offset = offset;
+            this.firstSend = firstSend;
+            this.intervalNanos = intervalNanos;
+            this.recordFrom = recordFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            long intended = firstSend;
+            try {
+                for (long sent = 0; ; sent++) {
+                    if (intervalNanos > 0) {
+                        // Wait for the next scheduled send, but never skip one that is already late.
+                        long now;
+                        while ((now = System.nanoTime()) < intended) {
+                            LockSupport.parkNanos(intended - now);
+                        }
+                    } else {
+                        intended = System.nanoTime();
+                    }
+                    if (intended >= end) {
+                        return;
+                    }
+
+                    String path = options.paths().get((int) ((sent + offset) % options.paths().size()));
+                    long sendStart = System.nanoTime();
+                    int status = exchange(path);
+                    long done = System.nanoTime();
+                    if (done >= recordFrom) {
+                        if (status < 0) {
+                            errors++;
+                        } else {
+                            latency.record(done - intended);
+                            serviceTime.record(done - sendStart);
+                            if (status >= 400) {
+                                unsuccessful++;
+                            }
+                        }
+                    }
+                    intended += intervalNanos;
+                }
+            } finally {
+                closeConnection();
+            }
+        }
+
+        /**
+         * Sends one request and reads its response, opening a connection first if needed. Returns the response
+         * status, or -1 if the connection failed, after closing it so the next request opens a new one.
+         */
+        private int exchange(String path) {
+            try {
+                if (socket == null) {
+                    openConnection();
+                }
+                out.write(request(path));
+                out.flush();
+                int status = readResponse();
+                if (!reusable || options.mode() == ConnectionMode.PER_REQUEST) {
+                    closeConnection();
+                }
+                return status;
+            } catch (IOException exception) {
+                closeConnection();
+                return -1;
+            }
+        }
+
+        private void openConnection() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            socket.connect(new InetSocketAddress(options.host(), options.port()), SOCKET_TIMEOUT_MILLIS);
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            out = socket.getOutputStream();
+        }
+
+        private void closeConnection() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // The connection is discarded either way.
+                }
+                socket = null;
+            }
+        }
+
+        private byte[] request(String path) {
+            StringBuilder request = new StringBuilder(160)
+                    .append("GET ").append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(options.host()).append(':').append(options.port()).append("\r\n")
+                    .append("User-Agent: SimpleHttpServer-LoadGenerator\r\n");
+            if (cookie != null) {
+                request.append("Cookie: ").append(cookie).append("\r\n");
+            }
+            if (options.mode() == ConnectionMode.PER_REQUEST) {
+                request.append("Connection: close\r\n");
+            }
+            return request.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Reads a whole response and returns its status; {@code reusable} tells whether the connection may be
+         * used for the next request.
+         */
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+                int separator = line.indexOf(':');
+                String name = line.substring(0, separator).trim();
+                String value = line.substring(separator + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    contentLength = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = value.equalsIgnoreCase("close");
+                } else if (name.equalsIgnoreCase("Set-Cookie")) {
+                    cookie = value.substring(0, value.indexOf(';') < 0 ? value.length() : value.indexOf(';'));
+                }
+            }
+
+            if (chunked) {
+                for (long size = chunkSize(); size > 0; size = chunkSize()) {
+                    skip(size);
+                    readLine();
+                }
+                for (String trailer = readLine(); !trailer.isEmpty(); trailer = readLine()) {
+                    // Trailers are not used.
+                }
+            } else if (contentLength >= 0) {
+                skip(contentLength);
+            } else if (status >= 200 && status != 204 && status != 304) {
+                // The body runs until the server closes the connection.
+                while (in.read(buffer) >= 0) {
+                    // Discard.
+                }
+                reusable = false;
+                return status;
+            }
+            reusable = !close;
+            return status;
+        }
+
+        private long chunkSize() throws IOException {
+            String line = readLine();
+            int extension = line.indexOf(';');
+            return Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+        }
+
+        private void skip(long length) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Connection closed inside a response body");
+                }
+                remaining -= read;
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException("Connection closed inside a response head");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
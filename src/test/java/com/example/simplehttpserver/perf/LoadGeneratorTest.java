@@ -0,0 +1,118 @@
+package com.example.simplehttpserver.perf;
+
+import com.example.simplehttpserver.server.SimpleHttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadGeneratorTest {
+
+    @Test
+    void drivesEveryScenarioInBothConnectionModes() throws Exception {
+        try (SimpleHttpServer server = LoadTestApplication.startServer("", new Properties())) {
+            for (LoadGenerator.ConnectionMode mode : LoadGenerator.ConnectionMode.values()) {
+                for (List<String> paths : LoadTestApplication.SCENARIOS.values()) {
+                    LoadGenerator.Report report = LoadGenerator.run(new LoadGenerator.Options("127.0.0.1",
+                            server.getBoundPort(), paths, mode, 2, 0, Duration.ZERO, Duration.ofMillis(100)));
+
+                    assertTrue(report.latency().count() > 0, mode + " " + paths);
+                    assertEquals(0, report.errors(), mode + " " + paths);
+                    assertEquals(0, report.unsuccessful(), mode + " " + paths);
+                }
+            }
+        }
+    }
+
+    @Test
+    void measuresLatencyFromTheScheduleSoAStallCountsForEveryDelayedRequest() throws Exception {
+        AtomicBoolean stalled = new AtomicBoolean();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread.ofVirtual().start(() -> serve(serverSocket, stalled));
+
+            // 100 requests/s on one connection for a second; the first response takes 500 ms.
+            LoadGenerator.Report report = LoadGenerator.run(new LoadGenerator.Options("127.0.0.1",
+                    serverSocket.getLocalPort(), List.of("/"), LoadGenerator.ConnectionMode.KEEP_ALIVE, 1, 100,
+                    Duration.ZERO, Duration.ofSeconds(1)));
+
+            // Sends are scheduled every 10 ms from the start and late ones are never skipped, so the count does
+            // not depend on how fast the machine is.
+            assertEquals(100, report.latency().count() + report.errors());
+            // The 50 requests due during the stall waited behind it, from 500 ms for the first down to 10 ms, so
+            // p75 is at least 250 ms whatever the load. That wait is not part of their service time; the wide
+            // margin leaves a slow machine 150 ms per request before the gap closes.
+            long latencyP75 = report.latency().valueAtPercentile(75);
+            long serviceP75 = report.serviceTime().valueAtPercentile(75);
+            assertTrue(latencyP75 >= 200_000_000, "p75 " + latencyP75);
+            assertTrue(latencyP75 - serviceP75 >= 100_000_000, "p75 " + latencyP75 + ", service p75 " + serviceP75);
+        }
+    }
+
+    @Test
+    void countsUnsuccessfulResponsesOnlyAfterTheWarmup() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread.ofVirtual().start(() -> serveFailingFirst(serverSocket));
+
+            // Only the first response is a 500, long before the warmup ends.
+            LoadGenerator.Report report = LoadGenerator.run(new LoadGenerator.Options("127.0.0.1",
+                    serverSocket.getLocalPort(), List.of("/"), LoadGenerator.ConnectionMode.KEEP_ALIVE, 1, 0,
+                    Duration.ofMillis(300), Duration.ofMillis(100)));
+
+            assertTrue(report.latency().count() > 0);
+            assertEquals(0, report.unsuccessful());
+        }
+    }
+
+    private static void serve(ServerSocket serverSocket, AtomicBoolean stalled) {
+        try (Socket socket = serverSocket.accept()) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = socket.getOutputStream();
+            while (in.readLine() != null) {
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    // Skip the headers.
+                }
+                if (stalled.compareAndSet(false, true)) {
+                    Thread.sleep(500);
+                }
+                out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.ISO_8859_1));
+            }
+        } catch (IOException | InterruptedException exception) {
+            // The test closes the server socket when it is done.
+        }
+    }
+
+    private static void serveFailingFirst(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept()) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = socket.getOutputStream();
+            String status = "500 Internal Server Error";
+            while (in.readLine() != null) {
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    // Skip the headers.
+                }
+                out.write(("HTTP/1.1 " + status + "\r\nContent-Length: 2\r\n\r\nok")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                status = "200 OK";
+            }
+        } catch (IOException exception) {
+            // The test closes the server socket when it is done.
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.simplehttpserver.perf;
+
+import com.example.simplehttpserver.app.DefaultRoutes;
+import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.config.ServerConfigLoader;
+import com.example.simplehttpserver.routing.Router;
+import com.example.simplehttpserver.server.SimpleHttpServer;
+import com.example.simplehttpserver.template.TemplateService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Starts a {@link SimpleHttpServer} on loopback with the bundled configuration and {@link DefaultRoutes}, runs
+ * {@link LoadGenerator} against one scenario after another and prints throughput and latency percentiles.
+ *
+ * <p>Options are {@code --name=value}: {@code scenarios} (comma-separated, default all of {@link #SCENARIOS}),
+ * {@code mode} ({@code keep-alive} or {@code per-request}), {@code concurrency}, {@code rate} (requests per
+ * second over all connections, 0 for as fast as possible), {@code warmupSeconds}, {@code durationSeconds} and
+ * {@code target} ({@code host:port} of an already running server, instead of starting one). The started
+ * server reads {@code config}, a properties file in the format of {@code server.properties}, if given; any
+ * other {@code key=value} argument overrides that key, for example {@code server.ioModel=nio}.
+ *
+ * <pre>
+ * mvn -Pperf verify -DskipTests -Dperf.concurrency=64 -Dperf.config=nio.properties
+ * </pre>
+ */
+public final class LoadTestApplication {
+
+    // Held so the level set on it is not lost when the logger is garbage collected.
+    private static final Logger SERVER_LOGGER = Logger.getLogger("com.example.simplehttpserver");
+
+    static final Map<String, List<String>> SCENARIOS = new LinkedHashMap<>();
+
+    static {
+        SCENARIOS.put("hello", List.of("/hello"));
+        SCENARIOS.put("json", List.of("/users/42"));
+        SCENARIOS.put("echo", List.of("/echo?course=http&tag=java&tag=nio"));
+        SCENARIOS.put("template", List.of("/template?name=Ana"));
+        SCENARIOS.put("static", List.of("/index.html", "/styles.css", "/sample.txt"));
+        SCENARIOS.put("script", List.of("/scripts/basic.smscr"));
+    }
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Properties serverProperties = new Properties();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value or key=value: " + arg);
+            }
+            String name = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            if (name.startsWith("--")) {
+                options.put(name.substring(2), value);
+            } else if (!name.isBlank()) {
+                serverProperties.setProperty(name, value);
+            }
+        }
+
+        List<String> scenarios = new ArrayList<>();
+        for (String name : options.getOrDefault("scenarios", String.join(",", SCENARIOS.keySet())).split(",")) {
+            String scenario = name.trim();
+            if (scenario.isEmpty()) {
+                continue;
+            }
+            if (!SCENARIOS.containsKey(scenario)) {
+                throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected one of "
+                        + SCENARIOS.keySet());
+            }
+            scenarios.add(scenario);
+        }
+        LoadGenerator.ConnectionMode mode =
+                LoadGenerator.ConnectionMode.fromProperty(options.getOrDefault("mode", "keep-alive"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "0"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmupSeconds", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("durationSeconds", "10")));
+        String target = options.getOrDefault("target", "");
+
+        // The access log line per request would cost more than most requests.
+        SERVER_LOGGER.setLevel(Level.WARNING);
+
+        SimpleHttpServer server = null;
+        String host;
+        int port;
+        if (target.isBlank()) {
+            server = startServer(options.getOrDefault("config", ""), serverProperties);
+            host = "127.0.0.1";
+            port = server.getBoundPort();
+        } else {
+            int separator = target.lastIndexOf(':');
+            host = target.substring(0, separator);
+            port = Integer.parseInt(target.substring(separator + 1));
+        }
+
+        try {
+            System.out.printf(Locale.ROOT, "Load test against %s:%d: %s, %d connections, %s, %ds warmup, %ds%n",
+                    host, port, mode.property(), concurrency, rate == 0 ? "unthrottled" : rate + " requests/s",
+                    warmup.toSeconds(), duration.toSeconds());
+            for (String scenario : scenarios) {
+                LoadGenerator.Options run = new LoadGenerator.Options(host, port, SCENARIOS.get(scenario), mode,
+                        concurrency, rate, warmup, duration);
+                print(scenario, LoadGenerator.run(run), System.out);
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    static SimpleHttpServer startServer(String configFile, Properties arguments) throws IOException {
+        Properties overrides = new Properties();
+        if (!configFile.isBlank()) {
+            try (InputStream in = Files.newInputStream(Path.of(configFile))) {
+                overrides.load(in);
+            }
+        }
+        overrides.putAll(arguments);
+        overrides.setProperty("server.host", "127.0.0.1");
+        overrides.setProperty("server.port", "0");
+        Path file = Files.createTempFile("load-test", ".properties");
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                overrides.store(out, "Load test overrides");
+            }
+            ServerConfig config = ServerConfigLoader.load(file);
+            Router router = new Router();
+            DefaultRoutes.register(router, new TemplateService(config.templatesRoot()));
+            SimpleHttpServer server = new SimpleHttpServer(config, router);
+            server.start();
+            return server;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static void print(String scenario, LoadGenerator.Report report, PrintStream out) {
+        LatencyHistogram latency = report.latency();
+        out.printf(Locale.ROOT, "%n%s %s%n", scenario, report.options().paths());
+        out.printf(Locale.ROOT, "  %d requests in %.1fs, %.0f requests/s, %d failed connections, %d 4xx/5xx%n",
+                latency.count(), report.elapsed().toNanos() / 1e9, report.throughput(), report.errors(),
+                report.unsuccessful());
+        out.printf(Locale.ROOT, "  latency      p50 %8.3f ms  p99 %8.3f ms  p99.9 %8.3f ms  max %8.3f ms%n",
+                latency.valueAtPercentile(50) / 1e6, latency.valueAtPercentile(99) / 1e6,
+                latency.valueAtPercentile(99.9) / 1e6, latency.max() / 1e6);
+        if (report.options().ratePerSecond() > 0) {
+            LatencyHistogram serviceTime = report.serviceTime();
+            out.printf(Locale.ROOT, "  service time p50 %8.3f ms  p99 %8.3f ms  p99.9 %8.3f ms  max %8.3f ms%n",
+                    serviceTime.valueAtPercentile(50) / 1e6, serviceTime.valueAtPercentile(99) / 1e6,
+                    serviceTime.valueAtPercentile(99.9) / 1e6, serviceTime.max() / 1e6);
+        }
+        latency.printPercentiles(out);
+    }
+}
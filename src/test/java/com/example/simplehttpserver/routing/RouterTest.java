@@ -9,10 +9,12 @@ import com.example.simplehttpserver.server.SessionManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RouterTest {
@@ -55,4 +57,66 @@ class RouterTest {
         assertEquals(2, router.allowedMethods("/hello").size());
         assertTrue(router.allowedMethods("/missing").isEmpty());
     }
+
+    @Test
+    void prefersLiteralSegmentsAndBacktracksToParameters() throws Exception {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/users/{id}/posts", context ->
+                HttpResponse.text(HttpStatus.OK, "posts of " + context.pathParam("id").orElseThrow()));
+        router.addRoute(HttpMethod.GET, "/users/me", context -> HttpResponse.text(HttpStatus.OK, "me"));
+        router.addRoute(HttpMethod.GET, "/users/{userId}", context ->
+                HttpResponse.text(HttpStatus.OK, "user " + context.pathParam("userId").orElseThrow()));
+
+        assertEquals("me", dispatch(router, HttpMethod.GET, "/users/me"));
+        assertEquals("user 7", dispatch(router, HttpMethod.GET, "/users/7/"));
+        assertEquals("posts of me", dispatch(router, HttpMethod.GET, "/users/me/posts"));
+        assertNull(dispatch(router, HttpMethod.GET, "/users/7/comments"));
+        assertNull(dispatch(router, HttpMethod.POST, "/users/7"));
+    }
+
+    @Test
+    void wildcardCapturesRemainingPath() throws Exception {
+        Router router = new Router();
+        router.addRoute(HttpMethod.GET, "/files/{path*}", context ->
+                HttpResponse.text(HttpStatus.OK, "[" + context.pathParam("path").orElseThrow() + "]"));
+        router.addRoute(HttpMethod.GET, "/files/readme", context -> HttpResponse.text(HttpStatus.OK, "readme"));
+        router.addRoute(HttpMethod.POST, "/files/*", context -> HttpResponse.text(HttpStatus.OK, "upload"));
+
+        assertEquals("[a/b/c.txt]", dispatch(router, HttpMethod.GET, "/files/a/b/c.txt"));
+        assertEquals("[]", dispatch(router, HttpMethod.GET, "/files"));
+        assertEquals("readme", dispatch(router, HttpMethod.GET, "/files/readme"));
+        assertEquals("upload", dispatch(router, HttpMethod.POST, "/files/readme"));
+        assertEquals(Set.of(HttpMethod.GET, HttpMethod.POST), router.allowedMethods("/files/readme"));
+        assertThrows(IllegalArgumentException.class,
+                () -> router.addRoute(HttpMethod.GET, "/{rest*}/tail", context -> null));
+    }
+
+    @Test
+    void matchReportsPatternBeforeRunningHandler() throws Exception {
+        Router router = new Router();
+        int[] calls = new int[1];
+        router.addRoute(HttpMethod.GET, "/users/{id}", context -> {
+            calls[0]++;
+            return HttpResponse.text(HttpStatus.OK, context.pathParam("id").orElseThrow());
+        });
+        HttpRequest request = new HttpRequest(HttpMethod.GET, "/users/9", "/users/9", "HTTP/1.1", Map.of(), Map.of(),
+                new byte[0]);
+
+        Router.Match match = router.match(request).orElseThrow();
+
+        assertEquals("/users/{id}", match.pattern());
+        assertEquals(0, calls[0]);
+        assertEquals("9", new String(match.handle(sessionManager.resolve(request).session()).body()));
+        assertEquals(1, calls[0]);
+        assertTrue(router.match(new HttpRequest(HttpMethod.GET, "/posts", "/posts", "HTTP/1.1", Map.of(), Map.of(),
+                new byte[0])).isEmpty());
+    }
+
+    private String dispatch(Router router, HttpMethod method, String path) throws Exception {
+        HttpRequest request = new HttpRequest(method, path, path, "HTTP/1.1", Map.of(), Map.of(), new byte[0]);
+        Session session = sessionManager.resolve(request).session();
+        return router.dispatch(request, session)
+                .map(response -> new String(response.body()))
+                .orElse(null);
+    }
 }
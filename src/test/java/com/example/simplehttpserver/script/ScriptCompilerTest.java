@@ -0,0 +1,115 @@
+package com.example.simplehttpserver.script;
+
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.server.Session;
+import com.example.simplehttpserver.server.SessionManager;
+import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
+import com.example.simplehttpserver.script.compiler.ScriptCompileException;
+import com.example.simplehttpserver.script.compiler.ScriptCompiler;
+import com.example.simplehttpserver.script.parser.ScriptParser;
+import com.example.simplehttpserver.script.runtime.ScriptEngine;
+import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScriptCompilerTest {
+
+    private final SessionManager sessionManager = new SessionManager(60);
+
+    @AfterEach
+    void tearDown() {
+        sessionManager.close();
+    }
+
+    @Test
+    void compiledScriptsMatchInterpreterOutput() {
+        List<String> sources = List.of(
+                "plain text only",
+                "[$ FOR i 1 3 1 $]<[$= i $]>[$END$][$= 2 3 + $]",
+                "[$ FOR i 1 3 1 $][$ FOR i i 3 1 $][$= i $][$END$]|[$= i $];[$END$]",
+                "[$ FOR x 0.5 2 0.5 $][$= x 2 * $],[$END$][$ FOR y 1 2 0.5 $][$= y $],[$END$]",
+                "[$ FOR s \"1\" \"3\" 1 $][$= s \"2\" * $][$END$][$ FOR n 1 \"2.5\" 1 $][$= n $][$END$]",
+                "[$= 7 2 / 7 2 - 7 2 * 1 2.5 + \"3\" 4 + \"1.5\" 2 * $]",
+                "[$= 2147483647 1 + 10 -3 - $]",
+                "[$= 1 2 3 @dup + 1.5 @dup * $]",
+                "[$= 30 @sin \"0.000\" @decfmt 2 \"#.00\" @decfmt $]",
+                "[$= \"text/plain\" @setMimeType \"name\" \"guest\" @paramGet \"missing\" 5 @paramGet $]",
+                "[$= 1 \"t\" @tparamSet \"t\" \"?\" @tparamGet \"t\" @tparamDel \"t\" \"gone\" @tparamGet $]",
+                "[$= 9 \"p\" @PPARAMSET \"p\" 0 @pparamGet \"p\" @pparamDel \"p\" 0 @pparamGet $]",
+                "čćž € [$= 1 $] čćž € [$= 2 $] čćž € ",
+                "[$= \"\uD83D\" $]\uDE00 pairs with echo output \uD83D[$= \"\uDE00\" $] \uD83D[$= 1 $]",
+                "a".repeat(16_383) + "\uD83D\uDE00" + "b".repeat(20_000) + "[$= 1 $]"
+        );
+
+        for (String source : sources) {
+            assertEquals(interpret(source), compile(source), source);
+        }
+    }
+
+    @Test
+    void bundledScriptsCompileAndMatchInterpreterOutput() throws IOException {
+        for (String name : List.of("api-health", "basic", "callcount", "campaign-report", "fibonacci", "invoice",
+                "support-ticket", "timesheet")) {
+            String source = resource("/public/scripts/" + name + ".smscr");
+            assertEquals(interpret(source), compile(source), name);
+        }
+    }
+
+    @Test
+    void divisionByZeroFailsAtRunTime() {
+        ScriptDocumentNode document = new ScriptParser().parse("[$= 1 0 / $]");
+
+        ScriptExecutionContext context = context();
+        assertThrows(ScriptRuntimeException.class, () -> new ScriptCompiler().compile(document).execute(context));
+    }
+
+    @Test
+    void rejectsScriptsThatOnlyFailWhenInterpreted() {
+        ScriptCompiler compiler = new ScriptCompiler();
+        ScriptParser parser = new ScriptParser();
+
+        assertThrows(ScriptCompileException.class, () -> compiler.compile(parser.parse("[$= missing $]")));
+        assertThrows(ScriptCompileException.class, () -> compiler.compile(parser.parse("[$= 1 + $]")));
+        assertThrows(ScriptCompileException.class, () -> compiler.compile(parser.parse("[$= 1 @unknown $]")));
+        assertThrows(ScriptCompileException.class,
+                () -> compiler.compile(parser.parse("[$ FOR i 1 3 1 $][$END$][$= i $]")));
+    }
+
+    private String interpret(String source) {
+        ScriptExecutionContext context = context();
+        new ScriptEngine().execute(new ScriptParser().parse(source), context);
+        return context.mimeType() + "|" + context.outputText();
+    }
+
+    private String compile(String source) {
+        ScriptExecutionContext context = context();
+        new ScriptCompiler().compile(new ScriptParser().parse(source)).execute(context);
+        return context.mimeType() + "|" + context.outputText();
+    }
+
+    private ScriptExecutionContext context() {
+        Session session = sessionManager.resolve(dummyRequest()).session();
+        return new ScriptExecutionContext(Map.of("name", List.of("Alice")), session);
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream input = ScriptCompilerTest.class.getResourceAsStream(name)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private HttpRequest dummyRequest() {
+        return new HttpRequest(HttpMethod.GET, "/", "/", "HTTP/1.1", Map.of(), Map.of(), new byte[0]);
+    }
+}
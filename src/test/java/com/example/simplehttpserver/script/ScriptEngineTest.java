@@ -8,6 +8,7 @@ import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
 import com.example.simplehttpserver.script.parser.ScriptParser;
 import com.example.simplehttpserver.script.runtime.ScriptEngine;
 import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ScriptEngineTest {
@@ -53,6 +55,44 @@ class ScriptEngineTest {
         assertTrue(context.outputText().contains("Alice"));
     }
 
+    @Test
+    void keepsIntegerAndFloatingPointArithmeticApart() {
+        String source = "[$= 7 2 / 7 2 - \"3\" 4 * \"1.5\" 2 + 2147483647 1 + $]"
+                + "[$ FOR x 1 2 0.5 $] [$= x $][$END$][$ FOR s \"1\" 2 1 $] [$= s $][$END$]";
+
+        assertEquals("3.55123.5-2147483648 1 1.5 2.0 1 2", execute(source));
+    }
+
+    @Test
+    void resolvesShadowedLoopVariablesLexically() {
+        String source = "[$ FOR i 1 2 1 $][$ FOR i i 3 1 $][$= i @dup * $],[$END$]|[$= i $]|[$END$]";
+
+        assertEquals("1,4,9,|1|4,9,|2|", execute(source));
+    }
+
+    @Test
+    void reportsUndefinedVariablesAndUnknownFunctionsOnlyWhenReached() {
+        assertEquals("ok", execute("[$ FOR i 2 1 1 $][$= missing @nothing $][$END$]ok"));
+
+        ScriptRuntimeException undefined = assertThrows(ScriptRuntimeException.class,
+                () -> execute("[$ FOR i 1 1 1 $][$END$][$= i $]"));
+        assertEquals("No value on stack for variable: i", undefined.getMessage());
+
+        ScriptRuntimeException unknown = assertThrows(ScriptRuntimeException.class,
+                () -> execute("[$= 1 @Nothing $]"));
+        assertEquals("Unsupported function: @nothing", unknown.getMessage());
+
+        ScriptRuntimeException missing = assertThrows(ScriptRuntimeException.class, () -> execute("[$= 1 + $]"));
+        assertEquals("Operator '+' requires two operands.", missing.getMessage());
+    }
+
+    private String execute(String source) {
+        Session session = sessionManager.resolve(dummyRequest()).session();
+        ScriptExecutionContext context = new ScriptExecutionContext(Map.of(), session);
+        new ScriptEngine().execute(new ScriptParser().parse(source), context);
+        return context.outputText();
+    }
+
     private HttpRequest dummyRequest() {
         return new HttpRequest(
                 HttpMethod.GET,
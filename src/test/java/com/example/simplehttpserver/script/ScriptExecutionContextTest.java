@@ -0,0 +1,118 @@
+package com.example.simplehttpserver.script;
+
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.server.Session;
+import com.example.simplehttpserver.server.SessionManager;
+import com.example.simplehttpserver.script.runtime.ScriptExecutionContext;
+import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptExecutionContextTest {
+
+    private final SessionManager sessionManager = new SessionManager(60);
+
+    @AfterEach
+    void tearDown() {
+        sessionManager.close();
+    }
+
+    @Test
+    void encodesUtf8LikeStringGetBytes() {
+        String[] parts = {"ascii ", "čćž €", " \uD83D", "\uDE00 pair split across writes", " lone \uDC00 \uD83D",
+                "x", "a".repeat(40_000), " end \uD83D"};
+
+        try (ScriptExecutionContext context = context(null)) {
+            for (String part : parts) {
+                context.write(part);
+            }
+
+            String expected = String.join("", parts);
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), context.outputBytes());
+            assertEquals(new String(expected.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                    context.outputText());
+        }
+    }
+
+    @Test
+    void copiesEncodedBytesBetweenStringWrites() throws Exception {
+        byte[] encoded = ("čćž " + "b".repeat(40_000)).getBytes(StandardCharsets.UTF_8);
+
+        try (ScriptExecutionContext context = context(null)) {
+            context.write("a \uD83D");
+            context.write(encoded);
+            context.write(" end");
+
+            String expected = "a ?čćž " + "b".repeat(40_000) + " end";
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), context.outputBytes());
+        }
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        try (ScriptExecutionContext context = context(received)) {
+            context.write("a ");
+            context.write(encoded);
+            assertTrue(context.flushed());
+            context.finish();
+            assertEquals("a čćž " + "b".repeat(40_000), received.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void streamsFullBuffersAndLocksMimeTypeOnFirstFlush() throws Exception {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int[] flushes = {0};
+        OutputStream stream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                received.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                received.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        try (ScriptExecutionContext context = context(stream)) {
+            context.setMimeType("text/csv");
+            context.write("x".repeat(10_000));
+            assertEquals(0, received.size());
+            assertFalse(context.flushed());
+
+            context.write("y".repeat(10_000));
+            assertTrue(context.flushed());
+            assertEquals(1, flushes[0]);
+            assertThrows(ScriptRuntimeException.class, () -> context.setMimeType("text/plain"));
+            assertEquals("text/csv", context.mimeType());
+
+            context.finish();
+            assertEquals("x".repeat(10_000) + "y".repeat(10_000), received.toString(StandardCharsets.UTF_8));
+            assertThrows(IllegalStateException.class, context::outputBytes);
+        }
+    }
+
+    private ScriptExecutionContext context(OutputStream stream) {
+        Session session = sessionManager.resolve(
+                new HttpRequest(HttpMethod.GET, "/", "/", "HTTP/1.1", Map.of(), Map.of(), new byte[0])).session();
+        return stream == null
+                ? new ScriptExecutionContext(Map.of(), session)
+                : new ScriptExecutionContext(Map.of(), session, stream);
+    }
+}
@@ -2,12 +2,16 @@ package com.example.simplehttpserver.script;
 
 import com.example.simplehttpserver.script.ast.ScriptDocumentNode;
 import com.example.simplehttpserver.script.ast.ExpressionTokenType;
+import com.example.simplehttpserver.script.ast.ScriptEchoNode;
 import com.example.simplehttpserver.script.ast.ScriptForLoopNode;
+import com.example.simplehttpserver.script.parser.ScriptParseException;
 import com.example.simplehttpserver.script.parser.ScriptParser;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class ScriptParserTest {
 
@@ -24,5 +28,17 @@ class ScriptParserTest {
         assertEquals(ExpressionTokenType.INTEGER, forLoopNode.endExpression().type());
         assertEquals(ExpressionTokenType.INTEGER, forLoopNode.stepExpression().type());
         assertEquals(2, forLoopNode.children().size());
+        assertEquals(1, forLoopNode.startExpression().value());
+    }
+
+    @Test
+    void decodesLiteralsOnceAndRejectsOutOfRangeIntegers() {
+        ScriptDocumentNode document = new ScriptParser().parse("[$= 2.5 \"text\" x $]");
+
+        ScriptEchoNode echo = assertInstanceOf(ScriptEchoNode.class, document.children().get(0));
+        assertEquals(2.5, echo.tokens().get(0).value());
+        assertEquals("text", echo.tokens().get(1).value());
+        assertNull(echo.tokens().get(2).value());
+        assertThrows(ScriptParseException.class, () -> new ScriptParser().parse("[$= 2147483648 $]"));
     }
 }
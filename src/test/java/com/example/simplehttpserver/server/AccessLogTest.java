@@ -0,0 +1,194 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.AccessLogConfig;
+import com.example.simplehttpserver.config.AccessLogOverflow;
+import com.example.simplehttpserver.config.AccessLogTarget;
+import com.example.simplehttpserver.http.HttpMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+
+    private static final byte[] CLIENT = AccessLog.address(InetAddress.getLoopbackAddress());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesOneFixedLayoutLinePerRecord() throws Exception {
+        Path file = tempDir.resolve("logs/access.log");
+        AccessLog accessLog = new AccessLog(new AccessLogConfig(AccessLogTarget.FILE, file.toString(), 16,
+                AccessLogOverflow.DROP, 0, 0, 10));
+
+        accessLog.record(HttpMethod.GET, "/users/7", 200, 281, 523_400, CLIENT);
+        accessLog.record(HttpMethod.POST, "/café menu\n", 404, 0, 999, AccessLog.address(null));
+        accessLog.record(HttpMethod.GET, "/" + "x".repeat(400), 200, 1, 0, CLIENT);
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        String timestamp = "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z ";
+        assertMatches(timestamp + "127\\.0\\.0\\.1 GET /users/7 200 281 523", lines.get(0));
+        assertMatches(timestamp + "- POST /café%20menu%0A 404 0 0", lines.get(1));
+        assertMatches(timestamp + "127\\.0\\.0\\.1 GET /x{" + (AccessLog.MAX_PATH_BYTES - 1) + "} 200 1 0",
+                lines.get(2));
+    }
+
+    @Test
+    void rotatesFilesBySizeAndKeepsTheConfiguredNumber() throws Exception {
+        Path file = tempDir.resolve("access.log");
+        AccessLog accessLog = new AccessLog(new AccessLogConfig(AccessLogTarget.FILE, file.toString(), 16,
+                AccessLogOverflow.DROP, 1, 1, 10));
+
+        for (int i = 1; i <= 3; i++) {
+            accessLog.record(HttpMethod.GET, "/" + i, 200, 0, 0, CLIENT);
+            awaitContent(file, "/" + i + " ");
+        }
+        accessLog.close();
+
+        assertTrue(Files.readString(file).contains(" /3 "));
+        assertTrue(Files.readString(tempDir.resolve("access.log.1")).contains(" /2 "));
+        assertFalse(Files.exists(tempDir.resolve("access.log.2")));
+    }
+
+    @Test
+    void keepsAppendingWhenTheFileCannotBeRotated() throws Exception {
+        Path file = tempDir.resolve("access.log");
+        // A non-empty directory where the rotated file should go makes the move fail.
+        Path blocker = Files.createDirectories(tempDir.resolve("access.log.1"));
+        Files.writeString(blocker.resolve("keep"), "x");
+        AccessLog accessLog = new AccessLog(new AccessLogConfig(AccessLogTarget.FILE, file.toString(), 16,
+                AccessLogOverflow.DROP, 1, 1, 10));
+
+        for (int i = 1; i <= 3; i++) {
+            accessLog.record(HttpMethod.GET, "/" + i, 200, 0, 0, CLIENT);
+            awaitContent(file, "/" + i + " ");
+        }
+        accessLog.close();
+
+        assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+        assertTrue(Files.isDirectory(blocker));
+    }
+
+    @Test
+    void dropsRecordsWhileTheBufferIsFull() throws Exception {
+        BlockingHandler handler = new BlockingHandler();
+        try (AccessLog accessLog = new AccessLog(new AccessLogConfig(AccessLogTarget.LOGGER, null, 2,
+                AccessLogOverflow.DROP, 0, 0, 10))) {
+            handler.install();
+            accessLog.record(HttpMethod.GET, "/1", 200, 0, 0, CLIENT);
+            assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+
+            // The record being written still holds its slot, so one more fits and the rest are dropped.
+            for (int i = 2; i <= 5; i++) {
+                accessLog.record(HttpMethod.GET, "/" + i, 200, 0, 0, CLIENT);
+            }
+            assertEquals(3, accessLog.dropped());
+
+            handler.release.countDown();
+            accessLog.close();
+            assertEquals(List.of("127.0.0.1 GET /1 200 0 0", "127.0.0.1 GET /2 200 0 0"), handler.messages);
+        } finally {
+            handler.uninstall();
+        }
+    }
+
+    @Test
+    void blocksRequestsWhileTheBufferIsFullWhenConfigured() throws Exception {
+        BlockingHandler handler = new BlockingHandler();
+        try (AccessLog accessLog = new AccessLog(new AccessLogConfig(AccessLogTarget.LOGGER, null, 2,
+                AccessLogOverflow.BLOCK, 0, 0, 10))) {
+            handler.install();
+            accessLog.record(HttpMethod.GET, "/1", 200, 0, 0, CLIENT);
+            assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+            accessLog.record(HttpMethod.GET, "/2", 200, 0, 0, CLIENT);
+
+            Thread blocked = Thread.ofPlatform().start(
+                    () -> accessLog.record(HttpMethod.GET, "/3", 200, 0, 0, CLIENT));
+            blocked.join(200);
+            assertTrue(blocked.isAlive());
+
+            handler.release.countDown();
+            blocked.join(5000);
+            assertFalse(blocked.isAlive());
+            accessLog.close();
+            assertEquals(0, accessLog.dropped());
+            assertEquals(3, handler.messages.size());
+        } finally {
+            handler.uninstall();
+        }
+    }
+
+    private static void assertMatches(String regex, String line) {
+        assertTrue(line.matches(regex), () -> "Expected " + regex + " but was " + line);
+    }
+
+    private static void awaitContent(Path file, String part) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Files.exists(file) || !Files.readString(file).contains(part)) {
+            assertTrue(System.nanoTime() < deadline, () -> "Access log never contained " + part);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Holds up the writer thread in its first log call until released, so the buffer stays occupied.
+     */
+    private static final class BlockingHandler extends Handler {
+
+        private final Logger logger = Logger.getLogger(AccessLog.class.getName());
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+
+        void install() {
+            logger.setUseParentHandlers(false);
+            logger.addHandler(this);
+        }
+
+        void uninstall() {
+            release.countDown();
+            logger.removeHandler(this);
+            logger.setUseParentHandlers(true);
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getLevel() != Level.INFO) {
+                return;
+            }
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
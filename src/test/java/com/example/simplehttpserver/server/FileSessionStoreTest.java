@@ -0,0 +1,112 @@
+package com.example.simplehttpserver.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileSessionStoreTest {
+
+    private static final long TIMEOUT = 60_000;
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresSessionsAndAttributesAfterRestart() throws IOException {
+        Path file = directory.resolve("sessions.log");
+        try (FileSessionStore store = open(file, NOW)) {
+            Session first = new Session("a", NOW + TIMEOUT, store);
+            store.add(first);
+            first.put("user", "ana");
+            first.put("theme", "dark");
+            first.remove("theme");
+            first.remove("missing");
+            Session second = new Session("b", NOW + 1_000, store);
+            store.add(second);
+            second.put("user", "ivo");
+            store.touch("a", NOW + 30_000, NOW + 30_000 + TIMEOUT);
+        }
+
+        try (FileSessionStore store = open(file, NOW + 40_000)) {
+            assertEquals(1, store.size());
+            assertEquals(0, store.createdCount());
+            assertNull(store.touch("b", NOW + 40_000, NOW + 40_000 + TIMEOUT));
+            Session restored = store.touch("a", NOW + 40_000, NOW + 40_000 + TIMEOUT);
+            assertNotNull(restored);
+            assertEquals(Map.of("user", "ana"), restored.snapshot());
+            restored.put("visits", "2");
+        }
+
+        try (FileSessionStore store = open(file, NOW + 50_000)) {
+            assertEquals(Map.of("user", "ana", "visits", "2"),
+                    store.touch("a", NOW + 50_000, NOW + 50_000 + TIMEOUT).snapshot());
+        }
+    }
+
+    @Test
+    void ignoresADamagedTail() throws IOException {
+        Path file = directory.resolve("sessions.log");
+        try (FileSessionStore store = open(file, NOW)) {
+            Session session = new Session("a", NOW + TIMEOUT, store);
+            store.add(session);
+            session.put("user", "ana");
+            store.flush();
+            session.put("user", "eve");
+        }
+
+        // Flip a byte in the last record, the one that changed the user to "eve".
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer log = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int position = 8;
+            while (log.getInt(position) != 0) {
+                position += 8 + log.getInt(position);
+            }
+            log.put(position - 1, (byte) (log.get(position - 1) ^ 1));
+        }
+
+        try (FileSessionStore store = open(file, NOW)) {
+            assertEquals(Map.of("user", "ana"), store.touch("a", NOW, NOW + TIMEOUT).snapshot());
+        }
+    }
+
+    @Test
+    void compactsTheLogWhenItFillsUp() throws IOException {
+        Path file = directory.resolve("sessions.log");
+        long initialSize;
+        try (FileSessionStore store = open(file, NOW)) {
+            initialSize = Files.size(file);
+            Session session = new Session("a", NOW + TIMEOUT, store);
+            store.add(session);
+            String value = "x".repeat(1_000);
+            for (int i = 0; i < 5_000; i++) {
+                session.put("counter", value + i);
+                if (i % 100 == 0) {
+                    store.flush();
+                }
+            }
+        }
+
+        assertEquals(initialSize, Files.size(file));
+        try (FileSessionStore store = open(file, NOW)) {
+            assertEquals("x".repeat(1_000) + 4_999,
+                    store.touch("a", NOW, NOW + TIMEOUT).get("counter").orElseThrow());
+        }
+    }
+
+    private static FileSessionStore open(Path file, long nowMillis) throws IOException {
+        // A long flush interval leaves flushing to the test and to close().
+        return new FileSessionStore(file, TIMEOUT, 4, 3_600_000, nowMillis);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ExecutionMode;
+import com.example.simplehttpserver.config.IoModel;
+import com.example.simplehttpserver.config.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs every {@link SimpleHttpServerIntegrationTest} scenario against the selector-based I/O model,
+ * plus checks that only make sense when connections do not pin worker threads.
+ */
+class NioSimpleHttpServerIntegrationTest extends SimpleHttpServerIntegrationTest {
+
+    @Override
+    ServerConfig testConfig() {
+        return testConfig(ExecutionMode.PLATFORM, ServerConfig.DEFAULT_MAX_CONCURRENCY, IoModel.NIO);
+    }
+
+    @Test
+    void idleConnectionsDoNotExhaustWorkers() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            List<Socket> idleSockets = new ArrayList<>();
+            try {
+                for (int i = 0; i < 200; i++) {
+                    idleSockets.add(new Socket("127.0.0.1", server.getBoundPort()));
+                }
+
+                try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                    socket.getOutputStream().write(rawGet("/hello", "HTTP/1.1", "Connection: close\r\n"));
+                    RawResponse response = RawResponse.read(socket.getInputStream());
+                    assertEquals(200, response.status());
+                    assertEquals("Hello World", response.body());
+                }
+            } finally {
+                for (Socket idleSocket : idleSockets) {
+                    idleSocket.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                OutputStream out = socket.getOutputStream();
+                byte[] first = rawGet("/users/1", "HTTP/1.1", "");
+                byte[] second = rawGet("/users/2", "HTTP/1.1", "Connection: close\r\n");
+                byte[] pipelined = new byte[first.length + second.length];
+                System.arraycopy(first, 0, pipelined, 0, first.length);
+                System.arraycopy(second, 0, pipelined, first.length, second.length);
+                out.write(pipelined);
+
+                InputStream in = socket.getInputStream();
+                assertEquals("{\"userId\":\"1\"}", RawResponse.read(in).body());
+                assertEquals("{\"userId\":\"2\"}", RawResponse.read(in).body());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.CompressionConfig;
+import com.example.simplehttpserver.http.ContentCoding;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressorTest {
+
+    private static final String PAGE = "<p>compress me</p>\n".repeat(200);
+
+    private final ResponseCompressor compressor = new ResponseCompressor(
+            new CompressionConfig(true, 1024, 6, Set.of("text/*", "application/json")));
+
+    @Test
+    void negotiatesCodingByQualityValue() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0, *"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*;q=0.8"));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("br, identity"));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate(null));
+    }
+
+    @Test
+    void compressesEligibleBodiesWithVariantTag() throws Exception {
+        HttpResponse response = HttpResponse.html(HttpStatus.OK, PAGE)
+                .withHeader("ETag", "\"page-1\"")
+                .withHeader("Content-Length", Integer.toString(PAGE.length()));
+
+        ContentCoding coding = compressor.select(response, ContentCoding.GZIP);
+        HttpResponse gzip = compressor.encode(compressor.describe(response, coding), coding);
+
+        assertEquals(ContentCoding.GZIP, coding);
+        assertEquals("gzip", gzip.headers().get("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.headers().get("Vary"));
+        assertEquals("\"page-1-gzip\"", gzip.headers().get("ETag"));
+        assertNull(gzip.headers().get("Content-Length"));
+        assertTrue(gzip.body().length < PAGE.length() / 10);
+        assertEquals(PAGE, new String(new GZIPInputStream(new ByteArrayInputStream(gzip.body())).readAllBytes(),
+                StandardCharsets.UTF_8));
+
+        HttpResponse deflate = compressor.compress(response, ContentCoding.DEFLATE);
+        assertEquals(PAGE, new String(new InflaterInputStream(new ByteArrayInputStream(deflate.body())).readAllBytes(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void leavesSmallIncompressibleAndFileBodiesAlone() {
+        HttpResponse small = HttpResponse.text(HttpStatus.OK, "tiny");
+        HttpResponse image = HttpResponse.status(HttpStatus.OK)
+                .header("Content-Type", "image/png")
+                .body(new byte[4096])
+                .build();
+        HttpResponse file = HttpResponse.status(HttpStatus.OK)
+                .header("Content-Type", "text/plain")
+                .body(ResponseBody.file(Path.of("large.txt"), 0, 1 << 20))
+                .build();
+        HttpResponse notFound = HttpResponse.text(HttpStatus.NOT_FOUND, PAGE);
+
+        for (HttpResponse response : new HttpResponse[] {small, image, file, notFound}) {
+            assertEquals(ContentCoding.IDENTITY, compressor.select(response, ContentCoding.GZIP));
+            assertSame(response, compressor.compress(response, ContentCoding.GZIP));
+        }
+    }
+
+    @Test
+    void compressesStreamingBodiesAsTheyAreWritten() throws Exception {
+        HttpResponse response = HttpResponse.streaming(HttpStatus.OK, "application/json", out -> {
+            out.write("[".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            out.write("1,2,3]".getBytes(StandardCharsets.UTF_8));
+        });
+
+        HttpResponse compressed = compressor.compress(response, ContentCoding.GZIP);
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        ((ResponseBody.Streaming) compressed.responseBody()).body().writeTo(written);
+        assertEquals("gzip", compressed.headers().get("Content-Encoding"));
+        assertEquals("[1,2,3]", new String(new GZIPInputStream(
+                new ByteArrayInputStream(written.toByteArray())).readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void mergesVaryHeader() {
+        HttpResponse response = HttpResponse.html(HttpStatus.OK, PAGE).withHeader("Vary", "Cookie");
+
+        assertEquals("Cookie, Accept-Encoding",
+                compressor.describe(response, ContentCoding.IDENTITY).headers().get("Vary"));
+        assertFalse(compressor.describe(response, ContentCoding.IDENTITY).headers().containsKey("Content-Encoding"));
+    }
+}
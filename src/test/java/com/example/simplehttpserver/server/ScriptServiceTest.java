@@ -0,0 +1,163 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ScriptConfig;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpResponseWriter;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.script.runtime.ScriptRuntimeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptServiceTest {
+
+    @TempDir
+    Path documentRoot;
+
+    private final Session session = new Session("test", Instant.now().plusSeconds(60));
+
+    @Test
+    void reusesParsedScriptUntilFileChanges() throws Exception {
+        Path script = documentRoot.resolve("page.smscr");
+        write(script, "one [$= 1 2 + $]", 1_000_000);
+        ScriptService service = new ScriptService(PublicResources.directory(documentRoot),
+                new ScriptConfig(true, 0, false, false, false));
+
+        assertEquals("one 3", execute(service, "/page.smscr"));
+
+        write(script, "two [$= 1 2 + $]", 1_000_000);
+        assertEquals("one 3", execute(service, "/page.smscr"));
+
+        write(script, "two [$= 1 2 + $]", 2_000_000);
+        assertEquals("two 3", execute(service, "/page.smscr"));
+
+        Files.delete(script);
+        assertTrue(service.tryExecute("/page.smscr", request("/page.smscr"), session).isEmpty());
+    }
+
+    @Test
+    void precompilesScriptsBelowRootAndCachesParseErrors() throws Exception {
+        Files.createDirectories(documentRoot.resolve("reports"));
+        write(documentRoot.resolve("index.smscr"), "index", 1_000_000);
+        write(documentRoot.resolve("reports/daily.smscr"), "[$ FOR i 1 2 1 $][$= i $][$ END $]", 1_000_000);
+        write(documentRoot.resolve("broken.smscr"), "[$ END $]", 1_000_000);
+        write(documentRoot.resolve("notes.txt"), "not a script", 1_000_000);
+        ScriptService service = new ScriptService(PublicResources.directory(documentRoot),
+                new ScriptConfig(true, -1, true, false, false));
+
+        assertEquals(2, service.precompile());
+
+        write(documentRoot.resolve("reports/daily.smscr"), "changed", 2_000_000);
+        assertEquals("12", execute(service, "/reports/daily.smscr"));
+
+        write(documentRoot.resolve("broken.smscr"), "fixed", 2_000_000);
+        HttpResponse broken = service.tryExecute("/broken.smscr", request("/broken.smscr"), session).orElseThrow();
+        assertEquals(HttpStatus.BAD_REQUEST, broken.status());
+    }
+
+    @Test
+    void parsesOnEveryRequestWhenCacheIsDisabled() throws Exception {
+        Path script = documentRoot.resolve("page.smscr");
+        write(script, "one", 1_000_000);
+        ScriptService service = new ScriptService(PublicResources.directory(documentRoot),
+                new ScriptConfig(false, -1, true, false, false));
+
+        assertEquals(0, service.precompile());
+        assertEquals("one", execute(service, "/page.smscr"));
+        write(script, "two", 1_000_000);
+        assertEquals("two", execute(service, "/page.smscr"));
+    }
+
+    @Test
+    void interpretsScriptsTheCompilerRejects() throws Exception {
+        write(documentRoot.resolve("compiled.smscr"), "[$ FOR i 1 3 1 $][$= i 2 * $][$ END $]", 1_000_000);
+        write(documentRoot.resolve("interpreted.smscr"), "[$ FOR i 3 1 1 $][$= missing $][$ END $]ok", 1_000_000);
+        write(documentRoot.resolve("failing.smscr"), "[$= 1 + $]", 1_000_000);
+        ScriptService service = new ScriptService(PublicResources.directory(documentRoot),
+                new ScriptConfig(true, -1, false, true, false));
+
+        assertEquals("246", execute(service, "/compiled.smscr"));
+        assertEquals("ok", execute(service, "/interpreted.smscr"));
+        HttpResponse failing = service.tryExecute("/failing.smscr", request("/failing.smscr"), session).orElseThrow();
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failing.status());
+    }
+
+    @Test
+    void streamsOutputInChunksWithMimeTypeFromFirstFlush() throws Exception {
+        write(documentRoot.resolve("report.smscr"),
+                "[$= \"text/csv\" @setMimeType $][$ FOR i 1 3000 1 $]row [$= i $]\n[$ END $]", 1_000_000);
+        write(documentRoot.resolve("late.smscr"),
+                "[$ FOR i 1 3000 1 $]row [$= i $]\n[$ END $][$= \"text/csv\" @setMimeType $]", 1_000_000);
+        ScriptService service = new ScriptService(PublicResources.directory(documentRoot),
+                new ScriptConfig(true, -1, false, false, true));
+
+        String streamed = send(service.tryExecute("/report.smscr", request("/report.smscr"), session).orElseThrow(),
+                HttpMethod.GET);
+        assertTrue(streamed.contains("Content-Type: text/csv\r\n"));
+        assertTrue(streamed.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(streamed.contains("ETag"));
+        StringBuilder rows = new StringBuilder();
+        for (int i = 1; i <= 3000; i++) {
+            rows.append("row ").append(i).append('\n');
+        }
+        assertEquals(rows.toString(), dechunk(streamed.substring(streamed.indexOf("\r\n\r\n") + 4)));
+
+        HttpResponse late = service.tryExecute("/late.smscr", request("/late.smscr"), session).orElseThrow();
+        assertThrows(ScriptRuntimeException.class, () -> send(late, HttpMethod.GET));
+
+        HttpRequest head = new HttpRequest(HttpMethod.HEAD, "/report.smscr", "/report.smscr", "HTTP/1.1",
+                Map.of(), Map.of(), new byte[0]);
+        HttpResponse headResponse = service.tryExecute("/report.smscr", head, session).orElseThrow();
+        assertEquals("text/csv", headResponse.headers().get("Content-Type"));
+        assertEquals(rows.length(), headResponse.responseBody().length());
+    }
+
+    private static String send(HttpResponse response, HttpMethod method) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new HttpResponseWriter().write(output, method, "HTTP/1.1", response);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String dechunk(String chunked) {
+        StringBuilder body = new StringBuilder();
+        int position = 0;
+        while (true) {
+            int lineEnd = chunked.indexOf("\r\n", position);
+            int size = Integer.parseInt(chunked.substring(position, lineEnd), 16);
+            if (size == 0) {
+                return body.toString();
+            }
+            body.append(chunked, lineEnd + 2, lineEnd + 2 + size);
+            position = lineEnd + 2 + size + 2;
+        }
+    }
+
+    private String execute(ScriptService service, String path) {
+        HttpResponse response = service.tryExecute(path, request(path), session).orElseThrow();
+        assertEquals(HttpStatus.OK, response.status());
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    private static HttpRequest request(String path) {
+        return new HttpRequest(HttpMethod.GET, path, path, "HTTP/1.1", Map.of(), Map.of(), new byte[0]);
+    }
+
+    private static void write(Path file, String content, long lastModified) throws Exception {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.SessionConfig;
+import com.example.simplehttpserver.config.SessionStoreType;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionManagerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    void reusesSessionFromCookieAmongOtherCookies() {
+        try (SessionManager manager = new SessionManager(60, clock::get, false)) {
+            SessionManager.SessionResolution created = manager.resolve(request(null));
+            String id = created.session().id();
+            assertEquals("SID=" + id + "; Path=/; HttpOnly", created.setCookieHeader().orElseThrow());
+
+            SessionManager.SessionResolution reused = manager.resolve(request("theme=dark;  SID=" + id + " ; lang=hr"));
+            assertEquals(id, reused.session().id());
+            assertTrue(reused.setCookieHeader().isEmpty());
+
+            SessionManager.SessionResolution unknown = manager.resolve(request("XSID=" + id + "; SID=unknown"));
+            assertNotEquals(id, unknown.session().id());
+            assertEquals(new SessionManager.SessionStats(2, 2, 0), manager.stats());
+        }
+    }
+
+    @Test
+    void expiresSessionsThatWereNotTouchedInTime() {
+        try (SessionManager manager = new SessionManager(60, clock::get, false)) {
+            String idle = manager.resolve(request(null)).session().id();
+            String active = manager.resolve(request(null)).session().id();
+            manager.resolve(request(null));
+
+            clock.addAndGet(40_000);
+            manager.resolve(request("SID=" + active));
+            clock.addAndGet(40_000);
+            manager.expireSessions();
+            assertEquals(new SessionManager.SessionStats(1, 3, 2), manager.stats());
+            assertEquals(active, manager.resolve(request("SID=" + active)).session().id());
+            assertNotEquals(idle, manager.resolve(request("SID=" + idle)).session().id());
+
+            clock.addAndGet(3_600_000);
+            assertNotEquals(active, manager.resolve(request("SID=" + active)).session().id());
+            manager.expireSessions();
+            assertEquals(new SessionManager.SessionStats(1, 5, 4), manager.stats());
+        }
+    }
+
+    @Test
+    void expiresManySessionsAcrossShardsInWheelOrder() {
+        try (SessionManager manager = new SessionManager(10, clock::get, false)) {
+            for (int i = 0; i < 1_000; i++) {
+                manager.resolve(request(null));
+                clock.addAndGet(10);
+            }
+
+            clock.addAndGet(10_000 - 5_000);
+            manager.expireSessions();
+            SessionManager.SessionStats halfway = manager.stats();
+            assertTrue(halfway.expired() >= 400 && halfway.expired() <= 500, halfway.toString());
+            assertEquals(1_000, halfway.active() + halfway.expired());
+
+            clock.addAndGet(6_000);
+            manager.expireSessions();
+            assertEquals(new SessionManager.SessionStats(0, 1_000, 1_000), manager.stats());
+        }
+    }
+
+    @Test
+    void resendsSignedCookieOnlyForNewChangedOrAgingSessions() {
+        SessionConfig config = new SessionConfig(SessionStoreType.COOKIE, null, 0, "0123456789abcdef0123456789abcdef");
+        try (SessionManager manager = new SessionManager(60, config, clock::get, false)) {
+            SessionManager.SessionResolution created = manager.resolve(request(null));
+            created.session().put("user", "ana");
+            String cookie = cookieValue(manager.setCookieHeader(created).orElseThrow());
+
+            SessionManager.SessionResolution unchanged = manager.resolve(request("SID=" + cookie));
+            assertEquals(created.session().id(), unchanged.session().id());
+            assertEquals("ana", unchanged.session().get("user").orElseThrow());
+            unchanged.session().put("user", "ana");
+            unchanged.session().remove("missing");
+            assertTrue(manager.setCookieHeader(unchanged).isEmpty());
+
+            String large = "ž".repeat(1_000);
+            unchanged.session().put("note", large);
+            String changed = cookieValue(manager.setCookieHeader(unchanged).orElseThrow());
+            assertTrue(changed.length() < 1_000, changed);
+            assertEquals(large, manager.resolve(request("SID=" + changed)).session().get("note").orElseThrow());
+
+            clock.addAndGet(31_000);
+            SessionManager.SessionResolution aging = manager.resolve(request("SID=" + changed));
+            assertEquals(created.session().id(), aging.session().id());
+            String renewed = cookieValue(manager.setCookieHeader(aging).orElseThrow());
+
+            clock.addAndGet(59_000);
+            assertNotEquals(created.session().id(), manager.resolve(request("SID=" + changed)).session().id());
+            assertEquals(created.session().id(), manager.resolve(request("SID=" + renewed)).session().id());
+            assertNotEquals(created.session().id(), manager.resolve(request("SID=x" + renewed)).session().id());
+            assertEquals(new SessionManager.SessionStats(0, 3, 0), manager.stats());
+        }
+
+        SessionConfig weak = new SessionConfig(SessionStoreType.COOKIE, null, 0, "secret");
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(60, weak, clock::get, false));
+    }
+
+    private static String cookieValue(String setCookieHeader) {
+        return setCookieHeader.substring("SID=".length(), setCookieHeader.indexOf(';'));
+    }
+
+    private static HttpRequest request(String cookie) {
+        Map<String, List<String>> headers = cookie == null ? Map.of() : Map.of("Cookie", List.of(cookie));
+        return new HttpRequest(HttpMethod.GET, "/", "/", "HTTP/1.1", headers, Map.of(), new byte[0]);
+    }
+}
@@ -1,16 +1,40 @@
 package com.example.simplehttpserver.server;
 
 import com.example.simplehttpserver.app.DefaultRoutes;
+import com.example.simplehttpserver.config.AccessLogConfig;
+import com.example.simplehttpserver.config.CompressionConfig;
+import com.example.simplehttpserver.config.ExecutionMode;
+import com.example.simplehttpserver.config.IoModel;
+import com.example.simplehttpserver.config.ScriptConfig;
 import com.example.simplehttpserver.config.ServerConfig;
+import com.example.simplehttpserver.config.SessionConfig;
+import com.example.simplehttpserver.config.SessionStoreType;
+import com.example.simplehttpserver.config.StaticFileConfig;
+import com.example.simplehttpserver.http.HttpMethod;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
 import com.example.simplehttpserver.routing.Router;
 import com.example.simplehttpserver.template.TemplateService;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -33,6 +57,26 @@ class SimpleHttpServerIntegrationTest {
         }
     }
 
+    @Test
+    void streamsTemplateRouteWithSectionsAndPartials() throws Exception {
+        ServerConfig config = testConfig();
+        Router router = testRouter();
+
+        try (SimpleHttpServer server = new SimpleHttpServer(config, router)) {
+            server.start();
+            URI uri = URI.create("http://127.0.0.1:" + server.getBoundPort() + "/template?name=Ana");
+
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            org.junit.jupiter.api.Assertions.assertTrue(response.body().contains("<strong>Ana</strong>"));
+            org.junit.jupiter.api.Assertions.assertTrue(response.body().contains("first visit"));
+            org.junit.jupiter.api.Assertions.assertTrue(response.body().contains("href=\"/scripts/basic.smscr\""));
+            org.junit.jupiter.api.Assertions.assertTrue(response.body().contains("Back to index"));
+        }
+    }
+
     @Test
     void executesScriptFromSmscrResource() throws Exception {
         ServerConfig config = testConfig();
@@ -51,13 +95,393 @@ class SimpleHttpServerIntegrationTest {
         }
     }
 
-    private ServerConfig testConfig() {
+    @Test
+    void servesMultipleRequestsOnKeepAliveConnection() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+
+                out.write(rawGet("/hello", "HTTP/1.1", ""));
+                RawResponse first = RawResponse.read(in);
+                assertEquals(200, first.status());
+                assertEquals("keep-alive", first.header("Connection"));
+                assertEquals("Hello World", first.body());
+
+                out.write(rawGet("/users/7", "HTTP/1.1", "Connection: close\r\n"));
+                RawResponse second = RawResponse.read(in);
+                assertEquals(200, second.status());
+                assertEquals("close", second.header("Connection"));
+                assertEquals("{\"userId\":\"7\"}", second.body());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    void closesHttp10ConnectionUnlessKeepAliveRequested() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                socket.getOutputStream().write(rawGet("/hello", "HTTP/1.0", "Connection: keep-alive\r\n"));
+                RawResponse kept = RawResponse.read(socket.getInputStream());
+                assertEquals("keep-alive", kept.header("Connection"));
+
+                socket.getOutputStream().write(rawGet("/hello", "HTTP/1.0", ""));
+                RawResponse closed = RawResponse.read(socket.getInputStream());
+                assertEquals("close", closed.header("Connection"));
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        }
+    }
+
+    @Test
+    void acceptsChunkedUploadAndStreamsChunkedResponse() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+
+                out.write(("POST /test/body-length HTTP/1.1\r\n"
+                        + "Host: 127.0.0.1\r\n"
+                        + "Transfer-Encoding: chunked\r\n"
+                        + "\r\n"
+                        + "4\r\nabcd\r\n"
+                        + "3\r\nefg\r\n"
+                        + "0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                RawResponse upload = RawResponse.read(in);
+                assertEquals(200, upload.status());
+                assertEquals("7", upload.body());
+
+                out.write(rawGet("/test/stream", "HTTP/1.1", ""));
+                RawResponse streamed = RawResponse.read(in);
+                assertEquals(200, streamed.status());
+                assertEquals("chunked", streamed.header("Transfer-Encoding"));
+                assertEquals("keep-alive", streamed.header("Connection"));
+                assertEquals("line 1\n".repeat(5000).length(), streamed.body().length());
+
+                out.write(rawGet("/hello", "HTTP/1.1", "Connection: close\r\n"));
+                assertEquals("Hello World", RawResponse.read(in).body());
+            }
+        }
+    }
+
+    @Test
+    void revalidatesStaticFilesWithNotModified() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+
+                out.write(rawGet("/styles.css", "HTTP/1.1", ""));
+                RawResponse full = RawResponse.read(in);
+                assertEquals(200, full.status());
+                assertEquals("public, max-age=3600", full.header("Cache-Control"));
+                String etag = full.headers().get("ETag");
+                org.junit.jupiter.api.Assertions.assertNotNull(etag);
+
+                out.write(rawGet("/styles.css", "HTTP/1.1", "If-None-Match: " + etag + "\r\n"));
+                RawResponse revalidated = RawResponse.read(in);
+                assertEquals(304, revalidated.status());
+                assertEquals(etag, revalidated.headers().get("ETag"));
+                assertEquals("public, max-age=3600", revalidated.header("Cache-Control"));
+                assertEquals(null, revalidated.header("Content-Length"));
+
+                out.write(rawGet("/styles.css", "HTTP/1.1",
+                        "If-Modified-Since: " + full.headers().get("Last-Modified") + "\r\nConnection: close\r\n"));
+                assertEquals(304, RawResponse.read(in).status());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    void compressesResponsesForClientsAcceptingGzip() throws Exception {
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.start();
+
+            try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+
+                out.write(rawGet("/test/stream", "HTTP/1.1", "Accept-Encoding: gzip\r\n"));
+                RawResponse streamed = RawResponse.readHead(in);
+                assertEquals("gzip", streamed.header("Content-Encoding"));
+                assertEquals("chunked", streamed.header("Transfer-Encoding"));
+                byte[] compressed = RawResponse.readChunked(in);
+                String body = new String(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes(),
+                        StandardCharsets.UTF_8);
+                assertEquals("line 1\n".repeat(5000), body);
+
+                out.write(rawGet("/styles.css", "HTTP/1.1", "Accept-Encoding: gzip, deflate\r\n"));
+                RawResponse head = RawResponse.readHead(in);
+                assertEquals("gzip", head.header("Content-Encoding"));
+                assertEquals("accept-encoding", head.header("Vary"));
+                byte[] css = new GZIPInputStream(new ByteArrayInputStream(
+                        in.readNBytes(Integer.parseInt(head.header("Content-Length"))))).readAllBytes();
+                assertEquals(Files.size(Path.of(getClass().getResource("/public/styles.css").toURI())), css.length);
+
+                out.write(rawGet("/styles.css", "HTTP/1.1",
+                        "Accept-Encoding: gzip\r\nIf-None-Match: " + head.headers().get("ETag")
+                                + "\r\nConnection: close\r\n"));
+                assertEquals(304, RawResponse.read(in).status());
+            }
+        }
+    }
+
+    @Test
+    void servesByteRangesOfFilesWithoutBreakingKeepAlive() throws Exception {
+        Path file = Files.createTempFile("simple-http-server-", ".bin");
+        try {
+            byte[] content = new byte[256 * 1024];
+            new Random(7).nextBytes(content);
+            Files.write(file, content);
+
+            Router router = testRouter();
+            router.addRoute(HttpMethod.GET, "/test/file", context ->
+                    com.example.simplehttpserver.http.HttpResponse.status(HttpStatus.OK)
+                            .header("Content-Type", "application/octet-stream")
+                            .header("Accept-Ranges", "bytes")
+                            .body(ResponseBody.file(file, 0, content.length))
+                            .build());
+
+            try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), router)) {
+                server.start();
+
+                try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = socket.getInputStream();
+
+                    out.write(rawGet("/test/file", "HTTP/1.1", "Range: bytes=200000-200099\r\n"));
+                    RawResponse head = RawResponse.readHead(in);
+                    assertEquals(206, head.status());
+                    assertEquals("bytes 200000-200099/" + content.length, head.header("Content-Range"));
+                    assertEquals("100", head.header("Content-Length"));
+                    org.junit.jupiter.api.Assertions.assertArrayEquals(
+                            java.util.Arrays.copyOfRange(content, 200000, 200100), in.readNBytes(100));
+
+                    out.write(rawGet("/test/file", "HTTP/1.1", "Range: bytes=0-0,-1\r\n"));
+                    RawResponse multipart = RawResponse.readHead(in);
+                    assertEquals(206, multipart.status());
+                    org.junit.jupiter.api.Assertions.assertTrue(
+                            multipart.header("Content-Type").startsWith("multipart/byteranges; boundary="));
+                    in.readNBytes(Integer.parseInt(multipart.header("Content-Length")));
+
+                    out.write(rawGet("/styles.css", "HTTP/1.1", "Range: bytes=0-9\r\nConnection: close\r\n"));
+                    RawResponse css = RawResponse.read(in);
+                    assertEquals(206, css.status());
+                    assertEquals("bytes", css.header("Accept-Ranges"));
+                    assertEquals(10, css.body().length());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void sendsFileBodiesWithoutBreakingKeepAlive() throws Exception {
+        Path file = Files.createTempFile("simple-http-server-", ".bin");
+        try {
+            byte[] content = new byte[3 * 1024 * 1024 + 17];
+            new Random(42).nextBytes(content);
+            Files.write(file, content);
+
+            Router router = testRouter();
+            router.addRoute(HttpMethod.GET, "/test/file", context ->
+                    com.example.simplehttpserver.http.HttpResponse.status(HttpStatus.OK)
+                            .header("Content-Type", "application/octet-stream")
+                            .body(ResponseBody.file(file, 0, content.length))
+                            .build());
+
+            try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), router)) {
+                server.start();
+
+                try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = socket.getInputStream();
+
+                    out.write(rawGet("/test/file", "HTTP/1.1", ""));
+                    RawResponse head = RawResponse.readHead(in);
+                    assertEquals(200, head.status());
+                    assertEquals(Integer.toString(content.length), head.header("Content-Length"));
+                    org.junit.jupiter.api.Assertions.assertArrayEquals(content, in.readNBytes(content.length));
+
+                    out.write(rawGet("/index.html", "HTTP/1.1", "Connection: close\r\n"));
+                    RawResponse index = RawResponse.read(in);
+                    assertEquals(200, index.status());
+                    org.junit.jupiter.api.Assertions.assertTrue(index.body().contains("<html"));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void sharesSignedCookieSessionsBetweenServersAndResendsThemOnlyWhenChanged() throws Exception {
+        SessionConfig sessions = new SessionConfig(SessionStoreType.COOKIE, null, 0, "k".repeat(32));
+        ServerConfig config = testConfig(ExecutionMode.PLATFORM, ServerConfig.DEFAULT_MAX_CONCURRENCY,
+                IoModel.BLOCKING, sessions);
+        Router router = testRouter();
+        router.addRoute(HttpMethod.GET, "/test/stream-session", context ->
+                com.example.simplehttpserver.http.HttpResponse.streaming(HttpStatus.OK, "text/plain; charset=UTF-8",
+                        out -> {
+                            context.session().put("streamed", "yes");
+                            out.write("done".getBytes(StandardCharsets.UTF_8));
+                        }));
+
+        try (SimpleHttpServer first = new SimpleHttpServer(config, router);
+             SimpleHttpServer second = new SimpleHttpServer(config, router)) {
+            first.start();
+            second.start();
+
+            RawResponse created = rawGetClosing(first, "/hello", null);
+            String cookie = sessionCookie(created);
+            org.junit.jupiter.api.Assertions.assertNull(rawGetClosing(first, "/hello", cookie).header("Set-Cookie"));
+
+            RawResponse visited = rawGetClosing(second, "/template", cookie);
+            org.junit.jupiter.api.Assertions.assertTrue(visited.body().contains("first visit"));
+            cookie = sessionCookie(visited);
+            RawResponse revisited = rawGetClosing(first, "/template", cookie);
+            org.junit.jupiter.api.Assertions.assertTrue(revisited.body().contains("<strong>2</strong> time(s)"));
+            cookie = sessionCookie(revisited);
+
+            cookie = sessionCookie(rawGetClosing(second, "/test/stream-session", cookie));
+            RawResponse streamed = rawGetClosing(first, "/template", cookie);
+            org.junit.jupiter.api.Assertions.assertTrue(streamed.body().contains("<strong>3</strong> time(s)"));
+
+            String tampered = cookie.substring(0, 10) + (cookie.charAt(10) == 'A' ? 'B' : 'A') + cookie.substring(11);
+            RawResponse rejected = rawGetClosing(first, "/template", tampered);
+            org.junit.jupiter.api.Assertions.assertTrue(rejected.body().contains("first visit"));
+        }
+    }
+
+    @Test
+    void servesPipelinedRequestsOnAProvidedSocketWithoutStarting() throws Exception {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.write(rawGet("/hello", "HTTP/1.1", ""));
+        requests.write(rawGet("/users/7", "HTTP/1.1", ""));
+        InMemorySocket socket = new InMemorySocket(requests.toByteArray());
+
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.serve(socket);
+        }
+
+        org.junit.jupiter.api.Assertions.assertTrue(socket.isClosed());
+        InputStream responses = new ByteArrayInputStream(socket.output.toByteArray());
+        assertEquals("Hello World", RawResponse.read(responses).body());
+        assertEquals("{\"userId\":\"7\"}", RawResponse.read(responses).body());
+        assertEquals(-1, responses.read());
+    }
+
+    @Test
+    void servesMetricsPerRouteInPrometheusFormat() throws Exception {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.write(rawGet("/hello", "HTTP/1.1", ""));
+        requests.write(rawGet("/users/7", "HTTP/1.1", ""));
+        requests.write(rawGet("/users/8", "HTTP/1.1", ""));
+        requests.write(rawGet("/index.html", "HTTP/1.1", ""));
+        requests.write(rawGet("/metrics", "HTTP/1.1", ""));
+        InMemorySocket socket = new InMemorySocket(requests.toByteArray());
+
+        try (SimpleHttpServer server = new SimpleHttpServer(testConfig(), testRouter())) {
+            server.serve(socket);
+        }
+
+        ByteArrayInputStream responses = new ByteArrayInputStream(socket.output.toByteArray());
+        int before = responses.available();
+        RawResponse.read(responses);
+        int helloBytes = before - responses.available();
+        for (int i = 0; i < 3; i++) {
+            RawResponse.read(responses);
+        }
+        RawResponse metrics = RawResponse.read(responses);
+
+        assertEquals(200, metrics.status());
+        assertEquals("text/plain; version=0.0.4; charset=utf-8", metrics.headers().get("Content-Type"));
+        org.junit.jupiter.api.Assertions.assertFalse(metrics.headers().containsKey("Set-Cookie"));
+        String body = metrics.body();
+        assertContainsLine(body, "# TYPE http_request_handler_seconds histogram");
+        assertContainsLine(body, "http_request_handler_seconds_count{route=\"/hello\"} 1");
+        assertContainsLine(body, "http_request_handler_seconds_count{route=\"/users/{id}\"} 2");
+        assertContainsLine(body, "http_request_handler_seconds_count{route=\"static\"} 1");
+        assertContainsLine(body, "http_request_handler_seconds_bucket{route=\"/users/{id}\",le=\"+Inf\"} 2");
+        assertContainsLine(body, "http_response_bytes_total{route=\"/hello\"} " + helloBytes);
+        assertContainsLine(body, "http_request_parse_seconds_count 5");
+        assertContainsLine(body, "http_request_routing_seconds_count 4");
+        assertContainsLine(body, "http_sessions_created_total 4");
+    }
+
+    @Test
+    void refusesMetricsPathUsedByARoute() {
+        Router router = testRouter();
+        router.addRoute(HttpMethod.GET, "/metrics", context -> com.example.simplehttpserver.http.HttpResponse.text(
+                HttpStatus.OK, "application metrics"));
+
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SimpleHttpServer(testConfig(), router));
+    }
+
+    private static void assertContainsLine(String text, String line) {
+        org.junit.jupiter.api.Assertions.assertTrue(text.lines().anyMatch(line::equals),
+                () -> "Missing line " + line + " in:\n" + text);
+    }
+
+    private static RawResponse rawGetClosing(SimpleHttpServer server, String path, String cookie) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getBoundPort())) {
+            String cookieHeader = cookie == null ? "" : "Cookie: SID=" + cookie + "\r\n";
+            socket.getOutputStream().write(rawGet(path, "HTTP/1.1", cookieHeader + "Connection: close\r\n"));
+            RawResponse response = RawResponse.read(socket.getInputStream());
+            assertEquals(200, response.status());
+            return response;
+        }
+    }
+
+    private static String sessionCookie(RawResponse response) {
+        // header() lower-cases values, and the signed value is case-sensitive.
+        String header = response.headers().get("Set-Cookie");
+        org.junit.jupiter.api.Assertions.assertNotNull(header);
+        return header.substring("SID=".length(), header.indexOf(';'));
+    }
+
+    static byte[] rawGet(String path, String version, String extraHeaders) {
+        String request = "GET " + path + " " + version + "\r\n"
+                + "Host: 127.0.0.1\r\n"
+                + extraHeaders
+                + "\r\n";
+        return request.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    ServerConfig testConfig() {
+        return testConfig(ExecutionMode.PLATFORM, ServerConfig.DEFAULT_MAX_CONCURRENCY, IoModel.BLOCKING);
+    }
+
+    static ServerConfig testConfig(ExecutionMode executionMode, int maxConcurrency, IoModel ioModel) {
+        return testConfig(executionMode, maxConcurrency, ioModel, SessionConfig.defaults());
+    }
+
+    static ServerConfig testConfig(ExecutionMode executionMode, int maxConcurrency, IoModel ioModel,
+                                   SessionConfig sessions) {
         return new ServerConfig(
                 "127.0.0.1",
                 0,
                 4,
                 16,
+                executionMode,
+                maxConcurrency,
+                ioModel,
+                2,
                 5000,
+                ServerConfig.DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS,
+                ServerConfig.DEFAULT_MAX_REQUESTS_PER_CONNECTION,
                 300,
                 16384,
                 1048576,
@@ -65,15 +489,130 @@ class SimpleHttpServerIntegrationTest {
                 "templates",
                 Map.of(
                         "html", "text/html; charset=UTF-8",
+                        "css", "text/css; charset=UTF-8",
                         "txt", "text/plain; charset=UTF-8",
                         "smscr", "text/plain; charset=UTF-8"
-                )
+                ),
+                StaticFileConfig.defaults(),
+                Map.of("/styles.css", "public, max-age=3600"),
+                CompressionConfig.defaults(),
+                ScriptConfig.defaults(),
+                sessions,
+                "/metrics",
+                AccessLogConfig.defaults()
         );
     }
 
-    private Router testRouter() {
+    Router testRouter() {
         Router router = new Router();
         DefaultRoutes.register(router, new TemplateService("templates"));
+        router.addRoute(HttpMethod.POST, "/test/body-length", context ->
+                com.example.simplehttpserver.http.HttpResponse.text(HttpStatus.OK,
+                        Integer.toString(context.request().body().length)));
+        router.addRoute(HttpMethod.GET, "/test/stream", context ->
+                com.example.simplehttpserver.http.HttpResponse.streaming(HttpStatus.OK, "text/plain; charset=UTF-8",
+                        out -> {
+                            for (int i = 0; i < 5000; i++) {
+                                out.write("line 1\n".getBytes(StandardCharsets.UTF_8));
+                            }
+                        }));
         return router;
     }
+
+    record RawResponse(int status, Map<String, String> headers, String body) {
+
+        static RawResponse read(InputStream in) throws IOException {
+            RawResponse head = readHead(in);
+            Map<String, String> headers = head.headers();
+            int status = head.status();
+
+            if ("chunked".equalsIgnoreCase(headers.get("Transfer-Encoding"))) {
+                return new RawResponse(status, headers, new String(readChunked(in), StandardCharsets.UTF_8));
+            }
+
+            int contentLength = Integer.parseInt(headers.getOrDefault("Content-Length", "0"));
+            String body = new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+            return new RawResponse(status, headers, body);
+        }
+
+        /**
+         * Reads the status line and headers only, leaving the body on the stream.
+         */
+        static RawResponse readHead(InputStream in) throws IOException {
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.split(" ")[1]);
+
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int separator = line.indexOf(':');
+                headers.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+            }
+            return new RawResponse(status, headers, "");
+        }
+
+        static byte[] readChunked(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int chunkSize;
+            while ((chunkSize = Integer.parseInt(readLine(in).trim(), 16)) > 0) {
+                body.write(in.readNBytes(chunkSize));
+                readLine(in);
+            }
+            readLine(in);
+            return body.toByteArray();
+        }
+
+        String header(String name) {
+            return headers.get(name) == null ? null : headers.get(name).toLowerCase(Locale.ROOT);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * A connected socket whose peer has already sent {@code input} and then shut down its side.
+     */
+    static final class InMemorySocket extends Socket {
+
+        private final InputStream input;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private boolean closed;
+
+        InMemorySocket(byte[] input) {
+            this.input = new ByteArrayInputStream(input);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return output;
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
 }
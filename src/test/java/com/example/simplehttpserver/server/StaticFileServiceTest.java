@@ -0,0 +1,186 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.CompressionConfig;
+import com.example.simplehttpserver.config.StaticFileConfig;
+import com.example.simplehttpserver.http.ContentCoding;
+import com.example.simplehttpserver.http.HttpResponse;
+import com.example.simplehttpserver.http.HttpStatus;
+import com.example.simplehttpserver.http.ResponseBody;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaticFileServiceTest {
+
+    private static final Map<String, String> MIME_TYPES = Map.of(
+            "css", "text/css; charset=UTF-8",
+            "html", "text/html; charset=UTF-8"
+    );
+
+    @TempDir
+    Path documentRoot;
+
+    @Test
+    void servesDocumentRootFilesFromMemoryAfterFirstHit() throws Exception {
+        Files.writeString(documentRoot.resolve("site.css"), "body{}", StandardCharsets.UTF_8);
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 1024, 1024, -1));
+
+        HttpResponse first = service.tryServe("/site.css").orElseThrow();
+        HttpResponse second = service.tryServe("/site.css").orElseThrow();
+
+        assertEquals(HttpStatus.OK, first.status());
+        assertEquals("text/css; charset=UTF-8", first.headers().get("Content-Type"));
+        assertEquals("6", first.headers().get("Content-Length"));
+        assertEquals("body{}", new String(first.body(), StandardCharsets.UTF_8));
+        assertSame(first, second);
+        assertNotNull(first.headers().get("ETag"));
+        assertNotNull(first.headers().get("Last-Modified"));
+    }
+
+    @Test
+    void reloadsFileWhenModificationTimeChanges() throws Exception {
+        Path file = documentRoot.resolve("index.html");
+        Files.writeString(file, "<p>one</p>", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 1024, 1024, 0));
+
+        HttpResponse first = service.tryServe("/").orElseThrow();
+        assertEquals("<p>one</p>", new String(first.body(), StandardCharsets.UTF_8));
+
+        Files.writeString(file, "<p>two</p>", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+        HttpResponse second = service.tryServe("/").orElseThrow();
+        assertEquals("<p>two</p>", new String(second.body(), StandardCharsets.UTF_8));
+        assertNotEquals(first.headers().get("ETag"), second.headers().get("ETag"));
+        assertEquals("Thu, 01 Jan 1970 00:33:20 GMT", second.headers().get("Last-Modified"));
+
+        Files.delete(file);
+        assertTrue(service.tryServe("/").isEmpty());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFilesBeyondByteLimit() throws Exception {
+        Files.writeString(documentRoot.resolve("a.css"), "aaaa", StandardCharsets.UTF_8);
+        Files.writeString(documentRoot.resolve("b.css"), "bbbb", StandardCharsets.UTF_8);
+        Files.writeString(documentRoot.resolve("c.css"), "cccc", StandardCharsets.UTF_8);
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 10, 10, -1));
+
+        HttpResponse a = service.tryServe("/a.css").orElseThrow();
+        HttpResponse b = service.tryServe("/b.css").orElseThrow();
+        service.tryServe("/a.css");
+        service.tryServe("/c.css");
+
+        assertSame(a, service.tryServe("/a.css").orElseThrow());
+        assertNotSame(b, service.tryServe("/b.css").orElseThrow());
+    }
+
+    @Test
+    void servesConcurrentHitsWhileEvicting() throws Exception {
+        for (int i = 0; i < 16; i++) {
+            Files.writeString(documentRoot.resolve(i + ".css"), Integer.toString(i).repeat(50), StandardCharsets.UTF_8);
+        }
+        // Room for a few files only, so hits on cached files run alongside inserts that evict.
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 500, 500, -1));
+
+        try (ExecutorService threads = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                results.add(threads.submit(() -> {
+                    for (int request = 0; request < 2000; request++) {
+                        int file = (request * 7 + seed) % (request % 3 == 0 ? 16 : 4);
+                        HttpResponse response = service.tryServe("/" + file + ".css").orElseThrow();
+                        assertEquals(Integer.toString(file).repeat(50), new String(response.body(),
+                                StandardCharsets.UTF_8));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+    }
+
+    @Test
+    void sendsFilesAboveEntryLimitFromDisk() throws Exception {
+        Files.writeString(documentRoot.resolve("large.html"), "0123456789", StandardCharsets.UTF_8);
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 1024, 4, -1));
+
+        HttpResponse response = service.tryServe("/large.html").orElseThrow();
+
+        ResponseBody.FileRegion region = assertInstanceOf(ResponseBody.FileRegion.class, response.responseBody());
+        assertEquals(10, region.count());
+        assertEquals("text/html; charset=UTF-8", response.headers().get("Content-Type"));
+    }
+
+    @Test
+    void cachesCompressedVariantsAndPrefersGzipSiblings() throws Exception {
+        String css = "body { margin: 0; }\n".repeat(100);
+        Files.writeString(documentRoot.resolve("site.css"), css, StandardCharsets.UTF_8);
+        Files.writeString(documentRoot.resolve("app.css"), css, StandardCharsets.UTF_8);
+        byte[] precompressed = ContentCoding.GZIP.encode(css.getBytes(StandardCharsets.UTF_8), 0, css.length(), 9);
+        Files.write(documentRoot.resolve("app.css.gz"), precompressed);
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 1 << 20, 1 << 20, -1));
+
+        HttpResponse plain = service.tryServe("/site.css", ContentCoding.IDENTITY).orElseThrow();
+        HttpResponse deflated = service.tryServe("/site.css", ContentCoding.DEFLATE).orElseThrow();
+        HttpResponse sibling = service.tryServe("/app.css", ContentCoding.GZIP).orElseThrow();
+
+        assertEquals("Accept-Encoding", plain.headers().get("Vary"));
+        assertNull(plain.headers().get("Content-Encoding"));
+        assertEquals("deflate", deflated.headers().get("Content-Encoding"));
+        assertTrue(deflated.body().length < css.length());
+        assertSame(deflated, service.tryServe("/site.css", ContentCoding.DEFLATE).orElseThrow());
+        assertEquals("gzip", sibling.headers().get("Content-Encoding"));
+        assertArrayEquals(precompressed, sibling.body());
+        assertTrue(sibling.headers().get("ETag").endsWith("-gzip\""));
+    }
+
+    @Test
+    void sendsGzipSiblingOfLargeFileFromDisk() throws Exception {
+        Files.writeString(documentRoot.resolve("large.html"), "0123456789", StandardCharsets.UTF_8);
+        Files.write(documentRoot.resolve("large.html.gz"), new byte[8]);
+        StaticFileService service = service(new StaticFileConfig(documentRoot.toString(), 1024, 4, -1));
+
+        HttpResponse response = service.tryServe("/large.html", ContentCoding.GZIP).orElseThrow();
+
+        ResponseBody.FileRegion region = assertInstanceOf(ResponseBody.FileRegion.class, response.responseBody());
+        assertEquals(documentRoot.resolve("large.html.gz"), region.path());
+        assertEquals("gzip", response.headers().get("Content-Encoding"));
+    }
+
+    @Test
+    void rejectsPathsOutsideDocumentRoot() {
+        StaticFileService service = service(StaticFileConfig.defaults());
+
+        assertEquals(HttpStatus.FORBIDDEN, service.tryServe("/../secret.txt").orElseThrow().status());
+        assertTrue(service.tryServe("/missing.css").isEmpty());
+        assertTrue(service.tryServe("/").isEmpty(), "directories and missing index files are not served");
+    }
+
+    private StaticFileService service(StaticFileConfig config) {
+        return new StaticFileService(PublicResources.directory(documentRoot), config,
+                new ResponseCompressor(CompressionConfig.defaults()), MIME_TYPES);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.simplehttpserver.server;
+
+import com.example.simplehttpserver.config.ExecutionMode;
+import com.example.simplehttpserver.config.IoModel;
+import com.example.simplehttpserver.config.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs every {@link SimpleHttpServerIntegrationTest} scenario with connection handlers on virtual threads.
+ */
+class VirtualThreadSimpleHttpServerIntegrationTest extends SimpleHttpServerIntegrationTest {
+
+    @Override
+    ServerConfig testConfig() {
+        return testConfig(ExecutionMode.VIRTUAL, ServerConfig.DEFAULT_MAX_CONCURRENCY, IoModel.BLOCKING);
+    }
+
+    @Test
+    void rejectsConnectionsBeyondConcurrencyLimit() throws Exception {
+        ServerConfig config = testConfig(ExecutionMode.VIRTUAL, 1, IoModel.BLOCKING);
+
+        try (SimpleHttpServer server = new SimpleHttpServer(config, testRouter())) {
+            server.start();
+
+            try (Socket holdingSocket = new Socket("127.0.0.1", server.getBoundPort());
+                 Socket rejectedSocket = new Socket("127.0.0.1", server.getBoundPort())) {
+                RawResponse rejected = RawResponse.read(rejectedSocket.getInputStream());
+                assertEquals(503, rejected.status());
+
+                holdingSocket.getOutputStream().write(rawGet("/hello", "HTTP/1.1", "Connection: close\r\n"));
+                RawResponse served = RawResponse.read(holdingSocket.getInputStream());
+                assertEquals(200, served.status());
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.simplehttpserver.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemplateEngineTest {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{\\s*([a-zA-Z0-9_.-]+)\\s*}}");
+
+    @Test
+    void rendersTheSameAsTheRegexReplacement() {
+        Map<String, String> model = new HashMap<>();
+        model.put("name", "Ana $1 \\ {{name}}");
+        model.put("user.id", "42");
+        model.put("city", "Zagreb čćž 😀");
+        model.put("nothing", null);
+
+        String[] templates = {
+                "",
+                "no placeholders",
+                "{{name}}",
+                "Hello, {{ name }}! {{name}}{{name}}",
+                "{{\tuser.id\n}} {{user-id}} {{missing}} {{nothing}}",
+                "{{{name}}} {{ }} {{name} {{na me}} {name}} {{",
+                "unterminated {{name",
+                "{{ city }} ünïcödé ✓ {{city}}"
+        };
+
+        TemplateEngine engine = new TemplateEngine();
+        for (String template : templates) {
+            assertEquals(regexRender(template, model), engine.render(template, model), template);
+        }
+    }
+
+    @Test
+    void compilesLiteralSegmentsAndPlaceholderSlots() {
+        CompiledTemplate template = new TemplateCompiler().compile("<p>{{a}}, {{ b }} and {{a}}</p>");
+
+        assertEquals(3, template.placeholderCount());
+        assertEquals("<p>1, 2 and 1</p>",
+                new String(template.render(Map.of("a", "1", "b", "2")), StandardCharsets.UTF_8));
+        assertEquals("<p>,  and </p>", new String(template.render(Map.of()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rendersSectionsOverStructuredModels() throws IOException {
+        record Item(String name, int price, List<String> tags) {
+        }
+        Map<String, Object> model = Map.of(
+                "title", "Shop",
+                "items", List.of(new Item("pen", 2, List.of("blue", "new")), new Item("ink", 10, List.of())),
+                "owner", Map.of("name", "Ana", "address", Map.of("city", "Split")),
+                "open", true,
+                "closed", false,
+                "ratings", new Integer[] {4, 5});
+        String source = "{{title}}:{{#items}} {{name}}={{price}}{{#tags}}[{{.}}]{{/tags}}{{^tags}}-{{/tags}}"
+                + "{{/items}}"
+                + "|{{owner.name}} in {{owner.address.city}}{{#owner}} ({{name}}, {{title}}){{/owner}}"
+                + "|{{#open}}open{{/open}}{{#closed}}closed{{/closed}}{{^missing}} none{{/missing}}"
+                + "|{{#ratings}}{{.}}{{/ratings}}{{owner.missing.deeper}}";
+        String expected = "Shop: pen=2[blue][new] ink=10-|Ana in Split (Ana, Shop)|open none|45";
+
+        CompiledTemplate template = new TemplateCompiler().compile(source);
+        assertEquals(expected, new String(template.render(model), StandardCharsets.UTF_8));
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        template.renderTo(model, streamed);
+        assertEquals(expected, streamed.toString(StandardCharsets.UTF_8));
+
+        String longValue = "x".repeat(10_000) + " ✓";
+        ByteArrayOutputStream large = new ByteArrayOutputStream();
+        new TemplateCompiler().compile("{{#rows}}{{.}}|{{/rows}}")
+                .renderTo(Map.of("rows", List.of(longValue, "ž")), large);
+        assertEquals(longValue + "|ž|", large.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void inlinesPartialsAtCompileTimeAndRejectsMalformedTemplates() throws IOException {
+        Map<String, String> partials = Map.of(
+                "row", "<li>{{.}}</li>{{> inner}}",
+                "inner", "!",
+                "loop", "{{> loop}}");
+        TemplateCompiler compiler = new TemplateCompiler();
+
+        CompiledTemplate template = compiler.compile("<ul>{{#rows}}{{> row}}{{/rows}}</ul>", partials::get);
+        assertEquals("<ul><li>a</li>!<li>b</li>!</ul>",
+                new String(template.render(Map.of("rows", List.of("a", "b"))), StandardCharsets.UTF_8));
+        assertEquals(1, template.placeholderCount());
+
+        assertThrows(TemplateException.class, () -> compiler.compile("{{> loop}}", partials::get));
+        assertThrows(TemplateException.class, () -> compiler.compile("{{> row}}"));
+        assertThrows(TemplateException.class, () -> compiler.compile("{{#a}}{{#b}}{{/a}}{{/b}}"));
+        assertThrows(TemplateException.class, () -> compiler.compile("{{#a}}open"));
+        assertThrows(TemplateException.class, () -> compiler.compile("{{/a}}"));
+    }
+
+    @Test
+    void cachesCompiledTemplatesPerName() throws IOException {
+        TemplateService service = new TemplateService("templates");
+
+        CompiledTemplate first = service.compiled("demo.html.tpl");
+        assertSame(first, service.compiled("./demo.html.tpl"));
+        String page = service.render("demo.html.tpl", Map.of("name", "Ana", "firstVisit", true,
+                "links", List.of(Map.of("href", "/hello", "label", "Hello"))));
+        assertTrue(page.contains("<strong>Ana</strong>"));
+        assertTrue(page.contains("first visit"));
+        assertTrue(page.contains("<li><a href=\"/hello\">Hello</a></li>"));
+        assertTrue(page.contains("Back to index"));
+
+        assertThrows(IOException.class, () -> service.compiled("missing.tpl"));
+        assertThrows(IllegalArgumentException.class, () -> service.compiled("../server.properties"));
+    }
+
+    private static String regexRender(String template, Map<String, String> model) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String value = model.get(matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value == null ? "" : value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+}